@@ -1,144 +1,249 @@
-package cache;
-
-import static java.util.Objects.isNull;
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertFalse;
-import static org.junit.Assert.assertNull;
-import static org.junit.Assert.assertTrue;
-
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Random;
-
-import org.junit.Before;
-import org.junit.Test;
-
-import cache.hash.NullSafeHashFunction;
-import cache.replacement.LeastRecentlyUsed;
-import cache.subcache.SubCacheFactory.SubCacheType;
-
-public class BasicTest {
-    private static int MAX_SETS = 1;
-    private static int MAX_BLOCKS_PER_SET = 5;
-
-    private Cache<String, String> cache;
-
-    @Before
-    public void setUpNewCache() {
-        NWaySetAssociativeCache.Builder<String, String> builder = new NWaySetAssociativeCache.Builder<>();
-        builder.setTotalSets(MAX_SETS)
-            .setSubCacheType(SubCacheType.HASH_MAP_CACHE_SET)
-            .setBlockSize(MAX_BLOCKS_PER_SET)
-            .setReplacementAlgorithm(new LeastRecentlyUsed<>())
-            .setHashFunction(new NullSafeHashFunction());
-
-        cache = builder.build();
-    }
-
-    @Test
-    public void testNull() {
-        String key = null;
-        String value = null;
-        assertNull(cache.put(key, value));
-        assertTrue(cache.containsKey(key));
-    }
-    
-    @Test
-    public void testClear() {
-        String keyPrefix = "key";
-
-        for (int i = 0; i < MAX_SETS * MAX_BLOCKS_PER_SET; i++) {
-            String key = keyPrefix + i;
-            cache.put(key, key);
-        }
-        cache.clear();
-        assertTrue(cache.isEmpty());
-    }
-
-    @Test
-    public void testBasic_keyCollision() {
-        String keyPrefix = "key";
-
-        List<String> addedKeys = new ArrayList<>();
-        List<String> removedKeys = new ArrayList<>();
-
-        for (int i = 0; i < MAX_SETS * MAX_BLOCKS_PER_SET; i++) {
-            String key = keyPrefix + i;
-            String value = cache.put(key, key);
-            if (isNull(value)) {
-                System.out.println("Adding: " + key);
-            } else {
-                System.out.println("Evicted: " + value);
-                removedKeys.add(value);
-            }
-            addedKeys.add(key);
-        }
-        addedKeys.removeAll(removedKeys);
-        String value = "aaaa";
-        for (String key : addedKeys) {
-            assertEquals(key, cache.put(key, value));
-            assertEquals(value, cache.get(key));
-        }
-
-        assertEquals(addedKeys.size(), cache.size());
-    }
-
-    @Test
-    public void testBasic_usesEviction() {
-        String keyPrefix = "key";
-
-        Random random = new Random();
-        List<String> addedKeys = new ArrayList<>();
-        List<String> removedKeys = new ArrayList<>();
-
-        for (int i = 0; i < MAX_SETS * MAX_BLOCKS_PER_SET * 2; i++) {
-            int x = random.nextInt();
-            String key = keyPrefix + x;
-            String value = cache.put(key, key);
-            if (isNull(value)) {
-                System.out.println("Adding: " + key);
-            } else {
-                System.out.println("Evicted: " + value);
-                removedKeys.add(value);
-            }
-            addedKeys.add(key);
-        }
-
-        for (String key : removedKeys) {
-            assertFalse(cache.containsKey(key));
-        }
-        addedKeys.removeAll(removedKeys);
-        for (String key : addedKeys) {
-            assertEquals(key, cache.get(key));
-        }
-
-        assertEquals(addedKeys.size(), cache.size());
-    }
-
-    @Test
-    public void testBasic_removeKeys() {
-        String keyPrefix = "key";
-
-        List<String> addedKeys = new ArrayList<>();
-        List<String> removedKeys = new ArrayList<>();
-
-        for (int i = 0; i < MAX_SETS * MAX_BLOCKS_PER_SET * 2; i++) {
-            String key = keyPrefix + i;
-            String value = cache.put(key, key);
-            if (isNull(value)) {
-                System.out.println("Adding: " + key);
-            } else {
-                System.out.println("Evicted: " + value);
-                removedKeys.add(value);
-            }
-            addedKeys.add(key);
-        }
-        addedKeys.removeAll(removedKeys);
-        for (String key : addedKeys) {
-            assertEquals(key, cache.remove(key));
-            assertFalse(cache.containsKey(key));
-        }
-
-        assertTrue(cache.isEmpty());
-    }
-}
+package cache;
+
+import static java.util.Objects.isNull;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import cache.hash.NullSafeHashFunction;
+import cache.removal.RemovalCause;
+import cache.writer.CacheWriter;
+import cache.writer.WriteBehindWriter;
+import cache.replacement.LeastRecentlyUsed;
+import cache.subcache.SubCacheFactory.SubCacheType;
+
+public class BasicTest {
+    private static int MAX_SETS = 1;
+    private static int MAX_BLOCKS_PER_SET = 5;
+
+    private Cache<String, String> cache;
+
+    @Before
+    public void setUpNewCache() {
+        NWaySetAssociativeCache.Builder<String, String> builder = new NWaySetAssociativeCache.Builder<>();
+        builder.setTotalSets(MAX_SETS)
+            .setSubCacheType(SubCacheType.HASH_MAP_CACHE_SET)
+            .setBlockSize(MAX_BLOCKS_PER_SET)
+            .setReplacementAlgorithm(new LeastRecentlyUsed<>())
+            .setHashFunction(new NullSafeHashFunction());
+
+        cache = builder.build();
+    }
+
+    @Test
+    public void testNull() {
+        String key = null;
+        String value = null;
+        assertNull(cache.put(key, value));
+        assertTrue(cache.containsKey(key));
+    }
+    
+    @Test
+    public void testRemovalListener() throws Exception {
+        LinkedBlockingQueue<String> removals = new LinkedBlockingQueue<>();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Cache<String, String> listenedCache = new NWaySetAssociativeCache.Builder<String, String>()
+            .setTotalSets(MAX_SETS)
+            .setBlockSize(MAX_BLOCKS_PER_SET)
+            .setRemovalListener((k, v, cause) -> removals.add(cause + " " + k))
+            .setRemovalExecutor(executor)
+            .build();
+
+        for (int i = 0; i <= MAX_BLOCKS_PER_SET; i++) {
+            listenedCache.put("key" + i, "value" + i);
+        }
+        listenedCache.remove("key1");
+        listenedCache.clear();
+
+        assertEquals(RemovalCause.EVICTED + " key0", removals.poll(1, TimeUnit.SECONDS));
+        assertEquals(RemovalCause.EXPLICIT + " key1", removals.poll(1, TimeUnit.SECONDS));
+        for (int i = 2; i <= MAX_BLOCKS_PER_SET; i++) {
+            assertTrue(removals.poll(1, TimeUnit.SECONDS).startsWith(RemovalCause.CLEARED.name()));
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    public void testVictimBuffer_conflictingKeysSwapBack() {
+        List<String> removals = new ArrayList<>();
+        NWaySetAssociativeCache<String, String> victimCache = new NWaySetAssociativeCache.Builder<String, String>()
+            .setTotalSets(MAX_SETS)
+            .setBlockSize(1)
+            .setVictimBufferSize(1)
+            .setRemovalListener((k, v, cause) -> removals.add(cause + " " + k))
+            .setRemovalExecutor(Runnable::run)
+            .build();
+
+        victimCache.put("a", "1");
+        victimCache.put("b", "2");
+        for (int i = 0; i < 10; i++) {
+            assertEquals("1", victimCache.get("a"));
+            assertEquals("2", victimCache.get("b"));
+        }
+        assertEquals(20, victimCache.getHits());
+        assertEquals(20, victimCache.getVictimBuffer().getHits());
+        assertTrue(removals.isEmpty());
+
+        // a third key pushes the oldest victim out of the cache
+        victimCache.put("c", "3");
+        assertEquals(1, removals.size());
+        assertTrue(victimCache.containsKey("b"));
+        assertTrue(victimCache.containsKey("c"));
+        assertFalse(victimCache.containsKey("a"));
+        assertNull(victimCache.get("a"));
+        assertEquals(1, victimCache.getVictimBuffer().getMisses());
+    }
+
+    @Test
+    public void testWriteBehind_evictedEntriesReachStore() throws Exception {
+        Map<String, String> store = new ConcurrentHashMap<>();
+        CacheWriter<String, String> storeWriter = new CacheWriter<String, String>() {
+            @Override
+            public void write(String key, String value) {
+                store.put(key, value);
+            }
+
+            @Override
+            public void delete(String key) {
+                store.remove(key);
+            }
+        };
+        WriteBehindWriter<String, String> writeBehind = new WriteBehindWriter<>(storeWriter, 100, 1, TimeUnit.HOURS);
+        Cache<String, String> writingCache = new NWaySetAssociativeCache.Builder<String, String>()
+            .setTotalSets(MAX_SETS)
+            .setBlockSize(MAX_BLOCKS_PER_SET)
+            .setCacheWriter(writeBehind)
+            .build();
+
+        writingCache.put("key0", "old");
+        writingCache.put("key0", "new");
+        for (int i = 1; i <= MAX_BLOCKS_PER_SET; i++) {
+            writingCache.put("key" + i, "value" + i);
+        }
+        assertFalse(writingCache.containsKey("key0"));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!store.containsKey("key0") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals("new", store.get("key0"));
+
+        writingCache.remove("key1");
+        writeBehind.close();
+        assertFalse(store.containsKey("key1"));
+        assertEquals(MAX_BLOCKS_PER_SET, store.size());
+    }
+
+    @Test
+    public void testClear() {
+        String keyPrefix = "key";
+
+        for (int i = 0; i < MAX_SETS * MAX_BLOCKS_PER_SET; i++) {
+            String key = keyPrefix + i;
+            cache.put(key, key);
+        }
+        cache.clear();
+        assertTrue(cache.isEmpty());
+    }
+
+    @Test
+    public void testBasic_keyCollision() {
+        String keyPrefix = "key";
+
+        List<String> addedKeys = new ArrayList<>();
+        List<String> removedKeys = new ArrayList<>();
+
+        for (int i = 0; i < MAX_SETS * MAX_BLOCKS_PER_SET; i++) {
+            String key = keyPrefix + i;
+            String value = cache.put(key, key);
+            if (isNull(value)) {
+                System.out.println("Adding: " + key);
+            } else {
+                System.out.println("Evicted: " + value);
+                removedKeys.add(value);
+            }
+            addedKeys.add(key);
+        }
+        addedKeys.removeAll(removedKeys);
+        String value = "aaaa";
+        for (String key : addedKeys) {
+            assertEquals(key, cache.put(key, value));
+            assertEquals(value, cache.get(key));
+        }
+
+        assertEquals(addedKeys.size(), cache.size());
+    }
+
+    @Test
+    public void testBasic_usesEviction() {
+        String keyPrefix = "key";
+
+        Random random = new Random();
+        List<String> addedKeys = new ArrayList<>();
+        List<String> removedKeys = new ArrayList<>();
+
+        for (int i = 0; i < MAX_SETS * MAX_BLOCKS_PER_SET * 2; i++) {
+            int x = random.nextInt();
+            String key = keyPrefix + x;
+            String value = cache.put(key, key);
+            if (isNull(value)) {
+                System.out.println("Adding: " + key);
+            } else {
+                System.out.println("Evicted: " + value);
+                removedKeys.add(value);
+            }
+            addedKeys.add(key);
+        }
+
+        for (String key : removedKeys) {
+            assertFalse(cache.containsKey(key));
+        }
+        addedKeys.removeAll(removedKeys);
+        for (String key : addedKeys) {
+            assertEquals(key, cache.get(key));
+        }
+
+        assertEquals(addedKeys.size(), cache.size());
+    }
+
+    @Test
+    public void testBasic_removeKeys() {
+        String keyPrefix = "key";
+
+        List<String> addedKeys = new ArrayList<>();
+        List<String> removedKeys = new ArrayList<>();
+
+        for (int i = 0; i < MAX_SETS * MAX_BLOCKS_PER_SET * 2; i++) {
+            String key = keyPrefix + i;
+            String value = cache.put(key, key);
+            if (isNull(value)) {
+                System.out.println("Adding: " + key);
+            } else {
+                System.out.println("Evicted: " + value);
+                removedKeys.add(value);
+            }
+            addedKeys.add(key);
+        }
+        addedKeys.removeAll(removedKeys);
+        for (String key : addedKeys) {
+            assertEquals(key, cache.remove(key));
+            assertFalse(cache.containsKey(key));
+        }
+
+        assertTrue(cache.isEmpty());
+    }
+}
@@ -1,5 +1,5 @@
-package concurrency;
-
-public enum ConcurrentCacheMethod {
-    PUT, GET, REMOVE, CLEAR, CHECK;
+package concurrency;
+
+public enum ConcurrentCacheMethod {
+    PUT, GET, REMOVE, CLEAR, CHECK;
 }
\ No newline at end of file
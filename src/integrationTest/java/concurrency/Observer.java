@@ -1,7 +1,7 @@
-package concurrency;
-
-public interface Observer {
-
-    void report(ConcurrentCacheMethod method, long threadId, boolean isBegin);
-    
-}
+package concurrency;
+
+public interface Observer {
+
+    void report(ConcurrentCacheMethod method, long threadId, boolean isBegin);
+    
+}
@@ -0,0 +1,72 @@
+package cache;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures gets of a handful of hot keys, the pattern of a request thread that
+ * re-reads the same keys, with and without the per-thread front cache. The
+ * contended variant runs several threads on the same keys, where the shared
+ * hit counters and the sets' read buffers are touched by every thread.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FrontCacheBenchmark {
+
+    private static final int HOT_KEYS = 8;
+
+    @Param({ "0", "16" })
+    public int frontCacheSize;
+
+    private NWaySetAssociativeCache<Integer, Integer> cache;
+    private Integer[] keys;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next = 0;
+    }
+
+    @Setup
+    public void setup() {
+        NWaySetAssociativeCache.Builder<Integer, Integer> builder = new NWaySetAssociativeCache.Builder<Integer, Integer>()
+            .setTotalSets(128)
+            .setBlockSize(8);
+        if (frontCacheSize > 0) {
+            builder.setFrontCacheSize(frontCacheSize);
+        }
+        cache = builder.build();
+        keys = new Integer[HOT_KEYS];
+        for (int i = 0; i < HOT_KEYS; i++) {
+            keys[i] = i * 1031;
+            cache.put(keys[i], i);
+        }
+    }
+
+    @Benchmark
+    public Integer getHotKey(Cursor cursor) {
+        cursor.next = (cursor.next + 1) & (HOT_KEYS - 1);
+        return cache.get(keys[cursor.next]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Integer getHotKeyContended(Cursor cursor) {
+        return getHotKey(cursor);
+    }
+}
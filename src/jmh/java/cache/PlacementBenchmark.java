@@ -0,0 +1,110 @@
+package cache;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cache.hash.SeededHashFunction;
+
+/**
+ * Compares single set placement with two-choice placement at the same total
+ * capacity. Keys follow a Zipf distribution, either over random integers, or
+ * over multiples of 16 which crowd into one in every 16 sets the way aligned
+ * addresses do. Every operation is a get that puts the key on a miss; the hits
+ * and misses counters give the hit ratio of each placement, the score the cost
+ * of the second probe.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlacementBenchmark {
+
+    private static final int TRACE = 1 << 20;
+    private static final int DISTINCT_KEYS = 1 << 14;
+
+    @Param({ "false", "true" })
+    public boolean twoChoice;
+
+    @Param({ "8", "2" })
+    public int blockSize;
+
+    @Param({ "false", "true" })
+    public boolean strided;
+
+    private NWaySetAssociativeCache<Integer, Integer> cache;
+    private Integer[] trace;
+    private int next = 0;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Outcomes {
+
+        public long hits;
+        public long misses;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            hits = 0;
+            misses = 0;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        NWaySetAssociativeCache.Builder<Integer, Integer> builder = new NWaySetAssociativeCache.Builder<Integer, Integer>()
+            .setTotalSets(2048 / blockSize)
+            .setBlockSize(blockSize);
+        if (twoChoice) {
+            builder.setSecondaryHashFunction(new SeededHashFunction());
+        }
+        cache = builder.build();
+
+        Random random = new Random(42);
+        Integer[] keys = new Integer[DISTINCT_KEYS];
+        for (int i = 0; i < DISTINCT_KEYS; i++) {
+            keys[i] = strided ? i * 16 : random.nextInt();
+        }
+        double[] cumulative = new double[DISTINCT_KEYS];
+        double sum = 0;
+        for (int i = 0; i < DISTINCT_KEYS; i++) {
+            sum += 1.0 / (i + 1);
+            cumulative[i] = sum;
+        }
+        trace = new Integer[TRACE];
+        for (int i = 0; i < TRACE; i++) {
+            int rank = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            trace[i] = keys[rank < 0 ? -rank - 1 : rank];
+        }
+    }
+
+    @Benchmark
+    public Integer getOrPut(Outcomes outcomes) {
+        Integer key = trace[next];
+        next = (next + 1) & (TRACE - 1);
+        Integer value = cache.get(key);
+        if (value == null) {
+            outcomes.misses++;
+            cache.put(key, key);
+            return key;
+        }
+        outcomes.hits++;
+        return value;
+    }
+}
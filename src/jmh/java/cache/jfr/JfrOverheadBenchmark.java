@@ -0,0 +1,102 @@
+package cache.jfr;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import cache.NWaySetAssociativeCache;
+import jdk.jfr.Recording;
+
+/**
+ * Checks that the Flight Recorder instrumentation is close to free when no
+ * recording enables the cache events. Compare noInstrumentation with
+ * eventProbes at recording=false: the difference is the cost a get or put pays
+ * for being instrumented. cacheGet and cachePut put that cost in relation to a
+ * whole operation, with and without a recording of every cache event.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JfrOverheadBenchmark {
+
+    private static final int KEYS = 1024;
+
+    @Param({ "false", "true" })
+    public boolean recording;
+
+    private NWaySetAssociativeCache<Integer, Integer> cache;
+    private Integer[] keys;
+    private Recording jfr;
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+        cache = new NWaySetAssociativeCache.Builder<Integer, Integer>()
+            .setTotalSets(KEYS / 8)
+            .setBlockSize(8)
+            .build();
+        keys = new Integer[KEYS];
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = i;
+            cache.put(i, i);
+        }
+        if (recording) {
+            jfr = new Recording();
+            jfr.enable(CacheGetEvent.class).withoutThreshold();
+            jfr.enable(CachePutEvent.class).withoutThreshold();
+            jfr.enable(CacheEvictionEvent.class);
+            jfr.enable(SetLockWaitEvent.class).withoutThreshold();
+            jfr.start();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (recording) {
+            jfr.close();
+        }
+    }
+
+    private Integer nextKey() {
+        next = (next + 1) & (KEYS - 1);
+        return keys[next];
+    }
+
+    @Benchmark
+    public Integer noInstrumentation() {
+        return nextKey();
+    }
+
+    @Benchmark
+    public Integer eventProbes() {
+        Integer key = nextKey();
+        CacheEvents.endGet(CacheEvents.beginGet(), 0, true);
+        CacheEvents.endPut(CacheEvents.beginPut(), 0, false);
+        return key;
+    }
+
+    @Benchmark
+    public Integer cacheGet() {
+        return cache.get(nextKey());
+    }
+
+    @Benchmark
+    public Integer cachePut() {
+        Integer key = nextKey();
+        return cache.put(key, key);
+    }
+}
@@ -1,73 +1,148 @@
-package cache;
-
-public interface Cache<K, V> {
-    /**
-     * Associates the given key with the given value.
-     *
-     * @param key
-     *            the key to be associated with the value
-     * @param value
-     *            the value to be associated with the key
-     * @return the previous value associated with the key, or the value associated
-     *         with the entry that was evicted by the replacement algorithm, or null
-     *         if the entry is new
-     */
-    V put(K key, V value);
-
-    /**
-     * Checks the cache if the given key is associated to a value
-     *
-     * @param key
-     *            the key to be checked
-     * @return true if the key is associated with a value, false otherwise
-     */
-    boolean containsKey(Object key);
-
-    /**
-     * Returns the value to which the key is associated, or null if there is no key
-     * in the cache
-     *
-     * @param key
-     *            the key with which the desired value is associated
-     * @return the value associated with the key, or null if there is no key for
-     *         that value
-     */
-    V get(Object key);
-
-    /**
-     * Removes the association for the specified key from the cache if the key is
-     * present.
-     *
-     * @param key
-     *            the key for removing the key-value pair from this cache
-     * @return the previous value associated with the given key, or null if there
-     *         was no key in the cache
-     */
-    V remove(Object key);
-
-    /**
-     * Removes all entries from this cache.
-     */
-    void clear();
-
-    /**
-     * @return true if there are no entries in this cache, false other wise
-     */
-    boolean isEmpty();
-
-    /**
-     * @return the total number of key-value pairs in this cache
-     */
-    int size();
-
-    /**
-     * @return the maximum number of key-value pairs this cache can hold at a time
-     */
-    int maxSize();
-
-    /**
-     * @return a String of the name of the replacement algorithm this cache is using
-     */
-    String getReplacementAlgorithmName();
-
-}
+package cache;
+
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+public interface Cache<K, V> {
+    /**
+     * Associates the given key with the given value.
+     *
+     * @param key
+     *            the key to be associated with the value
+     * @param value
+     *            the value to be associated with the key
+     * @return the previous value associated with the key, or the value associated
+     *         with the entry that was evicted by the replacement algorithm, or null
+     *         if the entry is new
+     */
+    V put(K key, V value);
+
+    /**
+     * Atomically computes the value of the key from its current value, or null if
+     * it has none. A null result removes the entry. Unlike a get followed by a
+     * put, no other write to the key can come in between.
+     *
+     * @param key
+     *            the key whose value is computed
+     * @param remappingFunction
+     *            computes the new value from the key and the current value, it may
+     *            be called while a lock is held and must not call back into the
+     *            cache
+     * @return the new value, or null if there is none
+     */
+    V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction);
+
+    /**
+     * Atomically puts the value if the key has none.
+     *
+     * @return the current value of the key, or null if the value was put
+     */
+    default V putIfAbsent(K key, V value) {
+        return Computations.putIfAbsent(this::compute, key, value);
+    }
+
+    /**
+     * Atomically puts the value if the key already has one.
+     *
+     * @return the previous value of the key, or null if it had none and nothing
+     *         was put
+     */
+    default V replace(K key, V value) {
+        return Computations.replace(this::compute, key, value);
+    }
+
+    /**
+     * Atomically puts the new value if the key has the old one.
+     *
+     * @return true if the value was replaced
+     */
+    default boolean replace(K key, V oldValue, V newValue) {
+        return Computations.replace(this::compute, key, oldValue, newValue);
+    }
+
+    /**
+     * Atomically computes a value for the key if it has none.
+     *
+     * @return the current or computed value, or null if there is none
+     */
+    default V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        return Computations.computeIfAbsent(this::compute, key, mappingFunction);
+    }
+
+    /**
+     * Atomically computes a new value for the key if it has one, a null result
+     * removes the entry.
+     *
+     * @return the new value, or null if there is none
+     */
+    default V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        return Computations.computeIfPresent(this::compute, key, remappingFunction);
+    }
+
+    /**
+     * Atomically puts the value if the key has none, or else combines it with the
+     * current value. A null result removes the entry.
+     *
+     * @return the new value, or null if there is none
+     */
+    default V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        return Computations.merge(this::compute, key, value, remappingFunction);
+    }
+
+    /**
+     * Checks the cache if the given key is associated to a value
+     *
+     * @param key
+     *            the key to be checked
+     * @return true if the key is associated with a value, false otherwise
+     */
+    boolean containsKey(Object key);
+
+    /**
+     * Returns the value to which the key is associated, or null if there is no key
+     * in the cache
+     *
+     * @param key
+     *            the key with which the desired value is associated
+     * @return the value associated with the key, or null if there is no key for
+     *         that value
+     */
+    V get(Object key);
+
+    /**
+     * Removes the association for the specified key from the cache if the key is
+     * present.
+     *
+     * @param key
+     *            the key for removing the key-value pair from this cache
+     * @return the previous value associated with the given key, or null if there
+     *         was no key in the cache
+     */
+    V remove(Object key);
+
+    /**
+     * Removes all entries from this cache.
+     */
+    void clear();
+
+    /**
+     * @return true if there are no entries in this cache, false other wise
+     */
+    boolean isEmpty();
+
+    /**
+     * @return the total number of key-value pairs in this cache
+     */
+    int size();
+
+    /**
+     * @return the maximum number of key-value pairs this cache can hold at a time
+     */
+    int maxSize();
+
+    /**
+     * @return a String of the name of the replacement algorithm this cache is using
+     */
+    String getReplacementAlgorithmName();
+
+}
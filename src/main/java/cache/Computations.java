@@ -0,0 +1,96 @@
+package cache;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * The atomic operations Cache and CacheSet offer on top of their compute(),
+ * written once against the compute of either. A CacheSet's compute may throw
+ * EvictionNotPossible, a Cache's throws nothing, so the exception is a type
+ * parameter.
+ */
+public final class Computations {
+
+    /**
+     * The compute() of a cache or a cache set.
+     *
+     * @param <X>
+     *            the checked exception compute throws, RuntimeException if none
+     */
+    @FunctionalInterface
+    public interface Compute<K, V, X extends Exception> {
+
+        V compute(K key, BiFunction<K, V, V> remappingFunction) throws X;
+    }
+
+    private Computations() {
+    }
+
+    /**
+     * @return the current value of the key, or null if the value was put
+     */
+    public static <K, V, X extends Exception> V putIfAbsent(Compute<K, V, X> compute, K key, V value) throws X {
+        List<V> current = new ArrayList<>(1);
+        compute.compute(key, (k, v) -> {
+            current.add(v);
+            return isNull(v) ? value : v;
+        });
+        return current.get(0);
+    }
+
+    /**
+     * @return the previous value of the key, or null if it had none and nothing
+     *         was put
+     */
+    public static <K, V, X extends Exception> V replace(Compute<K, V, X> compute, K key, V value) throws X {
+        List<V> previous = new ArrayList<>(1);
+        compute.compute(key, (k, v) -> {
+            previous.add(v);
+            return isNull(v) ? null : value;
+        });
+        return previous.get(0);
+    }
+
+    /**
+     * @return true if the key had the old value and now has the new one
+     */
+    public static <K, V, X extends Exception> boolean replace(Compute<K, V, X> compute, K key, V oldValue,
+        V newValue) throws X {
+        boolean[] replaced = new boolean[1];
+        compute.compute(key, (k, v) -> {
+            replaced[0] = nonNull(v) && Objects.equals(v, oldValue);
+            return replaced[0] ? newValue : v;
+        });
+        return replaced[0];
+    }
+
+    /**
+     * @return the current or computed value, or null if there is none
+     */
+    public static <K, V, X extends Exception> V computeIfAbsent(Compute<K, V, X> compute, K key,
+        Function<? super K, ? extends V> mappingFunction) throws X {
+        return compute.compute(key, (k, v) -> isNull(v) ? mappingFunction.apply(k) : v);
+    }
+
+    /**
+     * @return the new value, or null if there is none
+     */
+    public static <K, V, X extends Exception> V computeIfPresent(Compute<K, V, X> compute, K key,
+        BiFunction<? super K, ? super V, ? extends V> remappingFunction) throws X {
+        return compute.compute(key, (k, v) -> isNull(v) ? null : remappingFunction.apply(k, v));
+    }
+
+    /**
+     * @return the new value, or null if there is none
+     */
+    public static <K, V, X extends Exception> V merge(Compute<K, V, X> compute, K key, V value,
+        BiFunction<? super V, ? super V, ? extends V> remappingFunction) throws X {
+        return compute.compute(key, (k, v) -> isNull(v) ? value : remappingFunction.apply(v, value));
+    }
+}
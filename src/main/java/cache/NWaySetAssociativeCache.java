@@ -1,19 +1,53 @@
 package cache;
 
 import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiFunction;
 
+import cache.diagnostics.AccessObserver;
+import cache.diagnostics.BloomFilterReport;
+import cache.diagnostics.SetReport;
 import cache.exception.CacheMiss;
 import cache.exception.EvictionNotPossible;
+import cache.front.ThreadLocalFrontCache;
 import cache.hash.HashFunction;
 import cache.hash.NullSafeHashFunction;
+import cache.jfr.CacheEvents;
+import cache.jfr.CacheGetEvent;
+import cache.jfr.CachePutEvent;
+import cache.loader.CacheLoader;
+import cache.loader.StridePrefetcher;
+import cache.memory.MemoryPressureMonitor;
+import cache.removal.RemovalCause;
+import cache.removal.RemovalDispatcher;
+import cache.removal.RemovalListener;
 import cache.replacement.LeastRecentlyUsed;
 import cache.replacement.ReplacementAlgorithm;
 import cache.subcache.CacheSet;
+import cache.subcache.CountingBloomFilter;
+import cache.subcache.Maintenance;
 import cache.subcache.SubCacheFactory;
 import cache.subcache.SubCacheFactory.SubCacheType;
+import cache.subcache.ValueStrength;
+import cache.victim.VictimBuffer;
+import cache.writer.CacheWriter;
 
 /**
  * Implementation of the Cache interface. This implementation uses a hash
@@ -27,22 +61,41 @@ import cache.subcache.SubCacheFactory.SubCacheType;
  * @param <V>
  *            the type of mapped values
  */
-public class NWaySetAssociativeCache<K, V> implements Cache<K, V> {
+public class NWaySetAssociativeCache<K, V> implements Cache<K, V>, AutoCloseable {
+
+    private static final int NONE = -1;
+    private static final Object NULL_KEY = new Object();
+    private static final int PREFETCH_THREADS = Math.min(4, Runtime.getRuntime().availableProcessors());
+    private static final int PREFETCH_QUEUE = 256;
 
     private int totalSets;
     private int blockSize;
-    private long hits = 0L;
-    private long misses = 0L;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
 
     private List<CacheSet<K, V>> sets;
+    private ReentrantLock[] placementLocks;
     private HashFunction hashFunction;
+    private HashFunction secondaryHashFunction;
 
     private String replacementAlgorithmName;
+    private RemovalListener<K, V> removalListener;
+    private CacheWriter<K, V> cacheWriter;
+    private CacheLoader<K, V> cacheLoader;
+    private StridePrefetcher<K> prefetcher;
+    private volatile Executor prefetchExecutor;
+    private ExecutorService ownPrefetchExecutor;
+    private final ConcurrentMap<Object, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+    private VictimBuffer<K, V> victimBuffer;
+    private ThreadLocalFrontCache<V> frontCache;
+    private MemoryPressureMonitor memoryPressureMonitor;
+    private volatile AccessObserver[] accessObservers = new AccessObserver[0];
 
     /**
      * Constructs an empty NWaySetAssociativeCache, requires a functioning injected
      * List of CacheSets as well as an instance of a HashFunction and a
-     * ReplacementAlgorithmType.
+     * ReplacementAlgorithmType. The cache registers itself as the removal listener
+     * of every set.
      *
      * @param sets
      *            a list of implementations of CacheSet, must not be null or empty.
@@ -65,28 +118,272 @@ public class NWaySetAssociativeCache<K, V> implements Cache<K, V> {
         this.totalSets = sets.size();
         blockSize = sets.get(0).maxSize();
         this.sets = sets;
+        placementLocks = new ReentrantLock[totalSets];
+        Arrays.setAll(placementLocks, i -> new ReentrantLock());
+        sets.forEach(s -> s.setRemovalListener(this::onRemoval));
     }
 
     private int indexOf(Object key) {
         return Math.abs(hashFunction.hash(key) % totalSets);
     }
 
-    private CacheSet<K, V> getCacheSet(Object key) {
-        return sets.get(indexOf(key));
+    /**
+     * @param key
+     *            the key to be located
+     * @return the index of the set the given key maps to
+     */
+    public int getSetIndex(Object key) {
+        return indexOf(key);
+    }
+
+    /**
+     * @return the index of the key's second candidate set under two-choice
+     *         placement, or NONE if there is no second candidate
+     */
+    private int alternativeOf(Object key, int index) {
+        if (isNull(secondaryHashFunction)) {
+            return NONE;
+        }
+        int alternative = Math.abs(secondaryHashFunction.hash(key) % totalSets);
+        return alternative == index ? NONE : alternative;
+    }
+
+    /**
+     * @return true if a new key is better placed in the alternative set, because
+     *         it holds fewer entries or, at equal size, has evicted less
+     */
+    private boolean prefersAlternative(int index, int alternative) {
+        CacheSet<K, V> set = sets.get(index);
+        CacheSet<K, V> other = sets.get(alternative);
+        int size = set.size();
+        int otherSize = other.size();
+        if (size != otherSize) {
+            return otherSize < size;
+        }
+        return other.getEvictionCount() < set.getEvictionCount();
+    }
+
+    /**
+     * With two-choice placement and a victim buffer, a victim swapped back
+     * into the primary set could otherwise land next to a newer value put into
+     * the alternative set, and dropDuplicate() would keep the stale one. Puts,
+     * computes and swaps of keys sharing a primary set are then ordered by its
+     * placement lock, which is always taken before any set's lock.
+     *
+     * @return the locked placement lock, or null if none is needed
+     */
+    private ReentrantLock lockPlacement(int primary) {
+        if (isNull(secondaryHashFunction) || isNull(victimBuffer)) {
+            return null;
+        }
+        ReentrantLock placement = placementLocks[primary];
+        placement.lock();
+        return placement;
+    }
+
+    private static void unlockPlacement(ReentrantLock placement) {
+        if (nonNull(placement)) {
+            placement.unlock();
+        }
     }
 
     @Override
     public V put(K key, V value) {
-        CacheSet<K, V> set = getCacheSet(key);
+        CachePutEvent event = CacheEvents.beginPut();
+        int primary = indexOf(key);
+        int index = primary;
+        List<V> victim = new ArrayList<>(1);
+        Runnable beforeStore = null;
+        if (nonNull(cacheWriter) || nonNull(victimBuffer)) {
+            // written through under the set's lock, and only if the entry is stored
+            beforeStore = () -> {
+                if (nonNull(cacheWriter)) {
+                    cacheWriter.write(key, value);
+                }
+                if (nonNull(victimBuffer)) {
+                    // a stale copy must not be swapped back over the new value
+                    V buffered = victimBuffer.remove(key);
+                    if (nonNull(buffered)) {
+                        victim.add(buffered);
+                    }
+                }
+            };
+        }
         V oldValue = null;
+        boolean stored = false;
+        ReentrantLock placement = lockPlacement(primary);
         try {
-            oldValue = set.put(key, value);
-        } catch (EvictionNotPossible e) {
-            onEvictionNotPossible(e);
+            int alternative = alternativeOf(key, index);
+            if (alternative != NONE && !sets.get(index).containsKey(key)
+                && (sets.get(alternative).containsKey(key) || prefersAlternative(index, alternative))) {
+                int chosen = alternative;
+                alternative = index;
+                index = chosen;
+            }
+            CacheSet<K, V> set = sets.get(index);
+            try {
+                oldValue = isNull(beforeStore) ? set.put(key, value) : set.put(key, value, beforeStore);
+                stored = true;
+            } catch (EvictionNotPossible e) {
+                onEvictionNotPossible(e);
+            }
+            dropDuplicate(key, primary, index, alternative);
+        } finally {
+            unlockPlacement(placement);
+        }
+        if (nonNull(frontCache)) {
+            frontCache.invalidate(primary);
         }
+        if (!victim.isEmpty()) {
+            notifyRemoval(key, victim.get(0), RemovalCause.REPLACED);
+            if (isNull(oldValue)) {
+                oldValue = victim.get(0);
+            }
+        }
+        if (stored) {
+            for (AccessObserver observer : accessObservers) {
+                observer.onPut(key, index);
+            }
+        }
+        CacheEvents.endPut(event, index, nonNull(oldValue));
         return oldValue;
     }
 
+    /**
+     * Computes the new value under a single acquisition of the lock of the key's
+     * set. With two-choice placement a key in neither candidate set is computed
+     * in the set put() would choose. A key held by the victim buffer is computed
+     * from its buffered value and moves back into its set. The cache writer is
+     * called while the set's lock is held, so a write through cannot be
+     * reordered with another put or compute of the key, and only once there is
+     * room for the result, so a compute that cannot evict writes nothing.
+     */
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        return compute(key, remappingFunction, true);
+    }
+
+    private V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction, boolean write) {
+        CachePutEvent event = CacheEvents.beginPut();
+        int primary = indexOf(key);
+        int index = primary;
+        List<V> previous = new ArrayList<>(1);
+        List<V> victim = new ArrayList<>(1);
+        List<V> computed = new ArrayList<>(1);
+        Runnable beforeStore = null;
+        if (write && nonNull(cacheWriter)) {
+            beforeStore = () -> {
+                try {
+                    writeThrough(key, previous.get(0), computed.get(0));
+                } catch (RuntimeException e) {
+                    restoreVictim(key, victim);
+                    throw e;
+                }
+            };
+        }
+        V newValue = null;
+        boolean stored = false;
+        ReentrantLock placement = lockPlacement(primary);
+        try {
+            int alternative = alternativeOf(key, index);
+            if (alternative != NONE && !sets.get(index).containsKey(key)
+                && (sets.get(alternative).containsKey(key) || prefersAlternative(index, alternative))) {
+                int chosen = alternative;
+                alternative = index;
+                index = chosen;
+            }
+            try {
+                newValue = sets.get(index).compute(key, (k, v) -> {
+                    V oldValue = v;
+                    if (isNull(oldValue) && nonNull(victimBuffer)) {
+                        oldValue = victimBuffer.remove(k);
+                        if (nonNull(oldValue)) {
+                            victim.add(oldValue);
+                        }
+                    }
+                    previous.add(oldValue);
+                    V value;
+                    try {
+                        value = remappingFunction.apply(k, oldValue);
+                    } catch (RuntimeException e) {
+                        restoreVictim(k, victim);
+                        throw e;
+                    }
+                    computed.add(value);
+                    return value;
+                }, beforeStore);
+                stored = true;
+            } catch (EvictionNotPossible e) {
+                onEvictionNotPossible(e);
+            }
+            dropDuplicate(key, primary, index, alternative);
+        } finally {
+            unlockPlacement(placement);
+        }
+        V oldValue = previous.isEmpty() ? null : previous.get(0);
+        if (!victim.isEmpty() && victim.get(0) != newValue) {
+            notifyRemoval(key, victim.get(0), isNull(newValue) ? RemovalCause.EXPLICIT : RemovalCause.REPLACED);
+        }
+        // a compute that leaves the value as it was, such as putIfAbsent() of a
+        // present key, is only a read
+        if (stored && newValue != oldValue) {
+            if (nonNull(frontCache)) {
+                frontCache.invalidate(primary);
+            }
+            for (AccessObserver observer : accessObservers) {
+                if (isNull(newValue)) {
+                    observer.onRemove(key, index);
+                } else {
+                    observer.onPut(key, index);
+                }
+            }
+        }
+        CacheEvents.endPut(event, index, nonNull(oldValue));
+        return newValue;
+    }
+
+    /**
+     * Concurrent puts of the same new key may each choose a different candidate
+     * set. The copy in the primary set always wins, so the two puts cannot
+     * delete each other's copy: a put into the primary set drops the copy in
+     * the alternative set, a put into the alternative set drops its own copy
+     * once it finds one in the primary set. The dropped copy was superseded and
+     * is reported as replaced.
+     */
+    private void dropDuplicate(K key, int primary, int index, int alternative) {
+        if (alternative == NONE) {
+            return;
+        }
+        if (index == primary) {
+            if (sets.get(alternative).containsKey(key)) {
+                sets.get(alternative).displace(key);
+            }
+        } else if (sets.get(primary).containsKey(key)) {
+            sets.get(index).displace(key);
+        }
+    }
+
+    /**
+     * Puts a value taken from the victim buffer back when the compute that took
+     * it failed, must be called under the lock of the key's set.
+     */
+    private void restoreVictim(K key, List<V> victim) {
+        if (!victim.isEmpty()) {
+            victimBuffer.offer(key, victim.get(0), (k, v) -> notifyRemoval(k, v, RemovalCause.EVICTED));
+        }
+    }
+
+    private void writeThrough(K key, V oldValue, V newValue) {
+        if (isNull(cacheWriter) || newValue == oldValue) {
+            return;
+        }
+        if (isNull(newValue)) {
+            cacheWriter.delete(key);
+        } else {
+            cacheWriter.write(key, newValue);
+        }
+    }
+
     /**
      * Does nothing, user may implement this stub for any desired purpose when an
      * eviction is not possible.
@@ -99,27 +396,321 @@ public class NWaySetAssociativeCache<K, V> implements Cache<K, V> {
 
     @Override
     public boolean containsKey(Object key) {
-        CacheSet<K, V> set = getCacheSet(key);
-        return set.containsKey(key);
+        int index = indexOf(key);
+        int alternative = alternativeOf(key, index);
+        return sets.get(index).containsKey(key) || (alternative != NONE && sets.get(alternative).containsKey(key))
+            || (nonNull(victimBuffer) && victimBuffer.containsKey(key));
+    }
+
+    /**
+     * Like containsKey(), but without recording an access in the sets, for
+     * lookups the cache and its tiers make on their own behalf.
+     */
+    boolean containsKeyQuietly(Object key) {
+        int index = indexOf(key);
+        int alternative = alternativeOf(key, index);
+        return sets.get(index).containsKeyQuietly(key)
+            || (alternative != NONE && sets.get(alternative).containsKeyQuietly(key))
+            || (nonNull(victimBuffer) && victimBuffer.containsKey(key));
     }
 
+    /**
+     * With a cache loader, a miss loads the value and puts it into the cache
+     * without writing it through. A prefetcher is told about the get first, so
+     * the keys it predicts load alongside.
+     */
     @Override
+    @SuppressWarnings("unchecked")
     public V get(Object key) {
-        CacheSet<K, V> set = getCacheSet(key);
+        int index = indexOf(key);
+        int primary = index;
+        long epoch = 0L;
+        if (nonNull(frontCache)) {
+            V value = frontCache.get(key, primary);
+            if (nonNull(value)) {
+                // the sets' replacement algorithms and the observers still see the hit
+                sets.get(primary).recordAccess((K) key);
+                int alternative = alternativeOf(key, primary);
+                if (alternative != NONE) {
+                    sets.get(alternative).recordAccess((K) key);
+                }
+                onCacheHit(key);
+                for (AccessObserver observer : accessObservers) {
+                    observer.onAccess(key, primary, true);
+                }
+                return value;
+            }
+            epoch = frontCache.epoch(primary);
+        }
+        CacheGetEvent event = CacheEvents.beginGet();
+        int alternative = NONE;
         V value = null;
+        boolean hit = false;
         try {
-            value = set.get(key);
-            onCacheHit(key);
+            value = sets.get(index).get(key);
+            hit = true;
         } catch (CacheMiss e) {
+            alternative = alternativeOf(key, index);
+        }
+        if (!hit && alternative != NONE) {
+            try {
+                value = sets.get(alternative).get(key);
+                hit = true;
+                index = alternative;
+            } catch (CacheMiss e) {
+                // in neither candidate set
+            }
+        }
+        if (!hit) {
+            value = takeVictim(key, index, alternative);
+            hit = nonNull(value);
+        }
+        if (hit) {
+            onCacheHit(key);
+            if (nonNull(frontCache)) {
+                frontCache.put(key, value, epoch);
+            }
+        } else {
             onCacheMiss(key);
         }
+        for (AccessObserver observer : accessObservers) {
+            observer.onAccess(key, index, hit);
+        }
+        CacheEvents.endGet(event, index, hit);
+        if (nonNull(prefetcher)) {
+            prefetch((K) key, hit);
+        }
+        if (!hit && nonNull(cacheLoader)) {
+            value = load((K) key, true);
+        }
         return value;
     }
 
+    /**
+     * Loads the value of the key and puts it into the cache, unless a value was
+     * put in the meantime. Only one load of a key runs at a time: gets and
+     * prefetches of a key that is being loaded share the pending load rather
+     * than calling the loader again.
+     *
+     * @param wait
+     *            false to return at once if the key is being loaded already, as a
+     *            prefetch does
+     * @return the value of the key in the cache, or null if the loader has none
+     */
+    private V load(K key, boolean wait) {
+        CompletableFuture<V> pending = new CompletableFuture<>();
+        CompletableFuture<V> running = loading.putIfAbsent(mask(key), pending);
+        if (nonNull(running)) {
+            if (!wait) {
+                return null;
+            }
+            try {
+                return running.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw e;
+            }
+        }
+        try {
+            V loaded = cacheLoader.load(key);
+            V value = isNull(loaded) ? null : compute(key, (k, v) -> isNull(v) ? loaded : v, false);
+            pending.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            pending.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(mask(key), pending);
+        }
+    }
+
+    /**
+     * Loads the keys the prefetcher predicts on the prefetch executor, skipping
+     * keys that are cached or being loaded.
+     */
+    private void prefetch(K key, boolean hit) {
+        for (K predicted : prefetcher.onAccess(key, hit)) {
+            if (containsKeyQuietly(predicted) || loading.containsKey(mask(predicted))) {
+                continue;
+            }
+            try {
+                prefetchExecutor().execute(() -> {
+                    if (containsKeyQuietly(predicted)) {
+                        return;
+                    }
+                    try {
+                        load(predicted, false);
+                    } catch (RuntimeException e) {
+                        // a prefetch is only a hint, the get that needs the key loads it
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the prefetch executor, the cache's own one unless one was given
+     */
+    private Executor prefetchExecutor() {
+        Executor executor = prefetchExecutor;
+        if (nonNull(executor)) {
+            return executor;
+        }
+        synchronized (this) {
+            if (isNull(prefetchExecutor)) {
+                ThreadPoolExecutor own = new ThreadPoolExecutor(PREFETCH_THREADS, PREFETCH_THREADS, 1L,
+                    TimeUnit.SECONDS, new ArrayBlockingQueue<>(PREFETCH_QUEUE), r -> {
+                        Thread thread = new Thread(r, "cache-prefetch");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                own.allowCoreThreadTimeOut(true);
+                ownPrefetchExecutor = own;
+                prefetchExecutor = own;
+            }
+            return prefetchExecutor;
+        }
+    }
+
+    private static Object mask(Object key) {
+        return isNull(key) ? NULL_KEY : key;
+    }
+
+    /**
+     * Swaps an entry that was evicted from the set back in from the victim
+     * buffer, always into the key's primary set. The entry is taken from the
+     * buffer under the lock of the primary set, so a remove or put of the key,
+     * which clear the buffered copy under the same lock, cannot be undone by the
+     * swap. With two-choice placement the swap holds the placement lock, and a
+     * value put into the alternative set since the get missed wins.
+     *
+     * @return the value of the entry, or null if the victim buffer does not have
+     *         it
+     */
+    @SuppressWarnings("unchecked")
+    private V takeVictim(Object key, int primary, int alternative) {
+        if (isNull(victimBuffer)) {
+            return null;
+        }
+        ReentrantLock placement = lockPlacement(primary);
+        List<V> taken = new ArrayList<>(1);
+        try {
+            if (alternative != NONE) {
+                try {
+                    return sets.get(alternative).get(key);
+                } catch (CacheMiss e) {
+                    // still only in the victim buffer, if anywhere
+                }
+            }
+            // evicts another entry of the set into the victim buffer, a value
+            // put concurrently wins over the victim
+            return sets.get(primary).compute((K) key, (k, v) -> {
+                if (nonNull(v)) {
+                    return v;
+                }
+                V value = victimBuffer.take(k);
+                taken.add(value);
+                return value;
+            });
+        } catch (EvictionNotPossible e) {
+            onEvictionNotPossible(e);
+            return taken.isEmpty() ? null : taken.get(0);
+        } finally {
+            unlockPlacement(placement);
+        }
+    }
+
+    /**
+     * Removes the key from both candidate sets and the victim buffer. The
+     * buffered copy is removed, and the cache writer called, under the lock of
+     * the key's primary set, which every swap back from the victim buffer
+     * either holds or comes after.
+     */
     @Override
+    @SuppressWarnings("unchecked")
     public V remove(Object key) {
-        CacheSet<K, V> set = getCacheSet(key);
-        return set.remove(key);
+        int index = indexOf(key);
+        CacheSet<K, V> set = sets.get(index);
+        V value;
+        List<V> victim = new ArrayList<>(1);
+        if (isNull(cacheWriter) && isNull(victimBuffer)) {
+            value = set.remove(key);
+        } else {
+            List<V> previous = new ArrayList<>(1);
+            try {
+                set.compute((K) key, (k, v) -> {
+                    previous.add(v);
+                    return null;
+                }, () -> {
+                    if (nonNull(cacheWriter)) {
+                        cacheWriter.delete((K) key);
+                    }
+                    V buffered = isNull(victimBuffer) ? null : victimBuffer.remove(key);
+                    if (nonNull(buffered)) {
+                        victim.add(buffered);
+                    }
+                });
+            } catch (EvictionNotPossible e) {
+                // a null result never needs room
+            }
+            value = previous.isEmpty() ? null : previous.get(0);
+        }
+        int alternative = alternativeOf(key, index);
+        if (alternative != NONE) {
+            V other = sets.get(alternative).remove(key);
+            if (isNull(value)) {
+                value = other;
+            }
+        }
+        if (nonNull(frontCache)) {
+            frontCache.invalidate(index);
+        }
+        if (!victim.isEmpty()) {
+            notifyRemoval((K) key, victim.get(0), RemovalCause.EXPLICIT);
+            if (isNull(value)) {
+                value = victim.get(0);
+            }
+        }
+        for (AccessObserver observer : accessObservers) {
+            observer.onRemove(key, index);
+        }
+        return value;
+    }
+
+    /**
+     * Called by the cache sets for every entry that leaves them, while the set's
+     * lock is held. Hands evicted entries to the victim buffer if there is one,
+     * they only leave the cache once the victim buffer drops them. Otherwise
+     * hands evicted entries to the cache writer and forwards the removal to the
+     * removal listener. User may extend this, but must not block or call back
+     * into the cache.
+     *
+     * @param key
+     *            the key of the removed entry
+     * @param value
+     *            the value of the removed entry
+     * @param cause
+     *            the reason the entry was removed
+     */
+    protected void onRemoval(K key, V value, RemovalCause cause) {
+        if (cause == RemovalCause.EVICTED && nonNull(victimBuffer)) {
+            victimBuffer.offer(key, value, (k, v) -> notifyRemoval(k, v, RemovalCause.EVICTED));
+        } else {
+            notifyRemoval(key, value, cause);
+        }
+    }
+
+    private void notifyRemoval(K key, V value, RemovalCause cause) {
+        if (cause == RemovalCause.EVICTED && nonNull(cacheWriter)) {
+            cacheWriter.onEviction(key, value);
+        }
+        if (nonNull(removalListener)) {
+            removalListener.onRemoval(key, value, cause);
+        }
     }
 
     public int getBlockSize() {
@@ -147,8 +738,128 @@ public class NWaySetAssociativeCache<K, V> implements Cache<K, V> {
     @Override
     public void clear() {
         sets.forEach(s -> s.clear());
-        hits = 0;
-        misses = 0;
+        if (nonNull(frontCache)) {
+            frontCache.invalidateAll();
+        }
+        if (nonNull(victimBuffer)) {
+            victimBuffer.clear((k, v) -> notifyRemoval(k, v, RemovalCause.CLEARED));
+        }
+        hits.reset();
+        misses.reset();
+    }
+
+    /**
+     * @return the current occupancy and eviction count of every set
+     */
+    public SetReport getSetReport() {
+        int[] occupancy = new int[totalSets];
+        long[] evictions = new long[totalSets];
+        for (int i = 0; i < totalSets; i++) {
+            occupancy[i] = sets.get(i).size();
+            evictions[i] = sets.get(i).getEvictionCount();
+        }
+        return new SetReport(blockSize, occupancy, evictions);
+    }
+
+    /**
+     * @return the lookups the sets' Bloom filters answered, or null if the sets
+     *         have no Bloom filters
+     */
+    public BloomFilterReport getBloomFilterReport() {
+        long negatives = 0L;
+        long falsePositives = 0L;
+        double bitsPerEntry = 0.0;
+        for (CacheSet<K, V> set : sets) {
+            CountingBloomFilter filter = set.getBloomFilter();
+            if (isNull(filter)) {
+                return null;
+            }
+            negatives += filter.getNegatives();
+            falsePositives += filter.getFalsePositives();
+            bitsPerEntry = filter.getBitsPerEntry();
+        }
+        return new BloomFilterReport(negatives, falsePositives, bitsPerEntry);
+    }
+
+    /**
+     * Evicts every set back down to its low watermark on the calling thread. Only
+     * has an effect if the sets were given a Maintenance, in which case it is
+     * otherwise done on the Maintenance's executor.
+     */
+    public void performMaintenance() {
+        sets.forEach(s -> s.performMaintenance());
+    }
+
+    /**
+     * Lowers or raises the number of entries every set keeps, without rebuilding
+     * the sets. Each set is resized under its own lock one after the other and
+     * evicts down to the new capacity in batches, so gets and puts in the other
+     * sets go on meanwhile. maxSize() stays the capacity the cache was built
+     * with.
+     *
+     * @param capacity
+     *            the number of entries every set keeps, between 1 and the block
+     *            size
+     * @throws IllegalArgumentException
+     *             if the capacity is not between 1 and the block size
+     */
+    public void setSetCapacity(int capacity) {
+        if (capacity < 1 || capacity > blockSize) {
+            throw new IllegalArgumentException("Capacity must be between 1 and " + blockSize);
+        }
+        sets.forEach(s -> s.setCapacity(capacity));
+    }
+
+    /**
+     * @return the number of entries every set currently keeps
+     */
+    public int getSetCapacity() {
+        return sets.get(0).getCapacity();
+    }
+
+    /**
+     * Sets the capacity of every set to a fraction of the block size, rounded and
+     * never below one entry. Used as the resize callback of a
+     * MemoryPressureMonitor.
+     *
+     * @param fraction
+     *            the fraction of the block size every set keeps, between 0 and 1
+     */
+    public void setCapacityFraction(double fraction) {
+        if (fraction <= 0.0 || fraction > 1.0) {
+            throw new IllegalArgumentException("Fraction must be between 0 and 1");
+        }
+        setSetCapacity(Math.max(1, (int) Math.round(blockSize * fraction)));
+    }
+
+    /**
+     * @return the monitor shrinking the cache under memory pressure, or null if
+     *         there is none. Closing it stops the monitoring
+     */
+    public MemoryPressureMonitor getMemoryPressureMonitor() {
+        return memoryPressureMonitor;
+    }
+
+    protected void setMemoryPressureMonitor(MemoryPressureMonitor memoryPressureMonitor) {
+        this.memoryPressureMonitor = memoryPressureMonitor;
+    }
+
+    /**
+     * Stops the memory pressure monitor, if there is one, which gives the heap
+     * pools back their thresholds and lets the cache be garbage collected, and
+     * the cache's own prefetch executor. The cache itself stays usable at its
+     * full capacity, without prefetching.
+     */
+    @Override
+    public void close() {
+        if (nonNull(memoryPressureMonitor)) {
+            memoryPressureMonitor.close();
+        }
+        synchronized (this) {
+            if (nonNull(ownPrefetchExecutor)) {
+                ownPrefetchExecutor.shutdownNow();
+            }
+        }
     }
 
     @Override
@@ -175,24 +886,24 @@ public class NWaySetAssociativeCache<K, V> implements Cache<K, V> {
     /**
      * Called by cacheHit(). This is thread safe and only increments a hit counter.
      */
-    protected synchronized void onHit() {
-        hits++;
+    protected void onHit() {
+        hits.increment();
     }
 
     public long getHits() {
-        return hits;
+        return hits.sum();
     }
 
     /**
      * Called by cacheMiss(). This is thread safe and only increments a miss
      * counter.
      */
-    protected synchronized void onMiss() {
-        misses++;
+    protected void onMiss() {
+        misses.increment();
     }
 
     public long getMisses() {
-        return misses;
+        return misses.sum();
     }
 
     /**
@@ -221,6 +932,148 @@ public class NWaySetAssociativeCache<K, V> implements Cache<K, V> {
         this.hashFunction = hashFunction;
     }
 
+    /**
+     * Enables two-choice placement. Every key gets a second candidate set from
+     * this hash function; a new key is put into whichever candidate holds fewer
+     * entries, or at equal size has evicted less, and lookups probe both. Hot
+     * spots can then spill into other sets, which cuts conflict misses at the
+     * same total capacity, at the cost of a second probe on a miss.
+     *
+     * @param secondaryHashFunction
+     *            a hash function independent of the primary one, such as a
+     *            SeededHashFunction, or null for a single candidate set
+     */
+    public void setSecondaryHashFunction(HashFunction secondaryHashFunction) {
+        this.secondaryHashFunction = secondaryHashFunction;
+    }
+
+    /**
+     * Sets the listener told about every entry that leaves the cache. It is called
+     * under the lock of a cache set, so it should be a RemovalDispatcher or
+     * similarly cheap.
+     *
+     * @param removalListener
+     *            the listener, or null for none
+     */
+    protected void setRemovalListener(RemovalListener<K, V> removalListener) {
+        this.removalListener = removalListener;
+    }
+
+    /**
+     * Sets the writer every put and remove is written through to. Wrap it in a
+     * WriteBehindWriter to let puts return before the backing store is updated.
+     *
+     * @param cacheWriter
+     *            the writer, or null for none
+     */
+    public void setCacheWriter(CacheWriter<K, V> cacheWriter) {
+        this.cacheWriter = cacheWriter;
+    }
+
+    /**
+     * Sets the loader a get that misses loads the value through, the loaded value
+     * is put into the cache but not written through.
+     *
+     * @param cacheLoader
+     *            the loader, or null for none
+     */
+    public void setCacheLoader(CacheLoader<K, V> cacheLoader) {
+        this.cacheLoader = cacheLoader;
+    }
+
+    /**
+     * Sets the prefetcher that watches the gets for walks over ranges of keys.
+     * The keys it predicts are loaded through the cache loader on the prefetch
+     * executor, so it does nothing without a cache loader.
+     *
+     * @param prefetcher
+     *            the prefetcher, or null for none
+     */
+    public void setPrefetcher(StridePrefetcher<K> prefetcher) {
+        this.prefetcher = prefetcher;
+    }
+
+    /**
+     * @return the prefetcher with its accuracy statistics, or null if there is
+     *         none
+     */
+    public StridePrefetcher<K> getPrefetcher() {
+        return prefetcher;
+    }
+
+    /**
+     * @param prefetchExecutor
+     *            the executor predicted keys are loaded on, default is a small
+     *            pool of the cache's own with a bounded queue, whose threads
+     *            exit when idle and which close() stops
+     */
+    public synchronized void setPrefetchExecutor(Executor prefetchExecutor) {
+        if (isNull(prefetchExecutor)) {
+            throw new IllegalArgumentException("A prefetch executor was never given");
+        }
+        this.prefetchExecutor = prefetchExecutor;
+        if (nonNull(ownPrefetchExecutor)) {
+            ownPrefetchExecutor.shutdown();
+            ownPrefetchExecutor = null;
+        }
+    }
+
+    /**
+     * Sets the buffer that entries evicted from the sets are kept in until it is
+     * full, a get that misses in its set is served from it and swaps the entry
+     * back into the set. Entries in the victim buffer are not counted by size().
+     *
+     * @param victimBuffer
+     *            the victim buffer, or null for none
+     */
+    public void setVictimBuffer(VictimBuffer<K, V> victimBuffer) {
+        this.victimBuffer = victimBuffer;
+    }
+
+    /**
+     * @return the victim buffer with its hit statistics, or null if there is none
+     */
+    public VictimBuffer<K, V> getVictimBuffer() {
+        return victimBuffer;
+    }
+
+    /**
+     * Sets the per-thread front cache that gets look in before the sets. A get
+     * served from it counts as a hit, is told to the access observers and is
+     * recorded in the read buffers of the key's sets, so the replacement
+     * algorithm still sees hot keys; it skips the Flight Recorder events. Must
+     * be created for this cache's number of sets.
+     *
+     * @param frontCache
+     *            the front cache, or null for none
+     */
+    public void setFrontCache(ThreadLocalFrontCache<V> frontCache) {
+        this.frontCache = frontCache;
+    }
+
+    /**
+     * @return the front cache with its hit count, or null if there is none
+     */
+    public ThreadLocalFrontCache<V> getFrontCache() {
+        return frontCache;
+    }
+
+    /**
+     * Adds an observer that is told about every get(), put() and remove(), for
+     * example a HotKeyTracker or a TraceRecorder.
+     *
+     * @param accessObserver
+     *            the observer to be added
+     */
+    public synchronized void addAccessObserver(AccessObserver accessObserver) {
+        if (isNull(accessObserver)) {
+            throw new IllegalArgumentException("An access observer was never given");
+        }
+        AccessObserver[] observers = Arrays.copyOf(accessObservers, accessObservers.length + 1);
+        observers[accessObservers.length] = accessObserver;
+        accessObservers = observers;
+    }
+
     /**
      * Simple Builder class for NWaySetAssociativeCache. Accepts enums to setup the
      * replacement algorithm and the cache set type.
@@ -235,8 +1088,22 @@ public class NWaySetAssociativeCache<K, V> implements Cache<K, V> {
         private int blockSize = 4;
         private int totalSets = 10;
         private SubCacheType subCacheType;
+        private ValueStrength valueStrength;
         private HashFunction hashFunction;
+        private HashFunction secondaryHashFunction;
         private ReplacementAlgorithm<K, V> replacementAlgorithm;
+        private Maintenance maintenance;
+        private RemovalListener<K, V> removalListener;
+        private Executor removalExecutor;
+        private CacheWriter<K, V> cacheWriter;
+        private CacheLoader<K, V> cacheLoader;
+        private StridePrefetcher<K> prefetcher;
+        private Executor prefetchExecutor;
+        private List<AccessObserver> accessObservers = new ArrayList<>();
+        private int victimBufferSize = 0;
+        private int frontCacheSize = 0;
+        private int bloomFilterCountersPerEntry = 0;
+        private double memoryPressureThreshold = 0.0;
 
         public Builder() {
         }
@@ -254,15 +1121,72 @@ public class NWaySetAssociativeCache<K, V> implements Cache<K, V> {
             if (isNull(replacementAlgorithm)) {
                 replacementAlgorithm = new LeastRecentlyUsed<>();
             }
+            if (nonNull(prefetcher) && isNull(cacheLoader)) {
+                throw new IllegalArgumentException("A prefetcher needs a cache loader");
+            }
+            // deferred eviction lets a set hold more than the block size
+            int ways = isNull(maintenance) ? blockSize : maintenance.highWatermark(blockSize);
             List<CacheSet<K, V>> sets = new ArrayList<>();
             for (int i = 0; i < totalSets; i++) {
                 CacheSet<K, V> cacheSet = SubCacheFactory.get(subCacheType, blockSize);
-                cacheSet.setReplacementAlgorithm(replacementAlgorithm);
+                cacheSet.setReplacementAlgorithm(newReplacementAlgorithm(ways));
+                if (nonNull(valueStrength)) {
+                    cacheSet.setValueStrength(valueStrength);
+                }
+                if (nonNull(maintenance)) {
+                    cacheSet.setMaintenance(maintenance);
+                }
+                if (bloomFilterCountersPerEntry > 0) {
+                    cacheSet.setBloomFilter(new CountingBloomFilter(blockSize, bloomFilterCountersPerEntry));
+                }
                 sets.add(cacheSet);
             }
             NWaySetAssociativeCache<K, V> cache = new NWaySetAssociativeCache<>(sets, hashFunction);
             cache.setReplacementAlgorithmName(replacementAlgorithm.getClass().getSimpleName());
-            return new NWaySetAssociativeCache<>(sets, hashFunction);
+            if (nonNull(removalListener)) {
+                if (isNull(removalExecutor)) {
+                    removalExecutor = ForkJoinPool.commonPool();
+                }
+                cache.setRemovalListener(new RemovalDispatcher<>(removalListener, removalExecutor));
+            }
+            cache.setCacheWriter(cacheWriter);
+            cache.setCacheLoader(cacheLoader);
+            cache.setPrefetcher(prefetcher);
+            if (nonNull(prefetchExecutor)) {
+                cache.setPrefetchExecutor(prefetchExecutor);
+            }
+            cache.setSecondaryHashFunction(secondaryHashFunction);
+            if (victimBufferSize > 0) {
+                cache.setVictimBuffer(new VictimBuffer<>(victimBufferSize));
+            }
+            if (frontCacheSize > 0) {
+                cache.setFrontCache(new ThreadLocalFrontCache<>(frontCacheSize, totalSets));
+            }
+            accessObservers.forEach(cache::addAccessObserver);
+            if (memoryPressureThreshold > 0.0) {
+                MemoryPressureMonitor monitor = new MemoryPressureMonitor(cache::setCapacityFraction,
+                    memoryPressureThreshold);
+                cache.setMemoryPressureMonitor(monitor);
+                monitor.start();
+            }
+            return cache;
+        }
+
+        /**
+         * An algorithm that cannot copy itself is only used as it is when there
+         * is a single set to give it to, sharing it between sets would touch its
+         * state under the locks of different sets at once.
+         */
+        private ReplacementAlgorithm<K, V> newReplacementAlgorithm(int ways) {
+            try {
+                return replacementAlgorithm.newInstance(ways);
+            } catch (UnsupportedOperationException e) {
+                if (totalSets == 1) {
+                    return replacementAlgorithm;
+                }
+                throw new IllegalArgumentException(replacementAlgorithm.getClass().getSimpleName()
+                    + " must override newInstance() to be given to " + totalSets + " sets", e);
+            }
         }
 
         /**
@@ -277,6 +1201,19 @@ public class NWaySetAssociativeCache<K, V> implements Cache<K, V> {
             return this;
         }
 
+        /**
+         * Sets how the sets hold on to values, with WEAK or SOFT values the garbage
+         * collector may shrink the cache instead of running out of memory. The
+         * front cache and the victim buffer still hold their copies strongly
+         * 
+         * @param valueStrength
+         *            how values are held, default is STRONG
+         */
+        public Builder<K, V> setValueStrength(ValueStrength valueStrength) {
+            this.valueStrength = valueStrength;
+            return this;
+        }
+
         /**
          * Sets the total number of sets to be used for this cache
          * 
@@ -292,6 +1229,19 @@ public class NWaySetAssociativeCache<K, V> implements Cache<K, V> {
             return this;
         }
 
+        /**
+         * Enables two-choice placement, every key may live in the set of either
+         * hash function, whichever was less loaded when the key was put
+         * 
+         * @param secondaryHashFunction
+         *            a hash function independent of the primary one, such as a
+         *            SeededHashFunction, default is null for one set per key
+         */
+        public Builder<K, V> setSecondaryHashFunction(HashFunction secondaryHashFunction) {
+            this.secondaryHashFunction = secondaryHashFunction;
+            return this;
+        }
+
         /**
          * Sets the maximum number of blocks each set may have
          * 
@@ -329,6 +1279,170 @@ public class NWaySetAssociativeCache<K, V> implements Cache<K, V> {
             this.hashFunction = hashFunction;
             return this;
         }
+
+        /**
+         * Enables deferred eviction, sets may then temporarily hold more than the
+         * block size and are evicted back down on the maintenance executor
+         * 
+         * @param maintenance
+         *            the deferred eviction configuration, default is null which
+         *            evicts inline on put
+         */
+        public Builder<K, V> setMaintenance(Maintenance maintenance) {
+            this.maintenance = maintenance;
+            return this;
+        }
+
+        /**
+         * Sets the listener told about every entry that leaves the cache, including
+         * replaced, evicted and cleared entries. Notifications are queued and
+         * delivered in batches on the removal executor, never under a set's lock.
+         * 
+         * @param removalListener
+         *            the listener, default is null for none
+         */
+        public Builder<K, V> setRemovalListener(RemovalListener<K, V> removalListener) {
+            this.removalListener = removalListener;
+            return this;
+        }
+
+        /**
+         * Sets the executor that delivers removal notifications
+         * 
+         * @param removalExecutor
+         *            the executor, default is ForkJoinPool.commonPool()
+         */
+        public Builder<K, V> setRemovalExecutor(Executor removalExecutor) {
+            this.removalExecutor = removalExecutor;
+            return this;
+        }
+
+        /**
+         * Sets the writer that every put and remove is written through to
+         * 
+         * @param cacheWriter
+         *            the writer, default is null for none. Use a WriteBehindWriter
+         *            for puts that do not wait on the backing store
+         */
+        public Builder<K, V> setCacheWriter(CacheWriter<K, V> cacheWriter) {
+            this.cacheWriter = cacheWriter;
+            return this;
+        }
+
+        /**
+         * Adds an observer that is told about every get(), put() and remove(), may
+         * be called more than once
+         * 
+         * @param accessObserver
+         *            the observer, for example a HotKeyTracker
+         */
+        public Builder<K, V> addAccessObserver(AccessObserver accessObserver) {
+            accessObservers.add(accessObserver);
+            return this;
+        }
+
+        /**
+         * Adds a victim buffer that keeps recently evicted entries, so keys that
+         * map to the same set stop evicting each other
+         * 
+         * @param victimBufferSize
+         *            the most entries the victim buffer holds, must be greater than
+         *            0, default is no victim buffer
+         */
+        public Builder<K, V> setVictimBufferSize(int victimBufferSize) {
+            if (victimBufferSize <= 0) {
+                throw new IllegalArgumentException("Victim buffer size must be greater than 0");
+            }
+            this.victimBufferSize = victimBufferSize;
+            return this;
+        }
+
+        /**
+         * Adds a tiny direct-mapped cache per thread in front of the sets, for
+         * threads that read the same few keys many times
+         * 
+         * @param frontCacheSize
+         *            the number of entries every thread keeps, must be greater
+         *            than 0, default is no front cache
+         */
+        public Builder<K, V> setFrontCacheSize(int frontCacheSize) {
+            if (frontCacheSize <= 0) {
+                throw new IllegalArgumentException("Front cache size must be greater than 0");
+            }
+            this.frontCacheSize = frontCacheSize;
+            return this;
+        }
+
+        /**
+         * Puts a counting Bloom filter in front of every set, so lookups for keys
+         * that are not in the cache mostly miss without taking a lock
+         * 
+         * @param bloomFilterCountersPerEntry
+         *            the number of 4 bit counters per entry, must be greater than
+         *            0, 8 gives about 2% false positives, default is no filter
+         */
+        public Builder<K, V> setBloomFilterCountersPerEntry(int bloomFilterCountersPerEntry) {
+            if (bloomFilterCountersPerEntry <= 0) {
+                throw new IllegalArgumentException("Bloom filter counters per entry must be greater than 0");
+            }
+            this.bloomFilterCountersPerEntry = bloomFilterCountersPerEntry;
+            return this;
+        }
+
+        /**
+         * Sets the loader a get that misses loads the value through
+         * 
+         * @param cacheLoader
+         *            the loader, default is null for none
+         */
+        public Builder<K, V> setCacheLoader(CacheLoader<K, V> cacheLoader) {
+            this.cacheLoader = cacheLoader;
+            return this;
+        }
+
+        /**
+         * Loads the keys of detected walks over ranges of keys ahead of the gets,
+         * needs a cache loader
+         * 
+         * @param prefetcher
+         *            the prefetcher, such as StridePrefetcher.forIntegers(),
+         *            default is null for none
+         */
+        public Builder<K, V> setPrefetcher(StridePrefetcher<K> prefetcher) {
+            this.prefetcher = prefetcher;
+            return this;
+        }
+
+        /**
+         * Sets the executor that predicted keys are loaded on, the loader is
+         * called on it so it should not be shared with CPU-bound work
+         * 
+         * @param prefetchExecutor
+         *            the executor, default is a small pool of the cache's own
+         *            with a bounded queue
+         */
+        public Builder<K, V> setPrefetchExecutor(Executor prefetchExecutor) {
+            this.prefetchExecutor = prefetchExecutor;
+            return this;
+        }
+
+        /**
+         * Shrinks the sets while a heap memory pool is above the threshold after a
+         * garbage collection and grows them back once none is, see
+         * MemoryPressureMonitor. The monitor is registered with the JVM until the
+         * cache is closed
+         * 
+         * @param memoryPressureThreshold
+         *            the fraction of a heap pool's maximum size above which the
+         *            cache shrinks, between 0 and 1, default is no monitoring
+         */
+        public Builder<K, V> setMemoryPressureThreshold(double memoryPressureThreshold) {
+            if (memoryPressureThreshold <= 0.0 || memoryPressureThreshold >= 1.0) {
+                throw new IllegalArgumentException("Memory pressure threshold must be between 0 and 1");
+            }
+            this.memoryPressureThreshold = memoryPressureThreshold;
+            return this;
+        }
     }
 
 }
@@ -0,0 +1,389 @@
+package cache;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+
+import cache.removal.RemovalCause;
+import cache.tiered.CompressedStore;
+import cache.tiered.Serializer;
+
+/**
+ * A Cache of two tiers: a NWaySetAssociativeCache on the heap in front of a
+ * larger CompressedStore outside of it. Entries evicted from the first tier are
+ * demoted, they are serialized, compressed and written to the second tier. A
+ * get that misses in the first tier but finds the key in the second is served
+ * from there and the entry is promoted back into the first tier.
+ * <p>
+ * Demotion and promotion run on the given executor. An evicted entry is held on
+ * the heap until its demotion has been written and is served from there in the
+ * meantime; a get served from the second tier decompresses the value itself
+ * but leaves the promotion, and with it the eviction the promotion causes, to
+ * the executor. Puts and removes lock a stripe of keys with the promotions and
+ * demotions of those keys, so a demotion or promotion that is late never
+ * brings back a value that was overwritten. A promotion moves the value the
+ * get already decoded; it is dropped if the lower tiers of its stripe changed
+ * in the meantime, and the next get promotes again.
+ * <p>
+ * The first tier's removal listener is replaced by the tiered cache.
+ *
+ * @param <K>
+ *            the type of keys maintained by the cache
+ * @param <V>
+ *            the type of mapped values
+ */
+public class TieredCache<K, V> implements Cache<K, V>, AutoCloseable {
+
+    private static final Object NULL_KEY = new Object();
+    private static final int STRIPES = 64;
+
+    private final NWaySetAssociativeCache<K, V> l1;
+    private final CompressedStore l2;
+    private final Serializer<V> serializer;
+    private final Executor executor;
+    private final ExecutorService ownExecutor;
+    private final ConcurrentMap<Object, Demotion<K, V>> demoting = new ConcurrentHashMap<>();
+    private final Set<Object> promoting = ConcurrentHashMap.newKeySet();
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final AtomicLong l2Hits = new AtomicLong();
+    private final AtomicLong demotions = new AtomicLong();
+    private final AtomicLong promotions = new AtomicLong();
+
+    /**
+     * Demotes and promotes on a thread of the tiered cache's own, which close()
+     * stops.
+     *
+     * @param l1
+     *            the first tier
+     * @param l2
+     *            the second tier
+     * @param serializer
+     *            turns values into the bytes the second tier keeps
+     */
+    public TieredCache(NWaySetAssociativeCache<K, V> l1, CompressedStore l2, Serializer<V> serializer) {
+        this(l1, l2, serializer, Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "cache-tiered");
+            thread.setDaemon(true);
+            return thread;
+        }), true);
+    }
+
+    /**
+     * @param l1
+     *            the first tier
+     * @param l2
+     *            the second tier
+     * @param serializer
+     *            turns values into the bytes the second tier keeps
+     * @param executor
+     *            runs demotions and promotions
+     */
+    public TieredCache(NWaySetAssociativeCache<K, V> l1, CompressedStore l2, Serializer<V> serializer,
+        Executor executor) {
+        this(l1, l2, serializer, executor, false);
+    }
+
+    private TieredCache(NWaySetAssociativeCache<K, V> l1, CompressedStore l2, Serializer<V> serializer,
+        Executor executor, boolean ownsExecutor) {
+        if (isNull(l1) || isNull(l2)) {
+            throw new IllegalArgumentException("Both tiers must be given");
+        }
+        if (isNull(serializer)) {
+            throw new IllegalArgumentException("A serializer was never given");
+        }
+        if (isNull(executor)) {
+            throw new IllegalArgumentException("An executor was never given");
+        }
+        this.l1 = l1;
+        this.l2 = l2;
+        this.serializer = serializer;
+        this.executor = executor;
+        ownExecutor = ownsExecutor ? (ExecutorService) executor : null;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+        l1.setRemovalListener(this::onL1Removal);
+    }
+
+    /**
+     * Called under the lock of a set of the first tier, so it only hands the
+     * entry over to the executor.
+     */
+    private void onL1Removal(K key, V value, RemovalCause cause) {
+        if (cause != RemovalCause.EVICTED || isNull(value)) {
+            return;
+        }
+        Demotion<K, V> demotion = new Demotion<>(key, value);
+        demoting.put(mask(key), demotion);
+        if (!submit(() -> demote(demotion))) {
+            demoting.remove(mask(key), demotion);
+        }
+    }
+
+    /**
+     * @return false if the executor rejected the task, because it was shut down
+     */
+    private boolean submit(Runnable task) {
+        try {
+            executor.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            return false;
+        }
+    }
+
+    private void demote(Demotion<K, V> demotion) {
+        byte[] bytes;
+        try {
+            bytes = serializer.serialize(demotion.value);
+        } catch (RuntimeException e) {
+            // the entry cannot be kept in the second tier, so it leaves the cache
+            demoting.remove(mask(demotion.key), demotion);
+            return;
+        }
+        Stripe stripe = stripe(demotion.key);
+        synchronized (stripe) {
+            // written before it leaves demoting, so a get always finds it in one of them
+            if (demoting.get(mask(demotion.key)) == demotion && !l1.containsKeyQuietly(demotion.key)) {
+                l2.put(demotion.key, bytes);
+                demotions.incrementAndGet();
+            }
+            demoting.remove(mask(demotion.key), demotion);
+            stripe.version++;
+        }
+    }
+
+    /**
+     * Moves the value a get decoded into the first tier, unless the lower tiers
+     * of the key's stripe changed since the get read the version.
+     */
+    private void promote(K key, V value, long version) {
+        promoting.remove(mask(key));
+        Stripe stripe = stripe(key);
+        synchronized (stripe) {
+            if (stripe.version != version || l1.containsKeyQuietly(key)) {
+                return;
+            }
+            Demotion<K, V> demotion = demoting.get(mask(key));
+            // put before it leaves the lower tier, so a get always finds it in one of them
+            l1.put(key, value);
+            if (nonNull(demotion)) {
+                demoting.remove(mask(key), demotion);
+            } else {
+                l2.remove(key);
+            }
+            stripe.version++;
+            promotions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Looks in the first tier, then in the entries being demoted, then in the
+     * second tier. An entry can be promoted into the first tier after the first
+     * tier was looked in, so a key found in neither lower tier is looked for in
+     * the first tier once more.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        V value = l1.get(key);
+        if (nonNull(value)) {
+            return value;
+        }
+        long version = stripe(key).version;
+        Demotion<K, V> demotion = demoting.get(mask(key));
+        if (nonNull(demotion)) {
+            value = demotion.value;
+        } else {
+            byte[] bytes = l2.get(key);
+            if (isNull(bytes)) {
+                return l1.containsKey(key) ? l1.get(key) : null;
+            }
+            value = serializer.deserialize(bytes);
+            l2Hits.incrementAndGet();
+        }
+        V promoted = value;
+        if (promoting.add(mask(key)) && !submit(() -> promote((K) key, promoted, version))) {
+            promoting.remove(mask(key));
+        }
+        return value;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        synchronized (stripe(key)) {
+            V oldValue = l1.put(key, value);
+            V demoted = removeBelowL1(key);
+            return isNull(oldValue) ? demoted : oldValue;
+        }
+    }
+
+    /**
+     * Computes from the value of whichever tier has the key, under the key's
+     * stripe lock, and puts the result into the first tier.
+     */
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        synchronized (stripe(key)) {
+            V oldValue = l1.get(key);
+            boolean inL1 = nonNull(oldValue);
+            if (!inL1) {
+                Demotion<K, V> demotion = demoting.get(mask(key));
+                byte[] bytes = isNull(demotion) ? l2.get(key) : null;
+                oldValue = nonNull(demotion) ? demotion.value : isNull(bytes) ? null : serializer.deserialize(bytes);
+            }
+            V newValue = remappingFunction.apply(key, oldValue);
+            if (isNull(newValue)) {
+                if (nonNull(oldValue)) {
+                    remove(key);
+                }
+            } else if (newValue != oldValue || !inL1) {
+                put(key, newValue);
+            }
+            return newValue;
+        }
+    }
+
+    @Override
+    public V remove(Object key) {
+        synchronized (stripe(key)) {
+            V value = l1.remove(key);
+            V demoted = removeBelowL1(key);
+            return isNull(value) ? demoted : value;
+        }
+    }
+
+    /**
+     * Must be called with the key's stripe locked.
+     *
+     * @return the value the key had in the second tier or while being demoted
+     */
+    private V removeBelowL1(Object key) {
+        Demotion<K, V> demotion = demoting.remove(mask(key));
+        byte[] bytes = l2.remove(key);
+        stripe(key).version++;
+        if (nonNull(demotion)) {
+            return demotion.value;
+        }
+        return isNull(bytes) ? null : serializer.deserialize(bytes);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return l1.containsKey(key) || demoting.containsKey(mask(key)) || l2.containsKey(key);
+    }
+
+    @Override
+    public void clear() {
+        l1.clear();
+        demoting.clear();
+        l2.clear();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * @return the number of entries of both tiers
+     */
+    @Override
+    public int size() {
+        return l1.size() + demoting.size() + l2.size();
+    }
+
+    /**
+     * @return the maximum number of entries of the first tier, the second tier is
+     *         bounded by the bytes of its compressed values
+     */
+    @Override
+    public int maxSize() {
+        return l1.maxSize();
+    }
+
+    @Override
+    public String getReplacementAlgorithmName() {
+        return l1.getReplacementAlgorithmName();
+    }
+
+    public NWaySetAssociativeCache<K, V> getL1() {
+        return l1;
+    }
+
+    public CompressedStore getL2() {
+        return l2;
+    }
+
+    /**
+     * @return the number of gets that missed the first tier and were served by
+     *         the second
+     */
+    public long getL2Hits() {
+        return l2Hits.get();
+    }
+
+    /**
+     * @return the number of entries written to the second tier
+     */
+    public long getDemotions() {
+        return demotions.get();
+    }
+
+    /**
+     * @return the number of entries moved back into the first tier
+     */
+    public long getPromotions() {
+        return promotions.get();
+    }
+
+    /**
+     * Stops the tiered cache's own thread, if it has one. Demotions that have not
+     * run yet are lost.
+     */
+    @Override
+    public void close() {
+        if (nonNull(ownExecutor)) {
+            ownExecutor.shutdownNow();
+        }
+    }
+
+    private Stripe stripe(Object key) {
+        int h = isNull(key) ? 0 : key.hashCode();
+        h ^= h >>> 16;
+        return stripes[h & (STRIPES - 1)];
+    }
+
+    private static Object mask(Object key) {
+        return isNull(key) ? NULL_KEY : key;
+    }
+
+    /**
+     * The lock of a stripe of keys. The version is bumped, under the lock, by
+     * every change to the lower tiers of the stripe's keys.
+     */
+    private static final class Stripe {
+
+        private volatile long version;
+    }
+
+    private static final class Demotion<K, V> {
+
+        private final K key;
+        private final V value;
+
+        Demotion(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+}
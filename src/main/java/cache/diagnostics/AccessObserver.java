@@ -0,0 +1,43 @@
+package cache.diagnostics;
+
+/**
+ * Told about every get() of a NWaySetAssociativeCache, and optionally every
+ * put() and remove(), on the calling thread and after the set's lock was
+ * released. Implementations must be thread safe and should be cheap, usually by
+ * sampling and handing the access to a buffer.
+ */
+@FunctionalInterface
+public interface AccessObserver {
+
+    /**
+     * @param key
+     *            the key that was looked up
+     * @param setIndex
+     *            the index of the set the key maps to
+     * @param hit
+     *            true if the key was in the cache
+     */
+    void onAccess(Object key, int setIndex, boolean hit);
+
+    /**
+     * Does nothing by default.
+     *
+     * @param key
+     *            the key that was put
+     * @param setIndex
+     *            the index of the set the key maps to
+     */
+    default void onPut(Object key, int setIndex) {
+    }
+
+    /**
+     * Does nothing by default.
+     *
+     * @param key
+     *            the key that was removed
+     * @param setIndex
+     *            the index of the set the key maps to
+     */
+    default void onRemove(Object key, int setIndex) {
+    }
+}
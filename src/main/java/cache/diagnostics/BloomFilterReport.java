@@ -0,0 +1,62 @@
+package cache.diagnostics;
+
+/**
+ * How well the Bloom filters in front of the sets of a cache answered lookups
+ * for absent keys, summed over every set at the time the report was made. A
+ * false positive rate well above the few percent the filters are sized for
+ * points to saturated counters or a set that holds more keys than it was sized
+ * for.
+ */
+public class BloomFilterReport {
+
+    private final long negatives;
+    private final long falsePositives;
+    private final double bitsPerEntry;
+
+    /**
+     * @param negatives
+     *            the number of lookups the filters turned away
+     * @param falsePositives
+     *            the number of lookups for absent keys the filters let through
+     * @param bitsPerEntry
+     *            the bits of counters per entry of a set
+     */
+    public BloomFilterReport(long negatives, long falsePositives, double bitsPerEntry) {
+        this.negatives = negatives;
+        this.falsePositives = falsePositives;
+        this.bitsPerEntry = bitsPerEntry;
+    }
+
+    /**
+     * @return the number of lookups answered without taking a set's lock
+     */
+    public long getNegatives() {
+        return negatives;
+    }
+
+    public long getFalsePositives() {
+        return falsePositives;
+    }
+
+    /**
+     * @return the share of lookups for absent keys the filters let through, 0 if
+     *         there were none
+     */
+    public double getFalsePositiveRate() {
+        long absent = negatives + falsePositives;
+        return absent == 0 ? 0.0 : (double) falsePositives / absent;
+    }
+
+    /**
+     * @return the memory the filters take per entry the cache can hold, in bits
+     */
+    public double getBitsPerEntry() {
+        return bitsPerEntry;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("negatives=%d falsePositives=%d falsePositiveRate=%.4f bitsPerEntry=%.1f", negatives,
+            falsePositives, getFalsePositiveRate(), bitsPerEntry);
+    }
+}
@@ -0,0 +1,51 @@
+package cache.diagnostics;
+
+/**
+ * A key reported by a HotKeyTracker together with its estimated number of
+ * accesses.
+ */
+public class HotKey {
+
+    private final Object key;
+    private final int setIndex;
+    private final long count;
+    private final long error;
+
+    public HotKey(Object key, int setIndex, long count, long error) {
+        this.key = key;
+        this.setIndex = setIndex;
+        this.count = count;
+        this.error = error;
+    }
+
+    public Object getKey() {
+        return key;
+    }
+
+    /**
+     * @return the index of the set the key maps to
+     */
+    public int getSetIndex() {
+        return setIndex;
+    }
+
+    /**
+     * @return the estimated number of accesses, which overestimates the true
+     *         number by at most getError()
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return the largest amount by which getCount() may overestimate
+     */
+    public long getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return key + " set=" + setIndex + " count=" + count + " error=" + error;
+    }
+}
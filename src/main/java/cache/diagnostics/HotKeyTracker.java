@@ -0,0 +1,218 @@
+package cache.diagnostics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.ReentrantLock;
+
+import cache.subcache.ReadBuffer;
+import cache.subcache.ReadBuffer.Status;
+
+/**
+ * Finds the most frequently read keys with the Space-Saving algorithm. A fixed
+ * number of counters is kept; a key that has no counter takes over the one with
+ * the smallest count and inherits that count as its error, so memory is bounded
+ * by the capacity no matter how many distinct keys are seen.
+ * <p>
+ * Reads are sampled and the sampled keys are offered to a lossy ReadBuffer. The
+ * reader that finds the buffer full drains it into the counters if no other
+ * thread is already doing so, the get path never waits on a lock.
+ */
+public class HotKeyTracker implements AccessObserver {
+
+    public static final int DEFAULT_SAMPLE_RATE = 16;
+
+    private final int capacity;
+    private final int sampleRate;
+    private final ReadBuffer<Sample> buffer = new ReadBuffer<>();
+    private final ReentrantLock lock = new ReentrantLock();
+
+    // a min-heap on count, indices maps each key to its position in the heap
+    private final Counter[] heap;
+    private final Map<Object, Integer> indices;
+    private int size = 0;
+
+    /**
+     * @param capacity
+     *            the number of counters, the more there are the more accurate the
+     *            counts of the top keys
+     * @param sampleRate
+     *            one in every sampleRate reads is counted, 1 counts every read
+     * @throws IllegalArgumentException
+     *             if either is less than 1
+     */
+    public HotKeyTracker(int capacity, int sampleRate) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be greater than 0");
+        }
+        if (sampleRate < 1) {
+            throw new IllegalArgumentException("Sample rate must be greater than 0");
+        }
+        this.capacity = capacity;
+        this.sampleRate = sampleRate;
+        heap = new Counter[capacity];
+        indices = new HashMap<>(capacity * 2);
+    }
+
+    public HotKeyTracker(int capacity) {
+        this(capacity, DEFAULT_SAMPLE_RATE);
+    }
+
+    @Override
+    public void onAccess(Object key, int setIndex, boolean hit) {
+        if (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+            return;
+        }
+        Sample sample = new Sample(key, setIndex);
+        if (buffer.offer(sample) == Status.FULL && lock.tryLock()) {
+            try {
+                buffer.drainTo(this::count);
+                count(sample);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * @param k
+     *            the number of keys to report
+     * @return up to k of the most read keys, most read first. Counts are scaled by
+     *         the sample rate
+     */
+    public List<HotKey> topK(int k) {
+        Counter[] counters;
+        lock.lock();
+        try {
+            buffer.drainTo(this::count);
+            counters = new Counter[size];
+            for (int i = 0; i < size; i++) {
+                counters[i] = heap[i].copy();
+            }
+        } finally {
+            lock.unlock();
+        }
+        Arrays.sort(counters, (a, b) -> Long.compare(b.count, a.count));
+        List<HotKey> hotKeys = new ArrayList<>();
+        for (int i = 0; i < Math.min(k, counters.length); i++) {
+            Counter c = counters[i];
+            hotKeys.add(new HotKey(c.key, c.setIndex, c.count * sampleRate, c.error * sampleRate));
+        }
+        return hotKeys;
+    }
+
+    /**
+     * Forgets every counted key.
+     */
+    public void clear() {
+        lock.lock();
+        try {
+            buffer.clear();
+            Arrays.fill(heap, null);
+            indices.clear();
+            size = 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    private void count(Sample sample) {
+        Integer index = indices.get(sample.key);
+        if (index != null) {
+            heap[index].count++;
+            siftDown(index);
+        } else if (size < capacity) {
+            heap[size] = new Counter(sample.key, sample.setIndex, 1L, 0L);
+            indices.put(sample.key, size);
+            siftUp(size++);
+        } else {
+            Counter min = heap[0];
+            indices.remove(min.key);
+            min.error = min.count;
+            min.count++;
+            min.key = sample.key;
+            min.setIndex = sample.setIndex;
+            indices.put(sample.key, 0);
+            siftDown(0);
+        }
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent].count <= heap[i].count) {
+                break;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int smallest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < size && heap[left].count < heap[smallest].count) {
+                smallest = left;
+            }
+            if (right < size && heap[right].count < heap[smallest].count) {
+                smallest = right;
+            }
+            if (smallest == i) {
+                return;
+            }
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int i, int j) {
+        Counter c = heap[i];
+        heap[i] = heap[j];
+        heap[j] = c;
+        indices.put(heap[i].key, i);
+        indices.put(heap[j].key, j);
+    }
+
+    private static class Sample {
+
+        private final Object key;
+        private final int setIndex;
+
+        Sample(Object key, int setIndex) {
+            this.key = key;
+            this.setIndex = setIndex;
+        }
+    }
+
+    private static class Counter {
+
+        private Object key;
+        private int setIndex;
+        private long count;
+        private long error;
+
+        Counter(Object key, int setIndex, long count, long error) {
+            this.key = key;
+            this.setIndex = setIndex;
+            this.count = count;
+            this.error = error;
+        }
+
+        Counter copy() {
+            return new Counter(key, setIndex, count, error);
+        }
+    }
+}
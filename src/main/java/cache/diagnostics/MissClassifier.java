@@ -0,0 +1,180 @@
+package cache.diagnostics;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Classifies the misses of a set associative cache as compulsory, capacity or
+ * conflict misses. Alongside the cache it keeps a shadow fully associative LRU
+ * cache of the same total size: a miss on a key that was never seen before is
+ * compulsory, a miss on a key the shadow still holds would have been a hit
+ * without the set constraint and is a conflict miss, any other miss is a
+ * capacity miss. Many conflict misses call for a larger block size, many
+ * capacity misses for more sets.
+ * <p>
+ * To keep the shadow small only keys whose hash falls in one of sampleRate
+ * partitions are tracked, and the shadow is scaled down to cacheSize /
+ * sampleRate. Keys are assumed to be put into the cache after they missed, as
+ * with a read-through cache. Whether a key was seen before is kept in a fixed
+ * size bit set, so after very many distinct keys a few compulsory misses are
+ * counted as capacity misses. Once half of its bits are set the bit set is
+ * cleared, which ages out keys seen long ago and keeps that error small; the
+ * keys read again right after are counted as compulsory misses. Sampled
+ * accesses are classified under a lock.
+ */
+public class MissClassifier implements AccessObserver {
+
+    public static final int DEFAULT_SAMPLE_RATE = 16;
+    private static final int SEEN_BITS = 1 << 20;
+
+    private final int sampleRate;
+    private final int shadowSize;
+    private final long[] seen = new long[SEEN_BITS / Long.SIZE];
+    private int seenBits = 0;
+    private final LinkedHashMap<Object, Boolean> shadow;
+
+    private long accesses = 0L;
+    private long compulsoryMisses = 0L;
+    private long capacityMisses = 0L;
+    private long conflictMisses = 0L;
+
+    /**
+     * @param cacheSize
+     *            the maximum size of the observed cache
+     * @param sampleRate
+     *            one in every sampleRate keys is tracked, 1 tracks every key
+     * @throws IllegalArgumentException
+     *             if either is less than 1
+     */
+    public MissClassifier(int cacheSize, int sampleRate) {
+        if (cacheSize < 1) {
+            throw new IllegalArgumentException("Cache size must be greater than 0");
+        }
+        if (sampleRate < 1) {
+            throw new IllegalArgumentException("Sample rate must be greater than 0");
+        }
+        this.sampleRate = sampleRate;
+        shadowSize = Math.max(1, Math.round((float) cacheSize / sampleRate));
+        shadow = new LinkedHashMap<Object, Boolean>(shadowSize * 2, 0.75f, true) {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Boolean> eldest) {
+                return size() > shadowSize;
+            }
+        };
+    }
+
+    public MissClassifier(int cacheSize) {
+        this(cacheSize, DEFAULT_SAMPLE_RATE);
+    }
+
+    @Override
+    public void onAccess(Object key, int setIndex, boolean hit) {
+        int hash = mix(isNull(key) ? 0 : key.hashCode());
+        if (Integer.remainderUnsigned(hash, sampleRate) != 0) {
+            return;
+        }
+        synchronized (this) {
+            accesses++;
+            boolean inShadow = nonNull(shadow.put(key, Boolean.TRUE));
+            // sampled hashes share their low bits, so both probes are mixed again
+            boolean firstSeen = markSeen(mix(hash ^ 0x2545f491)) | markSeen(mix(hash ^ 0x5bd1e995));
+            if (seenBits > SEEN_BITS / 2) {
+                Arrays.fill(seen, 0L);
+                seenBits = 0;
+            }
+            if (hit) {
+                return;
+            }
+            if (firstSeen) {
+                compulsoryMisses++;
+            } else if (inShadow) {
+                conflictMisses++;
+            } else {
+                capacityMisses++;
+            }
+        }
+    }
+
+    /**
+     * @return true if the bit for the hash was not set before
+     */
+    private boolean markSeen(int hash) {
+        int index = (hash & (SEEN_BITS - 1)) >>> 6;
+        long mask = 1L << hash;
+        boolean first = (seen[index] & mask) == 0L;
+        if (first) {
+            seen[index] |= mask;
+            seenBits++;
+        }
+        return first;
+    }
+
+    static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    /**
+     * @return the number of accesses that were sampled
+     */
+    public synchronized long getSampledAccesses() {
+        return accesses;
+    }
+
+    /**
+     * @return the number of sampled misses on keys that were never read before
+     */
+    public synchronized long getCompulsoryMisses() {
+        return compulsoryMisses;
+    }
+
+    /**
+     * @return the number of sampled misses a fully associative cache of the same
+     *         size would also have had
+     */
+    public synchronized long getCapacityMisses() {
+        return capacityMisses;
+    }
+
+    /**
+     * @return the number of sampled misses a fully associative cache of the same
+     *         size would have avoided
+     */
+    public synchronized long getConflictMisses() {
+        return conflictMisses;
+    }
+
+    public int getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Forgets every classified miss and every seen key.
+     */
+    public synchronized void reset() {
+        shadow.clear();
+        Arrays.fill(seen, 0L);
+        seenBits = 0;
+        accesses = 0L;
+        compulsoryMisses = 0L;
+        capacityMisses = 0L;
+        conflictMisses = 0L;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("sampledAccesses=%d compulsory=%d capacity=%d conflict=%d", accesses, compulsoryMisses,
+            capacityMisses, conflictMisses);
+    }
+}
@@ -0,0 +1,232 @@
+package cache.diagnostics;
+
+import static java.util.Objects.isNull;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/**
+ * Estimates the hit ratio an LRU cache would have at every size up to a
+ * maximum, from the reads of a running cache. It follows fixed-size SHARDS:
+ * only keys whose hash is below a threshold are tracked, and for each read of a
+ * tracked key the number of distinct tracked keys read since its previous read,
+ * its reuse distance, is scaled up by the sampling rate and counted in a
+ * histogram. An LRU cache of size c hits every read with a reuse distance below
+ * c.
+ * <p>
+ * At most maxSamples keys are tracked. When another key would be tracked the
+ * threshold is lowered to drop the keys with the highest hashes, and the
+ * histogram is scaled down to match the new sampling rate, so memory stays
+ * bounded however many distinct keys are read. Reuse distances are counted in
+ * a Fenwick tree over the time of each key's last read. Sampled reads are
+ * processed under a lock.
+ */
+public class MissRatioCurve implements AccessObserver {
+
+    public static final int DEFAULT_MAX_SAMPLES = 8 * 1024;
+    public static final int DEFAULT_BINS = 100;
+    private static final long HASH_SPACE = 1L << 32;
+
+    private final int maxCacheSize;
+    private final int binWidth;
+    private final int maxSamples;
+
+    private final double[] histogram;
+    private final Map<Object, Sample> samples = new HashMap<>();
+    private final PriorityQueue<Sample> byHash = new PriorityQueue<>(
+        Comparator.comparingLong((Sample s) -> s.hash).reversed());
+    private final int[] tree;
+
+    private volatile long threshold = HASH_SPACE;
+    private double references = 0.0;
+    private int clock = 0;
+
+    /**
+     * @param maxCacheSize
+     *            the largest cache size the curve is estimated for
+     * @param bins
+     *            the number of cache sizes the curve is estimated at, evenly
+     *            spaced up to maxCacheSize
+     * @param maxSamples
+     *            the maximum number of keys tracked at once, the more the more
+     *            accurate
+     * @throws IllegalArgumentException
+     *             if any is less than 1
+     */
+    public MissRatioCurve(int maxCacheSize, int bins, int maxSamples) {
+        if (maxCacheSize < 1 || bins < 1 || maxSamples < 1) {
+            throw new IllegalArgumentException("Cache size, bins and samples must be greater than 0");
+        }
+        this.binWidth = Math.max(1, (maxCacheSize + bins - 1) / bins);
+        this.maxCacheSize = binWidth * bins;
+        this.maxSamples = maxSamples;
+        histogram = new double[bins];
+        // twice the samples, so time only has to be compacted every maxSamples reads
+        tree = new int[2 * maxSamples + 1];
+    }
+
+    public MissRatioCurve(int maxCacheSize) {
+        this(maxCacheSize, DEFAULT_BINS, DEFAULT_MAX_SAMPLES);
+    }
+
+    @Override
+    public void onAccess(Object key, int setIndex, boolean hit) {
+        long hash = mix(isNull(key) ? 0 : key.hashCode());
+        if (hash >= threshold) {
+            return;
+        }
+        synchronized (this) {
+            if (hash < threshold) {
+                record(key, hash);
+            }
+        }
+    }
+
+    private void record(Object key, long hash) {
+        references++;
+        if (clock == tree.length - 1) {
+            compact();
+        }
+        int now = ++clock;
+        Sample sample = samples.get(key);
+        if (isNull(sample)) {
+            sample = new Sample(key, hash);
+            samples.put(key, sample);
+            byHash.add(sample);
+        } else {
+            int distance = count(sample.time + 1, now);
+            long scaled = (long) (distance * (double) HASH_SPACE / threshold);
+            if (scaled < maxCacheSize) {
+                histogram[(int) (scaled / binWidth)]++;
+            }
+            add(sample.time, -1);
+        }
+        sample.time = now;
+        add(now, 1);
+        if (samples.size() > maxSamples) {
+            lowerThreshold();
+        }
+    }
+
+    private void lowerThreshold() {
+        long newThreshold = byHash.peek().hash;
+        while (!byHash.isEmpty() && byHash.peek().hash >= newThreshold) {
+            Sample sample = byHash.poll();
+            samples.remove(sample.key);
+            add(sample.time, -1);
+        }
+        double scale = (double) newThreshold / threshold;
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] *= scale;
+        }
+        references *= scale;
+        threshold = newThreshold;
+    }
+
+    /**
+     * Renumbers the last read times of the tracked keys from 1 so that time never
+     * runs past the end of the tree.
+     */
+    private void compact() {
+        List<Sample> live = new ArrayList<>(samples.values());
+        live.sort(Comparator.comparingInt(s -> s.time));
+        for (int i = 0; i < tree.length; i++) {
+            tree[i] = 0;
+        }
+        clock = 0;
+        for (Sample sample : live) {
+            sample.time = ++clock;
+            add(clock, 1);
+        }
+    }
+
+    private void add(int time, int delta) {
+        for (int i = time; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    private int prefix(int time) {
+        int sum = 0;
+        for (int i = time; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    private int count(int from, int to) {
+        return prefix(to) - prefix(from - 1);
+    }
+
+    static long mix(int h) {
+        return MissClassifier.mix(h) & 0xFFFFFFFFL;
+    }
+
+    /**
+     * @param cacheSize
+     *            the size of the LRU cache
+     * @return the estimated hit ratio of an LRU cache of the given size, 0 if
+     *         nothing was read yet
+     */
+    public synchronized double getHitRatio(int cacheSize) {
+        if (references == 0.0) {
+            return 0.0;
+        }
+        double hits = 0.0;
+        int full = Math.min(histogram.length, cacheSize / binWidth);
+        for (int i = 0; i < full; i++) {
+            hits += histogram[i];
+        }
+        return hits / references;
+    }
+
+    /**
+     * @return the estimated hit ratio at every multiple of the bin width up to
+     *         the maximum cache size, keyed by cache size
+     */
+    public synchronized NavigableMap<Integer, Double> getCurve() {
+        NavigableMap<Integer, Double> curve = new TreeMap<>();
+        double hits = 0.0;
+        for (int i = 0; i < histogram.length; i++) {
+            hits += histogram[i];
+            curve.put((i + 1) * binWidth, references == 0.0 ? 0.0 : hits / references);
+        }
+        return curve;
+    }
+
+    /**
+     * @return the fraction of keys currently being tracked
+     */
+    public synchronized double getSampleRate() {
+        return (double) threshold / HASH_SPACE;
+    }
+
+    /**
+     * @return the number of keys currently being tracked
+     */
+    public synchronized int getSamples() {
+        return samples.size();
+    }
+
+    public int getMaxCacheSize() {
+        return maxCacheSize;
+    }
+
+    private static class Sample {
+
+        private final Object key;
+        private final long hash;
+        private int time;
+
+        Sample(Object key, long hash) {
+            this.key = key;
+            this.hash = hash;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package cache.diagnostics;
+
+/**
+ * The occupancy and eviction count of every set of a cache at the time the
+ * report was made. An even spread has an imbalance close to 1; sets that fill
+ * up and evict far more than the others point to a poor hash function or keys
+ * that collide, which more associativity helps with, while every set evicting
+ * evenly points to a cache that is simply too small.
+ */
+public class SetReport {
+
+    private final int blockSize;
+    private final int[] occupancy;
+    private final long[] evictions;
+
+    public SetReport(int blockSize, int[] occupancy, long[] evictions) {
+        if (occupancy.length != evictions.length) {
+            throw new IllegalArgumentException("Every set needs an occupancy and an eviction count");
+        }
+        this.blockSize = blockSize;
+        this.occupancy = occupancy.clone();
+        this.evictions = evictions.clone();
+    }
+
+    public int getTotalSets() {
+        return occupancy.length;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * @return the number of entries in the set with the given index
+     */
+    public int getOccupancy(int setIndex) {
+        return occupancy[setIndex];
+    }
+
+    /**
+     * @return the number of evictions from the set with the given index
+     */
+    public long getEvictions(int setIndex) {
+        return evictions[setIndex];
+    }
+
+    /**
+     * @return the number of sets that hold at least blockSize entries
+     */
+    public int getFullSets() {
+        int full = 0;
+        for (int size : occupancy) {
+            if (size >= blockSize) {
+                full++;
+            }
+        }
+        return full;
+    }
+
+    /**
+     * @return the average number of entries per set
+     */
+    public double getMeanOccupancy() {
+        long total = 0L;
+        for (int size : occupancy) {
+            total += size;
+        }
+        return (double) total / occupancy.length;
+    }
+
+    /**
+     * @return the occupancy of the fullest set divided by the mean occupancy, or 0
+     *         if the cache is empty
+     */
+    public double getOccupancyImbalance() {
+        long max = 0L;
+        long total = 0L;
+        for (int size : occupancy) {
+            max = Math.max(max, size);
+            total += size;
+        }
+        return imbalance(max, total);
+    }
+
+    /**
+     * @return the evictions of the set that evicted most divided by the mean
+     *         evictions per set, or 0 if nothing was evicted
+     */
+    public double getEvictionImbalance() {
+        long max = 0L;
+        long total = 0L;
+        for (long count : evictions) {
+            max = Math.max(max, count);
+            total += count;
+        }
+        return imbalance(max, total);
+    }
+
+    private double imbalance(long max, long total) {
+        return total == 0L ? 0.0 : max * (double) occupancy.length / total;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("sets=%d blockSize=%d meanOccupancy=%.2f fullSets=%d occupancyImbalance=%.2f "
+            + "evictionImbalance=%.2f", getTotalSets(), blockSize, getMeanOccupancy(), getFullSets(),
+            getOccupancyImbalance(), getEvictionImbalance());
+    }
+}
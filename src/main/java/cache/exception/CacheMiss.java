@@ -1,7 +1,15 @@
-package cache.exception;
-
-public class CacheMiss extends Exception {
-
-    private static final long serialVersionUID = -2400738460445804522L;
-
-}
+package cache.exception;
+
+/**
+ * Thrown by a cache set that does not hold the key. Misses are part of normal
+ * operation, and with two-choice placement a lookup may see two of them, so the
+ * exception does not capture a stack trace.
+ */
+public class CacheMiss extends Exception {
+
+    private static final long serialVersionUID = -2400738460445804522L;
+
+    public CacheMiss() {
+        super(null, null, false, false);
+    }
+}
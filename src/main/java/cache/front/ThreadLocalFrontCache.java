@@ -0,0 +1,165 @@
+package cache.front;
+
+import static java.util.Objects.isNull;
+
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A tiny direct-mapped cache kept by every thread in front of the shared sets,
+ * so a thread that reads the same few keys over and over finds them without
+ * taking a set's lock.
+ * <p>
+ * Copies are invalidated through epochs rather than messages to other threads:
+ * every set has an epoch that a put or remove in the set bumps, and a copy is
+ * only served while the epoch of its set is still the one read before the copy
+ * was made. A copy that is read from the set after a put sees the new value,
+ * one read before carries the older epoch, so a thread never gets a value that
+ * was overwritten once the put has returned. Evictions do not bump the epoch,
+ * an evicted entry may still be served from the copies of the threads that
+ * read it.
+ * <p>
+ * Every thread, virtual threads included, gets its own slots through a
+ * ThreadLocal that is created on the first get, nothing is tied to a carrier
+ * thread. The slots hold strong references, so the front cache should stay
+ * small. Null values are not kept.
+ *
+ * @param <V>
+ *            the type of mapped values
+ */
+public class ThreadLocalFrontCache<V> {
+
+    private static final Object EMPTY = new Object();
+
+    private final AtomicLongArray epochs;
+    private final ThreadLocal<Slots> slots;
+    private final LongAdder hits = new LongAdder();
+    private final int size;
+
+    /**
+     * @param size
+     *            the number of slots of every thread, must be greater than 0 and
+     *            is rounded up to a power of two
+     * @param totalSets
+     *            the number of sets of the cache the front cache is in front of
+     */
+    public ThreadLocalFrontCache(int size, int totalSets) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Size must be greater than 0");
+        }
+        this.size = Integer.highestOneBit(size * 2 - 1);
+        epochs = new AtomicLongArray(totalSets);
+        slots = ThreadLocal.withInitial(() -> new Slots(this.size));
+    }
+
+    /**
+     * @param key
+     *            the key to be looked up
+     * @param setIndex
+     *            the index of the set the key maps to
+     * @return the current thread's copy of the value, or null if it has none or
+     *         the set has changed since the copy was made
+     */
+    @SuppressWarnings("unchecked")
+    public V get(Object key, int setIndex) {
+        Slots local = slots.get();
+        int slot = slotOf(key, local.mask);
+        if (local.epochs[slot] != epochs.get(setIndex) || !Objects.equals(local.keys[slot], key)) {
+            return null;
+        }
+        hits.increment();
+        return (V) local.values[slot];
+    }
+
+    /**
+     * Must be read before the value is read from the set, and the value then
+     * stored with put().
+     *
+     * @param setIndex
+     *            the index of the set the key maps to
+     * @return the current epoch of the set
+     */
+    public long epoch(int setIndex) {
+        return epochs.get(setIndex);
+    }
+
+    /**
+     * Keeps a copy of the value for the current thread, replacing whatever key
+     * had the slot.
+     *
+     * @param key
+     *            the key of the value
+     * @param value
+     *            the value read from the set
+     * @param epoch
+     *            the epoch of the set read before the value was
+     */
+    public void put(Object key, V value, long epoch) {
+        if (isNull(value)) {
+            return;
+        }
+        Slots local = slots.get();
+        int slot = slotOf(key, local.mask);
+        local.keys[slot] = key;
+        local.values[slot] = value;
+        local.epochs[slot] = epoch;
+    }
+
+    /**
+     * Makes every thread's copies of the keys in the set invisible. Called after
+     * the set was changed.
+     *
+     * @param setIndex
+     *            the index of the set that was changed
+     */
+    public void invalidate(int setIndex) {
+        epochs.incrementAndGet(setIndex);
+    }
+
+    /**
+     * Makes every thread's copies invisible.
+     */
+    public void invalidateAll() {
+        for (int i = 0; i < epochs.length(); i++) {
+            epochs.incrementAndGet(i);
+        }
+    }
+
+    /**
+     * @return the number of gets served from a thread's copies
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the number of slots of every thread
+     */
+    public int getSize() {
+        return size;
+    }
+
+    private static int slotOf(Object key, int mask) {
+        int h = isNull(key) ? 0 : key.hashCode();
+        h *= 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    private static final class Slots {
+
+        private final Object[] keys;
+        private final Object[] values;
+        private final long[] epochs;
+        private final int mask;
+
+        Slots(int size) {
+            keys = new Object[size];
+            values = new Object[size];
+            epochs = new long[size];
+            mask = size - 1;
+            Arrays.fill(keys, EMPTY);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package cache.hash;
+
+import static java.util.Objects.isNull;
+
+/**
+ * Mixes the key's hashCode() with a seed, so that functions with different
+ * seeds spread the same keys independently of each other. Meant as the
+ * secondary hash function of two-choice placement.
+ */
+public class SeededHashFunction implements HashFunction {
+
+    private final int seed;
+
+    public SeededHashFunction(int seed) {
+        this.seed = seed;
+    }
+
+    public SeededHashFunction() {
+        this(0x9E3779B9);
+    }
+
+    @Override
+    public int hash(Object o) {
+        int h = (isNull(o) ? 0 : o.hashCode()) ^ seed;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,136 @@
+package cache.jfr;
+
+import static java.util.Objects.isNull;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Entry points for emitting the cache's Flight Recorder events. Every method
+ * first asks a probe event whether its type is enabled in any running
+ * recording, which compiles to a read of a static field, so with no recording
+ * the instrumentation costs a predictable branch and allocates nothing.
+ * <p>
+ * Gets and puts are sampled, one in every {@code cache.jfr.sampleRate}
+ * operations (64 by default) is timed and recorded.
+ */
+public final class CacheEvents {
+
+    private static final int SAMPLE_RATE = Math.max(1, Integer.getInteger("cache.jfr.sampleRate", 64));
+
+    private static final CacheGetEvent GET_PROBE = new CacheGetEvent();
+    private static final CachePutEvent PUT_PROBE = new CachePutEvent();
+    private static final CacheEvictionEvent EVICTION_PROBE = new CacheEvictionEvent();
+    private static final SetLockWaitEvent LOCK_WAIT_PROBE = new SetLockWaitEvent();
+
+    private CacheEvents() {
+    }
+
+    private static boolean sampled() {
+        return SAMPLE_RATE == 1 || ThreadLocalRandom.current().nextInt(SAMPLE_RATE) == 0;
+    }
+
+    /**
+     * @return a started event if this get was sampled, null otherwise
+     */
+    public static CacheGetEvent beginGet() {
+        if (!GET_PROBE.isEnabled() || !sampled()) {
+            return null;
+        }
+        CacheGetEvent event = new CacheGetEvent();
+        event.begin();
+        return event;
+    }
+
+    public static void endGet(CacheGetEvent event, int setIndex, boolean hit) {
+        if (isNull(event)) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.setIndex = setIndex;
+            event.hit = hit;
+            event.commit();
+        }
+    }
+
+    /**
+     * @return a started event if this put was sampled, null otherwise
+     */
+    public static CachePutEvent beginPut() {
+        if (!PUT_PROBE.isEnabled() || !sampled()) {
+            return null;
+        }
+        CachePutEvent event = new CachePutEvent();
+        event.begin();
+        return event;
+    }
+
+    public static void endPut(CachePutEvent event, int setIndex, boolean replaced) {
+        if (isNull(event)) {
+            return;
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.setIndex = setIndex;
+            event.replaced = replaced;
+            event.commit();
+        }
+    }
+
+    /**
+     * @return the current time if eviction events are enabled, 0 otherwise. Meant
+     *         to be stored with an entry so that its age is known at eviction
+     */
+    public static long insertionTime() {
+        return EVICTION_PROBE.isEnabled() ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * @param policy
+     *            the replacement algorithm that chose the victim
+     * @param insertionTime
+     *            the value of insertionTime() when the victim was inserted
+     */
+    public static void evicted(Object policy, long insertionTime) {
+        if (!EVICTION_PROBE.isEnabled()) {
+            return;
+        }
+        CacheEvictionEvent event = new CacheEvictionEvent();
+        if (event.shouldCommit()) {
+            event.policy = isNull(policy) ? null : policy.getClass().getSimpleName();
+            event.victimAge = insertionTime == 0L ? 0L : System.nanoTime() - insertionTime;
+            event.commit();
+        }
+    }
+
+    /**
+     * Acquires the lock, timing the wait if the lock was contended and lock wait
+     * events are enabled.
+     *
+     * @param lock
+     *            the lock to be acquired
+     * @param name
+     *            recorded as the kind of lock
+     * @param set
+     *            the cache set the lock belongs to
+     */
+    public static void lock(Lock lock, String name, Object set) {
+        if (!LOCK_WAIT_PROBE.isEnabled()) {
+            lock.lock();
+            return;
+        }
+        if (lock.tryLock()) {
+            return;
+        }
+        SetLockWaitEvent event = new SetLockWaitEvent();
+        event.begin();
+        lock.lock();
+        event.end();
+        if (event.shouldCommit()) {
+            event.lock = name;
+            event.setIdentity = System.identityHashCode(set);
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package cache.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+@Name("cache.Eviction")
+@Label("Cache Eviction")
+@Category("Cache")
+@Description("An entry chosen for eviction by the replacement algorithm of a cache set")
+@StackTrace(false)
+public class CacheEvictionEvent extends jdk.jfr.Event {
+
+    @Label("Replacement Algorithm")
+    String policy;
+
+    @Label("Victim Age")
+    @Description("Time since the victim was inserted, 0 if it was inserted while the event was disabled")
+    @Timespan(Timespan.NANOSECONDS)
+    long victimAge;
+}
@@ -0,0 +1,21 @@
+package cache.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("cache.Get")
+@Label("Cache Get")
+@Category("Cache")
+@Description("A sampled get from an NWaySetAssociativeCache")
+@StackTrace(false)
+public class CacheGetEvent extends jdk.jfr.Event {
+
+    @Label("Set Index")
+    int setIndex;
+
+    @Label("Hit")
+    boolean hit;
+}
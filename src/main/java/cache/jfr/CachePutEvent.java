@@ -0,0 +1,22 @@
+package cache.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("cache.Put")
+@Label("Cache Put")
+@Category("Cache")
+@Description("A sampled put into an NWaySetAssociativeCache")
+@StackTrace(false)
+public class CachePutEvent extends jdk.jfr.Event {
+
+    @Label("Set Index")
+    int setIndex;
+
+    @Label("Replaced")
+    @Description("True if the put returned a previous or evicted value")
+    boolean replaced;
+}
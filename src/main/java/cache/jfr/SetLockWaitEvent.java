@@ -0,0 +1,21 @@
+package cache.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("cache.SetLockWait")
+@Label("Cache Set Lock Wait")
+@Category("Cache")
+@Description("Time a thread waited for a contended cache set lock")
+public class SetLockWaitEvent extends jdk.jfr.Event {
+
+    @Label("Lock")
+    @Description("read or write")
+    String lock;
+
+    @Label("Set Identity")
+    @Description("Identity hash code of the cache set, equal values refer to the same set")
+    int setIdentity;
+}
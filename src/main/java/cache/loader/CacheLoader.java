@@ -0,0 +1,23 @@
+package cache.loader;
+
+/**
+ * Loads values from a backing store into the cache, on a miss and for the keys
+ * a prefetcher predicts.
+ *
+ * @param <K>
+ *            the type of keys maintained by the cache
+ * @param <V>
+ *            the type of mapped values
+ */
+@FunctionalInterface
+public interface CacheLoader<K, V> {
+
+    /**
+     * Reads the value of the key from the backing store
+     *
+     * @param key
+     *            the key that missed in the cache or was predicted
+     * @return the value, or null if the backing store has none
+     */
+    V load(K key);
+}
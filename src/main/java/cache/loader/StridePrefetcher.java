@@ -0,0 +1,288 @@
+package cache.loader;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongFunction;
+import java.util.function.ToLongFunction;
+
+/**
+ * Predicts the keys a client walking a range of ids will ask for next, in the
+ * manner of a CPU stream prefetcher. Keys are mapped to positions on a line;
+ * a small table of streams remembers where recent misses were and the stride
+ * between them. A miss close to a stream continues it, two steps of the same
+ * stride confirm it and the next keys along the stride are predicted, up to
+ * degree steps ahead. Every access to a predicted key moves its stream on, so
+ * a confirmed walk keeps running ahead of its client on hits alone. Streams
+ * are not tied to threads, interleaved walks each get their own.
+ * <p>
+ * A saturating accuracy counter throttles the predictions: it goes up when a
+ * predicted key is asked for and down when a prediction ages out unused. Below
+ * the midpoint no more keys are handed out to be loaded, the predictions are
+ * still made and scored, so prefetching turns itself on again once they come
+ * true.
+ * <p>
+ * Thread safe, the stream table is guarded by this object's monitor. An access
+ * to a key that was neither a miss nor predicted returns without locking.
+ *
+ * @param <K>
+ *            the type of keys maintained by the cache
+ */
+public class StridePrefetcher<K> {
+
+    public static final int DEFAULT_STREAMS = 16;
+    public static final int DEFAULT_DEGREE = 4;
+    public static final int DEFAULT_WINDOW = 64;
+
+    private static final int MAX_ACCURACY = 15;
+    private static final int MIN_USEFUL_ACCURACY = (MAX_ACCURACY + 1) / 2;
+
+    private final ToLongFunction<? super K> positionOf;
+    private final LongFunction<? extends K> keyAt;
+    private final int degree;
+    private final long window;
+    private final Stream[] streams;
+    private final int maxPredictions;
+
+    private final ConcurrentMap<K, Prediction<K>> predictions = new ConcurrentHashMap<>();
+    private final Queue<Prediction<K>> predictionOrder = new ArrayDeque<>();
+    private final LongAdder issued = new LongAdder();
+    private final LongAdder useful = new LongAdder();
+    private final LongAdder useless = new LongAdder();
+    private volatile int accuracy = MAX_ACCURACY;
+    private long clock;
+
+    /**
+     * @param positionOf
+     *            maps a key to its position, keys one stride apart are one
+     *            stride apart in position
+     * @param keyAt
+     *            maps a position back to its key
+     * @param streams
+     *            the number of walks tracked at once
+     * @param degree
+     *            how many steps a confirmed stream is predicted ahead
+     * @param window
+     *            the largest stride detected, a miss further from every stream
+     *            starts a new one
+     */
+    public StridePrefetcher(ToLongFunction<? super K> positionOf, LongFunction<? extends K> keyAt, int streams,
+        int degree, int window) {
+        if (isNull(positionOf) || isNull(keyAt)) {
+            throw new IllegalArgumentException("Key positions were never given");
+        }
+        if (streams <= 0 || degree <= 0 || window <= 0) {
+            throw new IllegalArgumentException("Streams, degree and window must be greater than 0");
+        }
+        this.positionOf = positionOf;
+        this.keyAt = keyAt;
+        this.degree = degree;
+        this.window = window;
+        this.streams = new Stream[streams];
+        for (int i = 0; i < streams; i++) {
+            this.streams[i] = new Stream();
+        }
+        maxPredictions = 4 * streams * degree;
+    }
+
+    public StridePrefetcher(ToLongFunction<? super K> positionOf, LongFunction<? extends K> keyAt) {
+        this(positionOf, keyAt, DEFAULT_STREAMS, DEFAULT_DEGREE, DEFAULT_WINDOW);
+    }
+
+    /**
+     * @return a prefetcher for Integer keys, positioned by their value
+     */
+    public static StridePrefetcher<Integer> forIntegers() {
+        return new StridePrefetcher<>(Integer::longValue, position -> (int) position);
+    }
+
+    /**
+     * @return a prefetcher for Long keys, positioned by their value
+     */
+    public static StridePrefetcher<Long> forLongs() {
+        return new StridePrefetcher<>(Long::longValue, Long::valueOf);
+    }
+
+    /**
+     * Called for every get of the cache.
+     *
+     * @param key
+     *            the key that was asked for
+     * @param hit
+     *            true if the cache had it
+     * @return the keys to be loaded ahead, empty while the predictions are
+     *         inaccurate
+     */
+    public List<K> onAccess(K key, boolean hit) {
+        if (isNull(key)) {
+            return Collections.emptyList();
+        }
+        Prediction<K> prediction = predictions.remove(key);
+        if (isNull(prediction) && hit) {
+            return Collections.emptyList();
+        }
+        if (nonNull(prediction)) {
+            useful.increment();
+        }
+        synchronized (this) {
+            if (nonNull(prediction)) {
+                accuracy = Math.min(MAX_ACCURACY, accuracy + 1);
+            }
+            return train(positionOf.applyAsLong(key));
+        }
+    }
+
+    private List<K> train(long position) {
+        Stream stream = nearest(position);
+        stream.lastUsed = ++clock;
+        long stride = position - stream.last;
+        if (stream.confidence < 0 || stride == 0) {
+            // a new stream, or the same key again
+            stream.confidence = Math.max(stream.confidence, 0);
+            stream.last = position;
+            return Collections.emptyList();
+        }
+        if (stride == stream.stride) {
+            stream.confidence = 1;
+        } else {
+            stream.stride = stride;
+            stream.confidence = 0;
+            stream.predicted = position;
+        }
+        stream.last = position;
+        if (stream.confidence == 0) {
+            return Collections.emptyList();
+        }
+        // continue from the furthest prediction still ahead of the client
+        long next = position + stride;
+        if ((stream.predicted - position) / stride > 0) {
+            next = stream.predicted + stride;
+        }
+        long end = position + stride * degree;
+        boolean load = accuracy >= MIN_USEFUL_ACCURACY;
+        List<K> keys = new ArrayList<>();
+        for (long p = next; (stride > 0 ? p <= end : p >= end); p += stride) {
+            K key = keyAt.apply(p);
+            if (predict(key, load) && load) {
+                keys.add(key);
+            }
+            stream.predicted = p;
+        }
+        return keys;
+    }
+
+    /**
+     * @return the stream within the window of the position, or the least
+     *         recently used stream, which is restarted at the position
+     */
+    private Stream nearest(long position) {
+        Stream nearest = null;
+        Stream oldest = streams[0];
+        for (Stream stream : streams) {
+            if (stream.confidence >= 0) {
+                long distance = Math.abs(position - stream.last);
+                if (distance <= window && (isNull(nearest) || distance < Math.abs(position - nearest.last))) {
+                    nearest = stream;
+                }
+            }
+            if (stream.lastUsed < oldest.lastUsed) {
+                oldest = stream;
+            }
+        }
+        if (isNull(nearest)) {
+            oldest.confidence = -1;
+            oldest.stride = 0L;
+            nearest = oldest;
+        }
+        return nearest;
+    }
+
+    /**
+     * Records a prediction, aging out the oldest one once too many are
+     * outstanding.
+     *
+     * @return true if the key was not predicted already
+     */
+    private boolean predict(K key, boolean loaded) {
+        Prediction<K> prediction = new Prediction<>(key);
+        if (nonNull(predictions.putIfAbsent(key, prediction))) {
+            return false;
+        }
+        predictionOrder.add(prediction);
+        if (loaded) {
+            issued.increment();
+        }
+        while (predictionOrder.size() > maxPredictions) {
+            Prediction<K> oldest = predictionOrder.remove();
+            if (predictions.remove(oldest.key, oldest)) {
+                useless.increment();
+                accuracy = Math.max(0, accuracy - 1);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the number of keys handed out to be loaded
+     */
+    public long getIssued() {
+        return issued.sum();
+    }
+
+    /**
+     * @return the number of predicted keys that were asked for, including the
+     *         ones predicted while throttled
+     */
+    public long getUseful() {
+        return useful.sum();
+    }
+
+    /**
+     * @return the number of predictions that aged out without being asked for
+     */
+    public long getUseless() {
+        return useless.sum();
+    }
+
+    /**
+     * @return the value of the saturating accuracy counter, between 0 and 15
+     */
+    public int getAccuracy() {
+        return accuracy;
+    }
+
+    /**
+     * @return true while predicted keys are handed out to be loaded
+     */
+    public boolean isEnabled() {
+        return accuracy >= MIN_USEFUL_ACCURACY;
+    }
+
+    /**
+     * One walk: the last position it reached, its stride and how far ahead it
+     * was predicted. A confidence of -1 marks a stream that has not started.
+     */
+    private static final class Stream {
+        long last;
+        long stride;
+        long predicted;
+        int confidence = -1;
+        long lastUsed;
+    }
+
+    private static final class Prediction<K> {
+        final K key;
+
+        Prediction(K key) {
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,304 @@
+package cache.memory;
+
+import static java.util.Objects.isNull;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.DoubleConsumer;
+
+import javax.management.ListenerNotFoundException;
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+
+/**
+ * Shrinks a cache while the heap is nearly full and grows it back once it is
+ * not. The monitor sets a usage threshold on every heap memory pool that
+ * supports one, preferring the collection usage threshold, which is compared
+ * against the usage left after a garbage collection and so is not crossed by
+ * garbage alone. Each threshold notification multiplies the capacity fraction
+ * by the shrink factor, down to a minimum. A periodic check raises the fraction
+ * by the restore step whenever no pool is above its threshold.
+ * <p>
+ * The fraction is handed to the resize callback, for a NWaySetAssociativeCache
+ * that is setCapacityFraction(). Notifications arrive on a JMX thread; shrinking
+ * and restoring, and the evictions they cause, run on the monitor's own
+ * thread.
+ * <p>
+ * Thresholds are JVM wide and shared by the monitors that are started: a pool's
+ * threshold is the lowest one any of them asks for, and every monitor ignores
+ * notifications below its own. When the last monitor is closed the pools get
+ * back the thresholds they had before the first one started.
+ */
+public class MemoryPressureMonitor implements NotificationListener, AutoCloseable {
+
+    public static final double DEFAULT_SHRINK_FACTOR = 0.5;
+    public static final double DEFAULT_MINIMUM_FRACTION = 0.1;
+    public static final double DEFAULT_RESTORE_STEP = 0.1;
+    public static final long DEFAULT_RESTORE_INTERVAL_MILLIS = 1000L;
+
+    private static final List<MemoryPressureMonitor> STARTED = new ArrayList<>();
+    private static final Map<String, Long> ORIGINAL_THRESHOLDS = new HashMap<>();
+
+    private final DoubleConsumer resize;
+    private final double threshold;
+    private final double shrinkFactor;
+    private final double minimumFraction;
+    private final double restoreStep;
+    private final long restoreIntervalMillis;
+    private final List<MemoryPoolMXBean> pools = new ArrayList<>();
+    private final AtomicLong shrinks = new AtomicLong();
+    private final ScheduledExecutorService scheduler;
+    private volatile double fraction = 1.0;
+    private boolean started = false;
+    private boolean closed = false;
+
+    /**
+     * @param resize
+     *            receives the fraction of its full capacity the cache should keep
+     * @param threshold
+     *            the fraction of a heap pool's maximum size above which the pool
+     *            is under pressure, between 0 and 1
+     */
+    public MemoryPressureMonitor(DoubleConsumer resize, double threshold) {
+        this(resize, threshold, DEFAULT_SHRINK_FACTOR, DEFAULT_MINIMUM_FRACTION, DEFAULT_RESTORE_STEP,
+            DEFAULT_RESTORE_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param resize
+     *            receives the fraction of its full capacity the cache should keep
+     * @param threshold
+     *            the fraction of a heap pool's maximum size above which the pool
+     *            is under pressure, between 0 and 1
+     * @param shrinkFactor
+     *            what the capacity fraction is multiplied by on every threshold
+     *            notification, between 0 and 1
+     * @param minimumFraction
+     *            the capacity fraction is never lowered below this, between 0 and
+     *            1
+     * @param restoreStep
+     *            what is added to the capacity fraction on every check without
+     *            pressure, greater than 0
+     * @param restoreInterval
+     *            the time between checks
+     * @param unit
+     *            the unit of restoreInterval
+     */
+    public MemoryPressureMonitor(DoubleConsumer resize, double threshold, double shrinkFactor,
+        double minimumFraction, double restoreStep, long restoreInterval, TimeUnit unit) {
+        if (isNull(resize)) {
+            throw new IllegalArgumentException("A resize callback was never given");
+        }
+        if (threshold <= 0.0 || threshold >= 1.0) {
+            throw new IllegalArgumentException("Threshold must be between 0 and 1");
+        }
+        if (shrinkFactor <= 0.0 || shrinkFactor >= 1.0) {
+            throw new IllegalArgumentException("Shrink factor must be between 0 and 1");
+        }
+        if (minimumFraction <= 0.0 || minimumFraction > 1.0) {
+            throw new IllegalArgumentException("Minimum fraction must be between 0 and 1");
+        }
+        if (restoreStep <= 0.0 || restoreInterval <= 0) {
+            throw new IllegalArgumentException("Restore step and interval must be greater than 0");
+        }
+        this.resize = resize;
+        this.threshold = threshold;
+        this.shrinkFactor = shrinkFactor;
+        this.minimumFraction = minimumFraction;
+        this.restoreStep = restoreStep;
+        restoreIntervalMillis = unit.toMillis(restoreInterval);
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "cache-memory-pressure");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Sets the thresholds of the heap pools and starts listening for them being
+     * crossed.
+     */
+    public synchronized void start() {
+        if (started || closed) {
+            return;
+        }
+        started = true;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getUsage().getMax() > 0
+                && (pool.isCollectionUsageThresholdSupported() || pool.isUsageThresholdSupported())) {
+                pools.add(pool);
+            }
+        }
+        synchronized (STARTED) {
+            STARTED.add(this);
+            applyThresholds();
+        }
+        ((NotificationEmitter) ManagementFactory.getMemoryMXBean()).addNotificationListener(this, null, null);
+        scheduler.scheduleWithFixedDelay(this::restore, restoreIntervalMillis, restoreIntervalMillis,
+            TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sets every heap pool's threshold to the lowest one of the started
+     * monitors, or back to the one it had before any was started. Must be
+     * called holding the lock of STARTED.
+     */
+    private static void applyThresholds() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            long max = pool.getUsage().getMax();
+            if (pool.getType() != MemoryType.HEAP || max <= 0) {
+                continue;
+            }
+            boolean collection = pool.isCollectionUsageThresholdSupported();
+            if (!collection && !pool.isUsageThresholdSupported()) {
+                continue;
+            }
+            long bytes;
+            if (STARTED.isEmpty()) {
+                Long original = ORIGINAL_THRESHOLDS.remove(pool.getName());
+                if (isNull(original)) {
+                    continue;
+                }
+                bytes = original;
+            } else {
+                ORIGINAL_THRESHOLDS.computeIfAbsent(pool.getName(),
+                    name -> collection ? pool.getCollectionUsageThreshold() : pool.getUsageThreshold());
+                double lowest = 1.0;
+                for (MemoryPressureMonitor monitor : STARTED) {
+                    lowest = Math.min(lowest, monitor.threshold);
+                }
+                bytes = (long) (max * lowest);
+            }
+            if (collection) {
+                pool.setCollectionUsageThreshold(bytes);
+            } else {
+                pool.setUsageThreshold(bytes);
+            }
+        }
+    }
+
+    @Override
+    public void handleNotification(Notification notification, Object handback) {
+        String type = notification.getType();
+        if ((MemoryNotificationInfo.MEMORY_THRESHOLD_EXCEEDED.equals(type)
+            || MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(type))
+            && isAboveThreshold(notification)) {
+            try {
+                scheduler.execute(this::shrink);
+            } catch (RejectedExecutionException e) {
+                // closed
+            }
+        }
+    }
+
+    /**
+     * @return false if the pool crossed the threshold of another monitor, but not
+     *         this one's
+     */
+    private boolean isAboveThreshold(Notification notification) {
+        if (!(notification.getUserData() instanceof CompositeData)) {
+            return true;
+        }
+        MemoryUsage usage = MemoryNotificationInfo.from((CompositeData) notification.getUserData()).getUsage();
+        return usage.getMax() <= 0 || usage.getUsed() >= (long) (usage.getMax() * threshold);
+    }
+
+    /**
+     * Lowers the capacity fraction by the shrink factor, called on the monitor's
+     * thread.
+     */
+    void shrink() {
+        double lowered = Math.max(minimumFraction, fraction * shrinkFactor);
+        if (lowered < fraction) {
+            fraction = lowered;
+            shrinks.incrementAndGet();
+            resize.accept(lowered);
+        }
+    }
+
+    /**
+     * Raises the capacity fraction by the restore step if no pool is under
+     * pressure, called on the monitor's thread.
+     */
+    void restore() {
+        if (fraction >= 1.0 || isUnderPressure()) {
+            return;
+        }
+        fraction = Math.min(1.0, fraction + restoreStep);
+        resize.accept(fraction);
+    }
+
+    /**
+     * @return true if a monitored pool is above its threshold
+     */
+    public boolean isUnderPressure() {
+        for (MemoryPoolMXBean pool : pools) {
+            MemoryUsage usage = pool.isCollectionUsageThresholdSupported() ? pool.getCollectionUsage()
+                : pool.getUsage();
+            if (isNull(usage) || usage.getMax() <= 0) {
+                continue;
+            }
+            if (usage.getUsed() >= (long) (usage.getMax() * threshold)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the fraction of its full capacity the cache is meant to keep
+     */
+    public double getCapacityFraction() {
+        return fraction;
+    }
+
+    /**
+     * @return the number of times the capacity was lowered
+     */
+    public long getShrinks() {
+        return shrinks.get();
+    }
+
+    /**
+     * Stops listening and restores the full capacity. The pools' thresholds go
+     * back to the lowest one of the monitors still started, or to what they were
+     * before any was started.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (started) {
+            try {
+                ((NotificationEmitter) ManagementFactory.getMemoryMXBean()).removeNotificationListener(this);
+            } catch (ListenerNotFoundException e) {
+                // never registered
+            }
+            synchronized (STARTED) {
+                STARTED.remove(this);
+                applyThresholds();
+            }
+        }
+        scheduler.shutdownNow();
+        if (fraction < 1.0) {
+            fraction = 1.0;
+            resize.accept(1.0);
+        }
+    }
+}
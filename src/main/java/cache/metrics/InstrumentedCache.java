@@ -0,0 +1,140 @@
+package cache.metrics;
+
+import static java.util.Objects.isNull;
+
+import java.util.function.BiFunction;
+
+import cache.Cache;
+
+/**
+ * A Cache that passes every call through to another cache and records how long
+ * each get, put and remove took in a LatencyHistogram per operation. Recording
+ * takes no lock and allocates nothing, so it may be left on in production; the
+ * cost is two reads of System.nanoTime() per operation.
+ *
+ * @param <K>
+ *            the type of keys maintained by the cache
+ * @param <V>
+ *            the type of mapped values
+ */
+public class InstrumentedCache<K, V> implements Cache<K, V> {
+
+    private final Cache<K, V> cache;
+    private final LatencyHistogram getLatency = new LatencyHistogram();
+    private final LatencyHistogram putLatency = new LatencyHistogram();
+    private final LatencyHistogram removeLatency = new LatencyHistogram();
+
+    /**
+     * @param cache
+     *            the cache to be instrumented, usually a NWaySetAssociativeCache
+     * @throws IllegalArgumentException
+     *             if the cache is null
+     */
+    public InstrumentedCache(Cache<K, V> cache) {
+        if (isNull(cache)) {
+            throw new IllegalArgumentException("A cache was never given");
+        }
+        this.cache = cache;
+    }
+
+    /**
+     * @return the instrumented cache
+     */
+    public Cache<K, V> getCache() {
+        return cache;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        long start = System.nanoTime();
+        try {
+            return cache.put(key, value);
+        } finally {
+            putLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Recorded with the puts, as is every atomic operation built on it.
+     */
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        long start = System.nanoTime();
+        try {
+            return cache.compute(key, remappingFunction);
+        } finally {
+            putLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return cache.containsKey(key);
+    }
+
+    @Override
+    public V get(Object key) {
+        long start = System.nanoTime();
+        try {
+            return cache.get(key);
+        } finally {
+            getLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public V remove(Object key) {
+        long start = System.nanoTime();
+        try {
+            return cache.remove(key);
+        } finally {
+            removeLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    @Override
+    public void clear() {
+        cache.clear();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return cache.isEmpty();
+    }
+
+    @Override
+    public int size() {
+        return cache.size();
+    }
+
+    @Override
+    public int maxSize() {
+        return cache.maxSize();
+    }
+
+    @Override
+    public String getReplacementAlgorithmName() {
+        return cache.getReplacementAlgorithmName();
+    }
+
+    /**
+     * @return the latencies of every get() so far, in nanoseconds
+     */
+    public LatencySnapshot getGetLatency() {
+        return getLatency.snapshot();
+    }
+
+    /**
+     * @return the latencies of every put() so far, in nanoseconds
+     */
+    public LatencySnapshot getPutLatency() {
+        return putLatency.snapshot();
+    }
+
+    /**
+     * @return the latencies of every remove() so far, in nanoseconds
+     */
+    public LatencySnapshot getRemoveLatency() {
+        return removeLatency.snapshot();
+    }
+}
@@ -0,0 +1,101 @@
+package cache.metrics;
+
+import static java.util.Objects.isNull;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A log-linear histogram of latencies in nanoseconds. Values are counted in
+ * buckets whose width grows with the value, every power of two is split into
+ * 16 buckets, so a recorded value is known to within about 6%.
+ * <p>
+ * Threads record into a fixed number of striped arrays of counters, picked by
+ * thread id, so recording takes no lock and threads on different stripes never
+ * write the same counters. A stripe is allocated when a thread first records
+ * into it, so memory is bounded by the number of stripes however many threads
+ * come and go. The stripes are merged when a snapshot is taken.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+    private static final int MAX_INDEX = BUCKETS;
+
+    static final int STRIPES = Math.min(64,
+        Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1) * 2);
+
+    private final AtomicReferenceArray<AtomicLongArray> stripes = new AtomicReferenceArray<>(STRIPES);
+
+    private AtomicLongArray stripe() {
+        long id = Thread.currentThread().getId();
+        int index = (int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & (STRIPES - 1);
+        AtomicLongArray counts = stripes.get(index);
+        if (isNull(counts)) {
+            // the last slot holds the maximum value recorded into the stripe
+            stripes.compareAndSet(index, null, new AtomicLongArray(BUCKETS + 1));
+            counts = stripes.get(index);
+        }
+        return counts;
+    }
+
+    /**
+     * Records a latency. Negative values are counted as 0.
+     *
+     * @param nanos
+     *            the latency in nanoseconds
+     */
+    public void record(long nanos) {
+        long value = Math.max(0L, nanos);
+        AtomicLongArray counts = stripe();
+        counts.getAndIncrement(bucketIndex(value));
+        if (value > counts.get(MAX_INDEX)) {
+            counts.accumulateAndGet(MAX_INDEX, value, Math::max);
+        }
+    }
+
+    /**
+     * Merges the counts of every stripe. The snapshot is consistent per bucket but
+     * may miss values that are being recorded while it is taken.
+     *
+     * @return the merged distribution
+     */
+    public LatencySnapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long max = 0L;
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            AtomicLongArray stripeCounts = stripes.get(stripe);
+            if (isNull(stripeCounts)) {
+                continue;
+            }
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] += stripeCounts.get(i);
+            }
+            max = Math.max(max, stripeCounts.get(MAX_INDEX));
+        }
+        return new LatencySnapshot(counts, max);
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return (shift + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    /**
+     * @return the largest value that is counted in the bucket
+     */
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long mantissa = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
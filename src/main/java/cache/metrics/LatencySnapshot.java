@@ -0,0 +1,78 @@
+package cache.metrics;
+
+/**
+ * An immutable view of a LatencyHistogram at the time it was taken. Percentiles
+ * are reported as the upper bound of the bucket they fall in, but never above
+ * the largest recorded value.
+ */
+public class LatencySnapshot {
+
+    private final long[] counts;
+    private final long count;
+    private final long max;
+
+    LatencySnapshot(long[] counts, long max) {
+        this.counts = counts;
+        this.max = max;
+        long count = 0L;
+        for (long c : counts) {
+            count += c;
+        }
+        this.count = count;
+    }
+
+    /**
+     * @return the number of recorded values
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @param percentile
+     *            the percentile, between 0 and 100
+     * @return the latency in nanoseconds that the given percentage of the
+     *         recorded values did not exceed, or 0 if nothing was recorded
+     * @throws IllegalArgumentException
+     *             if the percentile is not between 0 and 100
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (percentile < 0.0 || percentile > 100.0) {
+            throw new IllegalArgumentException("Percentile must be between 0 and 100");
+        }
+        if (count == 0L) {
+            return 0L;
+        }
+        long rank = Math.max(1L, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0L;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(max, LatencyHistogram.bucketUpperBound(i));
+            }
+        }
+        return max;
+    }
+
+    public long getP50() {
+        return getValueAtPercentile(50.0);
+    }
+
+    public long getP99() {
+        return getValueAtPercentile(99.0);
+    }
+
+    public long getP999() {
+        return getValueAtPercentile(99.9);
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d p50=%dns p99=%dns p999=%dns max=%dns", count, getP50(), getP99(), getP999(),
+            max);
+    }
+}
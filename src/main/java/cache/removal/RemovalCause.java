@@ -0,0 +1,28 @@
+package cache.removal;
+
+/**
+ * The reason an entry was removed from the cache.
+ */
+public enum RemovalCause {
+    /**
+     * The entry was removed by a call to remove()
+     */
+    EXPLICIT,
+    /**
+     * The value of the entry was overwritten by a call to put()
+     */
+    REPLACED,
+    /**
+     * The entry was chosen by the replacement algorithm to make room for another
+     */
+    EVICTED,
+    /**
+     * The value of the entry is no longer available, for instance because it was
+     * reclaimed by the garbage collector
+     */
+    EXPIRED,
+    /**
+     * The entry was removed by a call to clear()
+     */
+    CLEARED;
+}
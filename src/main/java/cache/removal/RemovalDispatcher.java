@@ -0,0 +1,123 @@
+package cache.removal;
+
+import static java.util.Objects.isNull;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A RemovalListener that never runs the listener it wraps on the calling
+ * thread. Cache sets notify it while holding their lock, so it only appends
+ * the notification to a lock free queue and makes sure a dispatch task is
+ * scheduled on the executor. The dispatch task delivers the queued
+ * notifications in batches, rescheduling itself while there is more work so a
+ * burst of evictions does not monopolize an executor thread.
+ * <p>
+ * A listener that throws does not stop delivery of the remaining
+ * notifications.
+ *
+ * @param <K>
+ *            the type of keys maintained by the cache
+ * @param <V>
+ *            the type of mapped values
+ */
+public class RemovalDispatcher<K, V> implements RemovalListener<K, V> {
+
+    public static final int DEFAULT_BATCH_SIZE = 64;
+
+    private final Queue<RemovalNotification<K, V>> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    private final RemovalListener<K, V> listener;
+    private final Executor executor;
+    private final int batchSize;
+
+    public RemovalDispatcher(RemovalListener<K, V> listener, Executor executor) {
+        this(listener, executor, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param listener
+     *            the listener that receives the notifications, must not be null
+     * @param executor
+     *            runs the dispatch task, must not be null and should not run tasks
+     *            on the submitting thread
+     * @param batchSize
+     *            the most notifications delivered by a single dispatch task, must
+     *            be greater than 0
+     */
+    public RemovalDispatcher(RemovalListener<K, V> listener, Executor executor, int batchSize) {
+        if (isNull(listener)) {
+            throw new IllegalArgumentException("A removal listener was never given");
+        }
+        if (isNull(executor)) {
+            throw new IllegalArgumentException("An executor was never given");
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be greater than 0");
+        }
+        this.listener = listener;
+        this.executor = executor;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public void onRemoval(K key, V value, RemovalCause cause) {
+        queue.offer(new RemovalNotification<>(key, value, cause));
+        scheduleDispatch();
+    }
+
+    private void scheduleDispatch() {
+        if (scheduled.compareAndSet(false, true)) {
+            try {
+                executor.execute(this::dispatchBatch);
+            } catch (RejectedExecutionException e) {
+                // left queued for the next removal or an explicit dispatchAll()
+                scheduled.set(false);
+            }
+        }
+    }
+
+    private void dispatchBatch() {
+        try {
+            deliver(batchSize);
+        } finally {
+            scheduled.set(false);
+        }
+        if (!queue.isEmpty()) {
+            scheduleDispatch();
+        }
+    }
+
+    /**
+     * Delivers every queued notification on the calling thread. Must not be called
+     * while holding the lock of a cache set.
+     */
+    public void dispatchAll() {
+        deliver(Integer.MAX_VALUE);
+    }
+
+    private void deliver(int limit) {
+        for (int i = 0; i < limit; i++) {
+            RemovalNotification<K, V> notification = queue.poll();
+            if (isNull(notification)) {
+                return;
+            }
+            try {
+                listener.onRemoval(notification.getKey(), notification.getValue(), notification.getCause());
+            } catch (RuntimeException e) {
+                // a failing listener must not lose the notifications behind it
+            }
+        }
+    }
+
+    /**
+     * @return the number of notifications waiting to be delivered
+     */
+    public int pending() {
+        return queue.size();
+    }
+}
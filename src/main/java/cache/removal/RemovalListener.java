@@ -0,0 +1,26 @@
+package cache.removal;
+
+/**
+ * Receives a notification whenever an entry leaves the cache.
+ *
+ * @param <K>
+ *            the type of keys maintained by the cache
+ * @param <V>
+ *            the type of mapped values
+ */
+@FunctionalInterface
+public interface RemovalListener<K, V> {
+
+    /**
+     * Called once for every entry that left the cache
+     *
+     * @param key
+     *            the key of the removed entry
+     * @param value
+     *            the value of the removed entry, for REPLACED this is the value
+     *            that was overwritten
+     * @param cause
+     *            the reason the entry was removed
+     */
+    void onRemoval(K key, V value, RemovalCause cause);
+}
@@ -0,0 +1,39 @@
+package cache.removal;
+
+/**
+ * A removal that is waiting to be delivered to a RemovalListener.
+ *
+ * @param <K>
+ *            the type of keys maintained by the cache
+ * @param <V>
+ *            the type of mapped values
+ */
+public class RemovalNotification<K, V> {
+
+    private final K key;
+    private final V value;
+    private final RemovalCause cause;
+
+    public RemovalNotification(K key, V value, RemovalCause cause) {
+        this.key = key;
+        this.value = value;
+        this.cause = cause;
+    }
+
+    public K getKey() {
+        return key;
+    }
+
+    public V getValue() {
+        return value;
+    }
+
+    public RemovalCause getCause() {
+        return cause;
+    }
+
+    @Override
+    public String toString() {
+        return cause + " " + key + "=" + value;
+    }
+}
@@ -0,0 +1,110 @@
+package cache.replacement;
+
+import static java.util.Objects.isNull;
+
+import java.util.function.ToLongFunction;
+
+import cache.exception.EvictionNotPossible;
+import cache.subcache.CacheSet;
+import cache.trace.TraceFormat;
+
+/**
+ * Belady's optimal replacement, which evicts the entry whose key is accessed
+ * furthest in the future, or never again. No real algorithm can do better, so
+ * replaying a recorded trace with it gives the upper bound on the hit ratio of
+ * a cache with the same sets and block size.
+ * <p>
+ * The future comes from a FutureAccesses index of the trace, and whoever
+ * replays the trace must call advance() before every access. The victim is
+ * chosen among the keys of the set being evicted from, so the bound respects
+ * the set associativity of the cache exactly. The algorithm keeps no per-set
+ * state and is shared by every set; it is meant for single threaded offline
+ * replay.
+ *
+ * @param <K>
+ *            the type of keys maintained by the cache
+ * @param <V>
+ *            the type of mapped values
+ */
+public class BeladyOptimal<K, V> implements ReplacementAlgorithm<K, V> {
+
+    private final FutureAccesses future;
+    private final ToLongFunction<Object> keyMapper;
+    private int position = -1;
+
+    /**
+     * @param future
+     *            the index of the trace being replayed
+     * @param keyMapper
+     *            maps the keys of the cache to the keys of the trace
+     */
+    public BeladyOptimal(FutureAccesses future, ToLongFunction<Object> keyMapper) {
+        if (isNull(future) || isNull(keyMapper)) {
+            throw new IllegalArgumentException("Future accesses and a key mapper must be given");
+        }
+        this.future = future;
+        this.keyMapper = keyMapper;
+    }
+
+    /**
+     * Uses the keys as the TraceFormat records them, longs as they are and other
+     * keys by hash.
+     */
+    public BeladyOptimal(FutureAccesses future) {
+        this(future, TraceFormat::keyHash);
+    }
+
+    /**
+     * Moves to the next access of the trace.
+     */
+    public void advance() {
+        position++;
+    }
+
+    /**
+     * @return the position in the trace of the access being replayed
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    @Override
+    public V evict(CacheSet<K, V> cacheSet) throws EvictionNotPossible {
+        if (cacheSet.isEmpty()) {
+            throw new EvictionNotPossible("No entries to evict.");
+        }
+        K victim = null;
+        long furthest = -1L;
+        for (K key : cacheSet.keys()) {
+            long next = future.nextUse(keyMapper.applyAsLong(key), position);
+            if (next > furthest) {
+                victim = key;
+                furthest = next;
+                if (next == FutureAccesses.NEVER) {
+                    break;
+                }
+            }
+        }
+        return cacheSet.remove(victim);
+    }
+
+    @Override
+    public void notifyAccess(K key) {
+    }
+
+    @Override
+    public void notifyDelete(K key) {
+    }
+
+    @Override
+    public void reset() {
+    }
+
+    /**
+     * @return this instance, the future of the trace is the same for every set
+     */
+    @Override
+    public ReplacementAlgorithm<K, V> newInstance() {
+        return this;
+    }
+}
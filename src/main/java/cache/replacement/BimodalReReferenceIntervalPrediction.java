@@ -0,0 +1,60 @@
+package cache.replacement;
+
+/**
+ * Bimodal re-reference interval prediction (BRRIP). Inserts most new entries
+ * with a distant prediction, so they are evicted next unless they are hit
+ * before, and only one in every throttle insertions with the long prediction
+ * of SRRIP. A scan or a loop over more keys than the set holds then replaces
+ * only the entries it brought in itself and leaves the entries that are hit
+ * again alone.
+ *
+ * @param <K>
+ *            the type of keys maintained by the cache
+ * @param <V>
+ *            the type of mapped values
+ */
+public class BimodalReReferenceIntervalPrediction<K, V> extends ReReferenceIntervalPrediction<K, V> {
+
+    public static final int DEFAULT_THROTTLE = 32;
+
+    private final int throttle;
+    private int insertions = 0;
+
+    public BimodalReReferenceIntervalPrediction() {
+        this(DEFAULT_BITS, DEFAULT_THROTTLE);
+    }
+
+    /**
+     * @param bits
+     *            the width of the prediction values, between 1 and 7
+     * @param throttle
+     *            one in this many new entries is inserted with a long rather
+     *            than a distant prediction, must be greater than 0
+     */
+    public BimodalReReferenceIntervalPrediction(int bits, int throttle) {
+        super(bits);
+        if (throttle <= 0) {
+            throw new IllegalArgumentException("Throttle must be greater than 0");
+        }
+        this.throttle = throttle;
+    }
+
+    @Override
+    protected byte insertionPrediction() {
+        if (++insertions % throttle == 0) {
+            return super.insertionPrediction();
+        }
+        return getDistantPrediction();
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        insertions = 0;
+    }
+
+    @Override
+    public ReplacementAlgorithm<K, V> newInstance() {
+        return new BimodalReReferenceIntervalPrediction<>(getBits(), throttle);
+    }
+}
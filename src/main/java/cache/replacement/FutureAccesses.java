@@ -0,0 +1,177 @@
+package cache.replacement;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+/**
+ * An index of where every key occurs in a recorded trace, used by
+ * BeladyOptimal to look into the future. The positions of each key's accesses
+ * are stored together in one int array, so a trace of n accesses over d
+ * distinct keys takes about 4n + 20d bytes however it is laid out, and the next
+ * access of a key after any position is found with a binary search.
+ */
+public class FutureAccesses {
+
+    /**
+     * Returned by nextUse() for keys that are never accessed again.
+     */
+    public static final long NEVER = Long.MAX_VALUE;
+
+    private final KeyIds ids = new KeyIds();
+    private final int[] offsets;
+    private final int[] positions;
+
+    /**
+     * Indexes a trace. The trace is read twice, once to count the accesses of
+     * every key and once to record where they are.
+     *
+     * @param trace
+     *            hands the key of every access, in order, to the given consumer
+     *            each time it is called
+     * @throws IllegalArgumentException
+     *             if the trace has more than Integer.MAX_VALUE accesses or is not
+     *             the same when read again
+     */
+    public FutureAccesses(Consumer<LongConsumer> trace) {
+        int[][] counts = { new int[1024] };
+        long[] total = { 0L };
+        trace.accept(key -> {
+            int id = ids.getOrAdd(key);
+            if (id == counts[0].length) {
+                counts[0] = Arrays.copyOf(counts[0], id * 2);
+            }
+            counts[0][id]++;
+            total[0]++;
+        });
+        if (total[0] > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Traces are limited to " + Integer.MAX_VALUE + " accesses");
+        }
+        offsets = new int[ids.size() + 1];
+        for (int id = 0; id < ids.size(); id++) {
+            offsets[id + 1] = offsets[id] + counts[0][id];
+        }
+        positions = new int[(int) total[0]];
+        // reuse the counts as the next free slot of every key
+        int[] next = counts[0];
+        System.arraycopy(offsets, 0, next, 0, ids.size());
+        int[] position = { 0 };
+        trace.accept(key -> {
+            int id = ids.get(key);
+            if (id < 0 || next[id] == offsets[id + 1]) {
+                throw new IllegalArgumentException("The trace changed while it was being indexed");
+            }
+            positions[next[id]++] = position[0]++;
+        });
+    }
+
+    /**
+     * @param key
+     *            the key of an access
+     * @param after
+     *            a position in the trace
+     * @return the position of the first access of the key after the given
+     *         position, or NEVER
+     */
+    public long nextUse(long key, int after) {
+        int id = ids.get(key);
+        if (id < 0) {
+            return NEVER;
+        }
+        int low = offsets[id];
+        int high = offsets[id + 1];
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (positions[mid] <= after) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low < offsets[id + 1] ? positions[low] : NEVER;
+    }
+
+    /**
+     * @return the number of accesses in the trace
+     */
+    public int size() {
+        return positions.length;
+    }
+
+    /**
+     * @return the number of distinct keys in the trace
+     */
+    public int distinctKeys() {
+        return ids.size();
+    }
+
+    /**
+     * An open addressing map from keys to dense ids, without boxing.
+     */
+    private static class KeyIds {
+
+        private long[] keys = new long[1024];
+        private int[] values = new int[1024];
+        private int size = 0;
+
+        KeyIds() {
+            Arrays.fill(values, -1);
+        }
+
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int i = slot(key, mask);; i = (i + 1) & mask) {
+                if (values[i] < 0) {
+                    return -1;
+                }
+                if (keys[i] == key) {
+                    return values[i];
+                }
+            }
+        }
+
+        int getOrAdd(long key) {
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            for (; values[i] >= 0; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+            }
+            keys[i] = key;
+            values[i] = size;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+            return size - 1;
+        }
+
+        int size() {
+            return size;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new int[oldValues.length * 2];
+            Arrays.fill(values, -1);
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldValues[j] >= 0) {
+                    int i = slot(oldKeys[j], mask);
+                    while (values[i] >= 0) {
+                        i = (i + 1) & mask;
+                    }
+                    keys[i] = oldKeys[j];
+                    values[i] = oldValues[j];
+                }
+            }
+        }
+
+        private static int slot(long key, int mask) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ h >>> 32) & mask;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package cache.replacement;
+
+import java.util.Arrays;
+
+import cache.exception.EvictionNotPossible;
+import cache.subcache.CacheSet;
+
+/**
+ * Static re-reference interval prediction (SRRIP). Every entry has a small
+ * counter, its re-reference prediction value, kept in a byte array: 0 means
+ * the entry is expected to be used again soon, the maximum that it is expected
+ * to be used again in the distant future. A hit sets the counter to 0 without
+ * moving anything. New entries are inserted with a long prediction, one below
+ * the maximum, so an entry that is never hit again is evicted before the
+ * entries that were. Eviction scans for an entry at the maximum and, if there
+ * is none, ages every entry of the set until one reaches it.
+ * <p>
+ * Entries are addressed by the way the cache set gives them, see
+ * CacheSet.keyAt(), the array holds one counter per way and nothing else. A
+ * way the set frees is marked free and the next entry to claim it starts with
+ * a new prediction. With a single bit per entry this is the
+ * not-recently-used policy.
+ *
+ * @param <K>
+ *            the type of keys maintained by the cache
+ * @param <V>
+ *            the type of mapped values
+ */
+public class ReReferenceIntervalPrediction<K, V> implements ReplacementAlgorithm<K, V> {
+
+    public static final int DEFAULT_BITS = 2;
+
+    private static final int INITIAL_WAYS = 8;
+    private static final byte FREE = -1;
+
+    private final int bits;
+    private final byte distant;
+    private byte[] predictions;
+    private int size;
+
+    public ReReferenceIntervalPrediction() {
+        this(DEFAULT_BITS);
+    }
+
+    /**
+     * @param bits
+     *            the width of the prediction values, between 1 and 7
+     */
+    public ReReferenceIntervalPrediction(int bits) {
+        if (bits < 1 || bits > 7) {
+            throw new IllegalArgumentException("Bits must be between 1 and 7");
+        }
+        this.bits = bits;
+        distant = (byte) ((1 << bits) - 1);
+        reset();
+    }
+
+    @Override
+    public V evict(CacheSet<K, V> cacheSet) throws EvictionNotPossible {
+        if (cacheSet.isEmpty() || size == 0) {
+            throw new EvictionNotPossible("No entries to evict.");
+        }
+        int victim = -1;
+        byte oldest = -1;
+        for (int way = 0; way < predictions.length; way++) {
+            if (predictions[way] == distant) {
+                victim = way;
+                break;
+            }
+            if (predictions[way] > oldest) {
+                oldest = predictions[way];
+                victim = way;
+            }
+        }
+        int age = distant - predictions[victim];
+        if (age > 0) {
+            for (int way = 0; way < predictions.length; way++) {
+                if (predictions[way] != FREE) {
+                    predictions[way] += age;
+                }
+            }
+        }
+        return cacheSet.remove(cacheSet.keyAt(victim));
+    }
+
+    /**
+     * Only the way variant is used, the cache set always calls it.
+     */
+    @Override
+    public void notifyDelete(K key) {
+    }
+
+    @Override
+    public void notifyDelete(K key, int way) {
+        if (way < predictions.length && predictions[way] != FREE) {
+            predictions[way] = FREE;
+            size--;
+        }
+    }
+
+    /**
+     * Only the way variant is used, the cache set always calls it.
+     */
+    @Override
+    public void notifyAccess(K key) {
+    }
+
+    @Override
+    public void notifyAccess(K key, int way) {
+        if (way >= predictions.length) {
+            int length = predictions.length;
+            predictions = Arrays.copyOf(predictions, Math.max(way + 1, length * 2));
+            Arrays.fill(predictions, length, predictions.length, FREE);
+        }
+        if (predictions[way] == FREE) {
+            predictions[way] = insertionPrediction();
+            size++;
+        } else {
+            predictions[way] = 0;
+        }
+    }
+
+    /**
+     * @return the prediction value a new entry starts with, one below the
+     *         maximum
+     */
+    protected byte insertionPrediction() {
+        return (byte) (distant - 1);
+    }
+
+    /**
+     * @return the largest prediction value, an entry with it is evicted next
+     */
+    protected byte getDistantPrediction() {
+        return distant;
+    }
+
+    /**
+     * @return the prediction value of the entry holding the way, or -1 if the
+     *         way is free
+     */
+    public int getPrediction(int way) {
+        return way < 0 || way >= predictions.length ? FREE : predictions[way];
+    }
+
+    public int getBits() {
+        return bits;
+    }
+
+    @Override
+    public void reset() {
+        predictions = new byte[INITIAL_WAYS];
+        Arrays.fill(predictions, FREE);
+        size = 0;
+    }
+
+    @Override
+    public ReplacementAlgorithm<K, V> newInstance() {
+        return new ReReferenceIntervalPrediction<>(bits);
+    }
+}
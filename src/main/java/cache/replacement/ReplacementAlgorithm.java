@@ -1,43 +1,104 @@
-package cache.replacement;
-
-import cache.exception.EvictionNotPossible;
-import cache.subcache.CacheSet;
-
-public interface ReplacementAlgorithm<K, V> {
-
-    /**
-     * Chooses one entry from the blocks to remove, the choice is up to the
-     * implementation
-     *
-     * @param cacheSet
-     *            the CacheSet that has the candidates for eviction
-     * @return the entry value that was chosen for eviction
-     * @throws EvictionNotPossible
-     *             if for any reason, the algorithm cannot evict a block
-     */
-    V evict(CacheSet<K, V> cacheSet) throws EvictionNotPossible;
-
-    /**
-     * If the algorithm follows an observer pattern, this may be used to notify the
-     * algorithm of the read/write of an entry from the cache
-     *
-     * @param key
-     *            the key of the entry that was just accessed
-     */
-    void notifyAccess(K key);
-
-    /**
-     * If the algorithm follows an observer pattern, this may be used to notify the
-     * algorithm of the deletion of an entry from the cache
-     *
-     * @param key
-     *            the key of the entry that was just deleted
-     */
-    void notifyDelete(K key);
-
-    /**
-     * Resets the state of the algorithm, if any
-     */
-    void reset();
-
-}
+package cache.replacement;
+
+import cache.exception.EvictionNotPossible;
+import cache.subcache.CacheSet;
+
+public interface ReplacementAlgorithm<K, V> {
+
+    /**
+     * Chooses one entry from the blocks to remove, the choice is up to the
+     * implementation
+     *
+     * @param cacheSet
+     *            the CacheSet that has the candidates for eviction
+     * @return the entry value that was chosen for eviction
+     * @throws EvictionNotPossible
+     *             if for any reason, the algorithm cannot evict a block
+     */
+    V evict(CacheSet<K, V> cacheSet) throws EvictionNotPossible;
+
+    /**
+     * If the algorithm follows an observer pattern, this may be used to notify the
+     * algorithm of the read/write of an entry from the cache
+     *
+     * @param key
+     *            the key of the entry that was just accessed
+     */
+    void notifyAccess(K key);
+
+    /**
+     * If the algorithm follows an observer pattern, this may be used to notify the
+     * algorithm of the deletion of an entry from the cache
+     *
+     * @param key
+     *            the key of the entry that was just deleted
+     */
+    void notifyDelete(K key);
+
+    /**
+     * Called by the cache set instead of notifyAccess(K) with the way of the
+     * entry as well, see CacheSet.keyAt(). Algorithms that keep their state per
+     * way override this, the default ignores the way.
+     *
+     * @param key
+     *            the key of the entry that was just accessed
+     * @param way
+     *            the way the entry holds in the set
+     */
+    default void notifyAccess(K key, int way) {
+        notifyAccess(key);
+    }
+
+    /**
+     * Called by the cache set instead of notifyDelete(K) with the way of the
+     * entry as well, the way is free once this returns. The default ignores the
+     * way.
+     *
+     * @param key
+     *            the key of the entry that was just deleted
+     * @param way
+     *            the way the entry held in the set
+     */
+    default void notifyDelete(K key, int way) {
+        notifyDelete(key);
+    }
+
+    /**
+     * Resets the state of the algorithm, if any
+     */
+    void reset();
+
+    /**
+     * Creates an algorithm of the same type with no state. The Builder gives every
+     * cache set its own instance so that the state of one set is never touched
+     * while another set is being used. Only an algorithm that keeps no per-set
+     * state and is safe to call under the locks of different sets at once may
+     * return itself. The default cannot tell, so it only lets the Builder use
+     * this instance for a cache with a single set.
+     *
+     * @return a new instance of this algorithm
+     * @throws UnsupportedOperationException
+     *             if the algorithm does not know how to copy itself
+     */
+    default ReplacementAlgorithm<K, V> newInstance() {
+        throw new UnsupportedOperationException(getClass().getName() + " does not override newInstance()");
+    }
+
+    /**
+     * Creates an algorithm of the same type with no state for a set that holds
+     * at most the given number of entries at once, slack of deferred eviction
+     * included, so every way it gives is below it. Algorithms that keep their
+     * state in a fixed number of ways override this to size it, the default is
+     * newInstance().
+     *
+     * @param ways
+     *            the most entries the set holds at once
+     * @return a new instance of this algorithm
+     * @throws IllegalArgumentException
+     *             if the algorithm cannot track that many ways
+     */
+    default ReplacementAlgorithm<K, V> newInstance(int ways) {
+        return newInstance();
+    }
+
+}
@@ -0,0 +1,185 @@
+package cache.replacement;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import cache.exception.EvictionNotPossible;
+import cache.subcache.CacheSet;
+
+/**
+ * Chooses between LRU and MRU at runtime by set dueling, as adaptive insertion
+ * policies do in CPU caches. A few leader sets always evict the least recently
+ * used entry and as many always evict the most recently used one. Each eviction
+ * in a leader set is a miss of its policy and moves a saturating counter, which
+ * is shared by every set of the cache, towards the other policy. All other sets
+ * follow whichever policy the counter currently favours. A workload that loops
+ * over more keys than a set holds thrashes under LRU, the MRU leaders then miss
+ * less and the followers switch to MRU; once the loop is gone, they switch
+ * back.
+ * <p>
+ * Both policies order the same recency queue and only differ in which end they
+ * evict from, so followers switch without any cost. The roles are handed out in
+ * the order newInstance() is called, which the Builder does once per set:
+ * every leaderPeriod-th set leads with LRU and the one after it with MRU. An
+ * instance that was not created by newInstance() is a follower.
+ *
+ * @param <K>
+ *            the type of keys maintained by the cache
+ * @param <V>
+ *            the type of mapped values
+ */
+public class SetDueling<K, V> implements ReplacementAlgorithm<K, V> {
+
+    public static final int DEFAULT_LEADER_PERIOD = 32;
+    public static final int DEFAULT_COUNTER_BITS = 10;
+
+    /**
+     * The policy a set evicts with.
+     */
+    public enum Policy {
+        LRU, MRU
+    }
+
+    private enum Role {
+        LRU_LEADER, MRU_LEADER, FOLLOWER
+    }
+
+    private final Duel duel;
+    private final Role role;
+    private HashQueue<K> queue;
+
+    public SetDueling() {
+        this(DEFAULT_LEADER_PERIOD, DEFAULT_COUNTER_BITS);
+    }
+
+    /**
+     * @param leaderPeriod
+     *            one set out of this many leads with each policy, must be at
+     *            least 2. A cache with fewer sets still has one leader of each
+     *            policy
+     * @param counterBits
+     *            the width of the saturating counter, between 1 and 30. A wider
+     *            counter switches policies more slowly
+     */
+    public SetDueling(int leaderPeriod, int counterBits) {
+        this(new Duel(leaderPeriod, counterBits), Role.FOLLOWER);
+    }
+
+    private SetDueling(Duel duel, Role role) {
+        this.duel = duel;
+        this.role = role;
+        reset();
+    }
+
+    @Override
+    public V evict(CacheSet<K, V> cacheSet) throws EvictionNotPossible {
+        if (cacheSet.isEmpty() || queue.isEmpty()) {
+            throw new EvictionNotPossible("No entries to evict.");
+        }
+        if (role == Role.LRU_LEADER) {
+            duel.lruMissed();
+        } else if (role == Role.MRU_LEADER) {
+            duel.mruMissed();
+        }
+        K top = getPolicy() == Policy.LRU ? queue.popFirst().getId() : queue.popLast().getId();
+        return cacheSet.remove(top);
+    }
+
+    @Override
+    public void notifyDelete(K key) {
+        queue.remove(key);
+    }
+
+    @Override
+    public void notifyAccess(K key) {
+        queue.remove(key);
+        queue.push(key);
+    }
+
+    @Override
+    public void reset() {
+        queue = new HashQueue<>();
+    }
+
+    /**
+     * @return a new instance that duels with this one and the other instances
+     *         created from it, taking the next role in turn
+     */
+    @Override
+    public ReplacementAlgorithm<K, V> newInstance() {
+        return new SetDueling<>(duel, duel.nextRole());
+    }
+
+    /**
+     * @return the policy this set evicts with at the moment
+     */
+    public Policy getPolicy() {
+        switch (role) {
+            case LRU_LEADER:
+                return Policy.LRU;
+            case MRU_LEADER:
+                return Policy.MRU;
+            default:
+                return duel.winner();
+        }
+    }
+
+    /**
+     * @return true if this set always evicts with the same policy
+     */
+    public boolean isLeader() {
+        return role != Role.FOLLOWER;
+    }
+
+    /**
+     * @return the value of the shared saturating counter, above the midpoint LRU
+     *         has been missing more than MRU
+     */
+    public int getCounter() {
+        return duel.counter.get();
+    }
+
+    /**
+     * The state shared by all sets of one cache.
+     */
+    private static final class Duel {
+
+        private final AtomicInteger counter;
+        private final AtomicInteger instances = new AtomicInteger();
+        private final int leaderPeriod;
+        private final int max;
+        private final int midpoint;
+
+        Duel(int leaderPeriod, int counterBits) {
+            if (leaderPeriod < 2) {
+                throw new IllegalArgumentException("Leader period must be at least 2");
+            }
+            if (counterBits < 1 || counterBits > 30) {
+                throw new IllegalArgumentException("Counter bits must be between 1 and 30");
+            }
+            this.leaderPeriod = leaderPeriod;
+            max = (1 << counterBits) - 1;
+            midpoint = (max + 1) / 2;
+            counter = new AtomicInteger(midpoint);
+        }
+
+        Role nextRole() {
+            int index = instances.getAndIncrement() % leaderPeriod;
+            if (index == 0) {
+                return Role.LRU_LEADER;
+            }
+            return index == 1 ? Role.MRU_LEADER : Role.FOLLOWER;
+        }
+
+        void lruMissed() {
+            counter.accumulateAndGet(1, (c, d) -> Math.min(max, c + d));
+        }
+
+        void mruMissed() {
+            counter.accumulateAndGet(1, (c, d) -> Math.max(0, c - d));
+        }
+
+        Policy winner() {
+            return counter.get() > midpoint ? Policy.MRU : Policy.LRU;
+        }
+    }
+}
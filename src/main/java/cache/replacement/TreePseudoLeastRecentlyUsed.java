@@ -0,0 +1,153 @@
+package cache.replacement;
+
+import cache.exception.EvictionNotPossible;
+import cache.subcache.CacheSet;
+
+/**
+ * Tree pseudo-LRU for sets of up to 64 entries, as used by CPU caches. The ways
+ * of a set are the leaves of a binary tree, as many as the set has ways rounded
+ * up to a power of two, whose inner nodes are one bit each in a single long.
+ * Every bit points to the half of its subtree that was used less recently. An
+ * access flips the bits on the path to its way to point away from it, the
+ * victim is found by following the bits from the root. No allocation, no map
+ * and no per-entry node; the price is that the victim is only one of the less
+ * recently used entries, not always the least recently used.
+ * <p>
+ * Entries are addressed by the way the cache set gives them, see
+ * CacheSet.keyAt(). A second long records which ways hold an entry, so the
+ * walk never ends in an empty way. The set must not hold more entries than the
+ * algorithm has ways, slack of deferred eviction included; the Builder sizes
+ * every set's instance through newInstance(int) and rejects sets that may hold
+ * more than 64.
+ *
+ * @param <K>
+ *            the type of keys maintained by the cache
+ * @param <V>
+ *            the type of mapped values
+ */
+public class TreePseudoLeastRecentlyUsed<K, V> implements ReplacementAlgorithm<K, V> {
+
+    public static final int MAX_WAYS = 64;
+
+    private final int ways;
+    private final int leaves;
+    private final int levels;
+    private long tree;
+    private long occupied;
+
+    public TreePseudoLeastRecentlyUsed() {
+        this(MAX_WAYS);
+    }
+
+    /**
+     * @param ways
+     *            the most entries the set holds at once, between 1 and 64
+     */
+    public TreePseudoLeastRecentlyUsed(int ways) {
+        if (ways < 1 || ways > MAX_WAYS) {
+            throw new IllegalArgumentException("Ways must be between 1 and " + MAX_WAYS);
+        }
+        this.ways = ways;
+        leaves = Integer.highestOneBit(ways * 2 - 1);
+        levels = Integer.numberOfTrailingZeros(leaves);
+        reset();
+    }
+
+    @Override
+    public V evict(CacheSet<K, V> cacheSet) throws EvictionNotPossible {
+        if (cacheSet.isEmpty() || occupied == 0L) {
+            throw new EvictionNotPossible("No entries to evict.");
+        }
+        return cacheSet.remove(cacheSet.keyAt(victim()));
+    }
+
+    /**
+     * @return the way the bits lead to, turning away from halves that hold no
+     *         entry
+     */
+    int victim() {
+        int node = 0;
+        int first = 0;
+        for (int level = 0; level < levels; level++) {
+            int half = leaves >>> (level + 1);
+            int direction = (int) (tree >>> node) & 1;
+            if ((occupied & range(first + direction * half, half)) == 0L) {
+                direction ^= 1;
+            }
+            first += direction * half;
+            node = 2 * node + 1 + direction;
+        }
+        return first;
+    }
+
+    private static long range(int first, int length) {
+        return length == Long.SIZE ? -1L : ((1L << length) - 1) << first;
+    }
+
+    /**
+     * Only the way variant is used, the cache set always calls it.
+     */
+    @Override
+    public void notifyAccess(K key) {
+    }
+
+    @Override
+    public void notifyAccess(K key, int way) {
+        if (way >= ways) {
+            return;
+        }
+        occupied |= 1L << way;
+        int node = 0;
+        for (int level = levels - 1; level >= 0; level--) {
+            int direction = (way >>> level) & 1;
+            if (direction == 0) {
+                tree |= 1L << node;
+            } else {
+                tree &= ~(1L << node);
+            }
+            node = 2 * node + 1 + direction;
+        }
+    }
+
+    /**
+     * Only the way variant is used, the cache set always calls it.
+     */
+    @Override
+    public void notifyDelete(K key) {
+    }
+
+    @Override
+    public void notifyDelete(K key, int way) {
+        if (way < ways) {
+            occupied &= ~(1L << way);
+        }
+    }
+
+    @Override
+    public void reset() {
+        tree = 0L;
+        occupied = 0L;
+    }
+
+    public int getWays() {
+        return ways;
+    }
+
+    @Override
+    public ReplacementAlgorithm<K, V> newInstance() {
+        return new TreePseudoLeastRecentlyUsed<>(ways);
+    }
+
+    /**
+     * @throws IllegalArgumentException
+     *             if the set may hold more than 64 entries
+     */
+    @Override
+    public ReplacementAlgorithm<K, V> newInstance(int ways) {
+        if (ways > MAX_WAYS) {
+            throw new IllegalArgumentException(
+                "Tree pseudo-LRU tracks at most " + MAX_WAYS + " ways, the sets may hold " + ways);
+        }
+        return new TreePseudoLeastRecentlyUsed<>(ways);
+    }
+}
@@ -1,90 +1,317 @@
-package cache.subcache;
-
-import java.util.Collection;
-
-import cache.exception.CacheMiss;
-import cache.exception.EvictionNotPossible;
-import cache.replacement.ReplacementAlgorithm;
-
-public interface CacheSet<K, V> {
-
-    void setReplacementAlgorithm(ReplacementAlgorithm<K, V> replacementAlgorithm);
-
-    /**
-     * Associates the given key with the given value.
-     *
-     * @param key
-     *            the key to be associated with the value
-     * @param value
-     *            the value to be associated with the key
-     * @return the previous value associated with the key, or the value associated
-     *         with the entry that was evicted by the replacement algorithm, or null
-     *         if the entry is new
-     * @throws EvictionNotPossible
-     *             if the replacement algorithm cannot evict any entry
-     */
-    V put(K key, V value) throws EvictionNotPossible;
-
-    /**
-     * Checks the cache if the given key is associated to a value
-     *
-     * @param key
-     *            the key to be checked
-     * @return true if the key is associated with a value, false otherwise
-     */
-    boolean containsKey(Object key);
-
-    /**
-     * Returns the value to which the key is associated, or throws an exception if
-     * there is no entry for the key
-     *
-     * @param key
-     *            the key with which the desired value is associated
-     * @return the value associated with the key
-     * @throws CacheMiss
-     *             if the entry associated to the key does not exist
-     */
-    V get(Object key) throws CacheMiss;
-
-    /**
-     * Removes the association for the specified key from the cache if the key is
-     * present
-     *
-     * @param key
-     *            the key for removing the key-value pair from this cache
-     * @return the previous value associated with the given key, or null if there
-     *         was no key in the cache
-     */
-    V remove(Object key);
-
-    /**
-     * Removes all entries from this cache set
-     */
-    void clear();
-
-    /**
-     * @return true if there are no entries in this cache set, false other wise
-     */
-    boolean isEmpty();
-
-    /**
-     * @return the total number of key-value pairs in this cache set
-     */
-    int size();
-
-    /**
-     * @return the maximum number of key-value pairs this cache can hold at a time
-     */
-    int maxSize();
-
-    /**
-     * @return a collection of the values in this cache set
-     */
-    Collection<V> values();
-
-    /**
-     * @return a collection of the keys in this cache set
-     */
-    Collection<K> keys();
-
-}
+package cache.subcache;
+
+import java.util.Collection;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import cache.Computations;
+import cache.exception.CacheMiss;
+import cache.exception.EvictionNotPossible;
+import cache.removal.RemovalListener;
+import cache.replacement.ReplacementAlgorithm;
+
+public interface CacheSet<K, V> {
+
+    void setReplacementAlgorithm(ReplacementAlgorithm<K, V> replacementAlgorithm);
+
+    /**
+     * Sets the listener told about every entry that leaves this cache set. It is
+     * called while the set's lock is held, so it must be cheap and must not call
+     * back into the cache, wrap the listener in a RemovalDispatcher to run it
+     * elsewhere.
+     *
+     * @param removalListener
+     *            the listener, or null for none
+     */
+    void setRemovalListener(RemovalListener<K, V> removalListener);
+
+    /**
+     * Sets how values are held. With WEAK or SOFT values the garbage collector
+     * may reclaim a value, its entry then misses and is removed, notifying the
+     * replacement algorithm and the removal listener with cause EXPIRED. Should
+     * be called before the first put.
+     *
+     * @param valueStrength
+     *            how values are held, null for STRONG
+     */
+    void setValueStrength(ValueStrength valueStrength);
+
+    /**
+     * Enables deferred eviction, puts may then exceed maxSize() by the slack of
+     * the given Maintenance and excess entries are evicted on its executor
+     *
+     * @param maintenance
+     *            the deferred eviction configuration, or null to evict inline
+     */
+    void setMaintenance(Maintenance maintenance);
+
+    /**
+     * Puts a counting Bloom filter in front of the set, a get or containsKey for
+     * a key the filter rules out then misses without taking the set's lock. The
+     * filter is filled with the keys already in the set.
+     *
+     * @param bloomFilter
+     *            the filter, sized for maxSize() entries, or null for none
+     */
+    void setBloomFilter(CountingBloomFilter bloomFilter);
+
+    /**
+     * @return the set's Bloom filter, or null if it has none
+     */
+    CountingBloomFilter getBloomFilter();
+
+    /**
+     * Evicts entries until this cache set is at or below the low watermark of its
+     * Maintenance, or maxSize() if deferred eviction is not enabled
+     */
+    void performMaintenance();
+
+    /**
+     * Associates the given key with the given value.
+     *
+     * @param key
+     *            the key to be associated with the value
+     * @param value
+     *            the value to be associated with the key
+     * @return the previous value associated with the key, or the value associated
+     *         with the entry that was evicted by the replacement algorithm, or null
+     *         if the entry is new
+     * @throws EvictionNotPossible
+     *             if the replacement algorithm cannot evict any entry
+     */
+    V put(K key, V value) throws EvictionNotPossible;
+
+    /**
+     * Like put(), and runs the action under the set's lock once room was made for
+     * the entry and just before it is stored. If the action throws, nothing is
+     * stored; if no room can be made, the action is not run.
+     *
+     * @param beforeStore
+     *            the action, such as writing the value through to a backing
+     *            store, or null for none
+     * @see #put(Object, Object)
+     */
+    V put(K key, V value, Runnable beforeStore) throws EvictionNotPossible;
+
+    /**
+     * Computes the value of the key from its current value, or null if it has
+     * none, under a single acquisition of the set's write lock and with a single
+     * lookup. A null result removes the entry. A result that is the current
+     * value itself leaves the entry as it is and only counts as an access.
+     * Otherwise the replacement algorithm is notified once and the removal
+     * listener is told about the replaced or removed value. The function runs
+     * under the lock, so it must be cheap and must not call back into the set.
+     *
+     * @param key
+     *            the key whose value is computed
+     * @param remappingFunction
+     *            computes the new value from the key and the current value
+     * @return the new value, or null if there is none
+     * @throws EvictionNotPossible
+     *             if a new entry needs room and the replacement algorithm cannot
+     *             evict any entry
+     */
+    V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) throws EvictionNotPossible;
+
+    /**
+     * Like compute(), and runs the action under the set's lock once the function
+     * returned and room was made for a new entry, just before the result is
+     * stored or the entry removed. If the action throws, the set is left
+     * unchanged apart from an entry that was evicted to make room.
+     *
+     * @param beforeStore
+     *            the action, such as writing the result through to a backing
+     *            store, or null for none
+     * @see #compute(Object, BiFunction)
+     */
+    V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction, Runnable beforeStore)
+        throws EvictionNotPossible;
+
+    /**
+     * @return the current value of the key, or null if the value was put
+     * @see #compute(Object, BiFunction)
+     */
+    default V putIfAbsent(K key, V value) throws EvictionNotPossible {
+        return Computations.<K, V, EvictionNotPossible>putIfAbsent(this::compute, key, value);
+    }
+
+    /**
+     * @return the previous value of the key, or null if it had none and nothing
+     *         was put
+     * @see #compute(Object, BiFunction)
+     */
+    default V replace(K key, V value) throws EvictionNotPossible {
+        return Computations.<K, V, EvictionNotPossible>replace(this::compute, key, value);
+    }
+
+    /**
+     * @return true if the key had the old value and now has the new one
+     * @see #compute(Object, BiFunction)
+     */
+    default boolean replace(K key, V oldValue, V newValue) throws EvictionNotPossible {
+        return Computations.<K, V, EvictionNotPossible>replace(this::compute, key, oldValue, newValue);
+    }
+
+    /**
+     * @see #compute(Object, BiFunction)
+     */
+    default V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) throws EvictionNotPossible {
+        return Computations.<K, V, EvictionNotPossible>computeIfAbsent(this::compute, key, mappingFunction);
+    }
+
+    /**
+     * @see #compute(Object, BiFunction)
+     */
+    default V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction)
+        throws EvictionNotPossible {
+        return Computations.<K, V, EvictionNotPossible>computeIfPresent(this::compute, key, remappingFunction);
+    }
+
+    /**
+     * @see #compute(Object, BiFunction)
+     */
+    default V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction)
+        throws EvictionNotPossible {
+        return Computations.<K, V, EvictionNotPossible>merge(this::compute, key, value, remappingFunction);
+    }
+
+    /**
+     * Checks the cache if the given key is associated to a value
+     *
+     * @param key
+     *            the key to be checked
+     * @return true if the key is associated with a value, false otherwise
+     */
+    boolean containsKey(Object key);
+
+    /**
+     * Checks if the given key is associated to a value like containsKey(), but
+     * records nothing: the replacement algorithm, the read buffer and the Bloom
+     * filter's counts are left as they are. For lookups the cache makes on its
+     * own behalf rather than a caller's.
+     *
+     * @param key
+     *            the key to be checked
+     * @return true if the key is associated with a value, false otherwise
+     */
+    boolean containsKeyQuietly(Object key);
+
+    /**
+     * Returns the value to which the key is associated, or throws an exception if
+     * there is no entry for the key
+     *
+     * @param key
+     *            the key with which the desired value is associated
+     * @return the value associated with the key
+     * @throws CacheMiss
+     *             if the entry associated to the key does not exist
+     */
+    V get(Object key) throws CacheMiss;
+
+    /**
+     * Records a read of the key that was served without looking it up in the
+     * set, such as a hit in a front cache, so the replacement algorithm still
+     * sees it. Takes no lock; like the reads of get() it is buffered and may be
+     * dropped under contention, a key no longer in the set is ignored.
+     *
+     * @param key
+     *            the key that was read
+     */
+    void recordAccess(K key);
+
+    /**
+     * Removes the association for the specified key from the cache if the key is
+     * present
+     *
+     * @param key
+     *            the key for removing the key-value pair from this cache
+     * @return the previous value associated with the given key, or null if there
+     *         was no key in the cache
+     */
+    V remove(Object key);
+
+    /**
+     * Removes the association for the specified key like remove(), but reports
+     * it to the removal listener as replaced: the entry was superseded by a copy
+     * of the key in another set.
+     *
+     * @param key
+     *            the key of the superseded entry
+     * @return the value of the removed entry, or null if there was no key in the
+     *         cache
+     * @see #remove(Object)
+     */
+    V displace(Object key);
+
+    /**
+     * Removes all entries from this cache set
+     */
+    void clear();
+
+    /**
+     * @return true if there are no entries in this cache set, false other wise
+     */
+    boolean isEmpty();
+
+    /**
+     * @return the total number of key-value pairs in this cache set
+     */
+    int size();
+
+    /**
+     * @return the maximum number of key-value pairs this cache can hold at a time
+     */
+    int maxSize();
+
+    /**
+     * Lowers or restores the number of entries this cache set keeps without
+     * rebuilding it. Entries above the new capacity are evicted in batches, only
+     * this set's lock is taken and it is released between batches.
+     *
+     * @param capacity
+     *            the number of entries to keep, between 1 and maxSize()
+     * @throws IllegalArgumentException
+     *             if the capacity is out of range
+     */
+    void setCapacity(int capacity);
+
+    /**
+     * @return the number of entries this cache set keeps, maxSize() unless it was
+     *         lowered by setCapacity()
+     */
+    int getCapacity();
+
+    /**
+     * Every entry holds a way, an index below the most entries the set holds at
+     * once, which with a Maintenance is the high watermark rather than
+     * maxSize(). The way stays the same while the entry is in the set and is
+     * given to another entry once it left. The set passes the way along with
+     * the key to the replacement algorithm on every access and delete, so an
+     * algorithm that keeps its state in arrays or bits can address entries by
+     * way and find the key to evict with this.
+     *
+     * @param way
+     *            the way of an entry in the set
+     * @return the key of the entry holding the way
+     * @throws IllegalArgumentException
+     *             if no entry holds the way
+     */
+    K keyAt(int way);
+
+    /**
+     * @return the number of entries the replacement algorithm has evicted from
+     *         this cache set since it was created
+     */
+    long getEvictionCount();
+
+    /**
+     * @return a collection of the values in this cache set
+     */
+    Collection<V> values();
+
+    /**
+     * @return a collection of the keys in this cache set
+     */
+    Collection<K> keys();
+
+}
@@ -0,0 +1,192 @@
+package cache.subcache;
+
+import static java.util.Objects.isNull;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A counting Bloom filter in front of a CacheSet, so that a get or containsKey
+ * for a key the set does not have can usually be answered without taking the
+ * set's lock or probing its table.
+ * <p>
+ * Every key sets a few 4 bit counters, sixteen to a long. A key whose counters
+ * are not all above zero was never added, or was removed again, so the filter
+ * never turns away a key the set has. Counters that reach 15 stay there,
+ * decrementing them could drop a key that is still present, so a long lived
+ * filter slowly collects saturated counters, which only raises the false
+ * positive rate.
+ * <p>
+ * The set adds and removes keys under its write lock; lookups take no lock and
+ * read the counters with volatile semantics, so a key is visible once the put
+ * that added it returned.
+ */
+public class CountingBloomFilter {
+
+    public static final int DEFAULT_COUNTERS_PER_ENTRY = 8;
+
+    private static final int COUNTER_BITS = 4;
+    private static final int COUNTERS_PER_WORD = Long.SIZE / COUNTER_BITS;
+    private static final long MAX_COUNT = (1L << COUNTER_BITS) - 1;
+    private static final int SEED = 0x7F4A7C15;
+
+    private final AtomicLongArray counters;
+    private final int mask;
+    private final int hashes;
+    private final int expectedEntries;
+    private final LongAdder negatives = new LongAdder();
+    private final LongAdder falsePositives = new LongAdder();
+
+    /**
+     * @param expectedEntries
+     *            the most entries the set holds at a time, usually its maximum
+     *            size
+     * @param countersPerEntry
+     *            the number of counters per entry, each takes 4 bits. 8 counters
+     *            per entry give a false positive rate of about 2% when full
+     */
+    public CountingBloomFilter(int expectedEntries, int countersPerEntry) {
+        if (expectedEntries <= 0 || countersPerEntry <= 0) {
+            throw new IllegalArgumentException("Expected entries and counters per entry must be greater than 0");
+        }
+        int size = Integer.highestOneBit(Math.max(COUNTERS_PER_WORD, expectedEntries * countersPerEntry) * 2 - 1);
+        mask = size - 1;
+        counters = new AtomicLongArray(size / COUNTERS_PER_WORD);
+        this.expectedEntries = expectedEntries;
+        hashes = Math.max(1, (int) Math.round((double) size / expectedEntries * Math.log(2)));
+    }
+
+    public CountingBloomFilter(int expectedEntries) {
+        this(expectedEntries, DEFAULT_COUNTERS_PER_ENTRY);
+    }
+
+    /**
+     * @return false if the key is definitely not in the set
+     */
+    public boolean mightContain(Object key) {
+        int h = hash(key);
+        int step = Integer.rotateLeft(h, 16) | 1;
+        for (int i = 0; i < hashes; i++) {
+            if (count((h + i * step) & mask) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Must be called under the set's write lock, once for every key that is
+     * inserted.
+     */
+    public void add(Object key) {
+        int h = hash(key);
+        int step = Integer.rotateLeft(h, 16) | 1;
+        for (int i = 0; i < hashes; i++) {
+            update((h + i * step) & mask, 1);
+        }
+    }
+
+    /**
+     * Must be called under the set's write lock, once for every key that leaves
+     * the set.
+     */
+    public void remove(Object key) {
+        int h = hash(key);
+        int step = Integer.rotateLeft(h, 16) | 1;
+        for (int i = 0; i < hashes; i++) {
+            update((h + i * step) & mask, -1);
+        }
+    }
+
+    /**
+     * Must be called under the set's write lock.
+     */
+    public void clear() {
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, 0L);
+        }
+    }
+
+    /**
+     * Counts a lookup the filter turned away.
+     */
+    void recordNegative() {
+        negatives.increment();
+    }
+
+    /**
+     * Counts a lookup the filter let through that then missed in the set.
+     */
+    void recordFalsePositive() {
+        falsePositives.increment();
+    }
+
+    /**
+     * @return the number of lookups answered by the filter alone
+     */
+    public long getNegatives() {
+        return negatives.sum();
+    }
+
+    /**
+     * @return the number of lookups for absent keys the filter let through
+     */
+    public long getFalsePositives() {
+        return falsePositives.sum();
+    }
+
+    /**
+     * @return the share of lookups for absent keys the filter let through, 0 if
+     *         there were none
+     */
+    public double getFalsePositiveRate() {
+        long falsePositives = getFalsePositives();
+        long absent = falsePositives + getNegatives();
+        return absent == 0 ? 0.0 : (double) falsePositives / absent;
+    }
+
+    /**
+     * @return the bits of counters per entry the set can hold
+     */
+    public double getBitsPerEntry() {
+        return (double) counters.length() * Long.SIZE / expectedEntries;
+    }
+
+    /**
+     * @return the number of counters set for every key
+     */
+    public int getHashes() {
+        return hashes;
+    }
+
+    private long count(int counter) {
+        long word = counters.get(counter / COUNTERS_PER_WORD);
+        return (word >>> shift(counter)) & MAX_COUNT;
+    }
+
+    private void update(int counter, int delta) {
+        int index = counter / COUNTERS_PER_WORD;
+        int shift = shift(counter);
+        long word = counters.get(index);
+        long count = (word >>> shift) & MAX_COUNT;
+        if (count == MAX_COUNT || (delta < 0 && count == 0)) {
+            // saturated counters stick
+            return;
+        }
+        counters.set(index, word + ((long) delta << shift));
+    }
+
+    private static int shift(int counter) {
+        return (counter % COUNTERS_PER_WORD) * COUNTER_BITS;
+    }
+
+    private static int hash(Object key) {
+        int h = (isNull(key) ? 0 : key.hashCode()) ^ SEED;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
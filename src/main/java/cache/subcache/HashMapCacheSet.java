@@ -1,199 +1,667 @@
-package cache.subcache;
-
-import static java.util.Objects.isNull;
-
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
-
-import cache.exception.CacheMiss;
-import cache.exception.EvictionNotPossible;
-import cache.replacement.ReplacementAlgorithm;
-
-public class HashMapCacheSet<K, V> implements CacheSet<K, V> {
-
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
-    private final Lock readLock = lock.readLock();
-    private final Lock writeLock = lock.writeLock();
-
-    private int blockSize;
-    private ReplacementAlgorithm<K, V> replacementAlgorithm;
-
-    private Map<K, CacheBlockEntry<K, V>> blocks;
-
-    public HashMapCacheSet(int totalBlocks) {
-        this.blockSize = totalBlocks;
-        blocks = new HashMap<>();
-    }
-
-    @Override
-    public V put(K key, V value) throws EvictionNotPossible {
-        V oldValue = null;
-        writeLock.lock();
-        try {
-            CacheBlockEntry<K, V> existingEntryForKey = getBlock(key);
-            if (isNull(existingEntryForKey)) {
-                if (blocks.size() == blockSize) {
-                    oldValue = evictOneEntry();
-                }
-                CacheBlockEntry<K, V> newEntry = new CacheBlockEntry<K, V>(key, value);
-                blocks.put(key, newEntry);
-            } else {
-                oldValue = existingEntryForKey.setValue(value);
-            }
-            replacementAlgorithm.notifyAccess(key);
-        } finally {
-            writeLock.unlock();
-        }
-        return oldValue;
-    }
-
-    private V evictOneEntry() throws EvictionNotPossible {
-        if (isNull(replacementAlgorithm)) {
-            throw new EvictionNotPossible("Replacement Algorithm was never set");
-        }
-        return replacementAlgorithm.evict(this);
-    }
-
-    private CacheBlockEntry<K, V> getBlock(Object key) {
-        return blocks.containsKey(key) ? blocks.get(key) : null;
-    }
-
-    @Override
-    public V get(Object key) throws CacheMiss {
-        readLock.lock();
-        try {
-            CacheBlockEntry<K, V> entry = getBlock(key);
-            if (isNull(entry)) {
-                throw new CacheMiss();
-            } else {
-                replacementAlgorithm.notifyAccess(entry.getKey());
-                return entry.getValue();
-            }
-        } finally {
-            readLock.unlock();
-        }
-    }
-
-    public Map<K, CacheBlockEntry<K, V>> getBlocks() {
-        return blocks;
-    }
-
-    @Override
-    public int size() {
-        return blocks.size();
-    }
-
-    @Override
-    public boolean containsKey(Object key) {
-        readLock.lock();
-        try {
-            get(key);
-            return true;
-        } catch (CacheMiss e) {
-            return false;
-        } finally {
-            readLock.unlock();
-        }
-    }
-
-    @Override
-    public V remove(Object key) {
-        V value = null;
-        writeLock.lock();
-        try {
-            if (blocks.containsKey(key)) {
-                CacheBlockEntry<K, V> entry = blocks.remove(key);
-                value = entry.getValue();
-                replacementAlgorithm.notifyDelete(entry.getKey());
-            }
-        } finally {
-            writeLock.unlock();
-        }
-        return value;
-    }
-
-    @Override
-    public void clear() {
-        writeLock.lock();
-        try {
-            blocks = new HashMap<>();
-            replacementAlgorithm.reset();
-        } finally {
-            writeLock.unlock();
-        }
-    }
-
-    public ReplacementAlgorithm<K, V> getReplacementAlgorithm() {
-        return replacementAlgorithm;
-    }
-
-    public void setReplacementAlgorithm(ReplacementAlgorithm<K, V> replacementAlgorithm) {
-        if (isNull(this.replacementAlgorithm)) {
-            this.replacementAlgorithm = replacementAlgorithm;
-        }
-    }
-
-    @Override
-    public int maxSize() {
-        return blockSize;
-    }
-
-    @Override
-    public boolean isEmpty() {
-        return size() == 0;
-    }
-
-    @Override
-    public Collection<K> keys() {
-        writeLock.lock();
-        try {
-            return blocks.keySet();
-        } finally {
-            writeLock.unlock();
-        }
-    }
-
-    @Override
-    public Collection<V> values() {
-        Set<V> values = new HashSet<>();
-        writeLock.lock();
-        try {
-             blocks.values().forEach(v -> values.add(v.getValue()));
-             return values;
-        } finally {
-            writeLock.unlock();
-        }
-    }
-    
-    private static class CacheBlockEntry<K, V> {
-
-        private K key;
-        private V value;
-
-        public CacheBlockEntry(K key, V value) {
-            this.key = key;
-            this.value = value;
-        }
-
-        public K getKey() {
-            return key;
-        }
-
-        public V getValue() {
-            return value;
-        }
-
-        public V setValue(V value) {
-            V oldValue = this.value;
-            this.value = value;
-            return oldValue;
-        }
-
-    }
-}
+package cache.subcache;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+
+import cache.exception.CacheMiss;
+import cache.exception.EvictionNotPossible;
+import cache.jfr.CacheEvents;
+import cache.removal.RemovalCause;
+import cache.removal.RemovalListener;
+import cache.replacement.ReplacementAlgorithm;
+
+/**
+ * Implementation of CacheSet backed by a HashMap guarded by a read/write lock.
+ * Reads do not call the replacement algorithm directly, they record the key in
+ * a lossy ReadBuffer instead. The buffer is drained into the replacement
+ * algorithm in batches by whichever reader wins the drain lock, and always
+ * before a write touches the replacement algorithm. Writers hold the write lock
+ * and a drainer holds a read lock, so the replacement algorithm only ever has a
+ * single thread mutating it.
+ * <p>
+ * Contended lock acquisitions are reported as Flight Recorder events when a
+ * recording has them enabled.
+ * <p>
+ * With weak or soft values, entries whose values were reclaimed are no longer
+ * returned by get() or counted by size(), and are removed by the next put or
+ * maintenance run.
+ * <p>
+ * With a CountingBloomFilter, a get or containsKey for a key the filter rules
+ * out misses before the lock is touched.
+ *
+ * @param <K>
+ *            the type of keys maintained by the cache set
+ * @param <V>
+ *            the type of mapped values
+ */
+public class HashMapCacheSet<K, V> implements CacheSet<K, V> {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Lock readLock = lock.readLock();
+    private final Lock writeLock = lock.writeLock();
+    private final Lock drainLock = new ReentrantLock();
+
+    private final ReadBuffer<K> readBuffer = new ReadBuffer<>();
+    private final AtomicBoolean maintenanceScheduled = new AtomicBoolean();
+
+    private int blockSize;
+    private volatile int capacity;
+    private int highWatermark;
+    private int lowWatermark;
+    private Maintenance maintenance;
+    private ReplacementAlgorithm<K, V> replacementAlgorithm;
+    private RemovalListener<K, V> removalListener;
+    private final Ways<K> ways;
+    private ValueReferences<K, V> references = new ValueReferences<>(ValueStrength.STRONG);
+    private volatile CountingBloomFilter bloomFilter;
+    private boolean evicting = false;
+    private volatile long evictions = 0L;
+
+    private Map<K, CacheBlockEntry<K, V>> blocks;
+
+    public HashMapCacheSet(int totalBlocks) {
+        this.blockSize = totalBlocks;
+        capacity = totalBlocks;
+        highWatermark = totalBlocks;
+        lowWatermark = totalBlocks;
+        blocks = new HashMap<>();
+        ways = new Ways<>(totalBlocks);
+    }
+
+    @Override
+    public V put(K key, V value) throws EvictionNotPossible {
+        return put(key, value, null);
+    }
+
+    @Override
+    public V put(K key, V value, Runnable beforeStore) throws EvictionNotPossible {
+        V oldValue = null;
+        boolean needsMaintenance;
+        lockWrite();
+        try {
+            expungeCollectedValues();
+            drainReadBuffer();
+            CacheBlockEntry<K, V> existingEntryForKey = getBlock(key);
+            if (isNull(existingEntryForKey)) {
+                if (blocks.size() >= highWatermark) {
+                    oldValue = evictOneEntry();
+                }
+                run(beforeStore);
+                existingEntryForKey = insertEntry(key, references.wrap(key, value));
+            } else {
+                run(beforeStore);
+                Object replaced = existingEntryForKey.setValue(references.wrap(key, value));
+                references.release(replaced);
+                oldValue = references.unwrap(replaced);
+                notifyRemoval(key, oldValue, RemovalCause.REPLACED);
+            }
+            replacementAlgorithm.notifyAccess(key, existingEntryForKey.getWay());
+            needsMaintenance = nonNull(maintenance) && blocks.size() > capacity;
+        } finally {
+            writeLock.unlock();
+        }
+        if (needsMaintenance) {
+            scheduleMaintenance();
+        }
+        return oldValue;
+    }
+
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction)
+        throws EvictionNotPossible {
+        return compute(key, remappingFunction, null);
+    }
+
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction,
+        Runnable beforeStore) throws EvictionNotPossible {
+        V newValue;
+        boolean needsMaintenance;
+        lockWrite();
+        try {
+            expungeCollectedValues();
+            drainReadBuffer();
+            CacheBlockEntry<K, V> entry = getBlock(key);
+            V oldValue = isNull(entry) ? null : references.unwrap(entry.getValue());
+            newValue = remappingFunction.apply(key, oldValue);
+            if (isNull(newValue)) {
+                run(beforeStore);
+                if (nonNull(entry)) {
+                    deleteEntry(entry);
+                    notifyRemoval(entry.getKey(), oldValue, RemovalCause.EXPLICIT);
+                }
+                return null;
+            }
+            if (isNull(entry)) {
+                if (blocks.size() >= highWatermark) {
+                    evictOneEntry();
+                }
+                run(beforeStore);
+                entry = insertEntry(key, references.wrap(key, newValue));
+            } else if (newValue != oldValue) {
+                run(beforeStore);
+                references.release(entry.setValue(references.wrap(key, newValue)));
+                notifyRemoval(key, oldValue, RemovalCause.REPLACED);
+            } else {
+                run(beforeStore);
+            }
+            replacementAlgorithm.notifyAccess(key, entry.getWay());
+            needsMaintenance = nonNull(maintenance) && blocks.size() > capacity;
+        } finally {
+            writeLock.unlock();
+        }
+        if (needsMaintenance) {
+            scheduleMaintenance();
+        }
+        return newValue;
+    }
+
+    private static void run(Runnable action) {
+        if (nonNull(action)) {
+            action.run();
+        }
+    }
+
+    private void scheduleMaintenance() {
+        if (maintenanceScheduled.compareAndSet(false, true)) {
+            try {
+                maintenance.getExecutor().execute(this::performMaintenance);
+            } catch (RejectedExecutionException e) {
+                // the executor is shut down or saturated, evict on the caller's thread
+                performMaintenance();
+            }
+        }
+    }
+
+    @Override
+    public void performMaintenance() {
+        maintenanceScheduled.set(false);
+        boolean done = false;
+        while (!done) {
+            lockWrite();
+            try {
+                done = evictBatch();
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * @return true if the set is at its low watermark or nothing more can be
+     *         evicted
+     */
+    private boolean evictBatch() {
+        expungeCollectedValues();
+        drainReadBuffer();
+        int batchSize = isNull(maintenance) ? Maintenance.DEFAULT_BATCH_SIZE : maintenance.getBatchSize();
+        try {
+            for (int i = 0; i < batchSize; i++) {
+                int sizeBefore = blocks.size();
+                if (sizeBefore <= lowWatermark) {
+                    return true;
+                }
+                evictOneEntry();
+                if (blocks.size() >= sizeBefore) {
+                    return true;
+                }
+            }
+            return blocks.size() <= lowWatermark;
+        } catch (EvictionNotPossible e) {
+            return true;
+        }
+    }
+
+    private V evictOneEntry() throws EvictionNotPossible {
+        if (isNull(replacementAlgorithm)) {
+            throw new EvictionNotPossible("Replacement Algorithm was never set");
+        }
+        evicting = true;
+        try {
+            return replacementAlgorithm.evict(this);
+        } finally {
+            evicting = false;
+        }
+    }
+
+    /**
+     * Removes the entries whose values were reclaimed by the garbage collector.
+     * Must be called under the write lock and not while evicting.
+     */
+    private void expungeCollectedValues() {
+        ValueReferences.ValueReference<K> reference;
+        while (nonNull(reference = references.poll())) {
+            K key = reference.getKey();
+            CacheBlockEntry<K, V> entry = getBlock(key);
+            if (nonNull(entry) && entry.getValue() == reference) {
+                deleteEntry(entry);
+                notifyRemoval(key, null, RemovalCause.EXPIRED);
+            }
+        }
+    }
+
+    /**
+     * Must be called under the write lock.
+     */
+    private CacheBlockEntry<K, V> insertEntry(K key, Object stored) {
+        CacheBlockEntry<K, V> entry = new CacheBlockEntry<K, V>(key, stored, ways.claim(key));
+        blocks.put(key, entry);
+        addToBloomFilter(key);
+        return entry;
+    }
+
+    /**
+     * Removes the entry and tells the replacement algorithm, must be called under
+     * the write lock.
+     */
+    private void deleteEntry(CacheBlockEntry<K, V> entry) {
+        blocks.remove(entry.getKey());
+        references.release(entry.getValue());
+        removeFromBloomFilter(entry.getKey());
+        ways.release(entry.getWay());
+        replacementAlgorithm.notifyDelete(entry.getKey(), entry.getWay());
+    }
+
+    private void lockRead() {
+        CacheEvents.lock(readLock, "read", this);
+    }
+
+    private void lockWrite() {
+        CacheEvents.lock(writeLock, "write", this);
+    }
+
+    private void notifyRemoval(K key, V value, RemovalCause cause) {
+        if (nonNull(removalListener)) {
+            removalListener.onRemoval(key, value, cause);
+        }
+    }
+
+    private CacheBlockEntry<K, V> getBlock(Object key) {
+        return blocks.containsKey(key) ? blocks.get(key) : null;
+    }
+
+    @Override
+    public V get(Object key) throws CacheMiss {
+        CountingBloomFilter filter = bloomFilter;
+        if (nonNull(filter) && !filter.mightContain(key)) {
+            filter.recordNegative();
+            throw new CacheMiss();
+        }
+        lockRead();
+        try {
+            CacheBlockEntry<K, V> entry = getBlock(key);
+            if (isNull(entry)) {
+                if (nonNull(filter)) {
+                    filter.recordFalsePositive();
+                }
+                throw new CacheMiss();
+            }
+            V value = references.unwrap(entry.getValue());
+            if (isNull(value) && nonNull(entry.getValue())) {
+                // reclaimed, the entry is removed by the next write
+                throw new CacheMiss();
+            }
+            afterRead(entry.getKey());
+            return value;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * Records the read and drains the buffer only if this reader's stripe filled
+     * up and the read lock can be had without waiting.
+     */
+    @Override
+    public void recordAccess(K key) {
+        if (readBuffer.offer(key) == ReadBuffer.Status.FULL && readLock.tryLock()) {
+            try {
+                if (drainLock.tryLock()) {
+                    try {
+                        drainReadBuffer();
+                    } finally {
+                        drainLock.unlock();
+                    }
+                }
+            } finally {
+                readLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Records the read and, if this reader's stripe filled up, tries to drain the
+     * buffer. Must be called while holding the read lock so that no writer mutates
+     * the map or the replacement algorithm during the drain.
+     */
+    private void afterRead(K key) {
+        if (readBuffer.offer(key) == ReadBuffer.Status.FULL && drainLock.tryLock()) {
+            try {
+                drainReadBuffer();
+            } finally {
+                drainLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Replays the recorded reads into the replacement algorithm, skipping keys that
+     * were removed since they were read.
+     */
+    private void drainReadBuffer() {
+        readBuffer.drainTo(key -> {
+            CacheBlockEntry<K, V> entry = getBlock(key);
+            if (nonNull(entry)) {
+                replacementAlgorithm.notifyAccess(entry.getKey(), entry.getWay());
+            }
+        });
+    }
+
+    public Map<K, CacheBlockEntry<K, V>> getBlocks() {
+        return blocks;
+    }
+
+    @Override
+    public int size() {
+        if (lock.isWriteLockedByCurrentThread()) {
+            // the replacement algorithm evicts from what is stored
+            return blocks.size();
+        }
+        // the entries of reclaimed values are not counted even before they are
+        // expunged
+        return blocks.size() - references.staleEntries();
+    }
+
+    @Override
+    public boolean containsKeyQuietly(Object key) {
+        CountingBloomFilter filter = bloomFilter;
+        if (nonNull(filter) && !filter.mightContain(key)) {
+            return false;
+        }
+        lockRead();
+        try {
+            CacheBlockEntry<K, V> entry = getBlock(key);
+            return nonNull(entry) && (isNull(entry.getValue()) || nonNull(references.unwrap(entry.getValue())));
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        CountingBloomFilter filter = bloomFilter;
+        if (nonNull(filter) && !filter.mightContain(key)) {
+            filter.recordNegative();
+            return false;
+        }
+        lockRead();
+        try {
+            get(key);
+            return true;
+        } catch (CacheMiss e) {
+            return false;
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    @Override
+    public V remove(Object key) {
+        return remove(key, RemovalCause.EXPLICIT);
+    }
+
+    @Override
+    public V displace(Object key) {
+        return remove(key, RemovalCause.REPLACED);
+    }
+
+    private V remove(Object key, RemovalCause cause) {
+        V value = null;
+        lockWrite();
+        try {
+            if (blocks.containsKey(key)) {
+                CacheBlockEntry<K, V> entry = blocks.get(key);
+                deleteEntry(entry);
+                value = references.unwrap(entry.getValue());
+                if (evicting) {
+                    evictions++;
+                    CacheEvents.evicted(replacementAlgorithm, entry.getInsertionTime());
+                }
+                notifyRemoval(entry.getKey(), value, evicting ? RemovalCause.EVICTED : cause);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+        return value;
+    }
+
+    @Override
+    public void clear() {
+        lockWrite();
+        try {
+            readBuffer.clear();
+            blocks.values().forEach(e -> {
+                references.release(e.getValue());
+                notifyRemoval(e.getKey(), references.unwrap(e.getValue()), RemovalCause.CLEARED);
+            });
+            blocks = new HashMap<>();
+            ways.clear();
+            if (nonNull(bloomFilter)) {
+                bloomFilter.clear();
+            }
+            while (nonNull(references.poll())) {
+                // the entries of reclaimed values are gone already
+            }
+            replacementAlgorithm.reset();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public ReplacementAlgorithm<K, V> getReplacementAlgorithm() {
+        return replacementAlgorithm;
+    }
+
+    public void setReplacementAlgorithm(ReplacementAlgorithm<K, V> replacementAlgorithm) {
+        if (isNull(this.replacementAlgorithm)) {
+            this.replacementAlgorithm = replacementAlgorithm;
+        }
+    }
+
+    @Override
+    public void setRemovalListener(RemovalListener<K, V> removalListener) {
+        this.removalListener = removalListener;
+    }
+
+    @Override
+    public void setBloomFilter(CountingBloomFilter bloomFilter) {
+        lockWrite();
+        try {
+            if (nonNull(bloomFilter)) {
+                bloomFilter.clear();
+                blocks.keySet().forEach(bloomFilter::add);
+            }
+            this.bloomFilter = bloomFilter;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public CountingBloomFilter getBloomFilter() {
+        return bloomFilter;
+    }
+
+    /**
+     * Must be called under the write lock.
+     */
+    private void addToBloomFilter(K key) {
+        if (nonNull(bloomFilter)) {
+            bloomFilter.add(key);
+        }
+    }
+
+    /**
+     * Must be called under the write lock.
+     */
+    private void removeFromBloomFilter(Object key) {
+        if (nonNull(bloomFilter)) {
+            bloomFilter.remove(key);
+        }
+    }
+
+    @Override
+    public void setValueStrength(ValueStrength valueStrength) {
+        lockWrite();
+        try {
+            references = new ValueReferences<>(valueStrength);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void setMaintenance(Maintenance maintenance) {
+        lockWrite();
+        try {
+            this.maintenance = maintenance;
+            updateWatermarks();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public int maxSize() {
+        return blockSize;
+    }
+
+    @Override
+    public void setCapacity(int capacity) {
+        if (capacity <= 0 || capacity > blockSize) {
+            throw new IllegalArgumentException("Capacity must be between 1 and the maximum size");
+        }
+        lockWrite();
+        try {
+            this.capacity = capacity;
+            updateWatermarks();
+        } finally {
+            writeLock.unlock();
+        }
+        performMaintenance();
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Must be called under the write lock.
+     */
+    private void updateWatermarks() {
+        highWatermark = isNull(maintenance) ? capacity : maintenance.highWatermark(capacity);
+        lowWatermark = isNull(maintenance) ? capacity : maintenance.lowWatermark(capacity);
+    }
+
+    /**
+     * Must be called under the write lock, as replacement algorithms do while
+     * evicting.
+     */
+    @Override
+    public K keyAt(int way) {
+        return ways.keyAt(way);
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return evictions;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public Collection<K> keys() {
+        lockWrite();
+        try {
+            return blocks.keySet();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public Collection<V> values() {
+        Set<V> values = new HashSet<>();
+        lockWrite();
+        try {
+             blocks.values().forEach(v -> {
+                 if (!references.isCollected(v.getValue())) {
+                     values.add(references.unwrap(v.getValue()));
+                 }
+             });
+             return values;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+    
+    private static class CacheBlockEntry<K, V> {
+
+        private K key;
+        private Object value;
+        private long insertionTime;
+        private int way;
+
+        /**
+         * @param value
+         *            the value as wrapped by the set's ValueReferences
+         * @param way
+         *            the way the entry holds while it is in the set
+         */
+        public CacheBlockEntry(K key, Object value, int way) {
+            this.key = key;
+            this.value = value;
+            this.way = way;
+            insertionTime = CacheEvents.insertionTime();
+        }
+
+        public int getWay() {
+            return way;
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        public Object getValue() {
+            return value;
+        }
+
+        public long getInsertionTime() {
+            return insertionTime;
+        }
+
+        public Object setValue(Object value) {
+            Object oldValue = this.value;
+            this.value = value;
+            return oldValue;
+        }
+
+    }
+}
@@ -0,0 +1,89 @@
+package cache.subcache;
+
+import static java.util.Objects.isNull;
+
+import java.util.concurrent.Executor;
+
+/**
+ * Configuration for deferred eviction. A cache set with maintenance enabled
+ * lets puts grow past its maximum size up to a high watermark instead of
+ * evicting inline. Once a set is over its maximum size it schedules a
+ * maintenance task on the executor, which evicts the set back down to the low
+ * watermark a batch at a time, so the cost of eviction is paid off the writer's
+ * path and spread over many puts.
+ */
+public class Maintenance {
+
+    public static final int DEFAULT_BATCH_SIZE = 32;
+
+    private final Executor executor;
+    private final int slack;
+    private final int headroom;
+    private final int batchSize;
+
+    /**
+     * @param executor
+     *            runs the maintenance tasks, must not be null
+     * @param slack
+     *            how many entries a set may hold above its maximum size before a
+     *            put has to evict inline
+     */
+    public Maintenance(Executor executor, int slack) {
+        this(executor, slack, 0, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * @param executor
+     *            runs the maintenance tasks, must not be null
+     * @param slack
+     *            how many entries a set may hold above its maximum size before a
+     *            put has to evict inline
+     * @param headroom
+     *            how many entries below its maximum size a set is evicted down to
+     *            by a maintenance task
+     * @param batchSize
+     *            the most entries evicted while holding a set's lock, must be
+     *            greater than 0
+     */
+    public Maintenance(Executor executor, int slack, int headroom, int batchSize) {
+        if (isNull(executor)) {
+            throw new IllegalArgumentException("An executor was never given");
+        }
+        if (slack < 0 || headroom < 0) {
+            throw new IllegalArgumentException("Slack and headroom must not be negative");
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be greater than 0");
+        }
+        this.executor = executor;
+        this.slack = slack;
+        this.headroom = headroom;
+        this.batchSize = batchSize;
+    }
+
+    public Executor getExecutor() {
+        return executor;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    /**
+     * @param maxSize
+     *            the maximum size of the cache set
+     * @return the size at which a put evicts inline
+     */
+    public int highWatermark(int maxSize) {
+        return maxSize + slack;
+    }
+
+    /**
+     * @param maxSize
+     *            the maximum size of the cache set
+     * @return the size a maintenance task evicts down to
+     */
+    public int lowWatermark(int maxSize) {
+        return Math.max(0, maxSize - headroom);
+    }
+}
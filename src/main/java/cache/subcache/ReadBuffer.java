@@ -0,0 +1,150 @@
+package cache.subcache;
+
+import static java.util.Objects.isNull;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * A lossy, striped buffer used to record reads without touching the
+ * replacement algorithm. Each stripe is a small bounded ring that many threads
+ * may offer to but only a single thread at a time may drain. A thread picks its
+ * stripe from its id so that readers on different cores rarely contend on the
+ * same counter. When a stripe is full, or another thread won the race for the
+ * next slot, the element is simply dropped: the replacement algorithm loses a
+ * little precision rather than having readers wait.
+ * <p>
+ * Null elements are supported because the cache supports null keys.
+ *
+ * @param <E>
+ *            the type of the recorded elements
+ */
+public class ReadBuffer<E> {
+
+    public static final int STRIPE_SIZE = 16;
+    private static final int STRIPE_MASK = STRIPE_SIZE - 1;
+    private static final int MAX_STRIPES = 8;
+    private static final Object NULL = new Object();
+
+    /**
+     * Result of an offer, FULL means the caller should attempt to drain.
+     */
+    public static enum Status {
+        SUCCESS, FULL, FAILED;
+    }
+
+    private final Stripe[] stripes;
+    private final int stripeMask;
+
+    public ReadBuffer() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param parallelism
+     *            the expected number of concurrent readers, rounded up to a power
+     *            of two and capped to decide the number of stripes
+     */
+    public ReadBuffer(int parallelism) {
+        int count = Math.min(MAX_STRIPES, Integer.highestOneBit(Math.max(1, parallelism) * 2 - 1));
+        stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe();
+        }
+        stripeMask = count - 1;
+    }
+
+    /**
+     * Records the element if there is room in the current thread's stripe.
+     *
+     * @param e
+     *            the element to be recorded
+     * @return FULL if the stripe had no room and the element was dropped, FAILED
+     *         if the element was dropped because of contention, SUCCESS otherwise
+     */
+    public Status offer(E e) {
+        return stripes[stripeIndex()].offer(isNull(e) ? NULL : e);
+    }
+
+    /**
+     * Hands every recorded element to the consumer in the order they were recorded
+     * within each stripe. Must not be called by more than one thread at a time.
+     *
+     * @param consumer
+     *            receives the drained elements
+     */
+    @SuppressWarnings("unchecked")
+    public void drainTo(Consumer<E> consumer) {
+        for (Stripe stripe : stripes) {
+            stripe.drainTo(o -> consumer.accept(o == NULL ? null : (E) o));
+        }
+    }
+
+    /**
+     * Discards every recorded element. Must not be called concurrently with
+     * drainTo().
+     */
+    public void clear() {
+        drainTo(e -> {
+        });
+    }
+
+    /**
+     * @return the approximate number of recorded elements waiting to be drained
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    private int stripeIndex() {
+        long id = Thread.currentThread().getId();
+        int h = (int) (id * 0x9E3779B97F4A7C15L >>> 32);
+        return h & stripeMask;
+    }
+
+    private static class Stripe {
+
+        private final AtomicReferenceArray<Object> buffer = new AtomicReferenceArray<>(STRIPE_SIZE);
+        private final AtomicLong writeCounter = new AtomicLong();
+        private volatile long readCounter = 0L;
+
+        Status offer(Object o) {
+            long head = readCounter;
+            long tail = writeCounter.get();
+            if (tail - head >= STRIPE_SIZE) {
+                return Status.FULL;
+            }
+            if (writeCounter.compareAndSet(tail, tail + 1)) {
+                buffer.lazySet((int) (tail & STRIPE_MASK), o);
+                return Status.SUCCESS;
+            }
+            return Status.FAILED;
+        }
+
+        void drainTo(Consumer<Object> consumer) {
+            long head = readCounter;
+            long tail = writeCounter.get();
+            while (head < tail) {
+                int index = (int) (head & STRIPE_MASK);
+                Object o = buffer.get(index);
+                if (isNull(o)) {
+                    // the slot was claimed but its element is not yet visible
+                    break;
+                }
+                buffer.lazySet(index, null);
+                consumer.accept(o);
+                head++;
+            }
+            readCounter = head;
+        }
+
+        int size() {
+            return (int) (writeCounter.get() - readCounter);
+        }
+    }
+}
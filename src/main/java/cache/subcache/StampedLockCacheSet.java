@@ -0,0 +1,804 @@
+package cache.subcache;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+import cache.exception.CacheMiss;
+import cache.exception.EvictionNotPossible;
+import cache.jfr.CacheEvents;
+import cache.removal.RemovalCause;
+import cache.removal.RemovalListener;
+import cache.replacement.ReplacementAlgorithm;
+
+/**
+ * Implementation of CacheSet for read heavy workloads. Entries are kept in a
+ * fixed size open addressing table that is only ever modified under the write
+ * lock of a StampedLock. A get first probes the table under an optimistic read
+ * stamp and only falls back to a read lock if a writer invalidated the stamp,
+ * so cache hits do not write to any state shared with other readers.
+ * <p>
+ * Hits are recorded in a lossy ReadBuffer once the lookup has finished and
+ * are replayed into the replacement algorithm in batches under a separate
+ * policy lock, so the replacement algorithm is never touched by more than one
+ * thread at a time and never while a read stamp is held.
+ * <p>
+ * With weak or soft values, entries whose values were reclaimed are no longer
+ * returned by get() or counted by size(), and are removed by the next put or
+ * maintenance run.
+ * <p>
+ * With a CountingBloomFilter, a get or containsKey for a key the filter rules
+ * out misses before the lock is touched.
+ *
+ * @param <K>
+ *            the type of keys maintained by the cache set
+ * @param <V>
+ *            the type of mapped values
+ */
+public class StampedLockCacheSet<K, V> implements CacheSet<K, V> {
+
+    private final StampedLock lock = new StampedLock();
+    private final ReentrantLock policyLock = new ReentrantLock();
+    private final ReadBuffer<K> readBuffer = new ReadBuffer<>();
+    private final AtomicBoolean maintenanceScheduled = new AtomicBoolean();
+
+    private int blockSize;
+    private volatile int capacity;
+    private int highWatermark;
+    private int lowWatermark;
+    private Maintenance maintenance;
+    private ReplacementAlgorithm<K, V> replacementAlgorithm;
+    private RemovalListener<K, V> removalListener;
+    private final Ways<K> ways;
+    private ValueReferences<K, V> references = new ValueReferences<>(ValueStrength.STRONG);
+    private volatile CountingBloomFilter bloomFilter;
+    private boolean evicting = false;
+    private volatile long evictions = 0L;
+
+    private volatile Entry<K, V>[] table;
+    private volatile int size = 0;
+    private int mask;
+
+    /**
+     * The thread currently holding the write lock. StampedLock is not reentrant,
+     * but the replacement algorithm calls back into remove() while put() holds the
+     * write lock.
+     */
+    private Thread writer;
+
+    public StampedLockCacheSet(int totalBlocks) {
+        this.blockSize = totalBlocks;
+        capacity = totalBlocks;
+        highWatermark = totalBlocks;
+        lowWatermark = totalBlocks;
+        int capacity = tableSizeFor(totalBlocks);
+        mask = capacity - 1;
+        table = newTable(capacity);
+        ways = new Ways<>(totalBlocks);
+    }
+
+    /**
+     * @return a power of two at least twice the given number of entries, which
+     *         keeps probe sequences short and guarantees a free slot
+     */
+    private static int tableSizeFor(int entries) {
+        return Integer.highestOneBit(Math.max(2, entries) * 2 - 1) << 1;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    private static <K, V> Entry<K, V>[] newTable(int capacity) {
+        return (Entry<K, V>[]) new Entry[capacity];
+    }
+
+    private static int spread(Object key) {
+        int h = isNull(key) ? 0 : key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Probes the table for the key. This is safe to call without holding the lock,
+     * the result is only trustworthy if the stamp it was read under is still
+     * valid.
+     */
+    private int indexOf(Object key) {
+        return indexOf(table, key);
+    }
+
+    /**
+     * Probes the given table, so a reader racing a resize uses the index with
+     * the array it was found in.
+     */
+    private int indexOf(Entry<K, V>[] tab, Object key) {
+        int m = tab.length - 1;
+        int hash = spread(key);
+        int i = hash & m;
+        for (int probes = 0; probes < tab.length; probes++) {
+            Entry<K, V> e = tab[i];
+            if (isNull(e)) {
+                return -1;
+            }
+            if (e.hash == hash && Objects.equals(e.key, key)) {
+                return i;
+            }
+            i = (i + 1) & m;
+        }
+        return -1;
+    }
+
+    private Entry<K, V> find(Object key) {
+        Entry<K, V>[] tab = table;
+        int index = indexOf(tab, key);
+        return index < 0 ? null : tab[index];
+    }
+
+    @Override
+    public V get(Object key) throws CacheMiss {
+        CountingBloomFilter filter = bloomFilter;
+        if (nonNull(filter) && !filter.mightContain(key)) {
+            filter.recordNegative();
+            throw new CacheMiss();
+        }
+        long stamp = lock.tryOptimisticRead();
+        Entry<K, V> entry = find(key);
+        if (!lock.validate(stamp) && !isWriteLockedByCurrentThread()) {
+            stamp = lock.readLock();
+            try {
+                entry = find(key);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        if (isNull(entry)) {
+            if (nonNull(filter)) {
+                filter.recordFalsePositive();
+            }
+            throw new CacheMiss();
+        }
+        V value = references.unwrap(entry.value);
+        if (isNull(value) && nonNull(entry.value)) {
+            // reclaimed, the entry is removed by the next write
+            throw new CacheMiss();
+        }
+        recordAccess(entry.key);
+        return value;
+    }
+
+    /**
+     * Records the hit in the read buffer and drains it if this reader's stripe is
+     * full and no other thread is using the replacement algorithm.
+     */
+    @Override
+    public void recordAccess(K key) {
+        if (readBuffer.offer(key) == ReadBuffer.Status.FULL && policyLock.tryLock()) {
+            try {
+                drainReadBuffer();
+            } finally {
+                policyLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Replays the recorded reads into the replacement algorithm, must be called
+     * under the policy lock. Writers always update the table before taking the
+     * policy lock, so re-checking the table here guarantees an entry removed
+     * concurrently is not resurrected in the replacement algorithm.
+     */
+    private void drainReadBuffer() {
+        readBuffer.drainTo(key -> {
+            Entry<K, V> entry = find(key);
+            if (nonNull(entry)) {
+                replacementAlgorithm.notifyAccess(entry.key, entry.way);
+            }
+        });
+    }
+
+    @Override
+    public V put(K key, V value) throws EvictionNotPossible {
+        return put(key, value, null);
+    }
+
+    @Override
+    public V put(K key, V value, Runnable beforeStore) throws EvictionNotPossible {
+        V oldValue = null;
+        boolean needsMaintenance;
+        long stamp = lockWrite();
+        try {
+            expungeCollectedValues();
+            int index = indexOf(key);
+            Object stored = references.wrap(key, value);
+            int way;
+            if (index < 0) {
+                if (size >= highWatermark) {
+                    oldValue = evictOneEntry();
+                }
+                run(beforeStore);
+                way = insert(key, stored);
+            } else {
+                run(beforeStore);
+                oldValue = references.unwrap(table[index].value);
+                way = replaceAt(index, stored);
+                notifyRemoval(key, oldValue, RemovalCause.REPLACED);
+            }
+            policyLock.lock();
+            try {
+                drainReadBuffer();
+                replacementAlgorithm.notifyAccess(key, way);
+            } finally {
+                policyLock.unlock();
+            }
+            needsMaintenance = nonNull(maintenance) && size > capacity;
+        } finally {
+            unlockWrite(stamp);
+        }
+        if (needsMaintenance) {
+            scheduleMaintenance();
+        }
+        return oldValue;
+    }
+
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction)
+        throws EvictionNotPossible {
+        return compute(key, remappingFunction, null);
+    }
+
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction,
+        Runnable beforeStore) throws EvictionNotPossible {
+        V newValue;
+        boolean needsMaintenance;
+        long stamp = lockWrite();
+        try {
+            expungeCollectedValues();
+            int index = indexOf(key);
+            V oldValue = index < 0 ? null : references.unwrap(table[index].value);
+            newValue = remappingFunction.apply(key, oldValue);
+            if (isNull(newValue)) {
+                run(beforeStore);
+                if (index >= 0) {
+                    removeEntry(key, RemovalCause.EXPLICIT);
+                }
+                return null;
+            }
+            int way;
+            if (index < 0) {
+                if (size >= highWatermark) {
+                    evictOneEntry();
+                }
+                run(beforeStore);
+                way = insert(key, references.wrap(key, newValue));
+            } else if (newValue != oldValue) {
+                run(beforeStore);
+                way = replaceAt(index, references.wrap(key, newValue));
+                notifyRemoval(key, oldValue, RemovalCause.REPLACED);
+            } else {
+                run(beforeStore);
+                way = table[index].way;
+            }
+            policyLock.lock();
+            try {
+                drainReadBuffer();
+                replacementAlgorithm.notifyAccess(key, way);
+            } finally {
+                policyLock.unlock();
+            }
+            needsMaintenance = nonNull(maintenance) && size > capacity;
+        } finally {
+            unlockWrite(stamp);
+        }
+        if (needsMaintenance) {
+            scheduleMaintenance();
+        }
+        return newValue;
+    }
+
+    private static void run(Runnable action) {
+        if (nonNull(action)) {
+            action.run();
+        }
+    }
+
+    private void scheduleMaintenance() {
+        if (maintenanceScheduled.compareAndSet(false, true)) {
+            try {
+                maintenance.getExecutor().execute(this::performMaintenance);
+            } catch (RejectedExecutionException e) {
+                // the executor is shut down or saturated, evict on the caller's thread
+                performMaintenance();
+            }
+        }
+    }
+
+    @Override
+    public void performMaintenance() {
+        maintenanceScheduled.set(false);
+        boolean done = false;
+        while (!done) {
+            long stamp = lockWrite();
+            try {
+                done = evictBatch();
+            } finally {
+                unlockWrite(stamp);
+            }
+        }
+    }
+
+    /**
+     * @return true if the set is at its low watermark or nothing more can be
+     *         evicted
+     */
+    private boolean evictBatch() {
+        if (isNull(replacementAlgorithm)) {
+            return true;
+        }
+        expungeCollectedValues();
+        int batchSize = isNull(maintenance) ? Maintenance.DEFAULT_BATCH_SIZE : maintenance.getBatchSize();
+        policyLock.lock();
+        try {
+            drainReadBuffer();
+            for (int i = 0; i < batchSize; i++) {
+                int sizeBefore = size;
+                if (sizeBefore <= lowWatermark) {
+                    return true;
+                }
+                evict();
+                if (size >= sizeBefore) {
+                    return true;
+                }
+            }
+            return size <= lowWatermark;
+        } catch (EvictionNotPossible e) {
+            return true;
+        } finally {
+            policyLock.unlock();
+        }
+    }
+
+    private V evictOneEntry() throws EvictionNotPossible {
+        if (isNull(replacementAlgorithm)) {
+            throw new EvictionNotPossible("Replacement Algorithm was never set");
+        }
+        V evicted;
+        policyLock.lock();
+        try {
+            drainReadBuffer();
+            evicted = evict();
+        } finally {
+            policyLock.unlock();
+        }
+        if (size >= highWatermark) {
+            throw new EvictionNotPossible("Replacement Algorithm did not evict an entry from this set");
+        }
+        return evicted;
+    }
+
+    private V evict() throws EvictionNotPossible {
+        evicting = true;
+        try {
+            return replacementAlgorithm.evict(this);
+        } finally {
+            evicting = false;
+        }
+    }
+
+    /**
+     * Removes the entries whose values were reclaimed by the garbage collector.
+     * Must be called under the write lock and not while evicting.
+     */
+    private void expungeCollectedValues() {
+        ValueReferences.ValueReference<K> reference;
+        while (nonNull(reference = references.poll())) {
+            int index = indexOf(reference.getKey());
+            if (index >= 0 && table[index].value == reference) {
+                Entry<K, V> entry = table[index];
+                deleteAt(index);
+                policyLock.lock();
+                try {
+                    replacementAlgorithm.notifyDelete(entry.key, entry.way);
+                } finally {
+                    policyLock.unlock();
+                }
+                notifyRemoval(entry.key, null, RemovalCause.EXPIRED);
+            }
+        }
+    }
+
+    private void notifyRemoval(K key, V value, RemovalCause cause) {
+        if (nonNull(removalListener)) {
+            removalListener.onRemoval(key, value, cause);
+        }
+    }
+
+    /**
+     * @return the way the new entry holds
+     */
+    private int insert(K key, Object stored) {
+        Entry<K, V> entry = new Entry<>(key, stored, spread(key), ways.claim(key), CacheEvents.insertionTime());
+        Entry<K, V>[] tab = table;
+        int i = entry.hash & mask;
+        while (nonNull(tab[i])) {
+            i = (i + 1) & mask;
+        }
+        tab[i] = entry;
+        size++;
+        if (nonNull(bloomFilter)) {
+            bloomFilter.add(entry.key);
+        }
+        return entry.way;
+    }
+
+    /**
+     * Replaces the value of the entry at the index, the entry keeps its way.
+     *
+     * @return the way of the entry
+     */
+    private int replaceAt(int index, Object stored) {
+        Entry<K, V> entry = table[index];
+        table[index] = new Entry<>(entry.key, stored, entry.hash, entry.way, entry.insertionTime);
+        references.release(entry.value);
+        return entry.way;
+    }
+
+    /**
+     * Backward shift deletion, keeps every probe sequence free of holes without
+     * the need for tombstones.
+     */
+    private void deleteAt(int index) {
+        Entry<K, V>[] tab = table;
+        if (nonNull(bloomFilter)) {
+            bloomFilter.remove(tab[index].key);
+        }
+        ways.release(tab[index].way);
+        references.release(tab[index].value);
+        int hole = index;
+        int i = index;
+        while (true) {
+            i = (i + 1) & mask;
+            Entry<K, V> e = tab[i];
+            if (isNull(e)) {
+                break;
+            }
+            int home = e.hash & mask;
+            boolean movable = (hole < i) ? (home <= hole || home > i) : (home <= hole && home > i);
+            if (movable) {
+                tab[hole] = e;
+                hole = i;
+            }
+        }
+        tab[hole] = null;
+        size--;
+    }
+
+    private long lockWrite() {
+        long stamp = lock.writeLock();
+        writer = Thread.currentThread();
+        return stamp;
+    }
+
+    private void unlockWrite(long stamp) {
+        writer = null;
+        lock.unlockWrite(stamp);
+    }
+
+    private boolean isWriteLockedByCurrentThread() {
+        return writer == Thread.currentThread();
+    }
+
+    @Override
+    public boolean containsKeyQuietly(Object key) {
+        CountingBloomFilter filter = bloomFilter;
+        if (nonNull(filter) && !filter.mightContain(key)) {
+            return false;
+        }
+        long stamp = lock.tryOptimisticRead();
+        Entry<K, V> entry = find(key);
+        if (!lock.validate(stamp) && !isWriteLockedByCurrentThread()) {
+            stamp = lock.readLock();
+            try {
+                entry = find(key);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return nonNull(entry) && (isNull(entry.value) || nonNull(references.unwrap(entry.value)));
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        try {
+            get(key);
+            return true;
+        } catch (CacheMiss e) {
+            return false;
+        }
+    }
+
+    @Override
+    public V remove(Object key) {
+        return remove(key, RemovalCause.EXPLICIT);
+    }
+
+    @Override
+    public V displace(Object key) {
+        return remove(key, RemovalCause.REPLACED);
+    }
+
+    private V remove(Object key, RemovalCause cause) {
+        if (isWriteLockedByCurrentThread()) {
+            return removeEntry(key, cause);
+        }
+        long stamp = lockWrite();
+        try {
+            return removeEntry(key, cause);
+        } finally {
+            unlockWrite(stamp);
+        }
+    }
+
+    private V removeEntry(Object key, RemovalCause cause) {
+        int index = indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+        Entry<K, V> entry = table[index];
+        deleteAt(index);
+        policyLock.lock();
+        try {
+            replacementAlgorithm.notifyDelete(entry.key, entry.way);
+        } finally {
+            policyLock.unlock();
+        }
+        if (evicting) {
+            evictions++;
+            CacheEvents.evicted(replacementAlgorithm, entry.insertionTime);
+        }
+        V value = references.unwrap(entry.value);
+        notifyRemoval(entry.key, value, evicting ? RemovalCause.EVICTED : cause);
+        return value;
+    }
+
+    @Override
+    public void clear() {
+        long stamp = lockWrite();
+        try {
+            forEachEntryUnlocked(e -> {
+                references.release(e.value);
+                notifyRemoval(e.key, references.unwrap(e.value), RemovalCause.CLEARED);
+            });
+            table = newTable(table.length);
+            size = 0;
+            ways.clear();
+            if (nonNull(bloomFilter)) {
+                bloomFilter.clear();
+            }
+            while (nonNull(references.poll())) {
+                // the entries of reclaimed values are gone already
+            }
+            policyLock.lock();
+            try {
+                readBuffer.clear();
+                replacementAlgorithm.reset();
+            } finally {
+                policyLock.unlock();
+            }
+        } finally {
+            unlockWrite(stamp);
+        }
+    }
+
+    public ReplacementAlgorithm<K, V> getReplacementAlgorithm() {
+        return replacementAlgorithm;
+    }
+
+    @Override
+    public void setReplacementAlgorithm(ReplacementAlgorithm<K, V> replacementAlgorithm) {
+        if (isNull(this.replacementAlgorithm)) {
+            this.replacementAlgorithm = replacementAlgorithm;
+        }
+    }
+
+    @Override
+    public void setRemovalListener(RemovalListener<K, V> removalListener) {
+        this.removalListener = removalListener;
+    }
+
+    @Override
+    public void setBloomFilter(CountingBloomFilter bloomFilter) {
+        long stamp = lockWrite();
+        try {
+            if (nonNull(bloomFilter)) {
+                bloomFilter.clear();
+                forEachEntryUnlocked(e -> bloomFilter.add(e.key));
+            }
+            this.bloomFilter = bloomFilter;
+        } finally {
+            unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public CountingBloomFilter getBloomFilter() {
+        return bloomFilter;
+    }
+
+    @Override
+    public void setValueStrength(ValueStrength valueStrength) {
+        long stamp = lockWrite();
+        try {
+            references = new ValueReferences<>(valueStrength);
+        } finally {
+            unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void setMaintenance(Maintenance maintenance) {
+        long stamp = lockWrite();
+        try {
+            this.maintenance = maintenance;
+            updateWatermarks();
+            // room for the full capacity even while it is lowered
+            resize(tableSizeFor(isNull(maintenance) ? blockSize : maintenance.highWatermark(blockSize)));
+        } finally {
+            unlockWrite(stamp);
+        }
+    }
+
+    private void resize(int capacity) {
+        Entry<K, V>[] oldTable = table;
+        if (oldTable.length == capacity) {
+            return;
+        }
+        Entry<K, V>[] newTable = newTable(capacity);
+        int newMask = capacity - 1;
+        for (Entry<K, V> e : oldTable) {
+            if (nonNull(e)) {
+                int i = e.hash & newMask;
+                while (nonNull(newTable[i])) {
+                    i = (i + 1) & newMask;
+                }
+                newTable[i] = e;
+            }
+        }
+        mask = newMask;
+        table = newTable;
+    }
+
+    @Override
+    public int size() {
+        if (isWriteLockedByCurrentThread()) {
+            // the replacement algorithm evicts from what is stored
+            return size;
+        }
+        // the entries of reclaimed values are not counted even before they are
+        // expunged
+        return size - references.staleEntries();
+    }
+
+    @Override
+    public int maxSize() {
+        return blockSize;
+    }
+
+    @Override
+    public void setCapacity(int capacity) {
+        if (capacity <= 0 || capacity > blockSize) {
+            throw new IllegalArgumentException("Capacity must be between 1 and the maximum size");
+        }
+        long stamp = lockWrite();
+        try {
+            this.capacity = capacity;
+            updateWatermarks();
+        } finally {
+            unlockWrite(stamp);
+        }
+        performMaintenance();
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Must be called under the write lock.
+     */
+    private void updateWatermarks() {
+        highWatermark = isNull(maintenance) ? capacity : maintenance.highWatermark(capacity);
+        lowWatermark = isNull(maintenance) ? capacity : maintenance.lowWatermark(capacity);
+    }
+
+    /**
+     * Must be called under the write lock, as replacement algorithms do while
+     * evicting.
+     */
+    @Override
+    public K keyAt(int way) {
+        return ways.keyAt(way);
+    }
+
+    @Override
+    public long getEvictionCount() {
+        return evictions;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public Collection<K> keys() {
+        List<K> keys = new ArrayList<>();
+        forEachEntry(e -> keys.add(e.key));
+        return keys;
+    }
+
+    @Override
+    public Collection<V> values() {
+        List<V> values = new ArrayList<>();
+        forEachEntry(e -> {
+            if (!references.isCollected(e.value)) {
+                values.add(references.unwrap(e.value));
+            }
+        });
+        return values;
+    }
+
+    private void forEachEntry(Consumer<Entry<K, V>> action) {
+        if (isWriteLockedByCurrentThread()) {
+            forEachEntryUnlocked(action);
+            return;
+        }
+        long stamp = lock.readLock();
+        try {
+            forEachEntryUnlocked(action);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private void forEachEntryUnlocked(Consumer<Entry<K, V>> action) {
+        for (Entry<K, V> e : table) {
+            if (nonNull(e)) {
+                action.accept(e);
+            }
+        }
+    }
+
+    /**
+     * Immutable so that an optimistic reader always sees a key together with the
+     * value it was stored with.
+     */
+    private static class Entry<K, V> {
+
+        private final K key;
+        private final Object value;
+        private final int hash;
+        private final int way;
+        private final long insertionTime;
+
+        /**
+         * @param value
+         *            the value as wrapped by the set's ValueReferences
+         */
+        public Entry(K key, Object value, int hash, int way, long insertionTime) {
+            this.key = key;
+            this.value = value;
+            this.hash = hash;
+            this.way = way;
+            this.insertionTime = insertionTime;
+        }
+    }
+}
@@ -1,15 +1,17 @@
-package cache.subcache;
-
-public class SubCacheFactory {
-
-    public static <K, V> CacheSet<K, V> get(SubCacheType cacheType, int totalBlocks) {
-       switch (cacheType) {
-       default:
-           return new HashMapCacheSet<>(totalBlocks);
-       }
-    }
-
-    public static enum SubCacheType {
-        HASH_MAP_CACHE_SET;
-    }
-}
+package cache.subcache;
+
+public class SubCacheFactory {
+
+    public static <K, V> CacheSet<K, V> get(SubCacheType cacheType, int totalBlocks) {
+       switch (cacheType) {
+       case STAMPED_LOCK_CACHE_SET:
+           return new StampedLockCacheSet<>(totalBlocks);
+       default:
+           return new HashMapCacheSet<>(totalBlocks);
+       }
+    }
+
+    public static enum SubCacheType {
+        HASH_MAP_CACHE_SET, STAMPED_LOCK_CACHE_SET;
+    }
+}
@@ -0,0 +1,184 @@
+package cache.subcache;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * Wraps the values of a cache set in weak or soft references registered with
+ * a ReferenceQueue, so the set can find the entries whose values the garbage
+ * collector reclaimed. With STRONG values nothing is wrapped. Entries store
+ * whatever wrap() returned and read it back with unwrap().
+ * <p>
+ * A reference is retired exactly once, either by release() when its entry
+ * stops storing it or by whoever takes it off the ReferenceQueue first. The
+ * latter counts it as reclaimed until the set expunges or replaces its entry,
+ * so the set can tell how many of its entries are stale without its lock.
+ *
+ * @param <K>
+ *            the type of keys maintained by the cache set
+ * @param <V>
+ *            the type of mapped values
+ */
+class ValueReferences<K, V> {
+
+    private final ValueStrength strength;
+    private final ReferenceQueue<V> queue = new ReferenceQueue<>();
+    private final Queue<ValueReference<K>> reclaimed = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger stale = new AtomicInteger();
+
+    ValueReferences(ValueStrength strength) {
+        this.strength = isNull(strength) ? ValueStrength.STRONG : strength;
+    }
+
+    boolean isStrong() {
+        return strength == ValueStrength.STRONG;
+    }
+
+    /**
+     * @return what an entry should store for the value
+     */
+    Object wrap(K key, V value) {
+        if (isNull(value)) {
+            return null;
+        }
+        switch (strength) {
+        case WEAK:
+            return new WeakValue<>(key, value, queue);
+        case SOFT:
+            return new SoftValue<>(key, value, queue);
+        default:
+            return value;
+        }
+    }
+
+    /**
+     * @return the value stored by wrap(), or null if it was reclaimed
+     */
+    @SuppressWarnings("unchecked")
+    V unwrap(Object stored) {
+        if (stored instanceof ValueReference) {
+            return ((Reference<V>) stored).get();
+        }
+        return (V) stored;
+    }
+
+    /**
+     * @return true if the stored value was reclaimed by the garbage collector
+     */
+    boolean isCollected(Object stored) {
+        return stored instanceof ValueReference && isNull(((Reference<?>) stored).get());
+    }
+
+    /**
+     * @return the next reference whose value was reclaimed, or null if there is
+     *         none. The entry it belongs to is only stale if it still stores this
+     *         reference, expunging it must release() the reference.
+     */
+    ValueReference<K> poll() {
+        if (isStrong()) {
+            return null;
+        }
+        staleEntries();
+        return reclaimed.poll();
+    }
+
+    /**
+     * Takes the references the garbage collector enqueued, safe to call without
+     * the set's lock.
+     *
+     * @return how many entries still store a reference whose value was reclaimed
+     */
+    @SuppressWarnings("unchecked")
+    int staleEntries() {
+        if (isStrong()) {
+            return 0;
+        }
+        ValueReference<K> reference;
+        while (nonNull(reference = (ValueReference<K>) queue.poll())) {
+            if (reference.retire()) {
+                stale.incrementAndGet();
+                reclaimed.add(reference);
+            }
+        }
+        return stale.get();
+    }
+
+    /**
+     * Must be called once an entry no longer stores what wrap() returned, because
+     * it was replaced, removed or expunged.
+     */
+    void release(Object stored) {
+        if (stored instanceof ValueReference && !((ValueReference<?>) stored).retire()) {
+            // counted as stale when it was taken off the queue
+            stale.decrementAndGet();
+        }
+    }
+
+    interface ValueReference<K> {
+        K getKey();
+
+        /**
+         * @return true for the first call only
+         */
+        boolean retire();
+    }
+
+    private static final class WeakValue<K, V> extends WeakReference<V> implements ValueReference<K> {
+
+        @SuppressWarnings("rawtypes")
+        private static final AtomicIntegerFieldUpdater<WeakValue> RETIRED = AtomicIntegerFieldUpdater
+            .newUpdater(WeakValue.class, "retired");
+
+        private final K key;
+        private volatile int retired = 0;
+
+        WeakValue(K key, V value, ReferenceQueue<V> queue) {
+            super(value, queue);
+            this.key = key;
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public boolean retire() {
+            return RETIRED.compareAndSet(this, 0, 1);
+        }
+    }
+
+    private static final class SoftValue<K, V> extends SoftReference<V> implements ValueReference<K> {
+
+        @SuppressWarnings("rawtypes")
+        private static final AtomicIntegerFieldUpdater<SoftValue> RETIRED = AtomicIntegerFieldUpdater
+            .newUpdater(SoftValue.class, "retired");
+
+        private final K key;
+        private volatile int retired = 0;
+
+        SoftValue(K key, V value, ReferenceQueue<V> queue) {
+            super(value, queue);
+            this.key = key;
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public boolean retire() {
+            return RETIRED.compareAndSet(this, 0, 1);
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package cache.subcache;
+
+/**
+ * How a cache set holds on to its values.
+ */
+public enum ValueStrength {
+    /**
+     * Values are held like in any map, the default
+     */
+    STRONG,
+    /**
+     * Values are held through weak references, an entry goes away as soon as
+     * nothing outside the cache uses its value
+     */
+    WEAK,
+    /**
+     * Values are held through soft references, the garbage collector reclaims
+     * them when memory runs low, least recently used first
+     */
+    SOFT;
+}
@@ -0,0 +1,55 @@
+package cache.subcache;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Hands out the ways of a cache set: every entry gets the lowest index that is
+ * free when it is inserted and keeps it until it leaves the set, when the index
+ * is free again. Replacement algorithms that keep their state in arrays or bits
+ * address entries by way instead of by key. Not thread safe, the set calls it
+ * under its write lock.
+ *
+ * @param <K>
+ *            the type of keys maintained by the cache set
+ */
+class Ways<K> {
+
+    private final BitSet used = new BitSet();
+    private Object[] keys;
+
+    Ways(int initialWays) {
+        keys = new Object[Math.max(1, initialWays)];
+    }
+
+    /**
+     * @return the way the key now holds
+     */
+    int claim(K key) {
+        int way = used.nextClearBit(0);
+        if (way >= keys.length) {
+            keys = Arrays.copyOf(keys, Math.max(way + 1, keys.length * 2));
+        }
+        used.set(way);
+        keys[way] = key;
+        return way;
+    }
+
+    void release(int way) {
+        used.clear(way);
+        keys[way] = null;
+    }
+
+    @SuppressWarnings("unchecked")
+    K keyAt(int way) {
+        if (way < 0 || way >= keys.length || !used.get(way)) {
+            throw new IllegalArgumentException("No entry holds way " + way);
+        }
+        return (K) keys[way];
+    }
+
+    void clear() {
+        used.clear();
+        Arrays.fill(keys, null);
+    }
+}
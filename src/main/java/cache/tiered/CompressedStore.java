@@ -0,0 +1,285 @@
+package cache.tiered;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * A byte store outside the heap for the warm tier of a TieredCache. Values are
+ * deflated and appended to a fixed size buffer, either direct memory or a
+ * memory mapped file, that is used as a ring: when the writer comes around, the
+ * oldest values are dropped to make room. Only the index of keys to positions
+ * stays on the heap.
+ * <p>
+ * Compression and decompression happen outside the store's lock, only copying
+ * bytes in and out of the buffer is done under it.
+ */
+public class CompressedStore {
+
+    private static final Object NULL_KEY = new Object();
+
+    private final ThreadLocal<Deflater> deflaters = ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED));
+    private final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(Inflater::new);
+
+    private final ByteBuffer buffer;
+    private final int capacity;
+    private final Map<Object, Slot> index = new HashMap<>();
+    private final Deque<Slot> order = new ArrayDeque<>();
+    private int position = 0;
+    private long usedBytes = 0L;
+    private long uncompressedBytes = 0L;
+    private long evictions = 0L;
+
+    /**
+     * @param buffer
+     *            the buffer the compressed values are kept in, its whole capacity
+     *            is used
+     */
+    public CompressedStore(ByteBuffer buffer) {
+        if (isNull(buffer) || buffer.capacity() == 0) {
+            throw new IllegalArgumentException("A buffer with a capacity was never given");
+        }
+        this.buffer = buffer.duplicate();
+        capacity = buffer.capacity();
+    }
+
+    /**
+     * @param capacity
+     *            the number of bytes of direct memory to keep compressed values in
+     */
+    public static CompressedStore offHeap(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be greater than 0");
+        }
+        return new CompressedStore(ByteBuffer.allocateDirect(capacity));
+    }
+
+    /**
+     * @param file
+     *            the file to keep compressed values in, created if it does not
+     *            exist. Its contents are not read back, the store starts empty
+     * @param capacity
+     *            the size of the file in bytes
+     * @throws IOException
+     *             if the file cannot be mapped
+     */
+    public static CompressedStore file(Path file, int capacity) throws IOException {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be greater than 0");
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE)) {
+            return new CompressedStore(channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity));
+        }
+    }
+
+    /**
+     * Compresses and keeps the value, replacing the key's previous value and
+     * dropping the oldest values if there is no room.
+     *
+     * @param key
+     *            the key of the value
+     * @param value
+     *            the serialized value
+     * @return false if the value does not fit into the store even when it is
+     *         compressed
+     */
+    public boolean put(Object key, byte[] value) {
+        byte[] compressed = deflate(value);
+        if (compressed.length > capacity) {
+            remove(key);
+            return false;
+        }
+        synchronized (this) {
+            int start = position;
+            boolean wrapped = start + compressed.length > capacity;
+            if (wrapped) {
+                start = 0;
+            }
+            while (!order.isEmpty()) {
+                Slot oldest = order.peekFirst();
+                boolean overwritten = oldest.offset < start + compressed.length
+                    && start < oldest.offset + oldest.length;
+                boolean skipped = wrapped && oldest.offset >= position;
+                if (!overwritten && !skipped) {
+                    break;
+                }
+                order.pollFirst();
+                if (oldest.live) {
+                    index.remove(oldest.key);
+                    release(oldest);
+                    evictions++;
+                }
+            }
+            buffer.position(start);
+            buffer.put(compressed);
+            position = start + compressed.length;
+            Slot slot = new Slot(mask(key), start, compressed.length, value.length);
+            order.addLast(slot);
+            Slot previous = index.put(slot.key, slot);
+            if (nonNull(previous)) {
+                release(previous);
+            }
+            usedBytes += slot.length;
+            uncompressedBytes += slot.uncompressedLength;
+        }
+        return true;
+    }
+
+    /**
+     * @return the serialized value of the key, or null if the store does not
+     *         have it
+     */
+    public byte[] get(Object key) {
+        byte[] compressed;
+        int uncompressedLength;
+        synchronized (this) {
+            Slot slot = index.get(mask(key));
+            if (isNull(slot)) {
+                return null;
+            }
+            compressed = read(slot);
+            uncompressedLength = slot.uncompressedLength;
+        }
+        return inflate(compressed, uncompressedLength);
+    }
+
+    /**
+     * @return the serialized value the key had, or null if the store did not have
+     *         it
+     */
+    public byte[] remove(Object key) {
+        byte[] compressed;
+        int uncompressedLength;
+        synchronized (this) {
+            Slot slot = index.remove(mask(key));
+            if (isNull(slot)) {
+                return null;
+            }
+            compressed = read(slot);
+            uncompressedLength = slot.uncompressedLength;
+            release(slot);
+        }
+        return inflate(compressed, uncompressedLength);
+    }
+
+    public synchronized boolean containsKey(Object key) {
+        return index.containsKey(mask(key));
+    }
+
+    public synchronized void clear() {
+        index.clear();
+        order.clear();
+        position = 0;
+        usedBytes = 0L;
+        uncompressedBytes = 0L;
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the number of compressed bytes of the values in the store
+     */
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * @return the number of bytes the values in the store had before they were
+     *         compressed
+     */
+    public synchronized long getUncompressedBytes() {
+        return uncompressedBytes;
+    }
+
+    /**
+     * @return the number of values dropped to make room for newer ones
+     */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    private void release(Slot slot) {
+        slot.live = false;
+        usedBytes -= slot.length;
+        uncompressedBytes -= slot.uncompressedLength;
+    }
+
+    private byte[] read(Slot slot) {
+        byte[] bytes = new byte[slot.length];
+        buffer.position(slot.offset);
+        buffer.get(bytes);
+        return bytes;
+    }
+
+    private byte[] deflate(byte[] value) {
+        Deflater deflater = deflaters.get();
+        deflater.reset();
+        deflater.setInput(value);
+        deflater.finish();
+        byte[] out = new byte[value.length + value.length / 1000 + 64];
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == out.length) {
+                out = Arrays.copyOf(out, out.length * 2);
+            }
+            length += deflater.deflate(out, length, out.length - length);
+        }
+        return Arrays.copyOf(out, length);
+    }
+
+    private byte[] inflate(byte[] compressed, int uncompressedLength) {
+        Inflater inflater = inflaters.get();
+        inflater.reset();
+        inflater.setInput(compressed);
+        byte[] out = new byte[uncompressedLength];
+        try {
+            int length = 0;
+            while (length < uncompressedLength && !inflater.finished()) {
+                length += inflater.inflate(out, length, uncompressedLength - length);
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt value in the compressed store", e);
+        }
+        return out;
+    }
+
+    private static Object mask(Object key) {
+        return isNull(key) ? NULL_KEY : key;
+    }
+
+    private static final class Slot {
+
+        private final Object key;
+        private final int offset;
+        private final int length;
+        private final int uncompressedLength;
+        private boolean live = true;
+
+        Slot(Object key, int offset, int length, int uncompressedLength) {
+            this.key = key;
+            this.offset = offset;
+            this.length = length;
+            this.uncompressedLength = uncompressedLength;
+        }
+    }
+}
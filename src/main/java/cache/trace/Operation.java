@@ -0,0 +1,29 @@
+package cache.trace;
+
+/**
+ * The cache operation of a trace record. The ordinal is the code stored in
+ * binary traces.
+ */
+public enum Operation {
+    GET, PUT, REMOVE;
+
+    private static final Operation[] VALUES = values();
+
+    /**
+     * @param code
+     *            the code read from a binary trace
+     * @return the operation with the given code
+     * @throws IllegalArgumentException
+     *             if there is no operation with the code
+     */
+    public static Operation fromCode(int code) {
+        if (code < 0 || code >= VALUES.length) {
+            throw new IllegalArgumentException("Unknown operation code " + code);
+        }
+        return VALUES[code];
+    }
+
+    public byte getCode() {
+        return (byte) ordinal();
+    }
+}
@@ -0,0 +1,79 @@
+package cache.trace;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Layout of binary access traces. A trace starts with an 8 byte header, the
+ * magic number and the version, followed by fixed size big-endian records:
+ *
+ * <pre>
+ * long  timestamp  nanoseconds, only meaningful relative to other records
+ * long  key        the key, or a 64 bit hash of it
+ * byte  operation  Operation.getCode()
+ * byte  outcome    HIT, MISS or UNKNOWN
+ * short reserved
+ * int   setIndex   the set the key mapped to, -1 if unknown
+ * </pre>
+ */
+public final class TraceFormat {
+
+    public static final int MAGIC = 0x43545243;
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 8;
+    public static final int RECORD_SIZE = 24;
+
+    public static final byte MISS = 0;
+    public static final byte HIT = 1;
+    public static final byte UNKNOWN = -1;
+
+    private TraceFormat() {
+    }
+
+    public static void writeHeader(ByteBuffer buffer) {
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+    }
+
+    /**
+     * @throws IOException
+     *             if the buffer does not start with a trace header of a
+     *             supported version
+     */
+    public static void readHeader(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a binary cache trace");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported trace version " + version);
+        }
+    }
+
+    public static void writeRecord(ByteBuffer buffer, long timestamp, long key, Operation operation, byte outcome,
+        int setIndex) {
+        buffer.putLong(timestamp);
+        buffer.putLong(key);
+        buffer.put(operation.getCode());
+        buffer.put(outcome);
+        buffer.putShort((short) 0);
+        buffer.putInt(setIndex);
+    }
+
+    /**
+     * @return the key itself for whole number keys, otherwise a 64 bit mix of the
+     *         key's hashCode()
+     */
+    public static long keyHash(Object key) {
+        if (key instanceof Long || key instanceof Integer || key instanceof Short || key instanceof Byte) {
+            return ((Number) key).longValue();
+        }
+        long h = key == null ? 0L : key.hashCode();
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
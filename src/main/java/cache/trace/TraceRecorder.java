@@ -0,0 +1,422 @@
+package cache.trace;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+import cache.diagnostics.AccessObserver;
+
+/**
+ * Records the accesses of a cache to binary trace files in the TraceFormat
+ * layout, for replay in the simulator. Add it to a NWaySetAssociativeCache as
+ * an AccessObserver.
+ * <p>
+ * Keys are sampled by hash, so every access to a sampled key is recorded and
+ * the trace stays usable for simulating a proportionally smaller cache. A
+ * recording thread only writes its record into one of a fixed number of ring
+ * buffers, picked by thread id; a background thread drains the rings, merged
+ * by timestamp, and writes them through a FileChannel. A ring is allocated the
+ * first time a thread records into it, so memory is bounded however many
+ * threads come and go. If a ring is full the record is dropped and counted
+ * rather than waiting for the background thread. Files are named trace-N.bin
+ * and rotate once they reach the maximum file size, the oldest file is deleted
+ * once there are more than the maximum number of files.
+ * <p>
+ * Records are written in timestamp order within every flush. Only a thread
+ * descheduled between reading the clock and publishing its record can have it
+ * written by the next flush instead, after newer records.
+ */
+public class TraceRecorder implements AccessObserver, AutoCloseable {
+
+    public static final long DEFAULT_MAX_FILE_SIZE = 64L << 20;
+    public static final int DEFAULT_MAX_FILES = 8;
+    static final int RING_SIZE = 4096;
+    static final int STRIPES = Math.min(64,
+        Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors()) * 2 - 1) * 2);
+    private static final int WRITE_BUFFER_RECORDS = 8192;
+
+    private final AtomicReferenceArray<Ring> rings = new AtomicReferenceArray<>(STRIPES);
+    private final Ring[] merging = new Ring[STRIPES];
+    private final ReentrantLock drainLock = new ReentrantLock();
+    private final ByteBuffer writeBuffer = ByteBuffer.allocateDirect(WRITE_BUFFER_RECORDS * TraceFormat.RECORD_SIZE);
+    private final ScheduledExecutorService scheduler;
+
+    private final Path directory;
+    private final int sampleRate;
+    private final long maxFileSize;
+    private final int maxFiles;
+
+    private FileChannel channel;
+    private long fileSize;
+    private int fileIndex = -1;
+    private volatile IOException failure;
+    private volatile boolean closed = false;
+
+    /**
+     * @param directory
+     *            the existing directory the trace files are written to
+     * @param sampleRate
+     *            one in every sampleRate keys is recorded, 1 records every key
+     * @param maxFileSize
+     *            the size in bytes at which a file is rotated
+     * @param maxFiles
+     *            the most files kept at once
+     * @param flushInterval
+     *            how long to wait between draining the ring buffers
+     * @param unit
+     *            the unit of flushInterval
+     * @throws IOException
+     *             if the first trace file cannot be created
+     */
+    public TraceRecorder(Path directory, int sampleRate, long maxFileSize, int maxFiles, long flushInterval,
+        TimeUnit unit) throws IOException {
+        if (isNull(directory)) {
+            throw new IllegalArgumentException("A directory was never given");
+        }
+        if (sampleRate <= 0) {
+            throw new IllegalArgumentException("Sample rate must be greater than 0");
+        }
+        if (maxFileSize < TraceFormat.HEADER_SIZE + TraceFormat.RECORD_SIZE) {
+            throw new IllegalArgumentException("Maximum file size must hold at least one record");
+        }
+        if (maxFiles <= 0) {
+            throw new IllegalArgumentException("Maximum files must be greater than 0");
+        }
+        if (flushInterval <= 0) {
+            throw new IllegalArgumentException("Flush interval must be greater than 0");
+        }
+        this.directory = directory;
+        this.sampleRate = sampleRate;
+        this.maxFileSize = maxFileSize;
+        this.maxFiles = maxFiles;
+        rotate();
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "cache-trace-recorder");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, flushInterval, flushInterval, unit);
+    }
+
+    public TraceRecorder(Path directory, int sampleRate) throws IOException {
+        this(directory, sampleRate, DEFAULT_MAX_FILE_SIZE, DEFAULT_MAX_FILES, 10, TimeUnit.MILLISECONDS);
+    }
+
+    private Ring ring() {
+        long id = Thread.currentThread().getId();
+        int index = (int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & (STRIPES - 1);
+        Ring r = rings.get(index);
+        if (isNull(r)) {
+            rings.compareAndSet(index, null, new Ring());
+            r = rings.get(index);
+        }
+        return r;
+    }
+
+    @Override
+    public void onAccess(Object key, int setIndex, boolean hit) {
+        record(key, setIndex, Operation.GET, hit ? TraceFormat.HIT : TraceFormat.MISS);
+    }
+
+    @Override
+    public void onPut(Object key, int setIndex) {
+        record(key, setIndex, Operation.PUT, TraceFormat.UNKNOWN);
+    }
+
+    @Override
+    public void onRemove(Object key, int setIndex) {
+        record(key, setIndex, Operation.REMOVE, TraceFormat.UNKNOWN);
+    }
+
+    private void record(Object key, int setIndex, Operation operation, byte outcome) {
+        long keyHash = TraceFormat.keyHash(key);
+        if (sampleRate > 1 && Long.remainderUnsigned(mix(keyHash), sampleRate) != 0) {
+            return;
+        }
+        long packed = (long) setIndex << 32 | (outcome & 0xffL) << 8 | operation.getCode();
+        ring().offer(System.nanoTime(), keyHash, packed);
+    }
+
+    private static long mix(long h) {
+        h ^= h >>> 31;
+        h *= 0x7fb5d329728ea185L;
+        h ^= h >>> 27;
+        return h;
+    }
+
+    /**
+     * Writes every record in the ring buffers to the current trace file on the
+     * calling thread, oldest first.
+     *
+     * @throws IOException
+     *             if writing failed, now or on the background thread, in which
+     *             case nothing more is written
+     */
+    public void flush() throws IOException {
+        drainLock.lock();
+        try {
+            if (nonNull(failure)) {
+                throw failure;
+            }
+            try {
+                merge();
+                writeOut();
+                channel.force(false);
+            } catch (IOException e) {
+                failure = e;
+                throw e;
+            }
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    /**
+     * Appends the published records of every ring, picking the ring with the
+     * oldest next record each time. Only a few rings are busy at once, so a scan
+     * is cheaper than a heap.
+     */
+    private void merge() throws IOException {
+        int active = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            Ring r = rings.get(i);
+            if (nonNull(r) && r.startDrain()) {
+                merging[active++] = r;
+            }
+        }
+        try {
+            while (active > 0) {
+                int oldest = 0;
+                for (int i = 1; i < active; i++) {
+                    if (merging[i].nextTimestamp() - merging[oldest].nextTimestamp() < 0) {
+                        oldest = i;
+                    }
+                }
+                if (!merging[oldest].drainNextTo(this)) {
+                    merging[oldest] = merging[--active];
+                    merging[active] = null;
+                }
+            }
+        } finally {
+            for (int i = 0; i < active; i++) {
+                merging[i].finishDrain();
+                merging[i] = null;
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException e) {
+            // kept in failure, the rings fill up and further records are dropped
+        }
+    }
+
+    private void append(long timestamp, long key, long packed) throws IOException {
+        if (writeBuffer.remaining() < TraceFormat.RECORD_SIZE) {
+            writeOut();
+        }
+        TraceFormat.writeRecord(writeBuffer, timestamp, key, Operation.fromCode((int) (packed & 0xff)),
+            (byte) (packed >>> 8), (int) (packed >>> 32));
+    }
+
+    private void writeOut() throws IOException {
+        writeBuffer.flip();
+        while (writeBuffer.hasRemaining()) {
+            if (fileSize + TraceFormat.RECORD_SIZE > maxFileSize) {
+                rotate();
+            }
+            int records = (int) Math.min(writeBuffer.remaining(), maxFileSize - fileSize) / TraceFormat.RECORD_SIZE;
+            ByteBuffer slice = writeBuffer.duplicate();
+            slice.limit(slice.position() + records * TraceFormat.RECORD_SIZE);
+            while (slice.hasRemaining()) {
+                fileSize += channel.write(slice);
+            }
+            writeBuffer.position(slice.position());
+        }
+        writeBuffer.clear();
+    }
+
+    private void rotate() throws IOException {
+        if (nonNull(channel)) {
+            channel.close();
+        }
+        fileIndex++;
+        Files.deleteIfExists(file(fileIndex - maxFiles));
+        channel = FileChannel.open(file(fileIndex), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+            StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(TraceFormat.HEADER_SIZE);
+        TraceFormat.writeHeader(header);
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+        fileSize = TraceFormat.HEADER_SIZE;
+    }
+
+    /**
+     * @return the path of the trace file with the given index
+     */
+    public Path file(int index) {
+        return directory.resolve("trace-" + index + ".bin");
+    }
+
+    /**
+     * @return the index of the file currently being written
+     */
+    public int getFileIndex() {
+        drainLock.lock();
+        try {
+            return fileIndex;
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    /**
+     * @return the number of records dropped because a ring buffer was full
+     */
+    public long getDropped() {
+        long dropped = 0L;
+        for (int i = 0; i < STRIPES; i++) {
+            Ring r = rings.get(i);
+            if (nonNull(r)) {
+                dropped += r.dropped.get();
+            }
+        }
+        return dropped;
+    }
+
+    /**
+     * Stops the background thread, writes the remaining records and closes the
+     * current trace file.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * A multiple producer, single consumer ring of records. Producers claim a slot
+     * by advancing the tail and publish it through the slot's sequence number;
+     * only the thread holding the drain lock drains, up to the first slot that
+     * is claimed but not yet published. Producers sharing a ring may publish
+     * out of timestamp order, so the drainer sorts the published slots first;
+     * producers do not touch them until the head moves past them.
+     */
+    private static class Ring {
+
+        private static final int MASK = RING_SIZE - 1;
+
+        private final long[] slots = new long[RING_SIZE * 3];
+        private final AtomicLongArray published = new AtomicLongArray(RING_SIZE);
+        private final AtomicLong tail = new AtomicLong();
+        private final AtomicLong dropped = new AtomicLong();
+        private volatile long head = 0L;
+        // only used by the drainer
+        private long next;
+        private long limit;
+
+        void offer(long timestamp, long key, long packed) {
+            long t;
+            do {
+                t = tail.get();
+                if (t - head >= RING_SIZE) {
+                    dropped.incrementAndGet();
+                    return;
+                }
+            } while (!tail.compareAndSet(t, t + 1));
+            int slot = (int) (t & MASK);
+            int i = slot * 3;
+            slots[i] = timestamp;
+            slots[i + 1] = key;
+            slots[i + 2] = packed;
+            // publishes the slots written above
+            published.lazySet(slot, t + 1);
+        }
+
+        /**
+         * Sorts the published records by timestamp.
+         *
+         * @return true if there is a record to drain
+         */
+        boolean startDrain() {
+            next = head;
+            long t = tail.get();
+            limit = next;
+            while (limit < t && published.get((int) (limit & MASK)) == limit + 1) {
+                limit++;
+            }
+            // insertion sort, records are out of order only across a few slots
+            for (long h = next + 1; h < limit; h++) {
+                int i = (int) (h & MASK) * 3;
+                long timestamp = slots[i];
+                long key = slots[i + 1];
+                long packed = slots[i + 2];
+                long j = h;
+                for (; j > next; j--) {
+                    int prev = (int) ((j - 1) & MASK) * 3;
+                    if (slots[prev] - timestamp <= 0) {
+                        break;
+                    }
+                    System.arraycopy(slots, prev, slots, (int) (j & MASK) * 3, 3);
+                }
+                int k = (int) (j & MASK) * 3;
+                slots[k] = timestamp;
+                slots[k + 1] = key;
+                slots[k + 2] = packed;
+            }
+            return next < limit;
+        }
+
+        long nextTimestamp() {
+            return slots[(int) (next & MASK) * 3];
+        }
+
+        /**
+         * @return true if there is another record to drain
+         */
+        boolean drainNextTo(TraceRecorder recorder) throws IOException {
+            int i = (int) (next & MASK) * 3;
+            recorder.append(slots[i], slots[i + 1], slots[i + 2]);
+            next++;
+            if (next < limit) {
+                return true;
+            }
+            finishDrain();
+            return false;
+        }
+
+        void finishDrain() {
+            head = next;
+        }
+    }
+}
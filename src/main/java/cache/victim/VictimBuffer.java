@@ -0,0 +1,182 @@
+package cache.victim;
+
+import static java.util.Objects.isNull;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * A small fully associative buffer for the entries evicted from the sets of a
+ * cache. Two hot keys that map to the same set keep evicting each other; with a
+ * victim buffer the evicted one waits here, and the miss that follows in its
+ * set finds it and swaps it back in instead of going to the backing store.
+ * <p>
+ * The buffer holds at most capacity entries and drops the oldest when it is
+ * full. It is built on a ConcurrentHashMap and a ConcurrentLinkedQueue, so it
+ * takes no lock and may be fed while a set's lock is held. Null values are not
+ * kept.
+ *
+ * @param <K>
+ *            the type of keys maintained by the cache
+ * @param <V>
+ *            the type of mapped values
+ */
+public class VictimBuffer<K, V> {
+
+    private static final Object NULL_KEY = new Object();
+
+    private final ConcurrentMap<Object, Victim<K, V>> victims = new ConcurrentHashMap<>();
+    private final Queue<Victim<K, V>> order = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final int capacity;
+
+    /**
+     * @param capacity
+     *            the most entries the buffer holds, must be greater than 0
+     */
+    public VictimBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be greater than 0");
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Adds an entry that was evicted from its set, dropping the oldest entries if
+     * the buffer is over its capacity.
+     *
+     * @param key
+     *            the key of the evicted entry
+     * @param value
+     *            the value of the evicted entry
+     * @param dropped
+     *            receives every entry that was dropped, these have now left the
+     *            cache for good
+     */
+    public void offer(K key, V value, BiConsumer<K, V> dropped) {
+        if (isNull(value)) {
+            return;
+        }
+        Victim<K, V> victim = new Victim<>(key, value);
+        Victim<K, V> previous = victims.put(mask(key), victim);
+        if (isNull(previous)) {
+            size.incrementAndGet();
+        } else {
+            order.remove(previous);
+        }
+        order.offer(victim);
+        while (size.get() > capacity) {
+            Victim<K, V> oldest = order.poll();
+            if (isNull(oldest)) {
+                break;
+            }
+            if (victims.remove(mask(oldest.key), oldest)) {
+                size.decrementAndGet();
+                dropped.accept(oldest.key, oldest.value);
+            }
+        }
+    }
+
+    /**
+     * Removes an entry after a miss in its set, counting a hit if it was found and
+     * a miss otherwise.
+     *
+     * @param key
+     *            the key that missed
+     * @return the value of the entry, or null if the buffer does not hold the key
+     */
+    public V take(Object key) {
+        V value = remove(key);
+        if (isNull(value)) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return value;
+    }
+
+    /**
+     * Removes an entry without counting a hit or miss, used when the key was
+     * written or removed.
+     *
+     * @param key
+     *            the key of the entry
+     * @return the value of the entry, or null if the buffer does not hold the key
+     */
+    public V remove(Object key) {
+        Victim<K, V> victim = victims.remove(mask(key));
+        if (isNull(victim)) {
+            return null;
+        }
+        size.decrementAndGet();
+        order.remove(victim);
+        return victim.value;
+    }
+
+    /**
+     * @return true if the buffer holds the key
+     */
+    public boolean containsKey(Object key) {
+        return victims.containsKey(mask(key));
+    }
+
+    /**
+     * Removes every entry.
+     *
+     * @param removed
+     *            receives every removed entry
+     */
+    public void clear(BiConsumer<K, V> removed) {
+        for (Victim<K, V> victim = order.poll(); victim != null; victim = order.poll()) {
+            if (victims.remove(mask(victim.key), victim)) {
+                size.decrementAndGet();
+                removed.accept(victim.key, victim.value);
+            }
+        }
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return the number of misses in a set that the buffer turned into hits
+     */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return the number of misses in a set that the buffer could not serve
+     *         either
+     */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private static Object mask(Object key) {
+        return isNull(key) ? NULL_KEY : key;
+    }
+
+    private static class Victim<K, V> {
+
+        private final K key;
+        private final V value;
+
+        Victim(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+}
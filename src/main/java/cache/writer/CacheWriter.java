@@ -0,0 +1,69 @@
+package cache.writer;
+
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * Writes the changes made to the cache through to a backing store.
+ *
+ * @param <K>
+ *            the type of keys maintained by the cache
+ * @param <V>
+ *            the type of mapped values
+ */
+public interface CacheWriter<K, V> {
+
+    /**
+     * Stores the value for the key in the backing store
+     *
+     * @param key
+     *            the key that was put in the cache
+     * @param value
+     *            the value that was put in the cache
+     */
+    void write(K key, V value);
+
+    /**
+     * Removes the key from the backing store
+     *
+     * @param key
+     *            the key that was removed from the cache
+     */
+    void delete(K key);
+
+    /**
+     * Stores every entry in the backing store, a store that supports batched
+     * writes should override this
+     *
+     * @param entries
+     *            the entries to be stored
+     */
+    default void writeAll(Map<K, V> entries) {
+        entries.forEach(this::write);
+    }
+
+    /**
+     * Removes every key from the backing store, a store that supports batched
+     * deletes should override this
+     *
+     * @param keys
+     *            the keys to be removed
+     */
+    default void deleteAll(Collection<K> keys) {
+        keys.forEach(this::delete);
+    }
+
+    /**
+     * Called when the replacement algorithm evicts an entry from the cache. A
+     * writer that defers writes must make sure a pending write for the key still
+     * reaches the store. This is called while holding the lock of a cache set, so
+     * it must not block.
+     *
+     * @param key
+     *            the key of the evicted entry
+     * @param value
+     *            the value of the evicted entry
+     */
+    default void onEviction(K key, V value) {
+    }
+}
@@ -0,0 +1,248 @@
+package cache.writer;
+
+import static java.util.Objects.isNull;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A CacheWriter that returns immediately and writes to the wrapped writer later
+ * on a background thread. Pending changes are kept per key, so repeated writes
+ * to a key coalesce into a single write of its latest value. Changes are
+ * flushed in batches when enough keys are dirty and at a fixed interval.
+ * <p>
+ * An evicted entry whose write is still pending is moved to the front of the
+ * next flush, since the cache no longer holds its value. If the wrapped writer
+ * throws, the batch is queued again unless the key was written in the
+ * meantime.
+ *
+ * @param <K>
+ *            the type of keys maintained by the cache
+ * @param <V>
+ *            the type of mapped values
+ */
+public class WriteBehindWriter<K, V> implements CacheWriter<K, V>, AutoCloseable {
+
+    private static final Object NULL_KEY = new Object();
+
+    private final ConcurrentMap<Object, PendingWrite<V>> pending = new ConcurrentHashMap<>();
+    private final Queue<Object> urgent = new ConcurrentLinkedQueue<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final AtomicLong flushedBatches = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+
+    private final CacheWriter<K, V> writer;
+    private final ScheduledExecutorService scheduler;
+    private final int batchSize;
+
+    /**
+     * @param writer
+     *            the writer to the backing store, must not be null
+     * @param batchSize
+     *            the most keys handed to the writer at once, a flush is also
+     *            started as soon as this many keys are dirty
+     * @param flushInterval
+     *            how long to wait between periodic flushes
+     * @param unit
+     *            the unit of flushInterval
+     */
+    public WriteBehindWriter(CacheWriter<K, V> writer, int batchSize, long flushInterval, TimeUnit unit) {
+        if (isNull(writer)) {
+            throw new IllegalArgumentException("A cache writer was never given");
+        }
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be greater than 0");
+        }
+        if (flushInterval <= 0) {
+            throw new IllegalArgumentException("Flush interval must be greater than 0");
+        }
+        this.writer = writer;
+        this.batchSize = batchSize;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "cache-write-behind");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, flushInterval, flushInterval, unit);
+    }
+
+    @Override
+    public void write(K key, V value) {
+        enqueue(key, new PendingWrite<>(value, false));
+    }
+
+    @Override
+    public void delete(K key) {
+        enqueue(key, new PendingWrite<>(null, true));
+    }
+
+    private void enqueue(K key, PendingWrite<V> write) {
+        pending.put(mask(key), write);
+        if (pending.size() >= batchSize) {
+            scheduleFlush();
+        }
+    }
+
+    @Override
+    public void onEviction(K key, V value) {
+        Object masked = mask(key);
+        if (pending.containsKey(masked)) {
+            urgent.offer(masked);
+            scheduleFlush();
+        }
+    }
+
+    private void scheduleFlush() {
+        if (flushScheduled.compareAndSet(false, true)) {
+            try {
+                scheduler.execute(() -> {
+                    flushScheduled.set(false);
+                    flushQuietly();
+                });
+            } catch (RejectedExecutionException e) {
+                // closed, close() flushes whatever is left
+                flushScheduled.set(false);
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            // the batch was queued again and is retried on the next flush
+        }
+    }
+
+    /**
+     * Writes every pending change to the wrapped writer on the calling thread.
+     *
+     * @throws RuntimeException
+     *             whatever the wrapped writer threw, the failed batch stays pending
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            boolean more;
+            do {
+                more = flushBatch();
+            } while (more);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * @return true if a full batch was written and there may be more
+     */
+    private boolean flushBatch() {
+        Map<Object, PendingWrite<V>> batch = new LinkedHashMap<>();
+        Object key;
+        while (batch.size() < batchSize && !isNull(key = urgent.poll())) {
+            take(key, batch);
+        }
+        Iterator<Object> keys = pending.keySet().iterator();
+        while (batch.size() < batchSize && keys.hasNext()) {
+            take(keys.next(), batch);
+        }
+        if (batch.isEmpty()) {
+            return false;
+        }
+
+        Map<K, V> writes = new LinkedHashMap<>();
+        List<K> deletes = new ArrayList<>();
+        batch.forEach((k, write) -> {
+            if (write.delete) {
+                deletes.add(unmask(k));
+            } else {
+                writes.put(unmask(k), write.value);
+            }
+        });
+        try {
+            if (!writes.isEmpty()) {
+                writer.writeAll(writes);
+            }
+            if (!deletes.isEmpty()) {
+                writer.deleteAll(deletes);
+            }
+        } catch (RuntimeException e) {
+            failedBatches.incrementAndGet();
+            batch.forEach(pending::putIfAbsent);
+            throw e;
+        }
+        flushedBatches.incrementAndGet();
+        return batch.size() == batchSize;
+    }
+
+    private void take(Object key, Map<Object, PendingWrite<V>> batch) {
+        PendingWrite<V> write = pending.remove(key);
+        if (!isNull(write)) {
+            batch.put(key, write);
+        }
+    }
+
+    private static Object mask(Object key) {
+        return isNull(key) ? NULL_KEY : key;
+    }
+
+    @SuppressWarnings("unchecked")
+    private K unmask(Object key) {
+        return key == NULL_KEY ? null : (K) key;
+    }
+
+    /**
+     * @return the number of keys with a change that has not been written yet
+     */
+    public int pending() {
+        return pending.size();
+    }
+
+    public long getFlushedBatches() {
+        return flushedBatches.get();
+    }
+
+    public long getFailedBatches() {
+        return failedBatches.get();
+    }
+
+    /**
+     * Stops the background thread and writes every pending change on the calling
+     * thread.
+     */
+    @Override
+    public void close() {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    private static class PendingWrite<V> {
+
+        private final V value;
+        private final boolean delete;
+
+        PendingWrite(V value, boolean delete) {
+            this.value = value;
+            this.delete = delete;
+        }
+    }
+}
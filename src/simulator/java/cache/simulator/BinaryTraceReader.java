@@ -0,0 +1,84 @@
+package cache.simulator;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import cache.trace.Operation;
+import cache.trace.TraceFormat;
+
+/**
+ * Reads a binary trace in the TraceFormat layout. The file is memory-mapped a
+ * window at a time, so only the window being read occupies memory and none of
+ * it is on the heap.
+ */
+public class BinaryTraceReader implements TraceReader {
+
+    static final long WINDOW_SIZE = (64L << 20) / TraceFormat.RECORD_SIZE * TraceFormat.RECORD_SIZE;
+
+    private final FileChannel channel;
+    private final long size;
+    private final long windowSize;
+    private MappedByteBuffer window;
+    private long windowEnd;
+
+    private long key;
+    private Operation operation;
+
+    public BinaryTraceReader(Path path) throws IOException {
+        this(path, WINDOW_SIZE);
+    }
+
+    BinaryTraceReader(Path path, long windowSize) throws IOException {
+        this.windowSize = windowSize;
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            size = channel.size();
+            map(0L);
+            TraceFormat.readHeader(window);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void map(long position) throws IOException {
+        windowEnd = Math.min(size, position + windowSize);
+        window = channel.map(MapMode.READ_ONLY, position, windowEnd - position);
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        if (window.remaining() < TraceFormat.RECORD_SIZE) {
+            long position = windowEnd - window.remaining();
+            if (size - position < TraceFormat.RECORD_SIZE) {
+                return false;
+            }
+            map(position);
+        }
+        window.getLong();
+        key = window.getLong();
+        operation = Operation.fromCode(window.get());
+        // outcome, reserved and set index are only of interest to other tools
+        window.position(window.position() + 7);
+        return true;
+    }
+
+    @Override
+    public long key() {
+        return key;
+    }
+
+    @Override
+    public Operation operation() {
+        return operation;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
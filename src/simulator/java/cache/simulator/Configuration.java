@@ -0,0 +1,157 @@
+package cache.simulator;
+
+import static java.util.Objects.isNull;
+import static java.util.Objects.nonNull;
+
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import cache.NWaySetAssociativeCache;
+import cache.hash.HashFunction;
+import cache.replacement.BeladyOptimal;
+import cache.replacement.ReplacementAlgorithm;
+import cache.subcache.SubCacheFactory.SubCacheType;
+
+/**
+ * A named way of building the cache a trace is replayed through. Every
+ * replay builds a new cache, so configurations can be simulated in parallel.
+ * Optimal configurations use BeladyOptimal, which needs to see the trace
+ * before the cache is built, so the simulator hands them their algorithm.
+ */
+public class Configuration {
+
+    private static final String OPTIMAL = BeladyOptimal.class.getName();
+
+    private final String name;
+    private final Function<ReplacementAlgorithm<Long, Long>, NWaySetAssociativeCache<Long, Long>> cacheFactory;
+    private final boolean optimal;
+
+    public Configuration(String name, Supplier<NWaySetAssociativeCache<Long, Long>> cacheSupplier) {
+        this(name, algorithm -> cacheSupplier.get(), false);
+        if (isNull(cacheSupplier)) {
+            throw new IllegalArgumentException("A cache supplier was never given");
+        }
+    }
+
+    private Configuration(String name,
+        Function<ReplacementAlgorithm<Long, Long>, NWaySetAssociativeCache<Long, Long>> cacheFactory,
+        boolean optimal) {
+        this.name = name;
+        this.cacheFactory = cacheFactory;
+        this.optimal = optimal;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return true if the cache has to be built with newCache(BeladyOptimal)
+     */
+    public boolean isOptimal() {
+        return optimal;
+    }
+
+    /**
+     * @throws IllegalStateException
+     *             if the configuration is optimal
+     */
+    public NWaySetAssociativeCache<Long, Long> newCache() {
+        if (optimal) {
+            throw new IllegalStateException("An optimal configuration needs the future accesses of the trace");
+        }
+        return cacheFactory.apply(null);
+    }
+
+    /**
+     * @param optimalAlgorithm
+     *            the algorithm every set of the cache uses
+     * @throws IllegalStateException
+     *             if the configuration is not optimal
+     */
+    public NWaySetAssociativeCache<Long, Long> newCache(BeladyOptimal<Long, Long> optimalAlgorithm) {
+        if (!optimal) {
+            throw new IllegalStateException("Only an optimal configuration uses BeladyOptimal");
+        }
+        return cacheFactory.apply(optimalAlgorithm);
+    }
+
+    /**
+     * Parses a configuration of the form
+     * {@code subCacheType:totalSets:blockSize:replacementAlgorithm[:hashFunction[:secondaryHashFunction]]},
+     * for example {@code HASH_MAP_CACHE_SET:64:8:LeastRecentlyUsed}. A secondary
+     * hash function enables two-choice placement, for example
+     * {@code HASH_MAP_CACHE_SET:64:8:LeastRecentlyUsed:NullSafeHashFunction:SeededHashFunction}.
+     * The replacement algorithm and hash functions are class names, in the
+     * cache.replacement and cache.hash packages unless they are fully qualified,
+     * and need a public no argument constructor, except for BeladyOptimal which
+     * the simulator creates from the trace.
+     *
+     * @param spec
+     *            the configuration, also used as its name
+     * @throws IllegalArgumentException
+     *             if the configuration cannot be parsed
+     */
+    public static Configuration parse(String spec) {
+        String[] parts = spec.split(":");
+        if (parts.length < 4 || parts.length > 6) {
+            throw new IllegalArgumentException("Expected subCacheType:totalSets:blockSize:replacementAlgorithm"
+                + "[:hashFunction[:secondaryHashFunction]] but was " + spec);
+        }
+        SubCacheType subCacheType = SubCacheType.valueOf(parts[0]);
+        int totalSets = Integer.parseInt(parts[1]);
+        int blockSize = Integer.parseInt(parts[2]);
+        String algorithm = qualify(parts[3], "cache.replacement.");
+        String hash = parts.length >= 5 ? qualify(parts[4], "cache.hash.") : null;
+        String secondaryHash = parts.length == 6 ? qualify(parts[5], "cache.hash.") : null;
+        // fail on a bad class name now rather than in every replay
+        boolean optimal = OPTIMAL.equals(algorithm);
+        if (!optimal) {
+            newInstance(algorithm, ReplacementAlgorithm.class);
+        }
+        if (nonNull(hash)) {
+            newInstance(hash, HashFunction.class);
+        }
+        if (nonNull(secondaryHash)) {
+            newInstance(secondaryHash, HashFunction.class);
+        }
+        return new Configuration(spec, optimalAlgorithm -> {
+            NWaySetAssociativeCache.Builder<Long, Long> builder = new NWaySetAssociativeCache.Builder<Long, Long>()
+                .setSubCacheType(subCacheType)
+                .setTotalSets(totalSets)
+                .setBlockSize(blockSize);
+            if (optimal) {
+                builder.setReplacementAlgorithm(optimalAlgorithm);
+            } else {
+                @SuppressWarnings("unchecked")
+                ReplacementAlgorithm<Long, Long> replacementAlgorithm = newInstance(algorithm,
+                    ReplacementAlgorithm.class);
+                builder.setReplacementAlgorithm(replacementAlgorithm);
+            }
+            if (nonNull(hash)) {
+                builder.setHashFunction(newInstance(hash, HashFunction.class));
+            }
+            if (nonNull(secondaryHash)) {
+                builder.setSecondaryHashFunction(newInstance(secondaryHash, HashFunction.class));
+            }
+            return builder.build();
+        }, optimal);
+    }
+
+    private static String qualify(String className, String defaultPackage) {
+        return className.contains(".") ? className : defaultPackage + className;
+    }
+
+    private static <T> T newInstance(String className, Class<T> type) {
+        try {
+            return type.cast(Class.forName(className).getConstructor().newInstance());
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalArgumentException("Cannot create a " + type.getSimpleName() + " from " + className, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
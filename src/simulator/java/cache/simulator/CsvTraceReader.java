@@ -0,0 +1,158 @@
+package cache.simulator;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import cache.trace.Operation;
+
+/**
+ * Reads a CSV trace with one access per line, {@code key[,operation]}. The
+ * operation is get, put or remove, get if it is left out. Keys that are whole
+ * numbers are used as they are, any other key is replaced by a 64 bit FNV-1a
+ * hash of its bytes. Blank lines and lines starting with '#' are skipped.
+ * <p>
+ * The file is memory-mapped a window at a time and parsed in place, so nothing
+ * is allocated per line.
+ */
+public class CsvTraceReader implements TraceReader {
+
+    static final long WINDOW_SIZE = 64L << 20;
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final FileChannel channel;
+    private final long size;
+    private final long windowSize;
+    private MappedByteBuffer window;
+    private long windowStart;
+
+    private long key;
+    private Operation operation;
+
+    public CsvTraceReader(Path path) throws IOException {
+        this(path, WINDOW_SIZE);
+    }
+
+    CsvTraceReader(Path path, long windowSize) throws IOException {
+        this.windowSize = windowSize;
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        size = channel.size();
+        map(0L);
+    }
+
+    private void map(long position) throws IOException {
+        windowStart = position;
+        window = channel.map(MapMode.READ_ONLY, position, Math.min(size, position + windowSize) - position);
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        while (true) {
+            int end = lineEnd();
+            if (end < 0) {
+                long position = windowStart + window.position();
+                if (position >= size) {
+                    return false;
+                }
+                if (window.position() == 0) {
+                    throw new IOException("Line at " + position + " is longer than the mapped window");
+                }
+                map(position);
+                continue;
+            }
+            int start = window.position();
+            window.position(Math.min(end + 1, window.limit()));
+            if (parse(start, end)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return the index of the newline ending the current line, the limit if the
+     *         last line of the file has no newline, or -1 if the line continues
+     *         past the window
+     */
+    private int lineEnd() {
+        for (int i = window.position(); i < window.limit(); i++) {
+            if (window.get(i) == '\n') {
+                return i;
+            }
+        }
+        boolean lastWindow = windowStart + window.limit() >= size;
+        return lastWindow && window.position() < window.limit() ? window.limit() : -1;
+    }
+
+    private boolean parse(int start, int end) throws IOException {
+        if (end > start && window.get(end - 1) == '\r') {
+            end--;
+        }
+        if (start == end || window.get(start) == '#') {
+            return false;
+        }
+        int comma = start;
+        while (comma < end && window.get(comma) != ',') {
+            comma++;
+        }
+        key = parseKey(start, comma);
+        operation = comma < end ? parseOperation(comma + 1, end) : Operation.GET;
+        return true;
+    }
+
+    private long parseKey(int start, int end) {
+        boolean negative = window.get(start) == '-';
+        int i = negative ? start + 1 : start;
+        boolean numeric = i < end && end - i <= 18;
+        long value = 0L;
+        for (; numeric && i < end; i++) {
+            byte b = window.get(i);
+            numeric = b >= '0' && b <= '9';
+            value = value * 10 + (b - '0');
+        }
+        if (numeric) {
+            return negative ? -value : value;
+        }
+        long hash = FNV_OFFSET;
+        for (i = start; i < end; i++) {
+            hash ^= window.get(i) & 0xff;
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private Operation parseOperation(int start, int end) throws IOException {
+        while (start < end && window.get(start) == ' ') {
+            start++;
+        }
+        switch (start < end ? Character.toLowerCase((char) window.get(start)) : 'g') {
+        case 'g':
+            return Operation.GET;
+        case 'p':
+            return Operation.PUT;
+        case 'r':
+            return Operation.REMOVE;
+        default:
+            throw new IOException("Unknown operation at " + (windowStart + start));
+        }
+    }
+
+    @Override
+    public long key() {
+        return key;
+    }
+
+    @Override
+    public Operation operation() {
+        return operation;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
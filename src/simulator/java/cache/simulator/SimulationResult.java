@@ -0,0 +1,71 @@
+package cache.simulator;
+
+/**
+ * What replaying a trace through one configuration measured.
+ */
+public class SimulationResult {
+
+    private final String name;
+    private final long accesses;
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final long elapsedNanos;
+
+    public SimulationResult(String name, long accesses, long hits, long misses, long evictions, long elapsedNanos) {
+        this.name = name;
+        this.accesses = accesses;
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return the number of replayed records of any operation
+     */
+    public long getAccesses() {
+        return accesses;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return the fraction of gets that hit, 0 if there were none
+     */
+    public double getHitRatio() {
+        long gets = hits + misses;
+        return gets == 0L ? 0.0 : (double) hits / gets;
+    }
+
+    /**
+     * @return replayed records per second
+     */
+    public double getThroughput() {
+        return elapsedNanos == 0L ? 0.0 : accesses * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-50s hitRatio=%.4f hits=%d misses=%d evictions=%d throughput=%.0f/s", name,
+            getHitRatio(), hits, misses, evictions, getThroughput());
+    }
+}
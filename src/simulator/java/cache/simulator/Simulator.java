@@ -0,0 +1,164 @@
+package cache.simulator;
+
+import static java.util.Objects.nonNull;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import cache.NWaySetAssociativeCache;
+import cache.diagnostics.SetReport;
+import cache.replacement.BeladyOptimal;
+import cache.replacement.FutureAccesses;
+
+/**
+ * Replays access traces through cache configurations. A get that misses is
+ * followed by a put of the key, as a read-through cache would do, puts and
+ * removes are replayed as they are. A configuration with the BeladyOptimal
+ * algorithm gives the best hit ratio any algorithm could reach with the same
+ * sets, to compare the others against.
+ * <p>
+ * Usage: {@code Simulator <trace> <configuration>...}, see
+ * Configuration.parse() for the configuration format.
+ */
+public class Simulator {
+
+    private final int parallelism;
+    private final Map<Path, FutureAccesses> futureAccesses = new ConcurrentHashMap<>();
+
+    /**
+     * @param parallelism
+     *            the number of configurations replayed at the same time
+     */
+    public Simulator(int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("Parallelism must be greater than 0");
+        }
+        this.parallelism = parallelism;
+    }
+
+    public Simulator() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Replays the trace through a new cache of the configuration on the calling
+     * thread.
+     */
+    public SimulationResult simulate(Path trace, Configuration configuration) throws IOException {
+        NWaySetAssociativeCache<Long, Long> cache;
+        BeladyOptimal<Long, Long> optimal = null;
+        if (configuration.isOptimal()) {
+            optimal = new BeladyOptimal<>(futureAccesses(trace));
+            cache = configuration.newCache(optimal);
+        } else {
+            cache = configuration.newCache();
+        }
+        long accesses = 0L;
+        long start = System.nanoTime();
+        try (TraceReader reader = TraceReader.open(trace)) {
+            while (reader.next()) {
+                accesses++;
+                if (nonNull(optimal)) {
+                    optimal.advance();
+                }
+                Long key = reader.key();
+                switch (reader.operation()) {
+                case GET:
+                    if (cache.get(key) == null) {
+                        cache.put(key, key);
+                    }
+                    break;
+                case PUT:
+                    cache.put(key, key);
+                    break;
+                case REMOVE:
+                    cache.remove(key);
+                    break;
+                }
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        SetReport report = cache.getSetReport();
+        long evictions = 0L;
+        for (int i = 0; i < report.getTotalSets(); i++) {
+            evictions += report.getEvictions(i);
+        }
+        return new SimulationResult(configuration.getName(), accesses, cache.getHits(), cache.getMisses(), evictions,
+            elapsed);
+    }
+
+    /**
+     * Indexes the trace for BeladyOptimal the first time an optimal configuration
+     * replays it. The index is kept and shared by later replays of the trace.
+     */
+    private FutureAccesses futureAccesses(Path trace) throws IOException {
+        try {
+            return futureAccesses.computeIfAbsent(trace.toAbsolutePath(), path -> new FutureAccesses(consumer -> {
+                try (TraceReader reader = TraceReader.open(path)) {
+                    while (reader.next()) {
+                        consumer.accept(reader.key());
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Replays the trace through every configuration, each on its own thread and
+     * with its own reader of the trace.
+     *
+     * @return the results in the order of the configurations
+     */
+    public List<SimulationResult> simulateAll(Path trace, List<Configuration> configurations) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, configurations.size()));
+        try {
+            List<Future<SimulationResult>> futures = new ArrayList<>();
+            for (Configuration configuration : configurations) {
+                futures.add(executor.submit(() -> simulate(trace, configuration)));
+            }
+            List<SimulationResult> results = new ArrayList<>();
+            for (Future<SimulationResult> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while simulating", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IllegalStateException("Simulation failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: Simulator <trace> <subCacheType:totalSets:blockSize:algorithm[:hash]>...");
+            System.exit(1);
+        }
+        List<Configuration> configurations = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            configurations.add(Configuration.parse(args[i]));
+        }
+        for (SimulationResult result : new Simulator().simulateAll(Paths.get(args[0]), configurations)) {
+            System.out.println(result);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package cache.simulator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+
+import cache.trace.Operation;
+
+/**
+ * A cursor over the records of an access trace. Records are read one at a time
+ * and nothing is allocated per record, so traces of any length can be replayed.
+ */
+public interface TraceReader extends Closeable {
+
+    /**
+     * Moves to the next record.
+     *
+     * @return false if there are no more records
+     */
+    boolean next() throws IOException;
+
+    /**
+     * @return the key of the current record
+     */
+    long key();
+
+    /**
+     * @return the operation of the current record
+     */
+    Operation operation();
+
+    /**
+     * Opens a trace, files ending in .csv are read as CSV and any other file as a
+     * binary trace.
+     *
+     * @param path
+     *            the trace file
+     */
+    static TraceReader open(Path path) throws IOException {
+        if (path.getFileName().toString().toLowerCase().endsWith(".csv")) {
+            return new CsvTraceReader(path);
+        }
+        return new BinaryTraceReader(path);
+    }
+}
@@ -1,15 +1,29 @@
 package cache;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -17,10 +31,21 @@ import org.junit.runner.RunWith;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 
+import cache.diagnostics.AccessObserver;
+import cache.diagnostics.BloomFilterReport;
+import cache.diagnostics.SetReport;
 import cache.exception.CacheMiss;
 import cache.exception.EvictionNotPossible;
+import cache.front.ThreadLocalFrontCache;
 import cache.hash.CompletelyPredictableHashFunction;
+import cache.hash.HashFunction;
+import cache.loader.StridePrefetcher;
+import cache.replacement.LeastRecentlyUsed;
+import cache.replacement.ReplacementAlgorithm;
 import cache.subcache.CacheSet;
+import cache.subcache.HashMapCacheSet;
+import cache.victim.VictimBuffer;
+import cache.writer.CacheWriter;
 
 @RunWith(MockitoJUnitRunner.class)
 public class NWaySetAssociativeCacheTest {
@@ -175,4 +200,589 @@ public class NWaySetAssociativeCacheTest {
         when(set0.remove(anyString())).thenReturn(value);
         assertEquals(value, cache.remove(key));
     }
+
+    @Test
+    public void testGet_notifiesAccessObservers() throws Exception {
+        List<String> accesses = new ArrayList<>();
+        cache.addAccessObserver((key, setIndex, hit) -> accesses.add(key + " " + setIndex + " " + hit));
+        when(set2.get("hit")).thenReturn("value");
+        when(set2.get("miss")).thenThrow(new CacheMiss());
+        hashFunction.setNextHash(2);
+
+        cache.get("hit");
+        cache.get("miss");
+
+        assertEquals(2, cache.getSetIndex("any"));
+        assertEquals(Arrays.asList("hit 2 true", "miss 2 false"), accesses);
+    }
+
+    @Test
+    public void testGetSetReport() {
+        when(set1.size()).thenReturn(3);
+        when(set1.getEvictionCount()).thenReturn(5L);
+        when(set0.maxSize()).thenReturn(3);
+        cache = new NWaySetAssociativeCache<>(cacheSet, hashFunction);
+
+        SetReport report = cache.getSetReport();
+
+        assertEquals(MAX_SETS, report.getTotalSets());
+        assertEquals(3, report.getOccupancy(1));
+        assertEquals(5L, report.getEvictions(1));
+        assertEquals(1, report.getFullSets());
+    }
+
+    @Test
+    public void testPutAndRemove_notifyAccessObservers() throws Exception {
+        List<String> accesses = new ArrayList<>();
+        cache.addAccessObserver(new AccessObserver() {
+            @Override
+            public void onAccess(Object key, int setIndex, boolean hit) {
+            }
+
+            @Override
+            public void onPut(Object key, int setIndex) {
+                accesses.add("put " + key + " " + setIndex);
+            }
+
+            @Override
+            public void onRemove(Object key, int setIndex) {
+                accesses.add("remove " + key + " " + setIndex);
+            }
+        });
+        hashFunction.setNextHash(3);
+
+        cache.put("key", "value");
+        cache.remove("key");
+
+        assertEquals(Arrays.asList("put key 3", "remove key 3"), accesses);
+    }
+
+    @Test
+    public void testPut_failedPutIsNotObserved() throws Exception {
+        List<Object> puts = new ArrayList<>();
+        cache.addAccessObserver(new AccessObserver() {
+            @Override
+            public void onAccess(Object key, int setIndex, boolean hit) {
+            }
+
+            @Override
+            public void onPut(Object key, int setIndex) {
+                puts.add(key);
+            }
+        });
+        hashFunction.setNextHash(0);
+        when(set0.put(anyString(), anyString())).thenThrow(new EvictionNotPossible(""));
+
+        assertNull(cache.put("key", "value"));
+        assertTrue(puts.isEmpty());
+    }
+
+    @Test
+    public void testPut_twoChoice_picksLessLoadedSet() throws Exception {
+        CompletelyPredictableHashFunction secondaryHashFunction = new CompletelyPredictableHashFunction();
+        cache.setSecondaryHashFunction(secondaryHashFunction);
+        hashFunction.setNextHash(1);
+        secondaryHashFunction.setNextHash(2);
+        when(set1.size()).thenReturn(3);
+        when(set2.size()).thenReturn(1);
+
+        cache.put("key", "value");
+
+        verify(set2).put("key", "value");
+        verify(set1, never()).put(anyString(), anyString());
+    }
+
+    @Test
+    public void testPut_twoChoice_updatesTheSetHoldingTheKey() throws Exception {
+        CompletelyPredictableHashFunction secondaryHashFunction = new CompletelyPredictableHashFunction();
+        cache.setSecondaryHashFunction(secondaryHashFunction);
+        hashFunction.setNextHash(1);
+        secondaryHashFunction.setNextHash(2);
+        when(set2.containsKey("key")).thenReturn(true);
+        when(set2.put("key", "newValue")).thenReturn("value");
+
+        assertEquals("value", cache.put("key", "newValue"));
+        verify(set1, never()).put(anyString(), anyString());
+    }
+
+    @Test
+    public void testPut_twoChoice_primaryCopyDisplacesDuplicate() throws Exception {
+        CompletelyPredictableHashFunction secondaryHashFunction = new CompletelyPredictableHashFunction();
+        cache.setSecondaryHashFunction(secondaryHashFunction);
+        hashFunction.setNextHash(1);
+        secondaryHashFunction.setNextHash(2);
+        when(set1.containsKey("key")).thenReturn(true);
+        when(set2.containsKey("key")).thenReturn(true);
+
+        cache.put("key", "value");
+
+        verify(set1).put("key", "value");
+        verify(set2).displace("key");
+        verify(set1, never()).displace(anyString());
+        verify(set2, never()).remove(anyString());
+    }
+
+    @Test
+    public void testPut_twoChoice_alternativeCopyYieldsToPrimaryCopy() throws Exception {
+        CompletelyPredictableHashFunction secondaryHashFunction = new CompletelyPredictableHashFunction();
+        cache.setSecondaryHashFunction(secondaryHashFunction);
+        hashFunction.setNextHash(1);
+        secondaryHashFunction.setNextHash(2);
+        // a concurrent put stores the key in its primary set meanwhile
+        when(set1.containsKey("key")).thenReturn(false, true);
+        when(set1.size()).thenReturn(3);
+        when(set2.size()).thenReturn(1);
+
+        cache.put("key", "value");
+
+        verify(set2).put("key", "value");
+        verify(set2).displace("key");
+        verify(set1, never()).displace(anyString());
+        verify(set1, never()).remove(anyString());
+    }
+
+    @Test
+    public void testGet_frontCacheHitIsObservedAndRecorded() throws Exception {
+        cache.setFrontCache(new ThreadLocalFrontCache<>(4, MAX_SETS));
+        hashFunction.setNextHash(0);
+        when(set0.get("key")).thenReturn("value");
+        List<Integer> indices = new ArrayList<>();
+        cache.addAccessObserver((key, setIndex, hit) -> indices.add(hit ? setIndex : -1));
+
+        assertEquals("value", cache.get("key"));
+        assertEquals("value", cache.get("key"));
+
+        verify(set0).get("key");
+        verify(set0).recordAccess("key");
+        assertEquals(Arrays.asList(0, 0), indices);
+        assertEquals(2L, cache.getHits());
+        assertEquals(1L, cache.getFrontCache().getHits());
+    }
+
+    @Test
+    public void testGet_twoChoice_probesBothSets() throws Exception {
+        CompletelyPredictableHashFunction secondaryHashFunction = new CompletelyPredictableHashFunction();
+        cache.setSecondaryHashFunction(secondaryHashFunction);
+        hashFunction.setNextHash(1);
+        secondaryHashFunction.setNextHash(2);
+        when(set1.get("key")).thenThrow(new CacheMiss());
+        when(set2.get("key")).thenReturn("value");
+        List<Integer> indices = new ArrayList<>();
+        cache.addAccessObserver((key, setIndex, hit) -> indices.add(setIndex));
+
+        assertEquals("value", cache.get("key"));
+        assertEquals(Arrays.asList(2), indices);
+    }
+
+    @Test
+    public void testMerge_concurrentIncrementsAreNotLost() throws Exception {
+        NWaySetAssociativeCache<String, Integer> counters = new NWaySetAssociativeCache.Builder<String, Integer>()
+            .setTotalSets(2)
+            .setBlockSize(2)
+            .build();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    counters.merge("counter", 1, Integer::sum);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(Integer.valueOf(4000), counters.get("counter"));
+    }
+
+    @Test
+    public void testAtomicOperations() {
+        NWaySetAssociativeCache<String, String> real = new NWaySetAssociativeCache.Builder<String, String>()
+            .setTotalSets(2)
+            .setBlockSize(2)
+            .build();
+
+        assertNull(real.putIfAbsent("key", "value"));
+        assertEquals("value", real.putIfAbsent("key", "other"));
+        assertNull(real.replace("absent", "value"));
+        assertFalse(real.containsKey("absent"));
+        assertFalse(real.replace("key", "other", "newValue"));
+        assertTrue(real.replace("key", "value", "newValue"));
+        assertEquals("newValue!", real.computeIfPresent("key", (k, v) -> v + "!"));
+        assertEquals("newValue!", real.computeIfAbsent("key", k -> "unused"));
+        assertNull(real.compute("key", (k, v) -> null));
+        assertFalse(real.containsKey("key"));
+    }
+
+    @Test
+    public void testCompute_onlyChangesAreObserved() {
+        NWaySetAssociativeCache<String, String> real = new NWaySetAssociativeCache.Builder<String, String>()
+            .setTotalSets(2)
+            .setBlockSize(2)
+            .setFrontCacheSize(4)
+            .build();
+        List<String> changes = new ArrayList<>();
+        real.addAccessObserver(new AccessObserver() {
+            @Override
+            public void onAccess(Object key, int setIndex, boolean hit) {
+            }
+
+            @Override
+            public void onPut(Object key, int setIndex) {
+                changes.add("put " + key);
+            }
+
+            @Override
+            public void onRemove(Object key, int setIndex) {
+                changes.add("remove " + key);
+            }
+        });
+        real.put("key", "value");
+        assertEquals("value", real.get("key"));
+
+        assertEquals("value", real.putIfAbsent("key", "other"));
+        assertNull(real.computeIfPresent("absent", (k, v) -> "unused"));
+        // the copy in the front cache is still valid
+        assertEquals("value", real.get("key"));
+        assertEquals(1L, real.getFrontCache().getHits());
+
+        assertNull(real.computeIfPresent("key", (k, v) -> null));
+        assertEquals(Arrays.asList("put key", "remove key"), changes);
+    }
+
+    @Test
+    public void testCompute_takesValueFromVictimBuffer() {
+        List<String> removals = new ArrayList<>();
+        NWaySetAssociativeCache<String, String> real = new NWaySetAssociativeCache.Builder<String, String>()
+            .setTotalSets(1)
+            .setBlockSize(1)
+            .setVictimBufferSize(1)
+            .setRemovalListener((k, v, cause) -> removals.add(cause + " " + k + "=" + v))
+            .setRemovalExecutor(Runnable::run)
+            .build();
+        real.put("a", "1");
+        real.put("b", "2");
+
+        assertEquals("1!", real.compute("a", (k, v) -> v + "!"));
+        assertEquals("1!", real.get("a"));
+        assertEquals("2", real.get("b"));
+        assertEquals(Arrays.asList("REPLACED a=1"), removals);
+    }
+
+    @Test
+    public void testGet_victimSwapDoesNotUndoAlternativePut() throws Exception {
+        CountDownLatch chosen = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        HashMapCacheSet<String, String> alternativeSet = new HashMapCacheSet<String, String>(2) {
+            @Override
+            public String put(String key, String value, Runnable beforeStore) throws EvictionNotPossible {
+                if ("new".equals(value)) {
+                    // the put has chosen this set but not yet stored
+                    chosen.countDown();
+                    await(proceed);
+                }
+                return super.put(key, value, beforeStore);
+            }
+        };
+        List<CacheSet<String, String>> sets = Arrays.asList(new HashMapCacheSet<>(2), alternativeSet);
+        sets.forEach(s -> s.setReplacementAlgorithm(new LeastRecentlyUsed<>()));
+        HashFunction primary = o -> "a".equals(o) || o.toString().startsWith("z") ? 0 : 1;
+        NWaySetAssociativeCache<String, String> real = new NWaySetAssociativeCache<>(sets, primary);
+        // only a has a second choice
+        real.setSecondaryHashFunction(o -> "a".equals(o) ? 1 : primary.hash(o));
+        real.setVictimBuffer(new VictimBuffer<>(2));
+        real.put("a", "old");
+        real.put("z1", "1");
+        // evicts a from the primary set into the victim buffer
+        real.put("z2", "2");
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> put = executor.submit(() -> real.put("a", "new"));
+            assertTrue(chosen.await(5, TimeUnit.SECONDS));
+            // fill the alternative set so a swap would now prefer the primary set
+            real.put("y", "3");
+            real.put("w", "4");
+            real.put("v", "5");
+            Future<String> get = executor.submit(() -> real.get("a"));
+            try {
+                get.get(100, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                // waiting for the put, as it should
+            }
+            proceed.countDown();
+            put.get(5, TimeUnit.SECONDS);
+            assertEquals("new", get.get(5, TimeUnit.SECONDS));
+            assertEquals("new", real.get("a"));
+        } finally {
+            proceed.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Test
+    public void testRemove_clearsVictimBufferUnderTheSetsLock() {
+        List<String> removals = new ArrayList<>();
+        boolean[] fail = { true };
+        NWaySetAssociativeCache<String, String> real = new NWaySetAssociativeCache.Builder<String, String>()
+            .setTotalSets(1)
+            .setBlockSize(1)
+            .setVictimBufferSize(1)
+            .setRemovalListener((k, v, cause) -> removals.add(cause + " " + k + "=" + v))
+            .setRemovalExecutor(Runnable::run)
+            .setCacheWriter(new CacheWriter<String, String>() {
+                @Override
+                public void write(String key, String value) {
+                }
+
+                @Override
+                public void delete(String key) {
+                    if (fail[0]) {
+                        throw new IllegalStateException("store down");
+                    }
+                }
+            })
+            .build();
+        real.put("a", "1");
+        real.put("b", "2");
+
+        try {
+            real.remove("a");
+        } catch (IllegalStateException e) {
+            // the buffered copy survives a failed delete
+        }
+        fail[0] = false;
+        assertEquals("1", real.remove("a"));
+        assertNull(real.get("a"));
+        assertEquals("2", real.get("b"));
+        assertEquals(Arrays.asList("EXPLICIT a=1"), removals);
+    }
+
+    @Test
+    public void testGetBloomFilterReport() {
+        NWaySetAssociativeCache<Integer, String> real = new NWaySetAssociativeCache.Builder<Integer, String>()
+            .setTotalSets(4)
+            .setBlockSize(16)
+            .setBloomFilterCountersPerEntry(8)
+            .build();
+        for (int i = 0; i < 64; i++) {
+            real.put(i, "value" + i);
+        }
+        for (int i = 1000; i < 2000; i++) {
+            assertNull(real.get(i));
+        }
+
+        BloomFilterReport report = real.getBloomFilterReport();
+        assertEquals(1000L, report.getNegatives() + report.getFalsePositives());
+        assertTrue(report.toString(), report.getFalsePositiveRate() < 0.1);
+        assertEquals(32.0, report.getBitsPerEntry(), 0.0);
+        assertNull(cache.getBloomFilterReport());
+    }
+
+    @Test
+    public void testGet_loadsMissWithoutWritingThrough() {
+        List<String> written = new ArrayList<>();
+        NWaySetAssociativeCache<String, String> real = new NWaySetAssociativeCache.Builder<String, String>()
+            .setCacheLoader(key -> "b".equals(key) ? null : key + "!")
+            .setCacheWriter(new CacheWriter<String, String>() {
+                @Override
+                public void write(String key, String value) {
+                    written.add(key);
+                }
+
+                @Override
+                public void delete(String key) {
+                    written.add(key);
+                }
+            })
+            .build();
+
+        assertEquals("a!", real.get("a"));
+        assertNull(real.get("b"));
+        assertTrue(real.containsKey("a"));
+        assertFalse(real.containsKey("b"));
+        assertEquals("a!", real.get("a"));
+        assertEquals(2L, real.getMisses());
+        assertEquals(1L, real.getHits());
+        assertTrue(written.isEmpty());
+    }
+
+    @Test
+    public void testGet_prefetchesSequentialWalk() {
+        List<Integer> loaded = new ArrayList<>();
+        NWaySetAssociativeCache<Integer, String> real = new NWaySetAssociativeCache.Builder<Integer, String>()
+            .setTotalSets(4)
+            .setBlockSize(16)
+            .setCacheLoader(key -> {
+                loaded.add(key);
+                return "value" + key;
+            })
+            .setPrefetcher(StridePrefetcher.forIntegers())
+            .setPrefetchExecutor(Runnable::run)
+            .build();
+
+        for (int i = 0; i < 20; i++) {
+            assertEquals("value" + i, real.get(i));
+        }
+
+        assertEquals(3L, real.getMisses());
+        assertEquals(17L, real.getHits());
+        assertEquals(17L, real.getPrefetcher().getUseful());
+        assertEquals(real.getPrefetcher().getIssued() + 3, loaded.size());
+    }
+
+    @Test
+    public void testGet_concurrentMissesShareOneLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        NWaySetAssociativeCache<String, String> real = new NWaySetAssociativeCache.Builder<String, String>()
+            .setCacheLoader(key -> {
+                loads.incrementAndGet();
+                loading.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return key + "!";
+            })
+            .build();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> first = executor.submit(() -> real.get("key"));
+            loading.await();
+            String[] second = new String[1];
+            Thread waiter = new Thread(() -> second[0] = real.get("key"));
+            waiter.start();
+            // the second get misses and parks on the pending load
+            while (waiter.getState() != Thread.State.WAITING) {
+                Thread.yield();
+            }
+            release.countDown();
+            waiter.join();
+
+            assertEquals("key!", first.get());
+            assertEquals("key!", second[0]);
+            assertEquals(1, loads.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testGet_prefetchesOnTheCachesOwnExecutor() throws Exception {
+        List<String> threads = new CopyOnWriteArrayList<>();
+        CountDownLatch prefetched = new CountDownLatch(1);
+        try (NWaySetAssociativeCache<Integer, String> real = new NWaySetAssociativeCache.Builder<Integer, String>()
+            .setTotalSets(4)
+            .setBlockSize(16)
+            .setCacheLoader(key -> {
+                if (key > 2) {
+                    threads.add(Thread.currentThread().getName());
+                    prefetched.countDown();
+                }
+                return "value" + key;
+            })
+            .setPrefetcher(StridePrefetcher.forIntegers())
+            .build()) {
+            for (int i = 0; i < 3; i++) {
+                assertEquals("value" + i, real.get(i));
+            }
+
+            assertTrue(prefetched.await(10, TimeUnit.SECONDS));
+            assertEquals("cache-prefetch", threads.get(0));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBuild_prefetcherWithoutLoader() {
+        new NWaySetAssociativeCache.Builder<Integer, String>().setPrefetcher(StridePrefetcher.forIntegers()).build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBuild_sharedAlgorithmRejected() {
+        new NWaySetAssociativeCache.Builder<String, String>().setTotalSets(2).setReplacementAlgorithm(notCopyable())
+            .build();
+    }
+
+    @Test
+    public void testBuild_singleSetKeepsAlgorithm() throws Exception {
+        NWaySetAssociativeCache<String, String> real = new NWaySetAssociativeCache.Builder<String, String>()
+            .setTotalSets(1)
+            .setBlockSize(1)
+            .setReplacementAlgorithm(notCopyable())
+            .build();
+
+        real.put("a", "1");
+        real.put("b", "2");
+        assertFalse(real.containsKey("a"));
+        assertEquals("2", real.get("b"));
+    }
+
+    /**
+     * An algorithm that does not override newInstance().
+     */
+    private static ReplacementAlgorithm<String, String> notCopyable() {
+        return new ReplacementAlgorithm<String, String>() {
+            @Override
+            public String evict(CacheSet<String, String> cacheSet) {
+                return cacheSet.remove(cacheSet.keys().iterator().next());
+            }
+
+            @Override
+            public void notifyAccess(String key) {
+            }
+
+            @Override
+            public void notifyDelete(String key) {
+            }
+
+            @Override
+            public void reset() {
+            }
+        };
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testPut_writesThroughOnlyWhenStored() throws Exception {
+        List<String> written = new ArrayList<>();
+        ReplacementAlgorithm<String, String> full = mock(ReplacementAlgorithm.class);
+        when(full.newInstance(anyInt())).thenReturn(full);
+        when(full.evict(any())).thenThrow(new EvictionNotPossible("full"));
+        NWaySetAssociativeCache<String, String> real = new NWaySetAssociativeCache.Builder<String, String>()
+            .setTotalSets(1)
+            .setBlockSize(1)
+            .setReplacementAlgorithm(full)
+            .setCacheWriter(new CacheWriter<String, String>() {
+                @Override
+                public void write(String key, String value) {
+                    written.add(key + "=" + value);
+                }
+
+                @Override
+                public void delete(String key) {
+                    written.add(key);
+                }
+            })
+            .build();
+
+        real.put("a", "1");
+        real.put("b", "2");
+        real.put("a", "3");
+        real.computeIfAbsent("c", k -> "4");
+
+        assertEquals(Arrays.asList("a=1", "a=3"), written);
+        assertFalse(real.containsKey("b"));
+    }
 }
@@ -0,0 +1,179 @@
+package cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import cache.tiered.CompressedStore;
+import cache.tiered.Serializer;
+
+public class TieredCacheTest {
+
+    private List<Runnable> tasks;
+    private NWaySetAssociativeCache<String, String> l1;
+    private TieredCache<String, String> cache;
+
+    @Before
+    public void setUpNewCache() {
+        tasks = new ArrayList<>();
+        l1 = new NWaySetAssociativeCache.Builder<String, String>()
+            .setTotalSets(1)
+            .setBlockSize(2)
+            .build();
+        cache = new TieredCache<>(l1, CompressedStore.offHeap(4096), Serializer.javaSerialization(), tasks::add);
+    }
+
+    private void runTasks() {
+        while (!tasks.isEmpty()) {
+            tasks.remove(0).run();
+        }
+    }
+
+    @Test
+    public void testEviction_demotesToL2() {
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.put("c", "3");
+
+        // served from the heap until the demotion has run
+        assertFalse(l1.containsKey("a"));
+        assertEquals(3, cache.size());
+        assertEquals(1, tasks.size());
+        runTasks();
+
+        assertTrue(cache.getL2().containsKey("a"));
+        assertEquals(1L, cache.getDemotions());
+        assertEquals(3, cache.size());
+    }
+
+    @Test
+    public void testGet_promotesFromL2() {
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.put("c", "3");
+        runTasks();
+
+        assertEquals("1", cache.get("a"));
+        assertEquals(1L, cache.getL2Hits());
+        assertFalse(l1.containsKey("a"));
+
+        runTasks();
+        assertTrue(l1.containsKey("a"));
+        assertFalse(cache.getL2().containsKey("a"));
+        assertEquals(1L, cache.getPromotions());
+        // the promotion evicted b, which is demoted in turn
+        assertTrue(cache.getL2().containsKey("b"));
+        assertEquals("2", cache.get("b"));
+    }
+
+    @Test
+    public void testGet_promotesTheDecodedValue() {
+        Serializer<String> java = Serializer.javaSerialization();
+        int[] decoded = { 0 };
+        cache = new TieredCache<>(l1, CompressedStore.offHeap(4096), new Serializer<String>() {
+            @Override
+            public byte[] serialize(String value) {
+                return java.serialize(value);
+            }
+
+            @Override
+            public String deserialize(byte[] bytes) {
+                decoded[0]++;
+                return java.deserialize(bytes);
+            }
+        }, tasks::add);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.put("c", "3");
+        runTasks();
+
+        assertEquals("1", cache.get("a"));
+        runTasks();
+        assertTrue(l1.containsKey("a"));
+        assertEquals(1, decoded[0]);
+    }
+
+    @Test
+    public void testGet_latePromotionDoesNotBringBackOldValue() {
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.put("c", "3");
+        runTasks();
+        assertEquals("1", cache.get("a"));
+
+        // overwritten and evicted again before the promotion runs
+        cache.put("a", "2");
+        cache.put("d", "4");
+        cache.put("e", "5");
+        runTasks();
+
+        assertEquals(0L, cache.getPromotions());
+        assertEquals("2", cache.get("a"));
+    }
+
+    @Test
+    public void testPut_lateDemotionDoesNotBringBackOldValue() {
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.put("c", "3");
+        cache.put("a", "new");
+        runTasks();
+
+        assertEquals("new", cache.get("a"));
+        runTasks();
+        assertEquals("new", cache.get("a"));
+    }
+
+    @Test
+    public void testRemove_clearsEveryTier() {
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.put("c", "3");
+        runTasks();
+
+        assertEquals("1", cache.remove("a"));
+        assertNull(cache.get("a"));
+        assertFalse(cache.containsKey("a"));
+
+        cache.clear();
+        assertTrue(cache.isEmpty());
+    }
+
+    @Test
+    public void testCompute_fromL2() {
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.put("c", "3");
+        runTasks();
+
+        assertEquals("1!", cache.merge("a", "!", String::concat));
+        assertEquals("1!", l1.get("a"));
+        assertFalse(cache.getL2().containsKey("a"));
+        assertNull(cache.computeIfPresent("a", (k, v) -> null));
+        assertFalse(cache.containsKey("a"));
+    }
+
+    @Test
+    public void testOwnExecutor() throws Exception {
+        NWaySetAssociativeCache<Integer, Integer> tier = new NWaySetAssociativeCache.Builder<Integer, Integer>()
+            .setTotalSets(4)
+            .setBlockSize(4)
+            .build();
+        try (TieredCache<Integer, Integer> tiered = new TieredCache<>(tier, CompressedStore.offHeap(1 << 16),
+            Serializer.javaSerialization())) {
+            for (int i = 0; i < 100; i++) {
+                tiered.put(i, i);
+            }
+            for (int i = 0; i < 100; i++) {
+                assertEquals(Integer.valueOf(i), tiered.get(i));
+            }
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package cache.diagnostics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class HotKeyTrackerTest {
+
+    @Test
+    public void testTopK_findsHeavyHitters() {
+        HotKeyTracker tracker = new HotKeyTracker(10, 1);
+        for (int round = 0; round < 1000; round++) {
+            tracker.onAccess("hot", 3, true);
+            if (round % 2 == 0) {
+                tracker.onAccess("warm", 5, true);
+            }
+            // a stream of distinct keys that each take over the smallest counter
+            tracker.onAccess("cold" + round, round % 8, false);
+        }
+        List<HotKey> top = tracker.topK(2);
+
+        assertEquals(2, top.size());
+        assertEquals("hot", top.get(0).getKey());
+        assertEquals(3, top.get(0).getSetIndex());
+        assertTrue(top.get(0).getCount() - top.get(0).getError() <= 1000);
+        assertTrue(top.get(0).getCount() >= 1000);
+        assertEquals("warm", top.get(1).getKey());
+        assertEquals(5, top.get(1).getSetIndex());
+    }
+
+    @Test
+    public void testTopK_boundedByCapacity() {
+        HotKeyTracker tracker = new HotKeyTracker(4, 1);
+        for (int i = 0; i < 100; i++) {
+            tracker.onAccess(i, 0, false);
+        }
+        assertEquals(4, tracker.topK(10).size());
+    }
+
+    @Test
+    public void testTopK_nullKeyAndSampling() {
+        HotKeyTracker tracker = new HotKeyTracker(4, 1);
+        tracker.onAccess(null, 1, true);
+        tracker.onAccess(null, 1, true);
+
+        HotKey hotKey = tracker.topK(1).get(0);
+        assertEquals(null, hotKey.getKey());
+        assertEquals(2, hotKey.getCount());
+    }
+
+    @Test
+    public void testTopK_countsScaledBySampleRate() {
+        HotKeyTracker tracker = new HotKeyTracker(4, 8);
+        for (int i = 0; i < 80_000; i++) {
+            tracker.onAccess("hot", 0, true);
+        }
+        assertEquals(80_000, tracker.topK(1).get(0).getCount(), 8_000);
+    }
+
+    @Test
+    public void testClear() {
+        HotKeyTracker tracker = new HotKeyTracker(4, 1);
+        tracker.onAccess("key", 0, true);
+        tracker.clear();
+        assertTrue(tracker.topK(4).isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_invalidCapacity() {
+        new HotKeyTracker(0, 1);
+    }
+}
@@ -0,0 +1,63 @@
+package cache.diagnostics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class MissClassifierTest {
+
+    @Test
+    public void testOnAccess_classifiesMisses() {
+        MissClassifier classifier = new MissClassifier(2, 1);
+        classifier.onAccess("a", 0, false);
+        classifier.onAccess("b", 0, false);
+        // a fully associative cache of two would still hold a
+        classifier.onAccess("a", 0, false);
+        classifier.onAccess("c", 1, false);
+        // b was pushed out of the shadow by a and c
+        classifier.onAccess("b", 0, false);
+        classifier.onAccess("b", 0, true);
+
+        assertEquals(6, classifier.getSampledAccesses());
+        assertEquals(3, classifier.getCompulsoryMisses());
+        assertEquals(1, classifier.getConflictMisses());
+        assertEquals(1, classifier.getCapacityMisses());
+    }
+
+    @Test
+    public void testOnAccess_samplesKeys() {
+        MissClassifier classifier = new MissClassifier(1000, 8);
+        for (int i = 0; i < 80_000; i++) {
+            classifier.onAccess(i, 0, false);
+        }
+        long sampled = classifier.getSampledAccesses();
+        assertTrue(sampled > 8_000 && sampled < 12_000);
+        assertEquals(sampled, classifier.getCompulsoryMisses(), sampled / 100);
+    }
+
+    @Test
+    public void testOnAccess_manyDistinctKeysAreCompulsory() {
+        MissClassifier classifier = new MissClassifier(1000, 16);
+        for (int i = 0; i < 1_000_000; i++) {
+            classifier.onAccess(i, 0, false);
+        }
+        long sampled = classifier.getSampledAccesses();
+        assertEquals(sampled, classifier.getCompulsoryMisses(), sampled / 100);
+    }
+
+    @Test
+    public void testReset() {
+        MissClassifier classifier = new MissClassifier(2, 1);
+        classifier.onAccess("a", 0, false);
+        classifier.reset();
+        classifier.onAccess("a", 0, false);
+        assertEquals(1, classifier.getSampledAccesses());
+        assertEquals(1, classifier.getCompulsoryMisses());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_invalidSampleRate() {
+        new MissClassifier(10, 0);
+    }
+}
@@ -0,0 +1,67 @@
+package cache.diagnostics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.NavigableMap;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class MissRatioCurveTest {
+
+    @Test
+    public void testHitRatio_loopEveryKeySampled() {
+        MissRatioCurve curve = new MissRatioCurve(200, 200, 1000);
+        for (int round = 0; round < 10; round++) {
+            for (int key = 0; key < 100; key++) {
+                curve.onAccess(key, 0, false);
+            }
+        }
+        // a loop over 100 keys only hits an LRU cache that holds all of them
+        assertEquals(1.0, curve.getSampleRate(), 0.0);
+        assertEquals(0.0, curve.getHitRatio(99), 0.0);
+        assertEquals(0.9, curve.getHitRatio(100), 0.0001);
+        assertEquals(0.9, curve.getHitRatio(200), 0.0001);
+    }
+
+    @Test
+    public void testHitRatio_loopSampled() {
+        MissRatioCurve curve = new MissRatioCurve(20_000, 20, 500);
+        for (int round = 0; round < 10; round++) {
+            for (int key = 0; key < 10_000; key++) {
+                curve.onAccess(key, 0, false);
+            }
+        }
+        assertTrue(curve.getSampleRate() < 0.1);
+        assertTrue(curve.getSamples() <= 500);
+        assertEquals(0.0, curve.getHitRatio(8_000), 0.05);
+        assertEquals(0.9, curve.getHitRatio(12_000), 0.05);
+    }
+
+    @Test
+    public void testGetCurve_uniformKeys() {
+        MissRatioCurve curve = new MissRatioCurve(2_000, 4, 2_000);
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            curve.onAccess(random.nextInt(1000), 0, true);
+        }
+        NavigableMap<Integer, Double> points = curve.getCurve();
+
+        assertEquals(4, points.size());
+        // uniform reads over 1000 keys hit in proportion to the cache size
+        assertEquals(0.5, points.get(500), 0.1);
+        assertEquals(1.0, points.get(2_000), 0.02);
+        assertTrue(points.get(500) < points.get(1000));
+    }
+
+    @Test
+    public void testHitRatio_nothingRead() {
+        assertEquals(0.0, new MissRatioCurve(100).getHitRatio(50), 0.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_invalidSamples() {
+        new MissRatioCurve(100, 10, 0);
+    }
+}
@@ -0,0 +1,26 @@
+package cache.diagnostics;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class SetReportTest {
+
+    @Test
+    public void testImbalance() {
+        SetReport report = new SetReport(4, new int[] { 4, 2, 0, 2 }, new long[] { 6, 0, 0, 2 });
+
+        assertEquals(4, report.getTotalSets());
+        assertEquals(1, report.getFullSets());
+        assertEquals(2.0, report.getMeanOccupancy(), 0.0);
+        assertEquals(2.0, report.getOccupancyImbalance(), 0.0);
+        assertEquals(3.0, report.getEvictionImbalance(), 0.0);
+    }
+
+    @Test
+    public void testImbalance_empty() {
+        SetReport report = new SetReport(4, new int[2], new long[2]);
+        assertEquals(0.0, report.getOccupancyImbalance(), 0.0);
+        assertEquals(0.0, report.getEvictionImbalance(), 0.0);
+    }
+}
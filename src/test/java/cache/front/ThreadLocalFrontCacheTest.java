@@ -0,0 +1,86 @@
+package cache.front;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.Test;
+
+import cache.NWaySetAssociativeCache;
+
+public class ThreadLocalFrontCacheTest {
+
+    private ThreadLocalFrontCache<String> frontCache = new ThreadLocalFrontCache<>(4, 2);
+
+    @Test
+    public void testGet_servesCopyUntilInvalidated() {
+        frontCache.put("key", "value", frontCache.epoch(1));
+        assertEquals("value", frontCache.get("key", 1));
+
+        frontCache.invalidate(0);
+        assertEquals("value", frontCache.get("key", 1));
+
+        frontCache.invalidate(1);
+        assertNull(frontCache.get("key", 1));
+        assertEquals(2L, frontCache.getHits());
+    }
+
+    @Test
+    public void testPut_staleEpochIsNeverServed() {
+        // the value was read before a put in the set bumped the epoch
+        long epoch = frontCache.epoch(0);
+        frontCache.invalidate(0);
+        frontCache.put("key", "oldValue", epoch);
+
+        assertNull(frontCache.get("key", 0));
+    }
+
+    @Test
+    public void testGet_copiesArePerThread() throws Exception {
+        frontCache.put("key", "value", frontCache.epoch(0));
+        AtomicReference<String> seen = new AtomicReference<>("unset");
+        Thread other = new Thread(() -> seen.set(frontCache.get("key", 0)));
+        other.start();
+        other.join();
+
+        assertNull(seen.get());
+        assertEquals("value", frontCache.get("key", 0));
+    }
+
+    @Test
+    public void testGet_nullKeyAndEmptySlots() {
+        assertNull(frontCache.get(null, 0));
+        frontCache.put(null, "value", frontCache.epoch(0));
+        assertEquals("value", frontCache.get(null, 0));
+        assertEquals(4, frontCache.getSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_zeroSize() {
+        new ThreadLocalFrontCache<String>(0, 2);
+    }
+
+    @Test
+    public void testCache_putOnAnotherThreadInvalidatesCopy() throws Exception {
+        NWaySetAssociativeCache<String, String> cache = new NWaySetAssociativeCache.Builder<String, String>()
+            .setTotalSets(2)
+            .setBlockSize(4)
+            .setFrontCacheSize(8)
+            .build();
+        cache.put("key", "value");
+        assertEquals("value", cache.get("key"));
+        assertEquals("value", cache.get("key"));
+        assertEquals(1L, cache.getFrontCache().getHits());
+
+        Thread writer = new Thread(() -> cache.put("key", "newValue"));
+        writer.start();
+        writer.join();
+        assertEquals("newValue", cache.get("key"));
+
+        Thread remover = new Thread(() -> cache.remove("key"));
+        remover.start();
+        remover.join();
+        assertNull(cache.get("key"));
+    }
+}
@@ -0,0 +1,34 @@
+package cache.hash;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class SeededHashFunctionTest {
+
+    @Test
+    public void testNull() {
+        SeededHashFunction hashFunction = new SeededHashFunction(7);
+        assertEquals(hashFunction.hash(null), hashFunction.hash(null));
+    }
+
+    @Test
+    public void testSeeds_spreadKeysIndependently() {
+        // keys sharing a set under one seed should scatter under another
+        SeededHashFunction first = new SeededHashFunction(1);
+        SeededHashFunction second = new SeededHashFunction(2);
+        int sets = 16;
+        int[] secondSets = new int[sets];
+        int sharing = 0;
+        for (int key = 0; key < 16_000; key++) {
+            if (Math.abs(first.hash(key) % sets) == 0) {
+                secondSets[Math.abs(second.hash(key) % sets)]++;
+                sharing++;
+            }
+        }
+        for (int count : secondSets) {
+            assertTrue(count < sharing / 8);
+        }
+    }
+}
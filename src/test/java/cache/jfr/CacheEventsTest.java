@@ -0,0 +1,57 @@
+package cache.jfr;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.junit.Test;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class CacheEventsTest {
+
+    @Test
+    public void testNoRecording_nothingIsStarted() {
+        assertNull(CacheEvents.beginGet());
+        assertNull(CacheEvents.beginPut());
+        assertEquals(0L, CacheEvents.insertionTime());
+        CacheEvents.endGet(null, 0, true);
+        CacheEvents.endPut(null, 0, false);
+    }
+
+    @Test
+    public void testLock_acquiresLock() {
+        ReentrantLock lock = new ReentrantLock();
+        CacheEvents.lock(lock, "write", this);
+        assertTrue(lock.isHeldByCurrentThread());
+        lock.unlock();
+    }
+
+    @Test
+    public void testEvicted_recordsPolicyAndAge() throws Exception {
+        Path file = Files.createTempFile("cache", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(CacheEvictionEvent.class);
+            recording.start();
+            long insertionTime = CacheEvents.insertionTime();
+            assertTrue(insertionTime != 0L);
+            CacheEvents.evicted(this, insertionTime);
+            recording.stop();
+            recording.dump(file);
+
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            assertEquals(1, events.size());
+            assertEquals("CacheEventsTest", events.get(0).getString("policy"));
+            assertTrue(events.get(0).getDuration("victimAge").toNanos() > 0L);
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package cache.loader;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Test;
+
+public class StridePrefetcherTest {
+
+    private StridePrefetcher<Integer> prefetcher = new StridePrefetcher<>(Integer::longValue,
+        position -> (int) position, 2, 3, 16);
+
+    @Test
+    public void testOnAccess_sequentialMissesPredictAhead() {
+        assertEquals(Collections.emptyList(), prefetcher.onAccess(10, false));
+        assertEquals(Collections.emptyList(), prefetcher.onAccess(11, false));
+
+        assertEquals(Arrays.asList(13, 14, 15), prefetcher.onAccess(12, false));
+        assertEquals(3L, prefetcher.getIssued());
+    }
+
+    @Test
+    public void testOnAccess_hitsOnPredictionsKeepTheStreamAhead() {
+        prefetcher.onAccess(10, false);
+        prefetcher.onAccess(11, false);
+        prefetcher.onAccess(12, false);
+
+        assertEquals(Arrays.asList(16), prefetcher.onAccess(13, true));
+        assertEquals(Arrays.asList(17), prefetcher.onAccess(14, true));
+        assertEquals(2L, prefetcher.getUseful());
+        // a hit that was not predicted does not train
+        assertEquals(Collections.emptyList(), prefetcher.onAccess(100, true));
+    }
+
+    @Test
+    public void testOnAccess_negativeStride() {
+        prefetcher.onAccess(100, false);
+        prefetcher.onAccess(96, false);
+
+        assertEquals(Arrays.asList(88, 84, 80), prefetcher.onAccess(92, false));
+    }
+
+    @Test
+    public void testOnAccess_interleavedStreams() {
+        prefetcher.onAccess(0, false);
+        prefetcher.onAccess(1000, false);
+        prefetcher.onAccess(2, false);
+        prefetcher.onAccess(1010, false);
+
+        assertEquals(Arrays.asList(6, 8, 10), prefetcher.onAccess(4, false));
+        assertEquals(Arrays.asList(1030, 1040, 1050), prefetcher.onAccess(1020, false));
+    }
+
+    @Test
+    public void testOnAccess_strideChangeRestartsConfirmation() {
+        prefetcher.onAccess(10, false);
+        prefetcher.onAccess(11, false);
+        prefetcher.onAccess(12, false);
+
+        assertEquals(Collections.emptyList(), prefetcher.onAccess(15, false));
+        assertEquals(Arrays.asList(21, 24, 27), prefetcher.onAccess(18, false));
+    }
+
+    @Test
+    public void testOnAccess_uselessPredictionsTurnPrefetchingOff() {
+        // every walk is abandoned right after it is confirmed
+        for (int walk = 0; walk < 40 && prefetcher.isEnabled(); walk++) {
+            int start = walk * 1000;
+            prefetcher.onAccess(start, false);
+            prefetcher.onAccess(start + 1, false);
+            prefetcher.onAccess(start + 2, false);
+        }
+        assertFalse(prefetcher.isEnabled());
+        long issued = prefetcher.getIssued();
+
+        prefetcher.onAccess(100000, false);
+        prefetcher.onAccess(100001, false);
+        assertEquals(Collections.emptyList(), prefetcher.onAccess(100002, false));
+        assertEquals(issued, prefetcher.getIssued());
+
+        // predictions are still scored and turn it back on once they come true
+        for (int key = 100003; !prefetcher.isEnabled(); key++) {
+            prefetcher.onAccess(key, false);
+        }
+        assertTrue(prefetcher.getAccuracy() >= 8);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_degreeZero() {
+        new StridePrefetcher<>(Integer::longValue, position -> (int) position, 1, 0, 1);
+    }
+}
@@ -0,0 +1,148 @@
+package cache.memory;
+
+import static org.junit.Assert.assertEquals;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import cache.NWaySetAssociativeCache;
+
+public class MemoryPressureMonitorTest {
+
+    private List<Double> fractions = new ArrayList<>();
+    private MemoryPressureMonitor monitor = new MemoryPressureMonitor(fractions::add, 0.99, 0.5, 0.2, 0.25, 1,
+        TimeUnit.HOURS);
+
+    @After
+    public void closeMonitor() {
+        monitor.close();
+    }
+
+    @Test
+    public void testShrink_halvesDownToMinimum() {
+        monitor.shrink();
+        monitor.shrink();
+        monitor.shrink();
+        monitor.shrink();
+
+        assertEquals(Arrays.asList(0.5, 0.25, 0.2), fractions);
+        assertEquals(0.2, monitor.getCapacityFraction(), 0.0);
+        assertEquals(3L, monitor.getShrinks());
+    }
+
+    @Test
+    public void testRestore_stepsBackToFullCapacity() {
+        monitor.shrink();
+        monitor.shrink();
+        fractions.clear();
+
+        // no pool is watched before start(), so there is never pressure
+        monitor.restore();
+        monitor.restore();
+        monitor.restore();
+        monitor.restore();
+
+        assertEquals(Arrays.asList(0.5, 0.75, 1.0), fractions);
+        assertEquals(1.0, monitor.getCapacityFraction(), 0.0);
+    }
+
+    @Test
+    public void testClose_restoresFullCapacity() {
+        monitor.start();
+        monitor.shrink();
+        monitor.close();
+
+        assertEquals(Arrays.asList(0.5, 1.0), fractions);
+    }
+
+    @Test
+    public void testClose_restoresPoolThresholds() {
+        Map<String, Long> before = thresholds();
+        MemoryPressureMonitor lower = new MemoryPressureMonitor(fractions::add, 0.95);
+        monitor.start();
+        lower.start();
+
+        Map<String, Long> lowest = thresholds();
+        for (MemoryPoolMXBean pool : heapPools()) {
+            assertEquals((long) (pool.getUsage().getMax() * 0.95), (long) lowest.get(pool.getName()));
+        }
+
+        // the other monitor's threshold stays
+        lower.close();
+        Map<String, Long> remaining = thresholds();
+        for (MemoryPoolMXBean pool : heapPools()) {
+            assertEquals((long) (pool.getUsage().getMax() * 0.99), (long) remaining.get(pool.getName()));
+        }
+
+        monitor.close();
+        assertEquals(before, thresholds());
+    }
+
+    @Test
+    public void testClose_cacheStopsItsMonitor() {
+        Map<String, Long> before = thresholds();
+        NWaySetAssociativeCache<Integer, String> cache = new NWaySetAssociativeCache.Builder<Integer, String>()
+            .setMemoryPressureThreshold(0.97)
+            .build();
+
+        cache.close();
+
+        assertEquals(before, thresholds());
+    }
+
+    private static List<MemoryPoolMXBean> heapPools() {
+        List<MemoryPoolMXBean> pools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP && pool.getUsage().getMax() > 0
+                && (pool.isCollectionUsageThresholdSupported() || pool.isUsageThresholdSupported())) {
+                pools.add(pool);
+            }
+        }
+        return pools;
+    }
+
+    private static Map<String, Long> thresholds() {
+        Map<String, Long> thresholds = new HashMap<>();
+        for (MemoryPoolMXBean pool : heapPools()) {
+            thresholds.put(pool.getName(), pool.isCollectionUsageThresholdSupported()
+                ? pool.getCollectionUsageThreshold() : pool.getUsageThreshold());
+        }
+        return thresholds;
+    }
+
+    @Test
+    public void testShrink_resizesCacheSets() {
+        NWaySetAssociativeCache<Integer, String> cache = new NWaySetAssociativeCache.Builder<Integer, String>()
+            .setTotalSets(2)
+            .setBlockSize(8)
+            .build();
+        for (int i = 0; i < 16; i++) {
+            cache.put(i, "value" + i);
+        }
+        monitor.close();
+        monitor = new MemoryPressureMonitor(cache::setCapacityFraction, 0.99);
+
+        monitor.shrink();
+        assertEquals(4, cache.getSetCapacity());
+        assertEquals(8, cache.size());
+        assertEquals(16, cache.maxSize());
+
+        monitor.restore();
+        assertEquals(5, cache.getSetCapacity());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_thresholdOutOfRange() {
+        new MemoryPressureMonitor(fractions::add, 1.5);
+    }
+}
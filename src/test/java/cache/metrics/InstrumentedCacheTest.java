@@ -0,0 +1,65 @@
+package cache.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import cache.Cache;
+
+@RunWith(MockitoJUnitRunner.class)
+public class InstrumentedCacheTest {
+
+    @Mock
+    private Cache<String, String> delegate;
+
+    private InstrumentedCache<String, String> cache;
+
+    @Before
+    public void setUpNewCache() {
+        cache = new InstrumentedCache<>(delegate);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_nullCache() {
+        new InstrumentedCache<String, String>(null);
+    }
+
+    @Test
+    public void testOperations_passThroughAndRecord() {
+        when(delegate.get("key")).thenReturn("value");
+        when(delegate.put("key", "value")).thenReturn("old");
+        when(delegate.remove("key")).thenReturn("value");
+
+        assertEquals("value", cache.get("key"));
+        assertEquals("value", cache.get("key"));
+        assertEquals("old", cache.put("key", "value"));
+        assertEquals("value", cache.remove("key"));
+
+        assertEquals(2, cache.getGetLatency().getCount());
+        assertEquals(1, cache.getPutLatency().getCount());
+        assertEquals(1, cache.getRemoveLatency().getCount());
+    }
+
+    @Test
+    public void testPut_recordsWhenDelegateThrows() {
+        when(delegate.put("key", "value")).thenThrow(new IllegalStateException());
+        try {
+            cache.put("key", "value");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertEquals(1, cache.getPutLatency().getCount());
+    }
+
+    @Test
+    public void testClear_passesThrough() {
+        cache.clear();
+        verify(delegate).clear();
+    }
+}
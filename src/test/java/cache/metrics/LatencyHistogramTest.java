@@ -0,0 +1,97 @@
+package cache.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBucketIndex_boundsContainValue() {
+        long[] values = { 0L, 1L, 15L, 16L, 17L, 31L, 32L, 1000L, 123456789L, Long.MAX_VALUE };
+        for (long value : values) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(index < LatencyHistogram.BUCKETS);
+            assertTrue(value <= LatencyHistogram.bucketUpperBound(index));
+            if (index > 0) {
+                assertTrue(value > LatencyHistogram.bucketUpperBound(index - 1));
+            }
+        }
+    }
+
+    @Test
+    public void testBucketUpperBound_withinRelativeError() {
+        for (long value = 16L; value < 1_000_000_000L; value = value * 3 + 1) {
+            long upper = LatencyHistogram.bucketUpperBound(LatencyHistogram.bucketIndex(value));
+            assertTrue((double) (upper - value) / value <= 1.0 / 16);
+        }
+    }
+
+    @Test
+    public void testSnapshot_percentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000);
+        }
+        LatencySnapshot snapshot = histogram.snapshot();
+
+        assertEquals(1000, snapshot.getCount());
+        assertEquals(1_000_000L, snapshot.getMax());
+        assertEquals(500_000L, snapshot.getP50(), 500_000L / 16);
+        assertEquals(990_000L, snapshot.getP99(), 990_000L / 16);
+        assertEquals(1_000_000L, snapshot.getP999());
+    }
+
+    @Test
+    public void testSnapshot_empty() {
+        LatencySnapshot snapshot = new LatencyHistogram().snapshot();
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0L, snapshot.getP99());
+        assertEquals(0L, snapshot.getMax());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSnapshot_invalidPercentile() {
+        new LatencyHistogram().snapshot().getValueAtPercentile(101.0);
+    }
+
+    @Test
+    public void testRecord_mergesThreads() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            long latency = (t + 1) * 100L;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    histogram.record(latency);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        LatencySnapshot snapshot = histogram.snapshot();
+
+        assertEquals(40_000, snapshot.getCount());
+        assertEquals(400L, snapshot.getMax());
+        assertEquals(100L, snapshot.getValueAtPercentile(25.0), 100L / 16);
+    }
+
+    @Test
+    public void testRecord_shortLivedThreadsShareStripes() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int t = 0; t < 4 * LatencyHistogram.STRIPES; t++) {
+            Thread thread = new Thread(() -> histogram.record(100L));
+            thread.start();
+            thread.join();
+        }
+
+        assertEquals(4 * LatencyHistogram.STRIPES, histogram.snapshot().getCount());
+    }
+}
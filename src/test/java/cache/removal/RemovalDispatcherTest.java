@@ -0,0 +1,94 @@
+package cache.removal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+
+@RunWith(MockitoJUnitRunner.class)
+public class RemovalDispatcherTest {
+
+    private static final int BATCH_SIZE = 2;
+
+    @Mock
+    private RemovalListener<String, String> listener;
+
+    private List<Runnable> tasks;
+
+    private RemovalDispatcher<String, String> dispatcher;
+
+    @Before
+    public void setup() {
+        tasks = new ArrayList<>();
+        dispatcher = new RemovalDispatcher<>(listener, tasks::add, BATCH_SIZE);
+    }
+
+    @Test
+    public void testOnRemoval_neverRunsListenerOnCaller() {
+        dispatcher.onRemoval("key", "value", RemovalCause.EXPLICIT);
+        dispatcher.onRemoval("key2", "value2", RemovalCause.EVICTED);
+
+        verify(listener, never()).onRemoval("key", "value", RemovalCause.EXPLICIT);
+        assertEquals(1, tasks.size());
+        assertEquals(2, dispatcher.pending());
+    }
+
+    @Test
+    public void testDispatch_inBatches() {
+        for (int i = 0; i < 5; i++) {
+            dispatcher.onRemoval("key" + i, "value" + i, RemovalCause.EVICTED);
+        }
+        assertEquals(1, tasks.size());
+
+        int run = 0;
+        while (run < tasks.size()) {
+            tasks.get(run++).run();
+        }
+
+        // 5 notifications in batches of 2 need 3 tasks
+        assertEquals(3, tasks.size());
+        assertEquals(0, dispatcher.pending());
+        InOrder inOrder = inOrder(listener);
+        for (int i = 0; i < 5; i++) {
+            inOrder.verify(listener).onRemoval("key" + i, "value" + i, RemovalCause.EVICTED);
+        }
+    }
+
+    @Test
+    public void testDispatch_failingListenerDoesNotStopDelivery() {
+        doThrow(new IllegalStateException()).when(listener).onRemoval("bad", "value", RemovalCause.EXPLICIT);
+        dispatcher.onRemoval("bad", "value", RemovalCause.EXPLICIT);
+        dispatcher.onRemoval("good", "value", RemovalCause.EXPLICIT);
+
+        dispatcher.dispatchAll();
+
+        verify(listener).onRemoval("good", "value", RemovalCause.EXPLICIT);
+        assertEquals(0, dispatcher.pending());
+    }
+
+    @Test
+    public void testDispatch_rejectedExecutionKeepsNotifications() {
+        RemovalDispatcher<String, String> rejecting = new RemovalDispatcher<>(listener, task -> {
+            throw new RejectedExecutionException();
+        });
+        rejecting.onRemoval("key", "value", RemovalCause.CLEARED);
+        assertEquals(1, rejecting.pending());
+
+        rejecting.dispatchAll();
+        verify(listener).onRemoval("key", "value", RemovalCause.CLEARED);
+        assertTrue(tasks.isEmpty());
+    }
+}
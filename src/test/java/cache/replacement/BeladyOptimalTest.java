@@ -0,0 +1,61 @@
+package cache.replacement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import cache.exception.EvictionNotPossible;
+import cache.subcache.HashMapCacheSet;
+
+public class BeladyOptimalTest {
+
+    @Test
+    public void testEvict_furthestNextUse() throws Exception {
+        FutureAccesses future = new FutureAccesses(consumer -> {
+            for (long key : new long[] { 1, 2, 3, 4, 2, 1, 3 }) {
+                consumer.accept(key);
+            }
+        });
+        BeladyOptimal<Long, String> optimal = new BeladyOptimal<>(future);
+        HashMapCacheSet<Long, String> set = new HashMapCacheSet<>(3);
+        set.setReplacementAlgorithm(optimal);
+        for (long key = 1; key <= 3; key++) {
+            optimal.advance();
+            set.put(key, "value" + key);
+        }
+
+        // at 4, key 3 is used last
+        optimal.advance();
+        assertEquals("value3", set.put(4L, "value4"));
+        assertTrue(set.containsKey(1L));
+        assertTrue(set.containsKey(2L));
+    }
+
+    @Test
+    public void testEvict_neverUsedAgain() throws Exception {
+        FutureAccesses future = new FutureAccesses(consumer -> {
+            for (long key : new long[] { 1, 2, 3, 1 }) {
+                consumer.accept(key);
+            }
+        });
+        BeladyOptimal<Long, String> optimal = new BeladyOptimal<>(future);
+        HashMapCacheSet<Long, String> set = new HashMapCacheSet<>(2);
+        set.setReplacementAlgorithm(optimal);
+        optimal.advance();
+        set.put(1L, "1");
+        optimal.advance();
+        set.put(2L, "2");
+        optimal.advance();
+
+        assertEquals("2", set.put(3L, "3"));
+        assertEquals(2, optimal.getPosition());
+    }
+
+    @Test(expected = EvictionNotPossible.class)
+    public void testEvict_empty() throws Exception {
+        BeladyOptimal<Long, String> optimal = new BeladyOptimal<>(new FutureAccesses(consumer -> {
+        }));
+        optimal.evict(new HashMapCacheSet<>(2));
+    }
+}
@@ -0,0 +1,59 @@
+package cache.replacement;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
+
+import org.junit.Test;
+
+public class FutureAccessesTest {
+
+    private static Consumer<LongConsumer> trace(long... keys) {
+        return consumer -> {
+            for (long key : keys) {
+                consumer.accept(key);
+            }
+        };
+    }
+
+    @Test
+    public void testNextUse() {
+        FutureAccesses future = new FutureAccesses(trace(1, 2, 1, 3, 1, 2));
+
+        assertEquals(6, future.size());
+        assertEquals(3, future.distinctKeys());
+        assertEquals(0, future.nextUse(1, -1));
+        assertEquals(2, future.nextUse(1, 0));
+        assertEquals(4, future.nextUse(1, 2));
+        assertEquals(FutureAccesses.NEVER, future.nextUse(1, 4));
+        assertEquals(5, future.nextUse(2, 1));
+        assertEquals(FutureAccesses.NEVER, future.nextUse(3, 3));
+        assertEquals(FutureAccesses.NEVER, future.nextUse(42, 0));
+    }
+
+    @Test
+    public void testNextUse_manyKeys() {
+        int accesses = 200_000;
+        FutureAccesses future = new FutureAccesses(consumer -> {
+            for (int i = 0; i < accesses; i++) {
+                consumer.accept(i % 50_000 * 31L);
+            }
+        });
+
+        assertEquals(50_000, future.distinctKeys());
+        assertEquals(50_000 + 7, future.nextUse(7 * 31L, 7));
+        assertEquals(FutureAccesses.NEVER, future.nextUse(7 * 31L, 150_000 + 7));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_traceChanged() {
+        long[] keys = { 1, 2 };
+        new FutureAccesses(consumer -> {
+            for (long key : keys) {
+                consumer.accept(key);
+            }
+            keys[1] = 3;
+        });
+    }
+}
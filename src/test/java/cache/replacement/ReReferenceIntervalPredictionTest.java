@@ -0,0 +1,128 @@
+package cache.replacement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import cache.subcache.CacheSet;
+import cache.subcache.HashMapCacheSet;
+import cache.subcache.StampedLockCacheSet;
+
+public class ReReferenceIntervalPredictionTest {
+
+    private ReReferenceIntervalPrediction<String, String> algorithm;
+    private CacheSet<String, String> cacheSet;
+
+    @Before
+    public void setUpNewCache() {
+        algorithm = new ReReferenceIntervalPrediction<>();
+        cacheSet = new HashMapCacheSet<>(3);
+        cacheSet.setReplacementAlgorithm(algorithm);
+    }
+
+    @Test
+    public void testNotifyAccess_insertsLongAndHitsNear() throws Exception {
+        cacheSet.put("a", "1");
+        assertEquals(2, algorithm.getPrediction(wayOf(cacheSet, "a")));
+
+        cacheSet.put("a", "2");
+        assertEquals(0, algorithm.getPrediction(wayOf(cacheSet, "a")));
+        assertEquals(-1, algorithm.getPrediction(1));
+    }
+
+    @Test
+    public void testEvict_agesUntilAnEntryIsDistant() throws Exception {
+        cacheSet.put("a", "1");
+        cacheSet.put("b", "2");
+        cacheSet.put("c", "3");
+        cacheSet.put("a", "1");
+
+        assertEquals("2", cacheSet.put("d", "4"));
+        assertFalse(cacheSet.containsKey("b"));
+        assertEquals(1, algorithm.getPrediction(wayOf(cacheSet, "a")));
+        assertEquals(3, algorithm.getPrediction(wayOf(cacheSet, "c")));
+        assertEquals(2, algorithm.getPrediction(wayOf(cacheSet, "d")));
+
+        // c is distant already, no aging needed
+        assertEquals("3", cacheSet.put("e", "5"));
+        assertEquals(1, algorithm.getPrediction(wayOf(cacheSet, "a")));
+        assertEquals(2, algorithm.getPrediction(wayOf(cacheSet, "e")));
+    }
+
+    @Test
+    public void testNullKey() throws Exception {
+        cacheSet.put(null, "1");
+        cacheSet.put("b", "2");
+        cacheSet.put("c", "3");
+        cacheSet.put("d", "4");
+
+        assertFalse(cacheSet.containsKey(null));
+        assertEquals(3, cacheSet.size());
+    }
+
+    @Test
+    public void testBimodal_scanDoesNotFlushHitEntries() throws Exception {
+        BimodalReReferenceIntervalPrediction<String, String> bimodal = new BimodalReReferenceIntervalPrediction<>(2,
+            32);
+        CacheSet<String, String> set = new HashMapCacheSet<>(4);
+        set.setReplacementAlgorithm(bimodal);
+        set.put("hot0", "value");
+        set.put("hot1", "value");
+        set.put("hot0", "value");
+        set.put("hot1", "value");
+
+        for (int i = 0; i < 20; i++) {
+            set.put("scan" + i, "value");
+        }
+
+        assertTrue(set.containsKey("hot0"));
+        assertTrue(set.containsKey("hot1"));
+        assertEquals(3, bimodal.getPrediction(wayOf(set, "scan19")));
+    }
+
+    @Test
+    public void testEvict_stampedLockCacheSet() throws Exception {
+        cacheSet = new StampedLockCacheSet<>(2);
+        cacheSet.setReplacementAlgorithm(algorithm);
+        cacheSet.put("a", "1");
+        cacheSet.put("b", "2");
+        cacheSet.put("a", "1");
+
+        assertEquals("2", cacheSet.put("c", "3"));
+        assertTrue(cacheSet.containsKey("a"));
+        assertEquals(2, algorithm.getPrediction(wayOf(cacheSet, "c")));
+    }
+
+    @Test
+    public void testNewInstance_keepsConfiguration() {
+        ReplacementAlgorithm<String, String> copy = new BimodalReReferenceIntervalPrediction<String, String>(3, 8)
+            .newInstance();
+
+        assertTrue(copy instanceof BimodalReReferenceIntervalPrediction);
+        assertEquals(3, ((ReReferenceIntervalPrediction<String, String>) copy).getBits());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_bitsOutOfRange() {
+        new ReReferenceIntervalPrediction<String, String>(8);
+    }
+
+    /**
+     * @return the way the set gave the key
+     */
+    private static int wayOf(CacheSet<String, String> set, String key) {
+        for (int way = 0; way < set.maxSize(); way++) {
+            try {
+                if (key.equals(set.keyAt(way))) {
+                    return way;
+                }
+            } catch (IllegalArgumentException e) {
+                // a free way
+            }
+        }
+        throw new AssertionError(key + " holds no way");
+    }
+}
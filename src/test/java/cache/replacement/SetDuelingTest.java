@@ -0,0 +1,95 @@
+package cache.replacement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import cache.NWaySetAssociativeCache;
+import cache.replacement.SetDueling.Policy;
+import cache.subcache.CacheSet;
+import cache.subcache.HashMapCacheSet;
+
+public class SetDuelingTest {
+
+    private SetDueling<String, String> prototype = new SetDueling<>(4, 4);
+
+    private List<SetDueling<String, String>> newInstances(int count) {
+        List<SetDueling<String, String>> instances = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            instances.add((SetDueling<String, String>) prototype.newInstance());
+        }
+        return instances;
+    }
+
+    private CacheSet<String, String> newSet(SetDueling<String, String> algorithm) {
+        CacheSet<String, String> set = new HashMapCacheSet<>(2);
+        set.setReplacementAlgorithm(algorithm);
+        return set;
+    }
+
+    @Test
+    public void testNewInstance_assignsLeadersInTurn() {
+        List<SetDueling<String, String>> instances = newInstances(8);
+
+        assertEquals(Policy.LRU, instances.get(0).getPolicy());
+        assertEquals(Policy.MRU, instances.get(1).getPolicy());
+        assertTrue(instances.get(0).isLeader());
+        assertTrue(instances.get(1).isLeader());
+        assertFalse(instances.get(2).isLeader());
+        assertFalse(instances.get(3).isLeader());
+        assertTrue(instances.get(4).isLeader());
+        assertFalse(prototype.isLeader());
+    }
+
+    @Test
+    public void testEvict_followersSwitchToThePolicyThatMissesLess() throws Exception {
+        List<SetDueling<String, String>> instances = newInstances(3);
+        CacheSet<String, String> lruLeader = newSet(instances.get(0));
+        CacheSet<String, String> follower = newSet(instances.get(2));
+        follower.put("a", "1");
+        follower.put("b", "2");
+        assertEquals(Policy.LRU, instances.get(2).getPolicy());
+
+        lruLeader.put("x", "1");
+        lruLeader.put("y", "2");
+        lruLeader.put("z", "3");
+
+        assertEquals(9, instances.get(2).getCounter());
+        assertEquals(Policy.MRU, instances.get(2).getPolicy());
+        follower.put("c", "3");
+        assertTrue(follower.containsKey("a"));
+        assertFalse(follower.containsKey("b"));
+    }
+
+    @Test
+    public void testEvict_loopLargerThanTheSets() {
+        NWaySetAssociativeCache<Integer, Integer> lru = newCache(new LeastRecentlyUsed<>());
+        NWaySetAssociativeCache<Integer, Integer> dueling = newCache(new SetDueling<>(4, 4));
+        for (int round = 0; round < 20; round++) {
+            for (int key = 0; key < 64; key++) {
+                if (lru.get(key) == null) {
+                    lru.put(key, key);
+                }
+                if (dueling.get(key) == null) {
+                    dueling.put(key, key);
+                }
+            }
+        }
+
+        assertEquals(0L, lru.getHits());
+        assertTrue(dueling.getHits() > 0);
+    }
+
+    private static NWaySetAssociativeCache<Integer, Integer> newCache(ReplacementAlgorithm<Integer, Integer> algorithm) {
+        return new NWaySetAssociativeCache.Builder<Integer, Integer>()
+            .setTotalSets(8)
+            .setBlockSize(4)
+            .setReplacementAlgorithm(algorithm)
+            .build();
+    }
+}
@@ -0,0 +1,148 @@
+package cache.replacement;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import cache.NWaySetAssociativeCache;
+import cache.exception.EvictionNotPossible;
+import cache.subcache.CacheSet;
+import cache.subcache.HashMapCacheSet;
+import cache.subcache.Maintenance;
+import cache.subcache.StampedLockCacheSet;
+
+public class TreePseudoLeastRecentlyUsedTest {
+
+    private TreePseudoLeastRecentlyUsed<String, String> algorithm;
+    private CacheSet<String, String> cacheSet;
+
+    @Before
+    public void setUpNewCache() {
+        algorithm = new TreePseudoLeastRecentlyUsed<>();
+        cacheSet = new HashMapCacheSet<>(4);
+        cacheSet.setReplacementAlgorithm(algorithm);
+    }
+
+    @Test
+    public void testEvict_leastRecentlyUsedAfterInOrderAccesses() throws Exception {
+        cacheSet.put("a", "1");
+        cacheSet.put("b", "2");
+        cacheSet.put("c", "3");
+        cacheSet.put("d", "4");
+
+        assertEquals("1", cacheSet.put("e", "5"));
+        assertFalse(cacheSet.containsKey("a"));
+        assertEquals("e", cacheSet.keyAt(0));
+    }
+
+    @Test
+    public void testEvict_followsTheTreeNotTheExactOrder() throws Exception {
+        cacheSet.put("a", "1");
+        cacheSet.put("b", "2");
+        cacheSet.put("c", "3");
+        cacheSet.put("d", "4");
+        cacheSet.put("e", "5");
+
+        // b is least recently used, but the root points away from e's half
+        assertEquals("3", cacheSet.put("f", "6"));
+        assertTrue(cacheSet.containsKey("b"));
+        assertEquals("f", cacheSet.keyAt(2));
+    }
+
+    @Test
+    public void testEvict_hitProtectsTheEntry() throws Exception {
+        cacheSet.put("a", "1");
+        cacheSet.put("b", "2");
+        cacheSet.put("c", "3");
+        cacheSet.put("d", "4");
+        cacheSet.put("a", "1");
+
+        assertEquals("3", cacheSet.put("e", "5"));
+        assertTrue(cacheSet.containsKey("a"));
+    }
+
+    @Test
+    public void testEvict_skipsFreeWays() throws Exception {
+        cacheSet.put("a", "1");
+        cacheSet.put("b", "2");
+        cacheSet.put("c", "3");
+        cacheSet.remove("a");
+        cacheSet.remove("b");
+
+        assertEquals("3", algorithm.evict(cacheSet));
+        assertTrue(cacheSet.isEmpty());
+    }
+
+    @Test
+    public void testEvict_stampedLockCacheSet() throws Exception {
+        cacheSet = new StampedLockCacheSet<>(2);
+        cacheSet.setReplacementAlgorithm(algorithm);
+        cacheSet.put("a", "1");
+        cacheSet.put("b", "2");
+        cacheSet.put("a", "1");
+
+        assertEquals("2", cacheSet.put("c", "3"));
+        assertEquals("c", cacheSet.keyAt(1));
+    }
+
+    @Test
+    public void testEvict_treeSizedToTheWays() throws Exception {
+        algorithm = new TreePseudoLeastRecentlyUsed<>(3);
+        cacheSet = new HashMapCacheSet<>(3);
+        cacheSet.setReplacementAlgorithm(algorithm);
+        cacheSet.put("a", "1");
+        cacheSet.put("b", "2");
+        cacheSet.put("c", "3");
+
+        assertEquals("1", cacheSet.put("d", "4"));
+        // the root points away from d, the empty fourth leaf is skipped
+        assertEquals("3", cacheSet.put("e", "5"));
+        assertTrue(cacheSet.containsKey("b"));
+    }
+
+    @Test
+    public void testBuilder_acceptsUpTo64WaysWithSlack() {
+        NWaySetAssociativeCache<String, String> cache = new NWaySetAssociativeCache.Builder<String, String>()
+            .setBlockSize(60)
+            .setMaintenance(new Maintenance(Runnable::run, 4))
+            .setReplacementAlgorithm(new TreePseudoLeastRecentlyUsed<>())
+            .build();
+
+        for (int i = 0; i < 1000; i++) {
+            cache.put("key" + i, "value" + i);
+        }
+        assertTrue(cache.size() <= cache.maxSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBuilder_rejectsMoreThan64Ways() {
+        new NWaySetAssociativeCache.Builder<String, String>()
+            .setBlockSize(60)
+            .setMaintenance(new Maintenance(Runnable::run, 5))
+            .setReplacementAlgorithm(new TreePseudoLeastRecentlyUsed<>())
+            .build();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_waysOutOfRange() {
+        new TreePseudoLeastRecentlyUsed<String, String>(65);
+    }
+
+    @Test(expected = EvictionNotPossible.class)
+    public void testEvict_empty() throws Exception {
+        algorithm.evict(cacheSet);
+    }
+
+    @Test(expected = EvictionNotPossible.class)
+    public void testReset_forgetsAllWays() throws Exception {
+        cacheSet.put("a", "1");
+        cacheSet.clear();
+        cacheSet.put("b", "2");
+        cacheSet.remove("b");
+
+        algorithm.evict(cacheSet);
+    }
+}
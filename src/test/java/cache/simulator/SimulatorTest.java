@@ -0,0 +1,107 @@
+package cache.simulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SimulatorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path loopTrace(int keys, int rounds) throws Exception {
+        StringBuilder csv = new StringBuilder();
+        for (int round = 0; round < rounds; round++) {
+            for (int key = 0; key < keys; key++) {
+                csv.append(key).append('\n');
+            }
+        }
+        Path path = folder.newFile("loop.csv").toPath();
+        Files.write(path, csv.toString().getBytes(StandardCharsets.US_ASCII));
+        return path;
+    }
+
+    @Test
+    public void testSimulate_loopFits() throws Exception {
+        Path trace = loopTrace(16, 10);
+        SimulationResult result = new Simulator(1).simulate(trace,
+            Configuration.parse("HASH_MAP_CACHE_SET:4:8:LeastRecentlyUsed"));
+
+        assertEquals(160, result.getAccesses());
+        assertEquals(16, result.getMisses());
+        assertEquals(144, result.getHits());
+        assertEquals(0, result.getEvictions());
+        assertEquals(0.9, result.getHitRatio(), 0.0001);
+    }
+
+    @Test
+    public void testSimulateAll_comparesConfigurations() throws Exception {
+        Path trace = loopTrace(12, 10);
+        List<Configuration> configurations = Arrays.asList(
+            Configuration.parse("HASH_MAP_CACHE_SET:1:8:LeastRecentlyUsed"),
+            Configuration.parse("STAMPED_LOCK_CACHE_SET:1:8:MostRecentlyUsed:NullSafeHashFunction"));
+
+        List<SimulationResult> results = new Simulator(2).simulateAll(trace, configurations);
+
+        // a loop larger than the cache defeats LRU but not MRU
+        assertEquals(0, results.get(0).getHits());
+        assertEquals(120 - 8, results.get(0).getEvictions());
+        assertTrue(results.get(1).getHits() > 0);
+        assertEquals(configurations.get(1).getName(), results.get(1).getName());
+    }
+
+    @Test
+    public void testSimulateAll_optimalIsAnUpperBound() throws Exception {
+        Path trace = loopTrace(12, 10);
+        List<Configuration> configurations = Arrays.asList(
+            Configuration.parse("HASH_MAP_CACHE_SET:2:4:LeastRecentlyUsed"),
+            Configuration.parse("HASH_MAP_CACHE_SET:2:4:MostRecentlyUsed"),
+            Configuration.parse("HASH_MAP_CACHE_SET:2:4:BeladyOptimal"),
+            Configuration.parse("STAMPED_LOCK_CACHE_SET:2:4:BeladyOptimal"));
+
+        List<SimulationResult> results = new Simulator(4).simulateAll(trace, configurations);
+
+        assertTrue(results.get(2).getHits() >= results.get(0).getHits());
+        assertTrue(results.get(2).getHits() >= results.get(1).getHits());
+        assertEquals(results.get(2).getHits(), results.get(3).getHits());
+    }
+
+    @Test
+    public void testSimulateAll_twoChoiceSpillsHotSet() throws Exception {
+        Path trace = loopTrace(8, 10);
+        // every key hashes to set 0 of the primary hash function
+        List<Configuration> configurations = Arrays.asList(
+            Configuration.parse("HASH_MAP_CACHE_SET:4:4:LeastRecentlyUsed:CompletelyPredictableHashFunction"),
+            Configuration.parse(
+                "HASH_MAP_CACHE_SET:4:4:LeastRecentlyUsed:CompletelyPredictableHashFunction:SeededHashFunction"));
+
+        List<SimulationResult> results = new Simulator(2).simulateAll(trace, configurations);
+
+        assertEquals(0, results.get(0).getHits());
+        assertTrue(results.get(1).getHits() > 0);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testNewCache_optimalNeedsTheTrace() {
+        Configuration.parse("HASH_MAP_CACHE_SET:4:8:BeladyOptimal").newCache();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParse_unknownAlgorithm() {
+        Configuration.parse("HASH_MAP_CACHE_SET:4:8:Unknown");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParse_missingFields() {
+        Configuration.parse("HASH_MAP_CACHE_SET:4");
+    }
+}
@@ -0,0 +1,98 @@
+package cache.simulator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import cache.trace.Operation;
+import cache.trace.TraceFormat;
+
+public class TraceReaderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path binaryTrace(int records) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(TraceFormat.HEADER_SIZE + records * TraceFormat.RECORD_SIZE);
+        TraceFormat.writeHeader(buffer);
+        for (int i = 0; i < records; i++) {
+            TraceFormat.writeRecord(buffer, i, i * 10L, Operation.fromCode(i % 3), TraceFormat.UNKNOWN, -1);
+        }
+        Path path = folder.newFile("trace.bin").toPath();
+        Files.write(path, buffer.array());
+        return path;
+    }
+
+    @Test
+    public void testBinary_readsAcrossWindows() throws Exception {
+        Path path = binaryTrace(100);
+        // a window that is not a multiple of the record size
+        try (TraceReader reader = new BinaryTraceReader(path, 50)) {
+            for (int i = 0; i < 100; i++) {
+                assertTrue(reader.next());
+                assertEquals(i * 10L, reader.key());
+                assertEquals(Operation.fromCode(i % 3), reader.operation());
+            }
+            assertFalse(reader.next());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testBinary_rejectsOtherFiles() throws Exception {
+        Path path = folder.newFile("other.bin").toPath();
+        Files.write(path, "not a trace".getBytes(StandardCharsets.US_ASCII));
+        TraceReader.open(path);
+    }
+
+    @Test
+    public void testCsv_readsAcrossWindows() throws Exception {
+        Path path = folder.newFile("trace.csv").toPath();
+        String csv = "# key,operation\n1\n22,put\r\n\n-333, remove\nuser:42,GET\n4444";
+        Files.write(path, csv.getBytes(StandardCharsets.US_ASCII));
+
+        try (TraceReader reader = new CsvTraceReader(path, 16)) {
+            assertTrue(reader.next());
+            assertEquals(1L, reader.key());
+            assertEquals(Operation.GET, reader.operation());
+            assertTrue(reader.next());
+            assertEquals(22L, reader.key());
+            assertEquals(Operation.PUT, reader.operation());
+            assertTrue(reader.next());
+            assertEquals(-333L, reader.key());
+            assertEquals(Operation.REMOVE, reader.operation());
+            assertTrue(reader.next());
+            long hashed = reader.key();
+            assertEquals(Operation.GET, reader.operation());
+            assertTrue(reader.next());
+            assertEquals(4444L, reader.key());
+            assertFalse(reader.next());
+
+            // the same non numeric key always hashes the same
+            try (TraceReader again = TraceReader.open(path)) {
+                for (int i = 0; i < 4; i++) {
+                    again.next();
+                }
+                assertEquals(hashed, again.key());
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testCsv_lineLongerThanWindow() throws Exception {
+        Path path = folder.newFile("long.csv").toPath();
+        Files.write(path, "123456789012345678\n".getBytes(StandardCharsets.US_ASCII));
+        try (TraceReader reader = new CsvTraceReader(path, 8)) {
+            reader.next();
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package cache.subcache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.junit.MockitoJUnitRunner;
+
+import cache.replacement.LeastRecentlyUsed;
+
+/**
+ * The behaviour every CacheSet implementation shares, each implementation's
+ * test extends it with the factory for its set.
+ *
+ * @param <S>
+ *            the type of cache set under test
+ */
+@RunWith(MockitoJUnitRunner.class)
+public abstract class AbstractCacheSetTest<S extends CacheSet<String, String>> {
+
+    protected static final int MAX_BLOCKS = 10;
+
+    protected KeyedReplacementAlgorithm replacementAlgorithm;
+
+    protected S cacheSet;
+
+    /**
+     * @return a new, empty set holding up to maxBlocks entries
+     */
+    protected abstract S newSet(int maxBlocks);
+
+    /**
+     * @return a new set holding up to maxBlocks entries, evicting the least
+     *         recently used
+     */
+    protected S newLruSet(int maxBlocks) {
+        S set = newSet(maxBlocks);
+        set.setReplacementAlgorithm(new LeastRecentlyUsed<>());
+        return set;
+    }
+
+    @Before
+    public void setUpNewCache() {
+        replacementAlgorithm = mock(KeyedReplacementAlgorithm.class, KeyedReplacementAlgorithm.ANSWER);
+        cacheSet = newSet(MAX_BLOCKS);
+        cacheSet.setReplacementAlgorithm(replacementAlgorithm);
+    }
+
+    @Test
+    public void testPut_nullKey() throws Exception {
+        String key = null;
+        String value = "value";
+        cacheSet.put(key, value);
+        verify(replacementAlgorithm, never()).evict(any());
+        assertEquals(value, cacheSet.get(key));
+        assertEquals(1, cacheSet.size());
+    }
+
+    @Test
+    public void testMaintenance_defersEviction() throws Exception {
+        List<Runnable> tasks = new ArrayList<>();
+        S deferred = newLruSet(MAX_BLOCKS);
+        deferred.setMaintenance(new Maintenance(tasks::add, 2, 3, 1));
+        for (int i = 0; i < MAX_BLOCKS + 2; i++) {
+            assertNull(deferred.put("key" + i, "value" + i));
+        }
+        assertEquals(MAX_BLOCKS + 2, deferred.size());
+        assertEquals(1, tasks.size());
+
+        // at the high watermark a put has to evict inline
+        assertEquals("value0", deferred.put("newKey", "newValue"));
+        assertEquals(MAX_BLOCKS + 2, deferred.size());
+        assertEquals(1, tasks.size());
+
+        tasks.get(0).run();
+        assertEquals(MAX_BLOCKS - 3, deferred.size());
+        assertFalse(deferred.containsKey("key5"));
+        assertEquals("newValue", deferred.get("newKey"));
+    }
+
+    @Test
+    public void testMaintenance_rejectedExecutionEvictsInline() throws Exception {
+        List<Runnable> tasks = new ArrayList<>();
+        boolean[] reject = { true };
+        S deferred = newLruSet(MAX_BLOCKS);
+        deferred.setMaintenance(new Maintenance(task -> {
+            if (reject[0]) {
+                throw new RejectedExecutionException("shut down");
+            }
+            tasks.add(task);
+        }, 2, 3, 1));
+
+        assertNull(deferred.put("newKey", "newValue"));
+        for (int i = 0; i < MAX_BLOCKS; i++) {
+            deferred.put("key" + i, "value" + i);
+        }
+        assertEquals(MAX_BLOCKS - 3, deferred.size());
+        assertFalse(deferred.containsKey("newKey"));
+
+        // the rejected maintenance is not left scheduled
+        reject[0] = false;
+        for (int i = 0; i < 4; i++) {
+            deferred.put("other" + i, "value" + i);
+        }
+        assertEquals(1, tasks.size());
+    }
+
+    @Test
+    public void testRecordAccess_reachesReplacementAlgorithm() throws Exception {
+        S lru = newLruSet(2);
+        lru.put("a", "1");
+        lru.put("b", "2");
+
+        lru.recordAccess("a");
+        lru.recordAccess("missing");
+        lru.put("c", "3");
+
+        assertTrue(lru.containsKey("a"));
+        assertFalse(lru.containsKey("b"));
+        assertFalse(lru.containsKey("missing"));
+    }
+
+    @Test
+    public void testRemovalListener_causes() throws Exception {
+        List<String> removals = new ArrayList<>();
+        S listened = newLruSet(2);
+        listened.setRemovalListener((k, v, cause) -> removals.add(cause + " " + k + "=" + v));
+
+        listened.put("a", "1");
+        listened.put("a", "2");
+        listened.put("b", "3");
+        listened.put("c", "4");
+        listened.remove("b");
+        listened.put("d", "5");
+        listened.displace("d");
+        listened.clear();
+
+        assertEquals(Arrays.asList("REPLACED a=1", "EVICTED a=2", "EXPLICIT b=3", "REPLACED d=5", "CLEARED c=4"),
+            removals);
+        assertEquals(1L, listened.getEvictionCount());
+    }
+
+    @Test
+    public void testWeakValues_collectedEntriesAreRemoved() throws Exception {
+        List<String> removals = new ArrayList<>();
+        cacheSet.setValueStrength(ValueStrength.WEAK);
+        cacheSet.setRemovalListener((k, v, cause) -> removals.add(cause + " " + k));
+        String kept = new String("kept");
+        cacheSet.put("kept", kept);
+        cacheSet.put("key", new String("value"));
+
+        for (int i = 0; i < 100 && cacheSet.size() > 1; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        // no longer counted, but only removed by the next write
+        assertEquals(1, cacheSet.size());
+        assertFalse(cacheSet.containsKey("key"));
+        assertEquals(kept, cacheSet.get("kept"));
+        verify(replacementAlgorithm, never()).notifyDelete("key");
+
+        cacheSet.put("other", kept);
+        assertEquals(2, cacheSet.size());
+        verify(replacementAlgorithm, times(1)).notifyDelete("key");
+        assertEquals(Arrays.asList("EXPIRED key"), removals);
+    }
+
+    @Test
+    public void testWeakValues_staleEntriesAreUncountedOnce() throws Exception {
+        cacheSet.setValueStrength(ValueStrength.WEAK);
+        cacheSet.put("key", new String("value"));
+
+        for (int i = 0; i < 100 && cacheSet.size() > 0; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertEquals(0, cacheSet.size());
+
+        cacheSet.remove("key");
+        cacheSet.put("other", "value");
+        assertEquals(1, cacheSet.size());
+    }
+
+    @Test
+    public void testSetCapacity_evictsDownAndRestores() throws Exception {
+        List<String> evicted = new ArrayList<>();
+        cacheSet = newLruSet(MAX_BLOCKS);
+        cacheSet.setRemovalListener((k, v, cause) -> evicted.add(k));
+        for (int i = 0; i < MAX_BLOCKS; i++) {
+            cacheSet.put("key" + i, "value" + i);
+        }
+
+        cacheSet.setCapacity(4);
+
+        assertEquals(4, cacheSet.getCapacity());
+        assertEquals(MAX_BLOCKS, cacheSet.maxSize());
+        assertEquals(4, cacheSet.size());
+        assertEquals(Arrays.asList("key0", "key1", "key2", "key3", "key4", "key5"), evicted);
+        cacheSet.put("key10", "value10");
+        assertEquals(4, cacheSet.size());
+
+        cacheSet.setCapacity(MAX_BLOCKS);
+        for (int i = 11; i < 17; i++) {
+            cacheSet.put("key" + i, "value" + i);
+        }
+        assertEquals(MAX_BLOCKS, cacheSet.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSetCapacity_aboveMaxSize() {
+        cacheSet.setCapacity(MAX_BLOCKS + 1);
+    }
+
+    @Test
+    public void testCompute_notifiesReplacementAlgorithmOnce() throws Exception {
+        List<String> removals = new ArrayList<>();
+        cacheSet.setRemovalListener((k, v, cause) -> removals.add(cause + " " + v));
+        cacheSet.put("key", "value");
+
+        assertEquals("value", cacheSet.putIfAbsent("key", "other"));
+        assertEquals("value1", cacheSet.merge("key", "1", String::concat));
+        assertEquals("value1", cacheSet.get("key"));
+        verify(replacementAlgorithm, times(3)).notifyAccess("key");
+
+        assertNull(cacheSet.computeIfPresent("key", (k, v) -> null));
+        assertFalse(cacheSet.containsKey("key"));
+        verify(replacementAlgorithm, times(1)).notifyDelete("key");
+        assertEquals(Arrays.asList("REPLACED value", "EXPLICIT value1"), removals);
+    }
+
+    @Test
+    public void testCompute_evictsForNewKey() throws Exception {
+        cacheSet = newLruSet(1);
+        cacheSet.put("key", "value");
+
+        assertEquals("other", cacheSet.computeIfAbsent("other", k -> k));
+        assertEquals(1, cacheSet.size());
+        assertFalse(cacheSet.containsKey("key"));
+        assertEquals(1L, cacheSet.getEvictionCount());
+    }
+
+    @Test
+    public void testContainsKeyQuietly_recordsNothing() throws Exception {
+        S lru = newLruSet(2);
+        CountingBloomFilter filter = new CountingBloomFilter(2);
+        lru.setBloomFilter(filter);
+        lru.put("a", "1");
+        lru.put("b", "2");
+
+        assertTrue(lru.containsKeyQuietly("a"));
+        assertFalse(lru.containsKeyQuietly("missing"));
+        assertEquals(0L, filter.getNegatives() + filter.getFalsePositives());
+
+        lru.put("c", "3");
+        assertFalse(lru.containsKey("a"));
+        assertTrue(lru.containsKey("b"));
+    }
+
+    @Test
+    public void testBloomFilter_tracksPutRemoveAndEviction() throws Exception {
+        cacheSet = newLruSet(2);
+        cacheSet.put("key0", "value0");
+        CountingBloomFilter filter = new CountingBloomFilter(2);
+        cacheSet.setBloomFilter(filter);
+        cacheSet.put("key1", "value1");
+        cacheSet.put("key2", "value2");
+        cacheSet.remove("key1");
+
+        assertTrue(filter.mightContain("key2"));
+        assertFalse(filter.mightContain("key0"));
+        assertFalse(filter.mightContain("key1"));
+        assertFalse(cacheSet.containsKey("key0"));
+        assertEquals("value2", cacheSet.get("key2"));
+        assertEquals(1L, filter.getNegatives());
+
+        cacheSet.clear();
+        assertFalse(filter.mightContain("key2"));
+    }
+}
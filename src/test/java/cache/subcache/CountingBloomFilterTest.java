@@ -0,0 +1,72 @@
+package cache.subcache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class CountingBloomFilterTest {
+
+    private CountingBloomFilter filter = new CountingBloomFilter(64);
+
+    @Test
+    public void testMightContain_neverFalseNegative() {
+        for (int i = 0; i < 64; i++) {
+            filter.add(i);
+        }
+        for (int i = 0; i < 64; i++) {
+            assertTrue(filter.mightContain(i));
+        }
+    }
+
+    @Test
+    public void testRemove_forgetsKey() {
+        filter.add("key");
+        filter.add("other");
+        filter.remove("key");
+
+        assertFalse(filter.mightContain("key"));
+        assertTrue(filter.mightContain("other"));
+    }
+
+    @Test
+    public void testMightContain_falsePositiveRateWhenFull() {
+        for (int i = 0; i < 64; i++) {
+            filter.add(i);
+        }
+        int falsePositives = 0;
+        for (int i = 1000; i < 11000; i++) {
+            if (filter.mightContain(i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue("false positives " + falsePositives, falsePositives < 500);
+    }
+
+    @Test
+    public void testSaturatedCountersStick() {
+        for (int i = 0; i < 20; i++) {
+            filter.add("key");
+        }
+        for (int i = 0; i < 19; i++) {
+            filter.remove("key");
+        }
+        // a counter stuck at 15 cannot tell how often it was incremented
+        assertTrue(filter.mightContain("key"));
+    }
+
+    @Test
+    public void testClear() {
+        filter.add("key");
+        filter.clear();
+
+        assertFalse(filter.mightContain("key"));
+    }
+
+    @Test
+    public void testGetBitsPerEntry() {
+        assertEquals(32.0, filter.getBitsPerEntry(), 0.0);
+        assertEquals(6, filter.getHashes());
+    }
+}
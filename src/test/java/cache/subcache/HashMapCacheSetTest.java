@@ -10,42 +10,18 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
-import org.junit.Before;
 import org.junit.Test;
-import org.junit.runner.RunWith;
-import org.mockito.Mock;
 import org.mockito.invocation.InvocationOnMock;
-import org.mockito.junit.MockitoJUnitRunner;
 import org.mockito.stubbing.Answer;
 
 import cache.exception.CacheMiss;
 import cache.exception.EvictionNotPossible;
-import cache.replacement.ReplacementAlgorithm;
 
-@RunWith(MockitoJUnitRunner.class)
-public class HashMapCacheSetTest {
+public class HashMapCacheSetTest extends AbstractCacheSetTest<HashMapCacheSet<String, String>> {
 
-    private static final int MAX_BLOCKS = 10;
-
-    @Mock
-    private ReplacementAlgorithm<String, String> replacementAlgorithm;
-
-    private HashMapCacheSet<String, String> cacheSet;
-
-    @Before
-    public void setUpNewCache() {
-        cacheSet = new HashMapCacheSet<>(MAX_BLOCKS);
-        cacheSet.setReplacementAlgorithm(replacementAlgorithm);
-    }
-
-    @Test
-    public void testPut_nullKey() throws Exception {
-        String key = null;
-        String value = "value";
-        cacheSet.put(key, value);
-        verify(replacementAlgorithm, never()).evict(any());
-        assertEquals(value, cacheSet.get(key));
-        assertEquals(1, cacheSet.size());
+    @Override
+    protected HashMapCacheSet<String, String> newSet(int maxBlocks) {
+        return new HashMapCacheSet<>(maxBlocks);
     }
 
     @Test
@@ -170,5 +146,4 @@ public class HashMapCacheSetTest {
         assertNull(removedValue);
         assertEquals(0, cacheSet.size());
     }
-
 }
@@ -0,0 +1,33 @@
+package cache.subcache;
+
+import java.lang.reflect.Modifier;
+
+import org.mockito.Answers;
+import org.mockito.stubbing.Answer;
+
+import cache.replacement.ReplacementAlgorithm;
+
+/**
+ * Mocked by the cache set tests in place of ReplacementAlgorithm, so that the
+ * way variants of notifyAccess and notifyDelete the sets call reach the key
+ * variants the tests verify.
+ */
+abstract class KeyedReplacementAlgorithm implements ReplacementAlgorithm<String, String> {
+
+    /**
+     * Calls the concrete methods below and answers the abstract ones like a
+     * plain mock.
+     */
+    static final Answer<Object> ANSWER = invocation -> Modifier.isAbstract(invocation.getMethod().getModifiers())
+        ? Answers.RETURNS_DEFAULTS.answer(invocation) : invocation.callRealMethod();
+
+    @Override
+    public void notifyAccess(String key, int way) {
+        notifyAccess(key);
+    }
+
+    @Override
+    public void notifyDelete(String key, int way) {
+        notifyDelete(key);
+    }
+}
@@ -0,0 +1,78 @@
+package cache.subcache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import cache.subcache.ReadBuffer.Status;
+
+public class ReadBufferTest {
+
+    @Test
+    public void testOffer_fullStripeDrops() {
+        ReadBuffer<String> buffer = new ReadBuffer<>(1);
+        for (int i = 0; i < ReadBuffer.STRIPE_SIZE; i++) {
+            assertEquals(Status.SUCCESS, buffer.offer("key" + i));
+        }
+        assertEquals(Status.FULL, buffer.offer("dropped"));
+        assertEquals(ReadBuffer.STRIPE_SIZE, buffer.size());
+
+        List<String> drained = new ArrayList<>();
+        buffer.drainTo(drained::add);
+        assertEquals(ReadBuffer.STRIPE_SIZE, drained.size());
+        for (int i = 0; i < ReadBuffer.STRIPE_SIZE; i++) {
+            assertEquals("key" + i, drained.get(i));
+        }
+        assertEquals(0, buffer.size());
+        assertEquals(Status.SUCCESS, buffer.offer("again"));
+    }
+
+    @Test
+    public void testOffer_nullElement() {
+        ReadBuffer<String> buffer = new ReadBuffer<>(1);
+        buffer.offer(null);
+        List<String> drained = new ArrayList<>();
+        buffer.drainTo(drained::add);
+        assertEquals(1, drained.size());
+        assertNull(drained.get(0));
+    }
+
+    @Test
+    public void testClear() {
+        ReadBuffer<String> buffer = new ReadBuffer<>(4);
+        buffer.offer("key");
+        buffer.clear();
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    public void testConcurrentOffers_neverExceedCapacity() throws Exception {
+        int threads = 4;
+        ReadBuffer<Integer> buffer = new ReadBuffer<>(threads);
+        AtomicInteger recorded = new AtomicInteger();
+        List<Thread> pool = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            pool.add(new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    if (buffer.offer(i) == Status.SUCCESS) {
+                        recorded.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        pool.forEach(Thread::start);
+        for (Thread thread : pool) {
+            thread.join();
+        }
+        AtomicInteger drained = new AtomicInteger();
+        buffer.drainTo(i -> drained.incrementAndGet());
+        assertEquals(recorded.get(), drained.get());
+        assertTrue(drained.get() <= threads * ReadBuffer.STRIPE_SIZE);
+    }
+}
@@ -0,0 +1,129 @@
+package cache.subcache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import org.junit.Test;
+
+import cache.exception.CacheMiss;
+import cache.exception.EvictionNotPossible;
+import cache.replacement.LeastRecentlyUsed;
+
+public class StampedLockCacheSetTest extends AbstractCacheSetTest<StampedLockCacheSet<String, String>> {
+
+    @Override
+    protected StampedLockCacheSet<String, String> newSet(int maxBlocks) {
+        return new StampedLockCacheSet<>(maxBlocks);
+    }
+
+    @Test
+    public void testPut_repeatKeys() throws Exception {
+        String keyPrefix = "key";
+        String valuePrefix = "value";
+        for (int i = 0; i < MAX_BLOCKS; i++) {
+            assertNull(cacheSet.put(keyPrefix + i, valuePrefix + i));
+        }
+        String newValuePrefix = "newValue";
+        for (int i = 0; i < MAX_BLOCKS; i++) {
+            assertEquals(valuePrefix + i, cacheSet.put(keyPrefix + i, newValuePrefix + i));
+        }
+        verify(replacementAlgorithm, never()).evict(any());
+
+        for (int i = 0; i < MAX_BLOCKS; i++) {
+            String actualKey = cacheSet.get(keyPrefix + i);
+            assertEquals(newValuePrefix + i, actualKey);
+            assertNotEquals(valuePrefix + i, actualKey);
+        }
+        assertEquals(MAX_BLOCKS, cacheSet.size());
+    }
+
+    @Test
+    public void testPut_evictOne() throws Exception {
+        String keyPrefix = "key";
+        String valuePrefix = "value";
+        for (int i = 0; i < MAX_BLOCKS; i++) {
+            cacheSet.put(keyPrefix + i, valuePrefix + i);
+        }
+        when(replacementAlgorithm.evict(any())).thenAnswer(invocation -> cacheSet.remove(keyPrefix + 0));
+
+        String oldValue = cacheSet.put("newKey", valuePrefix);
+
+        verify(replacementAlgorithm, times(1)).evict(any());
+        verify(replacementAlgorithm, times(1)).notifyDelete(keyPrefix + 0);
+        assertEquals(MAX_BLOCKS, cacheSet.size());
+        assertEquals(valuePrefix, cacheSet.get("newKey"));
+        assertEquals(valuePrefix + 0, oldValue);
+        assertFalse(cacheSet.containsKey(keyPrefix + 0));
+    }
+
+    @Test(expected = EvictionNotPossible.class)
+    public void testPut_evictOne_nothingRemoved() throws Exception {
+        for (int i = 0; i < MAX_BLOCKS; i++) {
+            cacheSet.put("key" + i, "value" + i);
+        }
+        when(replacementAlgorithm.evict(any())).thenReturn(null);
+
+        try {
+            cacheSet.put("newKey", "value");
+        } catch (EvictionNotPossible e) {
+            assertEquals(MAX_BLOCKS, cacheSet.size());
+            assertFalse(cacheSet.containsKey("newKey"));
+            throw e;
+        }
+    }
+
+    @Test(expected = CacheMiss.class)
+    public void testGet_cacheMisses() throws Exception {
+        cacheSet.put("key", "value");
+        cacheSet.get("nonExistent");
+    }
+
+    @Test
+    public void testRemove_keepsCollidingKeysReachable() throws Exception {
+        // keys with identical hash codes share a probe sequence
+        String first = "Aa";
+        String second = "BB";
+        String third = "C#";
+        cacheSet.put(first, first);
+        cacheSet.put(second, second);
+        cacheSet.put(third, third);
+
+        assertEquals(first, cacheSet.remove(first));
+        assertEquals(second, cacheSet.get(second));
+        assertEquals(third, cacheSet.get(third));
+        assertNull(cacheSet.remove(first));
+        assertEquals(2, cacheSet.size());
+    }
+
+    @Test
+    public void testClear() throws Exception {
+        for (int i = 0; i < MAX_BLOCKS; i++) {
+            cacheSet.put("key" + i, "value" + i);
+        }
+        cacheSet.clear();
+        verify(replacementAlgorithm, times(1)).reset();
+        assertTrue(cacheSet.isEmpty());
+        assertTrue(cacheSet.keys().isEmpty());
+    }
+
+    @Test
+    public void testLeastRecentlyUsed() throws Exception {
+        StampedLockCacheSet<String, String> lruSet = new StampedLockCacheSet<>(2);
+        lruSet.setReplacementAlgorithm(new LeastRecentlyUsed<>());
+        lruSet.put("a", "a");
+        lruSet.put("b", "b");
+        lruSet.get("a");
+
+        assertEquals("b", lruSet.put("c", "c"));
+        assertTrue(lruSet.containsKey("a"));
+        assertTrue(lruSet.containsKey("c"));
+    }
+}
@@ -0,0 +1,92 @@
+package cache.tiered;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class CompressedStoreTest {
+
+    private static byte[] value(int seed, int length) {
+        byte[] bytes = new byte[length];
+        Arrays.fill(bytes, (byte) seed);
+        return bytes;
+    }
+
+    @Test
+    public void testPutGetRemove() {
+        CompressedStore store = CompressedStore.offHeap(1024);
+        assertTrue(store.put("key", value(1, 500)));
+        assertTrue(store.put(null, value(2, 10)));
+
+        assertArrayEquals(value(1, 500), store.get("key"));
+        assertArrayEquals(value(2, 10), store.get(null));
+        assertTrue(store.getUsedBytes() < store.getUncompressedBytes());
+
+        assertArrayEquals(value(1, 500), store.remove("key"));
+        assertNull(store.get("key"));
+        assertFalse(store.containsKey("key"));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    public void testPut_replacesValue() {
+        CompressedStore store = CompressedStore.offHeap(1024);
+        store.put("key", value(1, 100));
+        store.put("key", value(2, 100));
+
+        assertArrayEquals(value(2, 100), store.get("key"));
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    public void testPut_wrapsAroundDroppingOldest() {
+        // random bytes do not compress, so only three values fit
+        CompressedStore store = CompressedStore.offHeap(350);
+        Random random = new Random(1);
+        byte[][] values = new byte[5][100];
+        for (int i = 0; i < values.length; i++) {
+            random.nextBytes(values[i]);
+            assertTrue(store.put(i, values[i]));
+        }
+
+        assertFalse(store.containsKey(0));
+        assertFalse(store.containsKey(1));
+        assertArrayEquals(values[2], store.get(2));
+        assertArrayEquals(values[3], store.get(3));
+        assertArrayEquals(values[4], store.get(4));
+        assertEquals(2L, store.getEvictions());
+        assertTrue(store.getUsedBytes() <= store.getCapacity());
+    }
+
+    @Test
+    public void testPut_tooLarge() {
+        CompressedStore store = CompressedStore.offHeap(16);
+        byte[] incompressible = new byte[64];
+        new Random(1).nextBytes(incompressible);
+
+        assertFalse(store.put("key", incompressible));
+        assertFalse(store.containsKey("key"));
+    }
+
+    @Test
+    public void testFile() throws Exception {
+        Path file = Files.createTempFile("compressed-store", ".bin");
+        try {
+            CompressedStore store = CompressedStore.file(file, 4096);
+            store.put("key", value(3, 2000));
+            assertArrayEquals(value(3, 2000), store.get("key"));
+            assertEquals(4096L, Files.size(file));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package cache.trace;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class TraceRecorderTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private TraceRecorder newRecorder(int sampleRate, long maxFileSize, int maxFiles) throws Exception {
+        // an interval long enough that only flush() drains
+        return new TraceRecorder(folder.getRoot().toPath(), sampleRate, maxFileSize, maxFiles, 1, TimeUnit.HOURS);
+    }
+
+    private int records(Path file) throws Exception {
+        return (int) (Files.size(file) - TraceFormat.HEADER_SIZE) / TraceFormat.RECORD_SIZE;
+    }
+
+    @Test
+    public void testFlush_writesRecords() throws Exception {
+        try (TraceRecorder recorder = newRecorder(1, TraceRecorder.DEFAULT_MAX_FILE_SIZE, 1)) {
+            recorder.onAccess(7L, 3, true);
+            recorder.onAccess("key", 1, false);
+            recorder.onPut(7L, 3);
+            recorder.onRemove(7L, 3);
+            recorder.flush();
+
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(recorder.file(0)));
+            TraceFormat.readHeader(buffer);
+            assertEquals(4, buffer.remaining() / TraceFormat.RECORD_SIZE);
+
+            long timestamp = buffer.getLong();
+            assertEquals(7L, buffer.getLong());
+            assertEquals(Operation.GET.getCode(), buffer.get());
+            assertEquals(TraceFormat.HIT, buffer.get());
+            buffer.getShort();
+            assertEquals(3, buffer.getInt());
+
+            assertTrue(buffer.getLong() >= timestamp);
+            assertEquals(TraceFormat.keyHash("key"), buffer.getLong());
+            assertEquals(Operation.GET.getCode(), buffer.get());
+            assertEquals(TraceFormat.MISS, buffer.get());
+            buffer.getShort();
+            assertEquals(1, buffer.getInt());
+
+            buffer.position(buffer.position() + 16);
+            assertEquals(Operation.PUT.getCode(), buffer.get());
+            assertEquals(TraceFormat.UNKNOWN, buffer.get());
+        }
+    }
+
+    @Test
+    public void testFlush_rotatesFiles() throws Exception {
+        long twoRecords = TraceFormat.HEADER_SIZE + 2 * TraceFormat.RECORD_SIZE;
+        try (TraceRecorder recorder = newRecorder(1, twoRecords, 2)) {
+            for (long i = 0; i < 7; i++) {
+                recorder.onAccess(i, 0, true);
+            }
+            recorder.flush();
+
+            assertEquals(3, recorder.getFileIndex());
+            assertFalse(Files.exists(recorder.file(1)));
+            assertEquals(2, records(recorder.file(2)));
+            assertEquals(1, records(recorder.file(3)));
+        }
+    }
+
+    @Test
+    public void testOnAccess_dropsWhenRingIsFull() throws Exception {
+        try (TraceRecorder recorder = newRecorder(1, TraceRecorder.DEFAULT_MAX_FILE_SIZE, 1)) {
+            for (long i = 0; i < TraceRecorder.RING_SIZE + 5; i++) {
+                recorder.onAccess(i, 0, true);
+            }
+            assertEquals(5, recorder.getDropped());
+
+            recorder.flush();
+            recorder.onAccess(0L, 0, true);
+            recorder.flush();
+            assertEquals(TraceRecorder.RING_SIZE + 1, records(recorder.file(0)));
+        }
+    }
+
+    @Test
+    public void testOnAccess_threadsShareTheStripedRings() throws Exception {
+        try (TraceRecorder recorder = newRecorder(1, TraceRecorder.DEFAULT_MAX_FILE_SIZE, 1)) {
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 4 * TraceRecorder.STRIPES; t++) {
+                long key = t;
+                Thread thread = new Thread(() -> {
+                    for (int i = 0; i < 10; i++) {
+                        recorder.onAccess(key, 0, true);
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            recorder.flush();
+
+            assertEquals(0, recorder.getDropped());
+            assertEquals(40 * TraceRecorder.STRIPES, records(recorder.file(0)));
+        }
+    }
+
+    @Test
+    public void testFlush_mergesRingsByTimestamp() throws Exception {
+        try (TraceRecorder recorder = newRecorder(1, TraceRecorder.DEFAULT_MAX_FILE_SIZE, 1)) {
+            List<Thread> threads = new ArrayList<>();
+            for (int t = 0; t < 2 * TraceRecorder.STRIPES; t++) {
+                long key = t;
+                Thread thread = new Thread(() -> {
+                    for (int i = 0; i < 20; i++) {
+                        recorder.onAccess(key, 0, true);
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            recorder.flush();
+
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(recorder.file(0)));
+            TraceFormat.readHeader(buffer);
+            assertEquals(40 * TraceRecorder.STRIPES, buffer.remaining() / TraceFormat.RECORD_SIZE);
+            long previous = Long.MIN_VALUE;
+            while (buffer.hasRemaining()) {
+                long timestamp = buffer.getLong();
+                assertTrue(timestamp >= previous);
+                previous = timestamp;
+                buffer.position(buffer.position() + TraceFormat.RECORD_SIZE - 8);
+            }
+        }
+    }
+
+    @Test
+    public void testOnAccess_samplesKeys() throws Exception {
+        try (TraceRecorder recorder = newRecorder(4, TraceRecorder.DEFAULT_MAX_FILE_SIZE, 1)) {
+            for (int round = 0; round < 2; round++) {
+                for (long i = 0; i < 2000; i++) {
+                    recorder.onAccess(i, 0, true);
+                }
+                recorder.flush();
+            }
+            int recorded = records(recorder.file(0));
+            // every access of a sampled key is kept
+            assertEquals(0, recorded % 2);
+            assertEquals(1000, recorded, 150);
+        }
+    }
+
+    @Test
+    public void testClose_flushesRemainingRecords() throws Exception {
+        TraceRecorder recorder = newRecorder(1, TraceRecorder.DEFAULT_MAX_FILE_SIZE, 1);
+        recorder.onAccess(1L, 0, false);
+        recorder.close();
+        assertEquals(1, records(recorder.file(0)));
+    }
+}
@@ -0,0 +1,83 @@
+package cache.victim;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+public class VictimBufferTest {
+
+    @Test
+    public void testOffer_dropsOldest() {
+        List<String> dropped = new ArrayList<>();
+        VictimBuffer<String, String> buffer = new VictimBuffer<>(2);
+        buffer.offer("a", "1", (k, v) -> dropped.add(k + "=" + v));
+        buffer.offer("b", "2", (k, v) -> dropped.add(k + "=" + v));
+        buffer.offer("c", "3", (k, v) -> dropped.add(k + "=" + v));
+
+        assertEquals(Arrays.asList("a=1"), dropped);
+        assertEquals(2, buffer.size());
+        assertFalse(buffer.containsKey("a"));
+        assertTrue(buffer.containsKey("c"));
+    }
+
+    @Test
+    public void testOffer_sameKeyKeepsLatest() {
+        VictimBuffer<String, String> buffer = new VictimBuffer<>(2);
+        buffer.offer("a", "1", (k, v) -> {
+        });
+        buffer.offer("a", "2", (k, v) -> {
+        });
+        assertEquals(1, buffer.size());
+        assertEquals("2", buffer.take("a"));
+    }
+
+    @Test
+    public void testTake_countsHitsAndMisses() {
+        VictimBuffer<String, String> buffer = new VictimBuffer<>(2);
+        buffer.offer(null, "1", (k, v) -> {
+        });
+
+        assertEquals("1", buffer.take(null));
+        assertNull(buffer.take(null));
+        assertEquals(1, buffer.getHits());
+        assertEquals(1, buffer.getMisses());
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    public void testTake_freesRoom() {
+        List<String> dropped = new ArrayList<>();
+        VictimBuffer<String, String> buffer = new VictimBuffer<>(1);
+        for (int i = 0; i < 100; i++) {
+            buffer.offer("key" + i, "value", (k, v) -> dropped.add(k));
+            buffer.take("key" + i);
+        }
+        assertTrue(dropped.isEmpty());
+    }
+
+    @Test
+    public void testClear() {
+        List<String> removed = new ArrayList<>();
+        VictimBuffer<String, String> buffer = new VictimBuffer<>(4);
+        buffer.offer("a", "1", (k, v) -> {
+        });
+        buffer.offer("b", "2", (k, v) -> {
+        });
+        buffer.clear((k, v) -> removed.add(k));
+
+        assertEquals(Arrays.asList("a", "b"), removed);
+        assertEquals(0, buffer.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testConstructor_invalidCapacity() {
+        new VictimBuffer<String, String>(0);
+    }
+}
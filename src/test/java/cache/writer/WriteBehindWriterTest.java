@@ -0,0 +1,149 @@
+package cache.writer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class WriteBehindWriterTest {
+
+    private static final int BATCH_SIZE = 3;
+
+    private InMemoryStore store;
+
+    private WriteBehindWriter<String, String> writer;
+
+    @Before
+    public void setup() {
+        store = new InMemoryStore();
+        writer = new WriteBehindWriter<>(store, BATCH_SIZE, 1, TimeUnit.HOURS);
+    }
+
+    @After
+    public void tearDown() {
+        writer.close();
+    }
+
+    @Test
+    public void testWrite_coalescesRepeatedKeys() {
+        writer.write("key", "value1");
+        writer.write("key", "value2");
+        writer.write("key", "value3");
+        assertTrue(store.data.isEmpty());
+        assertEquals(1, writer.pending());
+
+        writer.flush();
+
+        assertEquals("value3", store.data.get("key"));
+        assertEquals(1, store.writes.size());
+        assertEquals(0, writer.pending());
+    }
+
+    @Test
+    public void testDelete_afterWrite() {
+        store.data.put("key", "stored");
+        writer.write("key", "value");
+        writer.delete("key");
+        writer.flush();
+
+        assertFalse(store.data.containsKey("key"));
+        assertTrue(store.writes.isEmpty());
+    }
+
+    @Test
+    public void testFlush_inBatches() {
+        for (int i = 0; i < BATCH_SIZE * 2 + 1; i++) {
+            writer.write("key" + i, "value" + i);
+        }
+        writer.flush();
+        assertEquals(BATCH_SIZE * 2 + 1, store.data.size());
+        for (Map<String, String> batch : store.writes) {
+            assertTrue(batch.size() <= BATCH_SIZE);
+        }
+    }
+
+    @Test
+    public void testWrite_fullBatchFlushesInBackground() throws Exception {
+        store.latch = new CountDownLatch(BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            writer.write("key" + i, "value" + i);
+        }
+        assertTrue(store.latch.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testOnEviction_pendingKeyFlushedInBackground() throws Exception {
+        store.latch = new CountDownLatch(1);
+        writer.write("evicted", "value");
+        writer.onEviction("evicted", "value");
+        assertTrue(store.latch.await(5, TimeUnit.SECONDS));
+        assertEquals("value", store.data.get("evicted"));
+    }
+
+    @Test
+    public void testFlush_failedBatchStaysPending() {
+        writer.write("key", "value");
+        store.failing = true;
+        try {
+            writer.flush();
+            fail("The store failure should be rethrown");
+        } catch (IllegalStateException e) {
+            assertEquals(1, writer.pending());
+            assertEquals(1, writer.getFailedBatches());
+        }
+        store.failing = false;
+        writer.flush();
+        assertEquals("value", store.data.get("key"));
+    }
+
+    @Test
+    public void testNullKey() {
+        writer.write(null, "value");
+        writer.flush();
+        assertEquals("value", store.data.get(null));
+    }
+
+    private static class InMemoryStore implements CacheWriter<String, String> {
+        private final Map<String, String> data = new HashMap<>();
+        private final List<Map<String, String>> writes = new ArrayList<>();
+        private volatile boolean failing = false;
+        private volatile CountDownLatch latch = new CountDownLatch(0);
+
+        @Override
+        public synchronized void write(String key, String value) {
+            data.put(key, value);
+            latch.countDown();
+        }
+
+        @Override
+        public synchronized void writeAll(Map<String, String> entries) {
+            if (failing) {
+                throw new IllegalStateException("store unavailable");
+            }
+            writes.add(new HashMap<>(entries));
+            entries.forEach(this::write);
+        }
+
+        @Override
+        public synchronized void delete(String key) {
+            data.remove(key);
+        }
+
+        @Override
+        public synchronized void deleteAll(Collection<String> keys) {
+            keys.forEach(this::delete);
+        }
+    }
+}